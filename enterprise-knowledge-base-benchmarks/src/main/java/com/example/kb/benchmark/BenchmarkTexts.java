@@ -0,0 +1,93 @@
+package com.example.kb.benchmark;
+
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试使用的文本：固定种子的中英混排随机文本，以及 classpath 下 fixtures 目录中的代表性文档
+ */
+public final class BenchmarkTexts {
+
+    private static final String[] WORDS = {
+            "知识库", "文档", "向量", "检索", "分类", "用户", "问题", "答案", "系统", "配置",
+            "Spring", "PostgreSQL", "pgvector", "embedding", "index", "query", "token", "latency",
+            "的", "是", "在", "和", "了", "对", "。", "，", "2024", "v1.0"
+    };
+
+    private static final List<String> FIXTURES = List.of("jvm-gc-guide.md", "incident-runbook.md");
+
+    private BenchmarkTexts() {
+    }
+
+    /**
+     * 依次拼接 fixture 文档直到达到指定字符数
+     */
+    public static String document(int chars) {
+        List<String> fixtures = FIXTURES.stream().map(BenchmarkTexts::fixture).toList();
+        StringBuilder text = new StringBuilder(chars + 8192);
+        for (int i = 0; text.length() < chars; i++) {
+            text.append(fixtures.get(i % fixtures.size())).append('\n');
+        }
+        text.setLength(chars);
+        return text.toString();
+    }
+
+    /**
+     * 把文档按固定字符数切成页，模拟 PagePdfDocumentReader 每页一个 Document 的输出
+     */
+    static List<Document> pages(String text, int pageChars) {
+        List<Document> pages = new ArrayList<>();
+        for (int start = 0, page = 1; start < text.length(); start += pageChars, page++) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("page_number", page);
+            metadata.put("file_name", "fixture.pdf");
+            pages.add(new Document(text.substring(start, Math.min(text.length(), start + pageChars)), metadata));
+        }
+        return pages;
+    }
+
+    private static String fixture(String name) {
+        try (InputStream in = BenchmarkTexts.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("找不到 fixture: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String prompt(Random random, int chars, int sensitiveEvery) {
+        StringBuilder text = new StringBuilder(chars + 64);
+        int nextSensitive = sensitiveEvery > 0 ? random.nextInt(sensitiveEvery) : Integer.MAX_VALUE;
+        while (text.length() < chars) {
+            if (text.length() >= nextSensitive) {
+                text.append(sensitive(random));
+                nextSensitive += sensitiveEvery / 2 + random.nextInt(sensitiveEvery);
+            } else {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            text.append(random.nextInt(12) == 0 ? '\n' : ' ');
+        }
+        text.setLength(chars);
+        return text.toString();
+    }
+
+    private static String sensitive(Random random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> String.format("%04d-%04d-%04d-%04d", random.nextInt(10000), random.nextInt(10000),
+                    random.nextInt(10000), random.nextInt(10000));
+            case 1 -> String.format("%03d-%02d-%04d", random.nextInt(1000), random.nextInt(100), random.nextInt(10000));
+            default -> "user" + random.nextInt(100000) + "@example.com";
+        };
+    }
+}
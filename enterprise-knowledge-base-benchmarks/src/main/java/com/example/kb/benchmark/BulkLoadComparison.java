@@ -0,0 +1,140 @@
+package com.example.kb.benchmark;
+
+import com.example.kb.vectorstore.VectorBulkLoader;
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore.PgIdType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * 对比 PgVectorStore 的批量 INSERT 与 {@link VectorBulkLoader} 二进制 COPY 的写入耗时
+ * <p>
+ * 在指定数据库中建一张与向量表结构相同的临时表（带 HNSW 索引），先按 PgVectorStore 的 upsert 语句逐批写入，
+ * 清空后再开启导入窗口以 COPY 写入并重建索引。向量为随机生成，不调用向量化接口，结束后删除临时表。
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.kb.benchmark.BulkLoadComparison \
+ *     --jdbc-url=jdbc:postgresql://localhost:5432/enterprise_kb --rows=200000 --parallel-workers=4
+ * </pre>
+ */
+public final class BulkLoadComparison {
+
+    private static final String TABLE = "kb_bulk_load_comparison";
+
+    public static void main(String[] argv) throws InterruptedException {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            args.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (!args.containsKey("jdbc-url")) {
+            throw new IllegalArgumentException("需要指定 --jdbc-url");
+        }
+        int rows = Integer.parseInt(args.getOrDefault("rows", "100000"));
+        int dimensions = Integer.parseInt(args.getOrDefault("dimensions", "1536"));
+        int batchSize = Integer.parseInt(args.getOrDefault("batch-size", "10000"));
+        int parallelWorkers = Integer.parseInt(args.getOrDefault("parallel-workers", "4"));
+
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(args.get("jdbc-url"),
+                args.getOrDefault("user", "postgres"), args.getOrDefault("password", "postgres"), true);
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            TransactionTemplate transactionTemplate = new TransactionTemplate(
+                    new DataSourceTransactionManager(dataSource));
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (id uuid PRIMARY KEY, content text, metadata json, "
+                    + "embedding vector(" + dimensions + "))");
+            jdbcTemplate.execute("CREATE INDEX " + TABLE + "_idx ON " + TABLE
+                    + " USING hnsw (embedding vector_cosine_ops)");
+            System.out.printf("%d 行, %d 维, 每批 %d 行%n", rows, dimensions, batchSize);
+
+            Random random = new Random(42);
+            long start = System.nanoTime();
+            for (int offset = 0; offset < rows; offset += batchSize) {
+                List<Object[]> batch = new ArrayList<>();
+                for (Document document : documents(Math.min(batchSize, rows - offset), offset)) {
+                    PGvector embedding = new PGvector(randomVector(random, dimensions));
+                    batch.add(new Object[]{UUID.fromString(document.getId()), document.getText(),
+                            metadataJson(offset), embedding, document.getText(), metadataJson(offset), embedding});
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO " + TABLE + " (id, content, metadata, embedding) "
+                        + "VALUES (?, ?, ?::jsonb, ?) ON CONFLICT (id) DO UPDATE SET content = ? , "
+                        + "metadata = ?::jsonb , embedding = ? ", batch);
+            }
+            report("INSERT（维护索引）", rows, System.nanoTime() - start, 0);
+
+            jdbcTemplate.execute("TRUNCATE " + TABLE);
+            VectorBulkLoader loader = new VectorBulkLoader(jdbcTemplate, transactionTemplate, "public", TABLE,
+                    PgIdType.UUID, null, true, parallelWorkers, args.getOrDefault("maintenance-work-mem", "2GB"));
+            random = new Random(42);
+            start = System.nanoTime();
+            loader.begin();
+            for (int offset = 0; offset < rows; offset += batchSize) {
+                List<Document> documents = documents(Math.min(batchSize, rows - offset), offset);
+                List<float[]> embeddings = new ArrayList<>();
+                for (int i = 0; i < documents.size(); i++) {
+                    embeddings.add(randomVector(random, dimensions));
+                }
+                loader.copy(documents, embeddings);
+            }
+            VectorBulkLoader.Status status = loader.finish();
+            // 索引在后台重建，等待完成后再计时
+            while (status.rebuilding()) {
+                Thread.sleep(100);
+                status = loader.status();
+            }
+            loader.close();
+            if (status.rebuildError() != null) {
+                throw new IllegalStateException("索引重建失败: " + status.rebuildError());
+            }
+            report("COPY + 重建索引", rows, System.nanoTime() - start, status.rebuildMs());
+        } finally {
+            new JdbcTemplate(dataSource).execute("DROP TABLE IF EXISTS " + TABLE);
+            new JdbcTemplate(dataSource).execute("DROP TABLE IF EXISTS " + TABLE + "_bulk_load");
+            dataSource.destroy();
+        }
+    }
+
+    private static List<Document> documents(int count, int offset) {
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(Document.builder()
+                    .id(UUID.randomUUID().toString())
+                    .text("chunk " + (offset + i) + " " + "x".repeat(800))
+                    .metadata(Map.of("document_id", String.valueOf(offset / 100), "category", "bench"))
+                    .build());
+        }
+        return documents;
+    }
+
+    private static String metadataJson(int offset) {
+        return "{\"document_id\":\"" + offset / 100 + "\",\"category\":\"bench\"}";
+    }
+
+    private static float[] randomVector(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static void report(String name, int rows, long nanos, long rebuildMs) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-16s 总耗时 %8.1fs  %10.0f 行/秒%s%n", name, seconds, rows / seconds,
+                rebuildMs > 0 ? String.format("（其中重建索引 %.1fs）", rebuildMs / 1e3) : "");
+    }
+}
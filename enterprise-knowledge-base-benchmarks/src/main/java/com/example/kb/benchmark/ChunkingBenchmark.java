@@ -0,0 +1,65 @@
+package com.example.kb.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenTextSplitter 在不同 app.knowledge-base.vectorization 参数下的分块耗时
+ * <p>
+ * 输入为 fixture 文档拼成的 256 KB 文本（约 100 页 PDF），按页切分后整体交给分块器，与 DocumentService 一致。
+ * 参数名与配置项一一对应，注意 AIConfiguration 会把低于默认值的配置提升到默认值。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkingBenchmark {
+
+    @Param({"262144"})
+    public int documentChars;
+
+    @Param({"2000"})
+    public int pageChars;
+
+    @Param({"400", "800", "1200"})
+    public int chunkSize;
+
+    @Param({"350"})
+    public int minChunkSizeChars;
+
+    @Param({"5"})
+    public int minChunkLengthToEmbed;
+
+    @Param({"10000"})
+    public int maxNumChunks;
+
+    private List<Document> pages;
+    private TokenTextSplitter splitter;
+
+    @Setup
+    public void setUp() {
+        pages = BenchmarkTexts.pages(BenchmarkTexts.document(documentChars), pageChars);
+        splitter = new TokenTextSplitter(chunkSize, minChunkSizeChars, minChunkLengthToEmbed, maxNumChunks, false);
+    }
+
+    @Benchmark
+    public List<Document> split() {
+        return splitter.apply(pages);
+    }
+}
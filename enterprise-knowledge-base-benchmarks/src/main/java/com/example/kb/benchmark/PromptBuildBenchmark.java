@@ -0,0 +1,132 @@
+package com.example.kb.benchmark;
+
+import com.example.kb.advisor.SecurityAdvisor;
+import com.example.kb.prompt.PromptAssembler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次问答在调用模型之前的 CPU 开销：系统提示词、检索增强的用户消息模板渲染，以及 SecurityAdvisor 的请求与回答脱敏
+ * <p>
+ * 向量库替换为直接返回固定分块的桩实现，模型调用替换为返回固定回答的 advisor 链，只测量 advisor 自身的开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptBuildBenchmark {
+
+    private static final String QUESTION = "G1 出现 to-space exhausted 时应该如何排查？";
+
+    /**
+     * 检索返回的分块数（默认配置的 topK 为 5）
+     */
+    @Param({"5", "10"})
+    public int topK;
+
+    private final PromptAssembler promptAssembler = new PromptAssembler(null);
+    private final SecurityAdvisor securityAdvisor = new SecurityAdvisor();
+    private QuestionAnswerAdvisor questionAnswerAdvisor;
+    private CallAdvisorChain modelChain;
+
+    @Setup
+    public void setUp() {
+        List<Document> retrieved = new TokenTextSplitter(800, 350, 5, 10000, false)
+                .apply(BenchmarkTexts.pages(BenchmarkTexts.document(262144), 2000))
+                .subList(0, topK);
+        questionAnswerAdvisor = QuestionAnswerAdvisor.builder(new FixedVectorStore(retrieved))
+                .promptTemplate(promptAssembler.retrievalTemplate())
+                .build();
+
+        ChatResponse answer = new ChatResponse(List.of(new Generation(new AssistantMessage(
+                BenchmarkTexts.document(2048)))));
+        modelChain = new CallAdvisorChain() {
+            @Override
+            public ChatClientResponse nextCall(ChatClientRequest request) {
+                return ChatClientResponse.builder().chatResponse(answer).context(request.context()).build();
+            }
+
+            @Override
+            public List<CallAdvisor> getCallAdvisors() {
+                return List.of();
+            }
+        };
+    }
+
+    @Benchmark
+    public ChatClientRequest assemble() {
+        Prompt prompt = new Prompt(List.of(
+                new SystemMessage(promptAssembler.systemPrompt("运维")),
+                new UserMessage(QUESTION)));
+        ChatClientRequest request = ChatClientRequest.builder().prompt(prompt).context(Map.of()).build();
+        return questionAnswerAdvisor.before(request, modelChain);
+    }
+
+    @Benchmark
+    public ChatClientResponse assembleAndRedact() {
+        return securityAdvisor.adviseCall(assemble(), modelChain);
+    }
+
+    /**
+     * 忽略查询条件，总是返回同一组分块
+     */
+    private static final class FixedVectorStore implements VectorStore {
+
+        private final List<Document> documents;
+
+        private FixedVectorStore(List<Document> documents) {
+            this.documents = documents;
+        }
+
+        @Override
+        public void add(List<Document> documents) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            return documents;
+        }
+    }
+}
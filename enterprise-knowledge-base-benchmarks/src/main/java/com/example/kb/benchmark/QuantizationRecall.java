@@ -0,0 +1,332 @@
+package com.example.kb.benchmark;
+
+import com.example.kb.vectorstore.VectorQuantization;
+import com.pgvector.PGvector;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore.PgDistanceType;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * 量化索引 + 全精度重排序的召回率测量，用于确定满足召回目标的最小 oversample
+ * <p>
+ * 默认在内存中生成成簇的合成向量，按 pgvector 的规则做半精度舍入和符号位二值化后暴力取候选，
+ * 结果是量化本身带来的召回损失（不含 HNSW 近似的损失，线上召回会略低）。指定 {@code jdbc-url} 后改为对
+ * 已入库的向量表执行与 {@code QuantizedPgVectorStore} 相同的 SQL，以关闭索引扫描的精确检索为基准。
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.kb.benchmark.QuantizationRecall --vectors=20000 --oversample=1,2,4,8
+ * java -cp target/benchmarks.jar com.example.kb.benchmark.QuantizationRecall \
+ *     --jdbc-url=jdbc:postgresql://localhost:5432/enterprise_kb --user=postgres --password=postgres
+ * </pre>
+ */
+public final class QuantizationRecall {
+
+    private final Map<String, String> args;
+    private final int topK;
+    private final int queries;
+    private final double target;
+    private final int[] oversamples;
+
+    private QuantizationRecall(Map<String, String> args) {
+        this.args = args;
+        this.topK = Integer.parseInt(arg("top-k", "5"));
+        this.queries = Integer.parseInt(arg("queries", "100"));
+        this.target = Double.parseDouble(arg("target", "0.95"));
+        this.oversamples = Arrays.stream(arg("oversample", "1,2,4,8,16").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            args.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        QuantizationRecall recall = new QuantizationRecall(args);
+        if (args.containsKey("jdbc-url")) {
+            recall.runDatabase();
+        } else {
+            recall.runInMemory();
+        }
+    }
+
+    private void runInMemory() {
+        int count = Integer.parseInt(arg("vectors", "20000"));
+        int dimensions = Integer.parseInt(arg("dimensions", "1536"));
+        Random random = new Random(Long.parseLong(arg("seed", "42")));
+
+        float[][] centers = new float[Integer.parseInt(arg("clusters", "200"))][];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = gaussian(random, dimensions, 1);
+        }
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = normalize(clustered(random, centers, dimensions));
+        }
+        short[][] halves = new short[count][];
+        long[][] bits = new long[count][];
+        for (int i = 0; i < count; i++) {
+            halves[i] = toHalf(vectors[i]);
+            bits[i] = toBits(vectors[i]);
+        }
+
+        System.out.printf("内存模式: %d 个 %d 维向量, %d 个查询, topK=%d%n", count, dimensions, queries, topK);
+        for (VectorQuantization quantization : VectorQuantization.values()) {
+            double[] recalls = new double[oversamples.length];
+            for (int q = 0; q < queries; q++) {
+                float[] query = normalize(clustered(random, centers, dimensions));
+                short[] queryHalf = toHalf(query);
+                long[] queryBits = toBits(query);
+                IntToDoubleFunction exactDistance = i -> 1 - dot(query, vectors[i]);
+                IntToDoubleFunction quantizedDistance = switch (quantization) {
+                    case NONE -> exactDistance;
+                    case HALFVEC -> i -> 1 - dotHalf(queryHalf, halves[i]);
+                    case BINARY -> i -> hamming(queryBits, bits[i]);
+                };
+                Set<Integer> expected = new HashSet<>(nearest(count, topK, exactDistance));
+                for (int o = 0; o < oversamples.length; o++) {
+                    List<Integer> candidates = nearest(count, topK * oversamples[o], quantizedDistance);
+                    List<Integer> rescored = candidates.stream()
+                            .sorted((a, b) -> Double.compare(exactDistance.applyAsDouble(a),
+                                    exactDistance.applyAsDouble(b)))
+                            .limit(topK).toList();
+                    recalls[o] += rescored.stream().filter(expected::contains).count() / (double) topK;
+                }
+            }
+            report(quantization, dimensions, recalls, queries);
+        }
+    }
+
+    private void runDatabase() throws SQLException {
+        String table = arg("schema", "public") + "." + arg("table", "enterprise_kb_vectors");
+        PgDistanceType distanceType = PgDistanceType.valueOf(arg("distance-type", "COSINE_DISTANCE"));
+        String distance = "(embedding " + distanceType.operator + " ?)";
+
+        try (Connection connection = DriverManager.getConnection(arg("jdbc-url", ""), arg("user", "postgres"),
+                arg("password", "postgres"))) {
+            PGvector.addVectorType(connection);
+            connection.setAutoCommit(false);
+            List<PGvector> queryVectors = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT embedding FROM " + table
+                         + " ORDER BY random() LIMIT " + queries)) {
+                while (rs.next()) {
+                    queryVectors.add((PGvector) rs.getObject(1));
+                }
+            }
+            if (queryVectors.isEmpty()) {
+                throw new IllegalStateException("向量表 " + table + " 为空");
+            }
+            int dimensions = queryVectors.get(0).toArray().length;
+            System.out.printf("数据库模式: %s, %d 维, %d 个查询（取自表内向量）, topK=%d%n", table, dimensions,
+                    queryVectors.size(), topK);
+
+            List<Set<String>> expected = new ArrayList<>();
+            for (PGvector query : queryVectors) {
+                setLocal(connection, "enable_indexscan", "off");
+                expected.add(new HashSet<>(ids(connection, "SELECT id FROM " + table + " ORDER BY " + distance
+                        + " LIMIT ?", query, topK)));
+                connection.commit();
+            }
+
+            for (VectorQuantization quantization : VectorQuantization.values()) {
+                String sql = "SELECT id FROM (SELECT id, embedding FROM " + table
+                        + " ORDER BY " + quantization.indexExpression(dimensions) + " "
+                        + quantization.operator(distanceType) + " " + quantization.queryExpression(dimensions)
+                        + " LIMIT ?) AS candidates ORDER BY " + distance + " LIMIT ?";
+                double[] recalls = new double[oversamples.length];
+                for (int q = 0; q < queryVectors.size(); q++) {
+                    for (int o = 0; o < oversamples.length; o++) {
+                        int candidates = topK * oversamples[o];
+                        setLocal(connection, "hnsw.ef_search", String.valueOf(Math.max(40, candidates)));
+                        List<String> found = ids(connection, sql, queryVectors.get(q), candidates,
+                                queryVectors.get(q), topK);
+                        connection.commit();
+                        Set<String> relevant = expected.get(q);
+                        recalls[o] += found.stream().filter(relevant::contains).count() / (double) topK;
+                    }
+                }
+                report(quantization, dimensions, recalls, queryVectors.size());
+            }
+        }
+    }
+
+    private void report(VectorQuantization quantization, int dimensions, double[] recalls, int samples) {
+        StringBuilder line = new StringBuilder(String.format("%-8s %6d 字节/向量", quantization,
+                quantization.bytesPerVector(dimensions)));
+        int minimum = -1;
+        for (int o = 0; o < oversamples.length; o++) {
+            double recall = recalls[o] / samples;
+            line.append(String.format("  x%-2d recall@%d=%.3f", oversamples[o], topK, recall));
+            if (minimum < 0 && recall >= target) {
+                minimum = oversamples[o];
+            }
+        }
+        line.append(minimum < 0 ? "  未达到目标 " + target : "  满足 " + target + " 的最小 oversample=" + minimum);
+        System.out.println(line);
+    }
+
+    private static void setLocal(Connection connection, String name, String value) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT set_config(?, ?, true)")) {
+            statement.setString(1, name);
+            statement.setString(2, value);
+            statement.execute();
+        }
+    }
+
+    private static List<String> ids(Connection connection, String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            List<String> ids = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getString(1));
+                }
+            }
+            return ids;
+        }
+    }
+
+    private static List<Integer> nearest(int count, int k, IntToDoubleFunction distance) {
+        double[] distances = new double[count];
+        for (int i = 0; i < count; i++) {
+            distances[i] = distance.applyAsDouble(i);
+        }
+        return IntStream.range(0, count).boxed()
+                .sorted((a, b) -> Double.compare(distances[a], distances[b]))
+                .limit(k).toList();
+    }
+
+    private static float[] clustered(Random random, float[][] centers, int dimensions) {
+        float[] center = centers[random.nextInt(centers.length)];
+        float[] vector = gaussian(random, dimensions, 0.6);
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] += center[i];
+        }
+        return vector;
+    }
+
+    private static float[] gaussian(Random random, int dimensions, double scale) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (random.nextGaussian() * scale);
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= (float) norm;
+        }
+        return vector;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static double dotHalf(short[] a, short[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += halfToFloat(a[i]) * halfToFloat(b[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * 与 pgvector 的 binary_quantize 一致：大于 0 的维度为 1
+     */
+    private static long[] toBits(float[] vector) {
+        long[] bits = new long[(vector.length + 63) / 64];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                bits[i >> 6] |= 1L << (i & 63);
+            }
+        }
+        return bits;
+    }
+
+    private static int hamming(long[] a, long[] b) {
+        int distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            distance += Long.bitCount(a[i] ^ b[i]);
+        }
+        return distance;
+    }
+
+    private static short[] toHalf(float[] vector) {
+        short[] half = new short[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            half[i] = floatToHalf(vector[i]);
+        }
+        return half;
+    }
+
+    /**
+     * IEEE 754 单精度转半精度，就近舍入到偶数（Java 17 没有 Float.floatToFloat16）；归一化向量的分量不会溢出
+     */
+    private static short floatToHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int midpoint = 1 << (shift - 1);
+            if (remainder > midpoint || (remainder == midpoint && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (exponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    private static float halfToFloat(short half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = (half >>> 10) & 0x1F;
+        int mantissa = half & 0x3FF;
+        if (exponent == 0) {
+            return Float.intBitsToFloat(sign) + (sign == 0 ? 1 : -1) * mantissa * 0x1p-24f;
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+
+    private String arg(String name, String defaultValue) {
+        return args.getOrDefault(name, defaultValue);
+    }
+}
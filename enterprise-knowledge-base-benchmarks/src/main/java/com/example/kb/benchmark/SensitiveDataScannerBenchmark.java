@@ -0,0 +1,86 @@
+package com.example.kb.benchmark;
+
+import com.example.kb.security.SensitiveDataScanner;
+import com.example.kb.security.StreamingRedactor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 100 KB 提示词（检索文档 + 问题）上的敏感信息扫描吞吐
+ * <p>
+ * perPatternFind 作为基线，按旧版 SecurityAdvisor 的方式每次调用重新编译各模式并分别扫描全文
+ * （旧版的 {@code String.matches(".*" + p + ".*")} 遇到换行即失败，在多行文本上既不正确也无法比较）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensitiveDataScannerBenchmark {
+
+    private static final List<String> LEGACY_PATTERNS = List.of(
+            "\\b\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}\\b",
+            "\\b\\d{3}-\\d{2}-\\d{4}\\b",
+            "\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b"
+    );
+
+    @Param({"102400"})
+    public int promptChars;
+
+    /**
+     * 平均每多少个字符出现一处敏感信息，0 表示全文无敏感信息
+     */
+    @Param({"0", "2048"})
+    public int sensitiveEvery;
+
+    @Param({"24"})
+    public int streamChunkChars;
+
+    private final SensitiveDataScanner scanner = new SensitiveDataScanner();
+    private String prompt;
+
+    @Setup
+    public void setUp() {
+        prompt = BenchmarkTexts.prompt(new Random(42), promptChars, sensitiveEvery);
+    }
+
+    @Benchmark
+    public boolean detect() {
+        return scanner.containsSensitiveInfo(prompt);
+    }
+
+    @Benchmark
+    public String redact() {
+        return scanner.redact(prompt);
+    }
+
+    @Benchmark
+    public void redactStream(Blackhole blackhole) {
+        StreamingRedactor redactor = scanner.streamingRedactor();
+        for (int i = 0; i < prompt.length(); i += streamChunkChars) {
+            blackhole.consume(redactor.next(prompt.substring(i, Math.min(prompt.length(), i + streamChunkChars))));
+        }
+        blackhole.consume(redactor.flush());
+    }
+
+    @Benchmark
+    public boolean perPatternFind() {
+        return LEGACY_PATTERNS.stream().anyMatch(pattern -> Pattern.compile(pattern).matcher(prompt).find());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.kb.benchmark;
+
+import com.example.kb.model.DocumentEntity;
+import com.example.kb.service.DocumentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传与入库路径上的 CPU 开销：上传文件的 MD5 去重摘要，以及分块后的元数据写入
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadBenchmark {
+
+    private List<Document> chunks;
+    private DocumentEntity document;
+
+    @Setup
+    public void setUp() {
+        // 与默认配置相同的分块结果，作为元数据写入的输入
+        chunks = new TokenTextSplitter(800, 350, 5, 10000, false)
+                .apply(BenchmarkTexts.pages(BenchmarkTexts.document(262144), 2000));
+
+        document = new DocumentEntity("fixture.pdf", "运维", "admin");
+        document.setId(1L);
+        document.setUploadTime(LocalDateTime.of(2025, 1, 1, 0, 0));
+    }
+
+    @Benchmark
+    public String md5(Upload upload) throws NoSuchAlgorithmException {
+        return DocumentService.md5Hex(upload.content);
+    }
+
+    @Benchmark
+    public List<Document> enrichMetadata() {
+        DocumentService.enrichDocumentMetadata(chunks, document);
+        return chunks;
+    }
+
+    /**
+     * 上传文件内容，只有 md5 基准按文件大小参数化
+     */
+    @State(Scope.Benchmark)
+    public static class Upload {
+
+        /**
+         * 上传文件大小，1 MB 和 10 MB（默认大小上限）
+         */
+        @Param({"1048576", "10485760"})
+        public int uploadBytes;
+
+        private byte[] content;
+
+        @Setup
+        public void setUp() {
+            content = Arrays.copyOf(BenchmarkTexts.document(uploadBytes).getBytes(StandardCharsets.UTF_8), uploadBytes);
+        }
+    }
+}
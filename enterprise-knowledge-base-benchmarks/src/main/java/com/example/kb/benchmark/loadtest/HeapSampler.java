@@ -0,0 +1,90 @@
+package com.example.kb.benchmark.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每秒通过 actuator 读取被测服务的堆使用量（jvm.memory.used, area=heap）
+ * <p>
+ * 被测服务没有开放 metrics 端点时只输出 available=false，不影响压测本身。
+ */
+final class HeapSampler {
+
+    private final HttpClient client;
+    private final URI uri;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "heap-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long samples;
+    private double sum;
+    private double max;
+    private double last;
+
+    HeapSampler(HttpClient client, String baseUrl, ObjectMapper objectMapper) {
+        this.client = client;
+        this.uri = URI.create(baseUrl + "/actuator/metrics/jvm.memory.used?tag=area:heap");
+        this.objectMapper = objectMapper;
+    }
+
+    void start() {
+        scheduler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+    }
+
+    Map<String, Object> stop() {
+        scheduler.shutdownNow();
+        synchronized (this) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("available", samples > 0);
+            if (samples > 0) {
+                summary.put("samples", samples);
+                summary.put("avgMb", toMb(sum / samples));
+                summary.put("maxMb", toMb(max));
+                summary.put("lastMb", toMb(last));
+            }
+            return summary;
+        }
+    }
+
+    private void sample() {
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(2)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return;
+            }
+            JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+            if (!measurements.isArray() || measurements.isEmpty()) {
+                return;
+            }
+            double value = measurements.get(0).path("value").asDouble();
+            synchronized (this) {
+                samples++;
+                sum += value;
+                max = Math.max(max, value);
+                last = value;
+            }
+        } catch (Exception e) {
+            // 采样失败不影响压测
+        }
+    }
+
+    private static double toMb(double bytes) {
+        return Math.round(bytes / 1024 / 1024 * 10) / 10.0;
+    }
+}
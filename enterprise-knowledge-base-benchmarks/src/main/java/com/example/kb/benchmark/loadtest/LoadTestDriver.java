@@ -0,0 +1,272 @@
+package com.example.kb.benchmark.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 对运行在 loadtest profile 下的服务回放问答与上传混合流量，输出吞吐、延迟分位数和堆使用量
+ * <p>
+ * 默认为闭环模式：{@code concurrency} 个线程各自循环发请求。指定 {@code rate} 后改为开环模式，按固定速率
+ * 产生请求，延迟从计划发出时间开始计算，排队时间也计入延迟，避免协调遗漏（coordinated omission）。
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.kb.benchmark.loadtest.LoadTestDriver \
+ *     --target=kb --base-url=http://localhost:8080 --concurrency=32 --duration=60 --mix=query:70,stream:20,upload:10
+ * </pre>
+ */
+public final class LoadTestDriver {
+
+    private static final Map<String, String> DEFAULT_MIX = Map.of(
+            "kb", "query:70,stream:20,upload:10",
+            "demo", "query:60,stream:20,search:10,upload:10");
+
+    private final Map<String, String> args;
+    private final ObjectMapper json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newCachedThreadPool(daemon("http-client")))
+            .build();
+
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final List<Operation> weighted = new ArrayList<>();
+    private volatile long measureStartNanos = Long.MAX_VALUE;
+
+    private LoadTestDriver(Map<String, String> args) {
+        this.args = args;
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --name=value: " + arg);
+            }
+            args.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadTestDriver(args).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        String target = arg("target", "kb");
+        String baseUrl = arg("base-url", "http://localhost:8080");
+        int concurrency = Integer.parseInt(arg("concurrency", "16"));
+        double rate = Double.parseDouble(arg("rate", "0"));
+        int warmupSeconds = Integer.parseInt(arg("warmup", "10"));
+        int durationSeconds = Integer.parseInt(arg("duration", "60"));
+        int seedDocuments = Integer.parseInt(arg("seed-documents", "5"));
+        String mix = arg("mix", DEFAULT_MIX.getOrDefault(target, ""));
+        Path output = Path.of(arg("output", "target/loadtest-" + target + ".json"));
+
+        Targets.Options options = new Targets.Options(Duration.ofSeconds(Long.parseLong(arg("timeout", "120"))),
+                Integer.parseInt(arg("upload-pages", "5")), Integer.parseInt(arg("users", "50")));
+        Map<String, Operation> operations = switch (target) {
+            case "kb" -> Targets.knowledgeBase(baseUrl, options, json);
+            case "demo" -> Targets.demo(baseUrl, options, json);
+            default -> throw new IllegalArgumentException("未知的 target: " + target + "，可选 kb、demo");
+        };
+        parseMix(mix, operations);
+
+        System.out.printf("压测 %s (%s)：mix=%s, %s, warmup=%ds, duration=%ds%n", target, baseUrl, mix,
+                rate > 0 ? "rate=" + rate + "/s" : "concurrency=" + concurrency, warmupSeconds, durationSeconds);
+
+        Operation upload = operations.get("upload");
+        if (upload != null && seedDocuments > 0) {
+            Random random = new Random(42);
+            for (int i = 0; i < seedDocuments; i++) {
+                execute(upload, random, System.nanoTime());
+            }
+            System.out.printf("已预先上传 %d 个文档%n", seedDocuments);
+        }
+
+        HeapSampler heapSampler = new HeapSampler(client, baseUrl, json);
+        heapSampler.start();
+
+        long startNanos = System.nanoTime();
+        measureStartNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long endNanos = measureStartNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        if (rate > 0) {
+            runOpenLoop(rate, concurrency, startNanos, endNanos, options.timeout().toSeconds());
+        } else {
+            runClosedLoop(concurrency, endNanos);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("target", target);
+        report.put("baseUrl", baseUrl);
+        report.put("mix", mix);
+        report.put("mode", rate > 0 ? "open" : "closed");
+        report.put("concurrency", concurrency);
+        report.put("rate", rate);
+        report.put("durationSeconds", durationSeconds);
+        Map<String, Object> results = new LinkedHashMap<>();
+        recorders.forEach((name, recorder) -> results.put(name, recorder.summary(durationSeconds)));
+        report.put("operations", results);
+        report.put("heap", heapSampler.stop());
+
+        print(results, report.get("heap"));
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        json.writeValue(output.toFile(), report);
+        System.out.println("结果已写入 " + output.toAbsolutePath());
+    }
+
+    private void runClosedLoop(int concurrency, long endNanos) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, daemon("loadtest-worker"));
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(() -> {
+                Random random = ThreadLocalRandom.current();
+                while (System.nanoTime() < endNanos) {
+                    execute(pick(random), random, System.nanoTime());
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(endNanos - System.nanoTime() + TimeUnit.MINUTES.toNanos(5), TimeUnit.NANOSECONDS);
+    }
+
+    private void runOpenLoop(double rate, int concurrency, long startNanos, long endNanos, long timeoutSeconds)
+            throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, daemon("loadtest-worker"));
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        for (long intended = startNanos; intended < endNanos; intended += intervalNanos) {
+            LockSupport.parkNanos(intended - System.nanoTime());
+            long scheduled = intended;
+            workers.execute(() -> {
+                Random random = ThreadLocalRandom.current();
+                execute(pick(random), random, scheduled);
+            });
+        }
+        // 积压的请求继续执行完并计入延迟，超过请求超时仍未完成的直接放弃
+        workers.shutdown();
+        if (!workers.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行一次请求；startNanos 为计划发出时间，早于测量窗口的请求只预热不记录
+     */
+    private void execute(Operation operation, Random random, long startNanos) {
+        boolean measured = startNanos >= measureStartNanos;
+        LatencyRecorder recorder = recorders.get(operation.name());
+        try {
+            HttpRequest request = operation.request().apply(random);
+            boolean ok;
+            if (operation.streaming()) {
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                ok = response.statusCode() / 100 == 2 && readStream(response.body(), startNanos, measured);
+            } else {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                ok = response.statusCode() / 100 == 2 && operation.success().test(response.body());
+            }
+            if (measured) {
+                if (ok) {
+                    recorder.record((System.nanoTime() - startNanos) / 1000);
+                } else {
+                    recorder.recordError();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (measured) {
+                recorder.recordError();
+            }
+        }
+    }
+
+    /**
+     * 按字节读取响应体：SSE 以行分隔，demo 的 text/plain 流没有换行，首个分片以第一次读到数据为准
+     */
+    private boolean readStream(InputStream body, long startNanos, boolean measured) throws IOException {
+        boolean first = true;
+        byte[] buffer = new byte[8192];
+        try (body) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                if (first && read > 0) {
+                    first = false;
+                    if (measured) {
+                        recorders.get("stream.first_chunk").record((System.nanoTime() - startNanos) / 1000);
+                    }
+                }
+            }
+        }
+        return !first;
+    }
+
+    private void parseMix(String mix, Map<String, Operation> operations) {
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Operation operation = operations.get(parts[0]);
+            if (operation == null) {
+                throw new IllegalArgumentException("未知的操作: " + parts[0] + "，可选 " + operations.keySet());
+            }
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+            recorders.put(operation.name(), new LatencyRecorder());
+            if (operation.streaming()) {
+                recorders.put(operation.name() + ".first_chunk", new LatencyRecorder());
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("mix 不能为空");
+        }
+    }
+
+    private Operation pick(Random random) {
+        return weighted.get(random.nextInt(weighted.size()));
+    }
+
+    private String arg(String name, String defaultValue) {
+        return args.getOrDefault(name, defaultValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> results, Object heap) {
+        System.out.printf("%n%-20s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "ops/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        results.forEach((name, value) -> {
+            Map<String, Object> summary = (Map<String, Object>) value;
+            System.out.printf("%-20s %8s %7s %9s %9s %9s %9s %9s %9s%n", name, summary.get("count"),
+                    summary.get("errors"), summary.get("throughputPerSec"), summary.get("p50Ms"),
+                    summary.get("p90Ms"), summary.get("p99Ms"), summary.get("p999Ms"), summary.get("maxMs"));
+        });
+        System.out.println("heap: " + heap);
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
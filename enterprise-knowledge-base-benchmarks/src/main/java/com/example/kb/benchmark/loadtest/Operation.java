@@ -0,0 +1,15 @@
+package com.example.kb.benchmark.loadtest;
+
+import java.net.http.HttpRequest;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 压测中的一类请求
+ *
+ * @param streaming 是否为流式接口，流式接口额外统计首个分片的到达时间
+ * @param success   根据响应体判断业务是否成功（HTTP 状态码已单独检查）
+ */
+record Operation(String name, Function<Random, HttpRequest> request, boolean streaming, Predicate<String> success) {
+}
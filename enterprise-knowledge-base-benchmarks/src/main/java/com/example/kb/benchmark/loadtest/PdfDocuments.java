@@ -0,0 +1,71 @@
+package com.example.kb.benchmark.loadtest;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * 生成上传用的 PDF，每个文件带唯一编号以通过 MD5 去重检查
+ * <p>
+ * 标准 14 种字体不含中文字形，正文使用英文运维术语。
+ */
+final class PdfDocuments {
+
+    private static final String[] WORDS = {
+            "garbage", "collector", "heap", "region", "pause", "latency", "throughput", "index", "vector",
+            "query", "replica", "failover", "rollback", "deployment", "metrics", "alert", "incident",
+            "connection", "pool", "timeout", "retry", "cache", "eviction", "partition", "shard", "the",
+            "of", "and", "to", "when", "check", "increase", "reduce", "monitor", "service", "database"
+    };
+
+    private static final PDType1Font FONT = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    private static final int LINES_PER_PAGE = 45;
+    private static final int WORDS_PER_LINE = 12;
+
+    private PdfDocuments() {
+    }
+
+    static byte[] generate(String id, int pages, Random random) {
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(FONT, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 740);
+                    content.showText("Load test document " + id + " page " + (p + 1));
+                    for (int line = 0; line < LINES_PER_PAGE; line++) {
+                        content.newLine();
+                        content.showText(line(random));
+                    }
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String line(Random random) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < WORDS_PER_LINE; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            line.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.kb.benchmark.loadtest;
+
+import com.example.kb.benchmark.BenchmarkTexts;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 两个被测服务的 REST 接口与请求内容
+ */
+final class Targets {
+
+    private static final String[] QUESTIONS = {
+            "G1 出现 to-space exhausted 时应该如何排查？",
+            "数据库连接池耗尽的常见原因是什么？",
+            "上游接口返回 429 时值班工程师应该做什么？",
+            "向量检索变慢时需要检查哪些指标？",
+            "如何在容器中设置 JVM 堆大小？",
+            "SEV1 故障的沟通流程是怎样的？",
+            "ZGC 和 G1 分别适合什么场景？",
+            "复盘文档需要包含哪些内容？"
+    };
+
+    private static final String[] CATEGORIES = {"运维", "JVM", "数据库"};
+
+    private static final AtomicLong DOCUMENT_SEQUENCE = new AtomicLong();
+
+    private Targets() {
+    }
+
+    /**
+     * 企业知识库：/api/query、/api/query/stream、/api/documents/upload
+     */
+    static Map<String, Operation> knowledgeBase(String baseUrl, Options options, ObjectMapper json) {
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("query", new Operation("query", random -> post(baseUrl + "/api/query", options,
+                json(json, Map.of("question", question(random), "category", category(random),
+                        "userId", user(random, options)))),
+                false, body -> body.contains("\"status\":\"SUCCESS\"")));
+        operations.put("stream", new Operation("stream", random -> post(baseUrl + "/api/query/stream", options,
+                json(json, Map.of("question", question(random), "category", category(random),
+                        "userId", user(random, options)))),
+                true, body -> true));
+        operations.put("upload", new Operation("upload", random -> upload(baseUrl, options, random),
+                false, body -> body.contains("\"status\":\"SUCCESS\"")));
+        return operations;
+    }
+
+    /**
+     * Spring AI Demo：/api/rag/ask、/api/chat/stream、/api/rag/search、/api/rag/documents
+     */
+    static Map<String, Operation> demo(String baseUrl, Options options, ObjectMapper json) {
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("query", new Operation("query", random -> post(baseUrl + "/api/rag/ask", options,
+                json(json, Map.of("question", question(random)))),
+                false, body -> body.contains("\"answer\"")));
+        operations.put("stream", new Operation("stream", random -> post(baseUrl + "/api/chat/stream", options,
+                json(json, Map.of("message", question(random)))),
+                true, body -> true));
+        operations.put("search", new Operation("search", random -> HttpRequest.newBuilder(URI.create(
+                        baseUrl + "/api/rag/search?topK=5&query="
+                                + URLEncoder.encode(question(random), StandardCharsets.UTF_8)))
+                .timeout(options.timeout())
+                .GET()
+                .build(), false, body -> body.startsWith("[")));
+        operations.put("upload", new Operation("upload", random -> post(baseUrl + "/api/rag/documents", options,
+                json(json, Map.of("content", BenchmarkTexts.document(4000 + random.nextInt(4000)),
+                        "title", "loadtest-" + DOCUMENT_SEQUENCE.incrementAndGet(),
+                        "category", category(random)))),
+                false, body -> true));
+        return operations;
+    }
+
+    private static HttpRequest upload(String baseUrl, Options options, Random random) {
+        String id = UUID.randomUUID().toString();
+        byte[] pdf = PdfDocuments.generate(id, options.uploadPages(), random);
+        String boundary = "----kb-loadtest-" + id;
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(pdf.length + 512);
+        writePart(body, boundary, "Content-Disposition: form-data; name=\"file\"; filename=\"loadtest-" + id
+                + ".pdf\"\r\nContent-Type: application/pdf", pdf);
+        writePart(body, boundary, "Content-Disposition: form-data; name=\"category\"",
+                category(random).getBytes(StandardCharsets.UTF_8));
+        writePart(body, boundary, "Content-Disposition: form-data; name=\"userId\"",
+                user(random, options).getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/documents/upload"))
+                .timeout(options.timeout())
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static void writePart(ByteArrayOutputStream body, String boundary, String headers, byte[] content) {
+        body.writeBytes(("--" + boundary + "\r\n" + headers + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HttpRequest post(String url, Options options, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(options.timeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static String json(ObjectMapper json, Map<String, Object> body) {
+        try {
+            return json.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String question(Random random) {
+        return QUESTIONS[random.nextInt(QUESTIONS.length)];
+    }
+
+    private static String category(Random random) {
+        return CATEGORIES[random.nextInt(CATEGORIES.length)];
+    }
+
+    private static String user(Random random, Options options) {
+        return "user-" + random.nextInt(options.users());
+    }
+
+    /**
+     * 请求相关的压测参数
+     */
+    record Options(Duration timeout, int uploadPages, int users) {
+    }
+}
@@ -25,7 +25,9 @@ CREATE TABLE IF NOT EXISTS documents (
     upload_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     processed_time TIMESTAMP,
     status VARCHAR(50) DEFAULT 'PROCESSING',
-    error_message TEXT
+    error_message TEXT,
+    chunk_count INTEGER,
+    processing_duration_ms BIGINT
 );
 
 -- 创建查询表
@@ -36,7 +38,15 @@ CREATE TABLE IF NOT EXISTS queries (
     user_id VARCHAR(255) NOT NULL,
     category VARCHAR(100),
     query_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    status VARCHAR(50) DEFAULT 'PROCESSING'
+    status VARCHAR(50) DEFAULT 'PROCESSING',
+    model VARCHAR(100),
+    prompt_tokens INTEGER,
+    cached_prompt_tokens INTEGER,
+    completion_tokens INTEGER,
+    estimated_cost DOUBLE PRECISION,
+    hit_count INTEGER,
+    latency_ms BIGINT,
+    stage_latencies VARCHAR(255)
 );
 
 -- 创建索引
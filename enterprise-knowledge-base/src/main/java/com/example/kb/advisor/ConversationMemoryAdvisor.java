@@ -0,0 +1,110 @@
+package com.example.kb.advisor;
+
+import com.example.kb.memory.ConversationMemory;
+import org.springframework.ai.chat.client.ChatClientMessageAggregator;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 请求带有会话 ID（{@link ChatMemory#CONVERSATION_ID}）时，把会话历史插入提示词并记录本轮问答
+ * <p>
+ * 与 MessageChatMemoryAdvisor 不同，历史放在系统提示词之后、本轮问题之前，不打断可缓存的静态前缀；
+ * 排在检索增强之前执行，记录的是用户的原始问题而不是拼入检索文档后的消息；该位置也在 SecurityAdvisor 之前，
+ * 脱敏由 {@link ConversationMemory} 在保存时完成。本轮的问题和回答在模型返回后一起保存，调用失败时不留下没有回答的问题。
+ * 未带会话 ID 的请求不做处理。
+ */
+@Component
+public class ConversationMemoryAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final ConversationMemory memory;
+
+    public ConversationMemoryAdvisor(ConversationMemory memory) {
+        this.memory = memory;
+    }
+
+    @Override
+    public String getName() {
+        return "ConversationMemoryAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // HIGHEST_PRECEDENCE + 1000，小于 QuestionAnswerAdvisor（0）和 SecurityAdvisor（100），
+        // 因此先于检索增强和脱敏执行，插入历史和记录的都是原始问题
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        String conversationId = conversationId(request);
+        if (conversationId == null) {
+            return chain.nextCall(request);
+        }
+        ChatClientResponse response = chain.nextCall(before(conversationId, request));
+        after(conversationId, request, response);
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        String conversationId = conversationId(request);
+        if (conversationId == null) {
+            return chain.nextStream(request);
+        }
+        // 读写会话记忆会访问数据库，不在 HTTP 客户端的事件循环线程上执行
+        return Mono.fromCallable(() -> before(conversationId, request))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(chain::nextStream)
+                .transform(flux -> new ChatClientMessageAggregator().aggregateChatClientResponse(flux,
+                        response -> Schedulers.boundedElastic()
+                                .schedule(() -> after(conversationId, request, response))));
+    }
+
+    private ChatClientRequest before(String conversationId, ChatClientRequest request) {
+        List<Message> history = memory.get(conversationId);
+        List<Message> instructions = request.prompt().getInstructions();
+        List<Message> messages = new ArrayList<>(instructions.size() + history.size());
+        int position = 0;
+        while (position < instructions.size() && instructions.get(position) instanceof SystemMessage) {
+            position++;
+        }
+        messages.addAll(instructions.subList(0, position));
+        messages.addAll(history);
+        messages.addAll(instructions.subList(position, instructions.size()));
+        return request.mutate()
+                .prompt(request.prompt().mutate().messages(messages).build())
+                .build();
+    }
+
+    /**
+     * @param request 未插入历史的原始请求，从中取本轮问题
+     */
+    private void after(String conversationId, ChatClientRequest request, ChatClientResponse response) {
+        ChatResponse chatResponse = response.chatResponse();
+        if (chatResponse == null || chatResponse.getResult() == null) {
+            return;
+        }
+        memory.add(conversationId, List.of(request.prompt().getUserMessage(), chatResponse.getResult().getOutput()));
+    }
+
+    private static String conversationId(ChatClientRequest request) {
+        Object conversationId = request.context().get(ChatMemory.CONVERSATION_ID);
+        return conversationId != null ? conversationId.toString() : null;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.kb.advisor;
+
+import com.example.kb.advisor.ResilienceAdvisor.AnswerPath;
+import com.example.kb.config.KnowledgeBaseProperties;
+import com.example.kb.model.Records.TokenUsage;
+import com.example.kb.observation.RagContext;
+import com.example.kb.observation.RagMetrics;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 记录检索增强之后的 RAG 阶段耗时：提示词组装、首 token、大模型总耗时和 token 用量
+ * <p>
+ * 紧跟在 QuestionAnswerAdvisor 之后执行，进入本 advisor 时检索与模板渲染均已完成：
+ * 从问答开始到此刻的耗时扣除向量化和向量检索，即为提示词组装耗时。
+ */
+@Component
+public class RagStageAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final RagMetrics ragMetrics;
+    private final String fallbackModel;
+
+    public RagStageAdvisor(RagMetrics ragMetrics, KnowledgeBaseProperties kbProperties) {
+        this.ragMetrics = ragMetrics;
+        this.fallbackModel = kbProperties.getResilience().getFallbackModel();
+    }
+
+    @Override
+    public String getName() {
+        return "RagStageAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // QuestionAnswerAdvisor 的 order 为 0
+        return 1;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        RagContext context = RagContext.current();
+        String category = recordPromptAssembly(context);
+
+        long start = System.nanoTime();
+        ChatClientResponse response = chain.nextCall(request);
+        String model = model(response);
+        ragMetrics.recordStage(RagMetrics.STAGE_LLM, context, model, System.nanoTime() - start);
+        ragMetrics.recordTokens(category, model, RagMetrics.tokenUsage(response.chatResponse()));
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        RagContext context = RagContext.current();
+        String category = recordPromptAssembly(context);
+        String model = ragMetrics.getChatModel();
+
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean firstToken = new AtomicBoolean();
+            AtomicReference<TokenUsage> usage = new AtomicReference<>();
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        ChatResponse chatResponse = response.chatResponse();
+                        if (chatResponse == null) {
+                            return;
+                        }
+                        if (chatResponse.getResult() != null
+                                && StringUtils.hasLength(chatResponse.getResult().getOutput().getText())
+                                && firstToken.compareAndSet(false, true)) {
+                            ragMetrics.recordStage(RagMetrics.STAGE_FIRST_TOKEN, context, model,
+                                    System.nanoTime() - start);
+                        }
+                        TokenUsage chunkUsage = RagMetrics.tokenUsage(chatResponse);
+                        if (chunkUsage != null) {
+                            usage.set(chunkUsage);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        ragMetrics.recordStage(RagMetrics.STAGE_LLM, context, model, System.nanoTime() - start);
+                        ragMetrics.recordTokens(category, model, usage.get());
+                    });
+        });
+    }
+
+    private String recordPromptAssembly(RagContext context) {
+        if (context == null) {
+            return null;
+        }
+        long elapsed = System.nanoTime() - context.getStartNanos()
+                - context.getEmbeddingNanos() - context.getSearchNanos();
+        ragMetrics.recordStage(RagMetrics.STAGE_PROMPT_ASSEMBLY, context, ragMetrics.getChatModel(),
+                Math.max(0, elapsed));
+        return context.getCategory();
+    }
+
+    private String model(ChatClientResponse response) {
+        // 降级路径实际使用的是降级模型
+        return response.context().get(ResilienceAdvisor.ANSWER_PATH) == AnswerPath.FALLBACK
+                ? fallbackModel : ragMetrics.getChatModel();
+    }
+}
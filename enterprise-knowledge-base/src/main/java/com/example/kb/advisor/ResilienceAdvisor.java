@@ -0,0 +1,292 @@
+package com.example.kb.advisor;
+
+import com.example.kb.config.KnowledgeBaseProperties;
+import com.example.kb.resilience.DeadlineExceededException;
+import com.example.kb.resilience.LatencyWindow;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.Ordered;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 为问答调用施加截止时间，并在慢请求时发起对冲请求或切换降级模型
+ * <p>
+ * 主请求沿advisor链继续执行；超过最近主请求延迟的 p95 仍未返回时直接向 ChatModel 发起一次相同的对冲请求；
+ * 距截止时间只剩 fallbackReserveMs 时改用降级模型再发起一次。采用最先成功返回的结果并取消其余请求，
+ * 实际应答路径写入响应上下文的 {@link #ANSWER_PATH}。
+ * <p>
+ * 各路请求在不排队的线程池中立即开始执行，实际并发由包装 ChatModel 的自适应并发限制器控制，
+ * 对冲和降级请求不会排在主请求之后空耗截止时间。线程池最多 maxAttemptThreads 个线程，
+ * 用尽时拒绝新任务：对冲和降级请求不再发起，新的主请求直接在调用线程上执行且不施加截止时间，
+ * 避免上游变慢时等待中的请求无限制地占用线程。
+ */
+@Component
+public class ResilienceAdvisor implements CallAdvisor, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilienceAdvisor.class);
+
+    /**
+     * 响应上下文中记录应答路径的键，值为 {@link AnswerPath}
+     */
+    public static final String ANSWER_PATH = "kb_answer_path";
+
+    /**
+     * 请求上下文中覆盖默认截止时间的键（毫秒）
+     */
+    public static final String DEADLINE_MS = "kb_deadline_ms";
+
+    public enum AnswerPath {
+        PRIMARY, HEDGED, FALLBACK
+    }
+
+    private final ChatModel chatModel;
+    private final KnowledgeBaseProperties.Resilience config;
+    private final LatencyWindow primaryLatencies = new LatencyWindow(200);
+    private final ExecutorService attemptExecutor;
+
+    public ResilienceAdvisor(ChatModel chatModel, KnowledgeBaseProperties kbProperties) {
+        this.chatModel = chatModel;
+        this.config = kbProperties.getResilience();
+        AtomicInteger threadIndex = new AtomicInteger();
+        int maxThreads = config.getMaxAttemptThreads();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "kb-llm-attempt-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        // 传播观测/追踪上下文到尝试线程
+        this.attemptExecutor = ContextExecutorService.wrap(pool, ContextSnapshotFactory.builder().build()::captureAll);
+    }
+
+    @Override
+    public String getName() {
+        return "ResilienceAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // 放在检索增强和安全检查之后，使对冲和降级请求使用完全相同的最终提示词
+        return Ordered.LOWEST_PRECEDENCE - 100;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        if (!config.isEnabled()) {
+            return withPath(chain.nextCall(request), AnswerPath.PRIMARY);
+        }
+
+        CompletionService<Attempt> attempts = new ExecutorCompletionService<>(attemptExecutor);
+        List<Future<Attempt>> futures = new ArrayList<>();
+        CompletableFuture<Long> primaryStarted = new CompletableFuture<>();
+        try {
+            futures.add(attempts.submit(timed(AnswerPath.PRIMARY, primaryStarted, () -> chain.nextCall(request))));
+        } catch (RejectedExecutionException e) {
+            logger.warn("问答尝试线程已用尽，本次问答不施加截止时间和对冲: maxAttemptThreads={}",
+                    config.getMaxAttemptThreads());
+            return withPath(chain.nextCall(request), AnswerPath.PRIMARY);
+        }
+        boolean hedged = false;
+        boolean fellBack = false;
+        int pending = 1;
+        Throwable lastError = null;
+
+        try {
+            // 截止时间从主请求开始执行时起算，不包括在线程池中等待的时间
+            long start = primaryStarted.get();
+            long deadline = start + resolveDeadlineMs(request);
+            long hedgeAt = resolveHedgeAt(start, deadline);
+            // 截止时间短于预留时间时，至少先让主请求独自跑完一半的时间
+            long fallbackAt = StringUtils.hasText(config.getFallbackModel())
+                    ? Math.max(start + (deadline - start) / 2, deadline - config.getFallbackReserveMs())
+                    : Long.MAX_VALUE;
+            while (true) {
+                long now = System.currentTimeMillis();
+                if (now >= deadline) {
+                    throw new DeadlineExceededException(String.format("问答调用超过截止时间 %dms 仍未返回", deadline - start));
+                }
+                if (!fellBack && now >= fallbackAt) {
+                    logger.info("临近截止时间，切换降级模型: model={}, 已耗时={}ms", config.getFallbackModel(), now - start);
+                    fellBack = true;
+                    if (submit(attempts, futures, timed(AnswerPath.FALLBACK, null, () -> callFallback(request)))) {
+                        pending++;
+                    } else if (pending == 0) {
+                        throw asRuntime(lastError);
+                    }
+                    continue;
+                }
+                if (!hedged && now >= hedgeAt) {
+                    logger.info("主请求超过对冲延迟，发起对冲请求: 已耗时={}ms", now - start);
+                    hedged = true;
+                    if (submit(attempts, futures, timed(AnswerPath.HEDGED, null,
+                            () -> callDirect(request, request.prompt())))) {
+                        pending++;
+                    }
+                    continue;
+                }
+
+                long nextEvent = Math.min(deadline, Math.min(hedged ? Long.MAX_VALUE : hedgeAt,
+                        fellBack ? Long.MAX_VALUE : fallbackAt));
+                Future<Attempt> completed = attempts.poll(Math.max(1, nextEvent - now), TimeUnit.MILLISECONDS);
+                if (completed == null) {
+                    continue;
+                }
+
+                pending--;
+                try {
+                    Attempt attempt = completed.get();
+                    if (attempt.path() == AnswerPath.PRIMARY) {
+                        // 只记录主请求自身的耗时；对冲胜出时主请求的真实延迟未知，不记录低估的样本
+                        primaryLatencies.record(attempt.latencyMs());
+                    }
+                    logger.debug("问答调用完成: path={}, 耗时={}ms", attempt.path(), attempt.latencyMs());
+                    return withPath(attempt.response(), attempt.path());
+                } catch (ExecutionException e) {
+                    lastError = e.getCause();
+                    logger.warn("问答调用的一路请求失败: error={}, 剩余请求={}", lastError.getMessage(), pending);
+                }
+
+                if (pending == 0) {
+                    // 所有已发出的请求都失败了，尚有时间且未降级时立即尝试降级模型
+                    if (!fellBack && fallbackAt != Long.MAX_VALUE) {
+                        fallbackAt = System.currentTimeMillis();
+                        continue;
+                    }
+                    throw asRuntime(lastError);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待问答调用结果时被中断", e);
+        } catch (ExecutionException e) {
+            // primaryStarted 只会被正常完成，不会走到这里
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        attemptExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交对冲或降级请求，线程池已满时放弃该路请求
+     */
+    private boolean submit(CompletionService<Attempt> attempts, List<Future<Attempt>> futures,
+                           Callable<Attempt> attempt) {
+        try {
+            futures.add(attempts.submit(attempt));
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn("问答尝试线程已用尽，放弃本路请求: maxAttemptThreads={}", config.getMaxAttemptThreads());
+            return false;
+        }
+    }
+
+    private static RuntimeException asRuntime(Throwable error) {
+        return error instanceof RuntimeException runtimeException
+                ? runtimeException : new IllegalStateException(error);
+    }
+
+    private long resolveDeadlineMs(ChatClientRequest request) {
+        Object override = request.context().get(DEADLINE_MS);
+        if (override instanceof Number number && number.longValue() > 0) {
+            return number.longValue();
+        }
+        return config.getDeadlineMs();
+    }
+
+    private long resolveHedgeAt(long start, long deadline) {
+        if (!config.isHedgeEnabled() || primaryLatencies.size() < config.getHedgeMinSamples()) {
+            return Long.MAX_VALUE;
+        }
+        long delay = Math.max(config.getHedgeMinDelayMs(), primaryLatencies.percentile(config.getHedgePercentile()));
+        long hedgeAt = start + delay;
+        // 对冲请求来不及在截止前返回时没有意义
+        return hedgeAt < deadline ? hedgeAt : Long.MAX_VALUE;
+    }
+
+    private ChatClientResponse callFallback(ChatClientRequest request) {
+        Prompt prompt = request.prompt();
+        Prompt fallbackPrompt = new Prompt(prompt.getInstructions(), fallbackOptions(prompt.getOptions()));
+        return callDirect(request, fallbackPrompt);
+    }
+
+    private ChatOptions fallbackOptions(ChatOptions options) {
+        if (options instanceof OpenAiChatOptions openAiOptions) {
+            OpenAiChatOptions copy = openAiOptions.copy();
+            copy.setModel(config.getFallbackModel());
+            return copy;
+        }
+        return ChatOptions.builder()
+                .model(config.getFallbackModel())
+                .temperature(options != null ? options.getTemperature() : null)
+                .build();
+    }
+
+    private ChatClientResponse callDirect(ChatClientRequest request, Prompt prompt) {
+        ChatResponse chatResponse = chatModel.call(prompt);
+        return ChatClientResponse.builder()
+                .chatResponse(chatResponse)
+                .context(Map.copyOf(request.context()))
+                .build();
+    }
+
+    private static ChatClientResponse withPath(ChatClientResponse response, AnswerPath path) {
+        Map<String, Object> context = new HashMap<>(response.context());
+        context.put(ANSWER_PATH, path);
+        return response.mutate().context(context).build();
+    }
+
+    /**
+     * @param started 非空时在开始执行时写入开始时间
+     */
+    private static Callable<Attempt> timed(AnswerPath path, @Nullable CompletableFuture<Long> started,
+                                           Callable<ChatClientResponse> call) {
+        return () -> {
+            long start = System.currentTimeMillis();
+            if (started != null) {
+                started.complete(start);
+            }
+            ChatClientResponse response = call.call();
+            return new Attempt(path, response, System.currentTimeMillis() - start);
+        };
+    }
+
+    private record Attempt(AnswerPath path, ChatClientResponse response, long latencyMs) {
+    }
+}
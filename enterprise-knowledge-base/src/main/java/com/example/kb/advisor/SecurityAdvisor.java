@@ -1,24 +1,41 @@
 package com.example.kb.advisor;
 
+import com.example.kb.security.SensitiveDataScanner;
+import com.example.kb.security.StreamingRedactor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClientRequest;
 import org.springframework.ai.chat.client.ChatClientResponse;
 import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
 import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * 对发往模型的提示词和模型的回答做敏感信息脱敏
+ * <p>
+ * 排在检索增强之后执行，用户消息中已拼入的检索文档与问题一起在一次扫描中处理；
+ * 流式回答按分片增量脱敏。
+ */
 @Component
-public class SecurityAdvisor implements CallAdvisor {
+public class SecurityAdvisor implements CallAdvisor, StreamAdvisor {
     private static final Logger logger = LoggerFactory.getLogger(SecurityAdvisor.class);
 
-    private final List<String> sensitivePatterns = List.of(
-            "\\b\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}\\b", // 信用卡号
-            "\\b\\d{3}-\\d{2}-\\d{4}\\b", // SSN
-            "\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b" // 邮箱
-    );
+    private final SensitiveDataScanner scanner = new SensitiveDataScanner();
 
     @Override
     public String getName() {
@@ -32,11 +49,116 @@ public class SecurityAdvisor implements CallAdvisor {
 
     @Override
     public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
-        return chain.nextCall(request);
+        ChatClientResponse response = chain.nextCall(redactRequest(request));
+        ChatResponse chatResponse = response.chatResponse();
+        if (chatResponse == null) {
+            return response;
+        }
+        return response.mutate()
+                .chatResponse(mapText(chatResponse, (index, text) -> scanner.redact(text)))
+                .build();
     }
 
-    private boolean containsSensitiveInfo(String text) {
-        return sensitivePatterns.stream()
-                .anyMatch(pattern -> text.matches(".*" + pattern + ".*"));
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            // 每路流（及每个候选回答）独立暂存未确定的尾部文本
+            List<StreamingRedactor> redactors = new ArrayList<>();
+            AtomicReference<ChatClientResponse> lastResponse = new AtomicReference<>();
+
+            Flux<ChatClientResponse> redacted = chain.nextStream(redactRequest(request))
+                    .map(response -> {
+                        lastResponse.set(response);
+                        ChatResponse chatResponse = response.chatResponse();
+                        if (chatResponse == null) {
+                            return response;
+                        }
+                        return response.mutate()
+                                .chatResponse(mapText(chatResponse,
+                                        (index, text) -> redactor(redactors, index).next(text)))
+                                .build();
+                    });
+
+            Mono<ChatClientResponse> tail = Mono.fromSupplier(() -> {
+                ChatClientResponse last = lastResponse.get();
+                if (last == null || last.chatResponse() == null || redactors.isEmpty()) {
+                    return null;
+                }
+                List<String> rests = redactors.stream().map(StreamingRedactor::flush).toList();
+                if (rests.stream().allMatch(String::isEmpty)) {
+                    return null;
+                }
+                return last.mutate()
+                        .chatResponse(mapText(last.chatResponse(),
+                                (index, text) -> index < rests.size() ? rests.get(index) : ""))
+                        .build();
+            });
+
+            return redacted.concatWith(tail);
+        });
+    }
+
+    private ChatClientRequest redactRequest(ChatClientRequest request) {
+        Prompt prompt = request.prompt();
+        List<Message> messages = new ArrayList<>(prompt.getInstructions().size());
+        int redactedMessages = 0;
+        for (Message message : prompt.getInstructions()) {
+            Message redacted = redactMessage(message);
+            if (redacted != message) {
+                redactedMessages++;
+            }
+            messages.add(redacted);
+        }
+        if (redactedMessages == 0) {
+            return request;
+        }
+        logger.warn("提示词中包含敏感信息，已脱敏: messages={}", redactedMessages);
+        return request.mutate()
+                .prompt(prompt.mutate().messages(messages).build())
+                .build();
+    }
+
+    private Message redactMessage(Message message) {
+        if (!(message instanceof UserMessage || message instanceof SystemMessage)) {
+            return message;
+        }
+        String text = message.getText();
+        String redacted = scanner.redact(text);
+        if (redacted == text) {
+            return message;
+        }
+        if (message instanceof UserMessage userMessage) {
+            return userMessage.mutate().text(redacted).build();
+        }
+        return ((SystemMessage) message).mutate().text(redacted).build();
+    }
+
+    private static ChatResponse mapText(ChatResponse chatResponse, GenerationTextMapper mapper) {
+        List<Generation> results = chatResponse.getResults();
+        List<Generation> generations = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            Generation generation = results.get(i);
+            AssistantMessage output = generation.getOutput();
+            if (output == null || output.getText() == null) {
+                generations.add(generation);
+                continue;
+            }
+            AssistantMessage redacted = new AssistantMessage(mapper.map(i, output.getText()),
+                    output.getMetadata(), output.getToolCalls(), output.getMedia());
+            generations.add(new Generation(redacted, generation.getMetadata()));
+        }
+        return new ChatResponse(generations, chatResponse.getMetadata());
+    }
+
+    private StreamingRedactor redactor(List<StreamingRedactor> redactors, int index) {
+        while (redactors.size() <= index) {
+            redactors.add(scanner.streamingRedactor());
+        }
+        return redactors.get(index);
+    }
+
+    @FunctionalInterface
+    private interface GenerationTextMapper {
+        String map(int index, String text);
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,11 @@
 package com.example.kb.config;
 
+import com.example.kb.advisor.ConversationMemoryAdvisor;
 import com.example.kb.advisor.LoggingAdvisor;
+import com.example.kb.advisor.RagStageAdvisor;
+import com.example.kb.advisor.ResilienceAdvisor;
 import com.example.kb.advisor.SecurityAdvisor;
+import com.example.kb.prompt.PromptAssembler;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
 import org.springframework.ai.transformer.splitter.TextSplitter;
@@ -20,12 +24,21 @@ public class AIConfiguration {
     }
 
     @Bean
-    public ChatClient chatClient(ChatClient.Builder builder, VectorStore vectorStore) {
+    public ChatClient chatClient(ChatClient.Builder builder, VectorStore vectorStore,
+                                 ResilienceAdvisor resilienceAdvisor, PromptAssembler promptAssembler,
+                                 RagStageAdvisor ragStageAdvisor,
+                                 ConversationMemoryAdvisor conversationMemoryAdvisor,
+                                 SecurityAdvisor securityAdvisor) {
         return builder
                 .defaultAdvisors(
                         new LoggingAdvisor(),
-                        new SecurityAdvisor(),
-                        QuestionAnswerAdvisor.builder(vectorStore).build()
+                        securityAdvisor,
+                        conversationMemoryAdvisor,
+                        QuestionAnswerAdvisor.builder(vectorStore)
+                                .promptTemplate(promptAssembler.retrievalTemplate())
+                                .build(),
+                        ragStageAdvisor,
+                        resilienceAdvisor
                 )
                 .build();
     }
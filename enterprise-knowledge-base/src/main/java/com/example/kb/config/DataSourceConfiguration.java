@@ -0,0 +1,75 @@
+package com.example.kb.config;
+
+import com.example.kb.datasource.ReplicaLagGuard;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * 读写分离：主库连接池（spring.datasource.hikari.*）承担写入，只读连接池（app.knowledge-base.read-replica.*）
+ * 承担只读事务
+ * <p>
+ * 对外的 DataSource 是 LazyConnectionDataSourceProxy，按事务开始时的只读标记选择连接池：
+ * {@code @Transactional(readOnly = true)}、Spring Data 的查询方法和向量检索走只读池，其余走主库池。
+ */
+@Configuration
+@Profile("!loadtest")
+@ConditionalOnProperty(prefix = "app.knowledge-base.read-replica", name = "enabled", havingValue = "true")
+public class DataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("kb-primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(DataSourceProperties properties, KnowledgeBaseProperties kbProperties) {
+        KnowledgeBaseProperties.ReadReplica replica = kbProperties.getReadReplica();
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(replica.getUrl())) {
+            dataSource.setJdbcUrl(replica.getUrl());
+        }
+        if (StringUtils.hasText(replica.getUsername())) {
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+        }
+        dataSource.setPoolName("kb-read");
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setMinimumIdle(replica.getMinimumIdle());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("readDataSource") DataSource readDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(readDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagGuard replicaLagGuard(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                           @Qualifier("readDataSource") DataSource readDataSource,
+                                           PlatformTransactionManager transactionManager,
+                                           KnowledgeBaseProperties kbProperties) {
+        return new ReplicaLagGuard(new JdbcTemplate(primaryDataSource), new JdbcTemplate(readDataSource),
+                transactionManager, kbProperties.getReadReplica().getMaxStalenessMs());
+    }
+}
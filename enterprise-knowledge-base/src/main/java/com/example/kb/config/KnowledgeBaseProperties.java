@@ -1,9 +1,15 @@
 package com.example.kb.config;
 
+import com.example.kb.vectorstore.SearchPrecision;
+import com.example.kb.vectorstore.VectorPartitionKey;
+import com.example.kb.vectorstore.VectorQuantization;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
 @ConfigurationProperties(prefix = "app.knowledge-base")
@@ -11,6 +17,17 @@ public class KnowledgeBaseProperties {
 
     private Document document = new Document();
     private Vectorization vectorization = new Vectorization();
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+    private Resilience resilience = new Resilience();
+    private Accounting accounting = new Accounting();
+    private LoadTest loadTest = new LoadTest();
+    private Quantization quantization = new Quantization();
+    private Search search = new Search();
+    private Partitioning partitioning = new Partitioning();
+    private BulkLoad bulkLoad = new BulkLoad();
+    private ReadReplica readReplica = new ReadReplica();
+    private SearchCache searchCache = new SearchCache();
+    private ConversationMemory conversationMemory = new ConversationMemory();
 
     public static class Document {
         private String storagePath = "./uploads";
@@ -91,6 +108,644 @@ public class KnowledgeBaseProperties {
         }
     }
 
+    /**
+     * 大模型调用的自适应并发限制（AIMD）
+     */
+    public static class ConcurrencyLimit {
+        private boolean enabled = true;
+        private int initialLimit = 10;
+        private int minLimit = 2;
+        private int maxLimit = 64;
+        private long acquireTimeoutMs = 30000;
+        // 短期延迟超过基线延迟的倍数时视为拥塞
+        private double latencyTolerance = 1.5;
+        // 基线延迟取最近多少个样本的指数平均
+        private int baselineWindow = 600;
+        // 样本少于该数量时不因延迟下调，避免冷启动时基线不稳
+        private int minSamples = 20;
+        // 拥塞或限流(429)时的乘性减小系数
+        private double backoffRatio = 0.7;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public long getAcquireTimeoutMs() {
+            return acquireTimeoutMs;
+        }
+
+        public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+            this.acquireTimeoutMs = acquireTimeoutMs;
+        }
+
+        public double getLatencyTolerance() {
+            return latencyTolerance;
+        }
+
+        public void setLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+        }
+
+        public int getBaselineWindow() {
+            return baselineWindow;
+        }
+
+        public void setBaselineWindow(int baselineWindow) {
+            this.baselineWindow = baselineWindow;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+    }
+
+    /**
+     * 问答调用的截止时间、对冲请求与降级模型
+     */
+    public static class Resilience {
+        private boolean enabled = true;
+        private long deadlineMs = 45000;
+        private boolean hedgeEnabled = true;
+        // 以最近主请求延迟的该分位数作为对冲延迟
+        private double hedgePercentile = 0.95;
+        private long hedgeMinDelayMs = 2000;
+        // 延迟样本少于该数量时不对冲，避免冷启动时盲目加倍请求
+        private int hedgeMinSamples = 20;
+        private String fallbackModel = "gpt-4o-mini";
+        // 距截止时间还剩该时长仍未返回时切换到降级模型
+        private long fallbackReserveMs = 15000;
+        // 各路请求（主请求、对冲、降级）共用线程池的线程上限
+        private int maxAttemptThreads = 256;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getDeadlineMs() {
+            return deadlineMs;
+        }
+
+        public void setDeadlineMs(long deadlineMs) {
+            this.deadlineMs = deadlineMs;
+        }
+
+        public boolean isHedgeEnabled() {
+            return hedgeEnabled;
+        }
+
+        public void setHedgeEnabled(boolean hedgeEnabled) {
+            this.hedgeEnabled = hedgeEnabled;
+        }
+
+        public double getHedgePercentile() {
+            return hedgePercentile;
+        }
+
+        public void setHedgePercentile(double hedgePercentile) {
+            this.hedgePercentile = hedgePercentile;
+        }
+
+        public long getHedgeMinDelayMs() {
+            return hedgeMinDelayMs;
+        }
+
+        public void setHedgeMinDelayMs(long hedgeMinDelayMs) {
+            this.hedgeMinDelayMs = hedgeMinDelayMs;
+        }
+
+        public int getHedgeMinSamples() {
+            return hedgeMinSamples;
+        }
+
+        public void setHedgeMinSamples(int hedgeMinSamples) {
+            this.hedgeMinSamples = hedgeMinSamples;
+        }
+
+        public String getFallbackModel() {
+            return fallbackModel;
+        }
+
+        public void setFallbackModel(String fallbackModel) {
+            this.fallbackModel = fallbackModel;
+        }
+
+        public long getFallbackReserveMs() {
+            return fallbackReserveMs;
+        }
+
+        public void setFallbackReserveMs(long fallbackReserveMs) {
+            this.fallbackReserveMs = fallbackReserveMs;
+        }
+
+        public int getMaxAttemptThreads() {
+            return maxAttemptThreads;
+        }
+
+        public void setMaxAttemptThreads(int maxAttemptThreads) {
+            this.maxAttemptThreads = maxAttemptThreads;
+        }
+    }
+
+    /**
+     * token 计费与按用户/分类的用量统计
+     */
+    public static class Accounting {
+        // 用户维度指标的最大用户数，超出后新用户的用量合并计入 user=other（查询记录和报表不受影响）
+        private int maxUserTags = 500;
+        // 模型单价，key 为模型名前缀，按最长前缀匹配响应中的模型名
+        private Map<String, ModelPrice> prices = new HashMap<>();
+
+        public int getMaxUserTags() {
+            return maxUserTags;
+        }
+
+        public void setMaxUserTags(int maxUserTags) {
+            this.maxUserTags = maxUserTags;
+        }
+
+        public Map<String, ModelPrice> getPrices() {
+            return prices;
+        }
+
+        public void setPrices(Map<String, ModelPrice> prices) {
+            this.prices = prices;
+        }
+    }
+
+    /**
+     * 每百万 token 的价格（美元）
+     */
+    public static class ModelPrice {
+        private double input;
+        private double cachedInput;
+        private double output;
+
+        public double getInput() {
+            return input;
+        }
+
+        public void setInput(double input) {
+            this.input = input;
+        }
+
+        public double getCachedInput() {
+            return cachedInput;
+        }
+
+        public void setCachedInput(double cachedInput) {
+            this.cachedInput = cachedInput;
+        }
+
+        public double getOutput() {
+            return output;
+        }
+
+        public void setOutput(double output) {
+            this.output = output;
+        }
+    }
+
+    /**
+     * loadtest profile 下模拟模型的延迟与速率
+     */
+    public static class LoadTest {
+        // 响应中报告的模型名
+        private String chatModel = "gpt-4o";
+        // 首 token 延迟的中位数和 p99
+        private long chatLatencyMedianMs = 800;
+        private long chatLatencyP99Ms = 3000;
+        // 回答的 token 生成速率
+        private double tokensPerSecond = 50;
+        private int answerTokens = 200;
+        // 模型调用失败（503）的概率
+        private double failureRate = 0;
+        private int embeddingDimensions = 384;
+        // 每次向量化请求的延迟中位数和 p99
+        private long embeddingLatencyMedianMs = 60;
+        private long embeddingLatencyP99Ms = 250;
+
+        public String getChatModel() {
+            return chatModel;
+        }
+
+        public void setChatModel(String chatModel) {
+            this.chatModel = chatModel;
+        }
+
+        public long getChatLatencyMedianMs() {
+            return chatLatencyMedianMs;
+        }
+
+        public void setChatLatencyMedianMs(long chatLatencyMedianMs) {
+            this.chatLatencyMedianMs = chatLatencyMedianMs;
+        }
+
+        public long getChatLatencyP99Ms() {
+            return chatLatencyP99Ms;
+        }
+
+        public void setChatLatencyP99Ms(long chatLatencyP99Ms) {
+            this.chatLatencyP99Ms = chatLatencyP99Ms;
+        }
+
+        public double getTokensPerSecond() {
+            return tokensPerSecond;
+        }
+
+        public void setTokensPerSecond(double tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+        }
+
+        public int getAnswerTokens() {
+            return answerTokens;
+        }
+
+        public void setAnswerTokens(int answerTokens) {
+            this.answerTokens = answerTokens;
+        }
+
+        public double getFailureRate() {
+            return failureRate;
+        }
+
+        public void setFailureRate(double failureRate) {
+            this.failureRate = failureRate;
+        }
+
+        public int getEmbeddingDimensions() {
+            return embeddingDimensions;
+        }
+
+        public void setEmbeddingDimensions(int embeddingDimensions) {
+            this.embeddingDimensions = embeddingDimensions;
+        }
+
+        public long getEmbeddingLatencyMedianMs() {
+            return embeddingLatencyMedianMs;
+        }
+
+        public void setEmbeddingLatencyMedianMs(long embeddingLatencyMedianMs) {
+            this.embeddingLatencyMedianMs = embeddingLatencyMedianMs;
+        }
+
+        public long getEmbeddingLatencyP99Ms() {
+            return embeddingLatencyP99Ms;
+        }
+
+        public void setEmbeddingLatencyP99Ms(long embeddingLatencyP99Ms) {
+            this.embeddingLatencyP99Ms = embeddingLatencyP99Ms;
+        }
+    }
+
+    /**
+     * pgvector 量化索引与全精度重排序
+     */
+    public static class Quantization {
+        // NONE 时使用 PgVectorStore 自带的全精度索引
+        private VectorQuantization mode = VectorQuantization.NONE;
+        // 量化索引上取 topK × oversample 个候选，再按全精度距离重排序
+        private int oversample = 4;
+
+        public VectorQuantization getMode() {
+            return mode;
+        }
+
+        public void setMode(VectorQuantization mode) {
+            this.mode = mode;
+        }
+
+        public int getOversample() {
+            return oversample;
+        }
+
+        public void setOversample(int oversample) {
+            this.oversample = oversample;
+        }
+
+    }
+
+    /**
+     * 向量检索的精度档位（hnsw.ef_search）与召回率抽样
+     */
+    public static class Search {
+        // 未指定档位时的默认值
+        private SearchPrecision precision = SearchPrecision.BALANCED;
+        // 各档位的 hnsw.ef_search，pgvector 默认为 40
+        private Map<SearchPrecision, Integer> efSearch = new EnumMap<>(Map.of(
+                SearchPrecision.FAST, 20, SearchPrecision.BALANCED, 40, SearchPrecision.EXHAUSTIVE, 200));
+        // 按接口（query、stream）指定的档位
+        private Map<String, SearchPrecision> endpoints = new HashMap<>();
+        // 按分类指定的档位，优先于接口
+        private Map<String, SearchPrecision> categories = new HashMap<>();
+        // 召回率抽样的目标值，滑动平均低于该值时告警
+        private double recallTarget = 0.95;
+        // 与精确检索比较的查询比例，0 表示不抽样
+        private double recallSampleRate = 0;
+
+        public SearchPrecision getPrecision() {
+            return precision;
+        }
+
+        public void setPrecision(SearchPrecision precision) {
+            this.precision = precision;
+        }
+
+        public Map<SearchPrecision, Integer> getEfSearch() {
+            return efSearch;
+        }
+
+        public void setEfSearch(Map<SearchPrecision, Integer> efSearch) {
+            this.efSearch = efSearch;
+        }
+
+        public Map<String, SearchPrecision> getEndpoints() {
+            return endpoints;
+        }
+
+        public void setEndpoints(Map<String, SearchPrecision> endpoints) {
+            this.endpoints = endpoints;
+        }
+
+        public Map<String, SearchPrecision> getCategories() {
+            return categories;
+        }
+
+        public void setCategories(Map<String, SearchPrecision> categories) {
+            this.categories = categories;
+        }
+
+        public double getRecallTarget() {
+            return recallTarget;
+        }
+
+        public void setRecallTarget(double recallTarget) {
+            this.recallTarget = recallTarget;
+        }
+
+        public double getRecallSampleRate() {
+            return recallSampleRate;
+        }
+
+        public void setRecallSampleRate(double recallSampleRate) {
+            this.recallSampleRate = recallSampleRate;
+        }
+    }
+
+    /**
+     * 向量表按用户或分类列表分区，每个分区单独建 HNSW 索引
+     */
+    public static class Partitioning {
+        private boolean enabled = false;
+        private VectorPartitionKey key = VectorPartitionKey.OWNER;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public VectorPartitionKey getKey() {
+            return key;
+        }
+
+        public void setKey(VectorPartitionKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 批量导入窗口：二进制 COPY 写入，导入结束后重建向量索引
+     */
+    public static class BulkLoad {
+        // 导入期间删除 HNSW / IVFFlat 索引，结束后重建
+        private boolean deferIndexes = true;
+        // 重建索引时的 max_parallel_maintenance_workers，受数据库 max_worker_processes 限制
+        private int parallelWorkers = 4;
+        // 重建索引时的 maintenance_work_mem，HNSW 图能完整放入时构建最快
+        private String maintenanceWorkMem = "2GB";
+        // 允许开启和结束导入窗口的用户
+        private List<String> adminUsers = List.of("admin");
+
+        public boolean isDeferIndexes() {
+            return deferIndexes;
+        }
+
+        public void setDeferIndexes(boolean deferIndexes) {
+            this.deferIndexes = deferIndexes;
+        }
+
+        public int getParallelWorkers() {
+            return parallelWorkers;
+        }
+
+        public void setParallelWorkers(int parallelWorkers) {
+            this.parallelWorkers = parallelWorkers;
+        }
+
+        public String getMaintenanceWorkMem() {
+            return maintenanceWorkMem;
+        }
+
+        public void setMaintenanceWorkMem(String maintenanceWorkMem) {
+            this.maintenanceWorkMem = maintenanceWorkMem;
+        }
+
+        public List<String> getAdminUsers() {
+            return adminUsers;
+        }
+
+        public void setAdminUsers(List<String> adminUsers) {
+            this.adminUsers = adminUsers;
+        }
+    }
+
+    /**
+     * 读写分离：只读事务（向量检索、只读查询）走只读连接池，写入走主库连接池
+     */
+    public static class ReadReplica {
+        private boolean enabled = false;
+        // 只读库地址，为空时指向主库，仅把检索与写入的连接池分开
+        private String url;
+        // 为空时沿用 spring.datasource 的用户名和密码
+        private String username;
+        private String password;
+        private int maximumPoolSize = 20;
+        private int minimumIdle = 5;
+        // 用户写入后，在只读库追上该写入或超过该时长之前，其检索走主库
+        private long maxStalenessMs = 30000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public int getMinimumIdle() {
+            return minimumIdle;
+        }
+
+        public void setMinimumIdle(int minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public long getMaxStalenessMs() {
+            return maxStalenessMs;
+        }
+
+        public void setMaxStalenessMs(long maxStalenessMs) {
+            this.maxStalenessMs = maxStalenessMs;
+        }
+    }
+
+    /**
+     * 向量检索结果缓存，文档入库完成或删除后按分类失效
+     */
+    public static class SearchCache {
+        private boolean enabled = true;
+        private int maxEntries = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    /**
+     * 服务端会话记忆：每个会话携带的历史 token 预算，超出后在后台把较早的轮次滚动合并为摘要
+     */
+    public static class ConversationMemory {
+        // 每轮提示词中历史消息（含摘要）的 token 上限
+        private int tokenBudget = 2000;
+        // 摘要的长度上限（字）
+        private int summaryMaxChars = 400;
+        // 内存中保留最近消息的会话数，超出后按最近最少使用淘汰，下次访问时从数据库加载
+        private int maxConversations = 10000;
+        private int summarizerThreads = 2;
+
+        public int getTokenBudget() {
+            return tokenBudget;
+        }
+
+        public void setTokenBudget(int tokenBudget) {
+            this.tokenBudget = tokenBudget;
+        }
+
+        public int getSummaryMaxChars() {
+            return summaryMaxChars;
+        }
+
+        public void setSummaryMaxChars(int summaryMaxChars) {
+            this.summaryMaxChars = summaryMaxChars;
+        }
+
+        public int getMaxConversations() {
+            return maxConversations;
+        }
+
+        public void setMaxConversations(int maxConversations) {
+            this.maxConversations = maxConversations;
+        }
+
+        public int getSummarizerThreads() {
+            return summarizerThreads;
+        }
+
+        public void setSummarizerThreads(int summarizerThreads) {
+            this.summarizerThreads = summarizerThreads;
+        }
+    }
+
     public Document getDocument() {
         return document;
     }
@@ -106,4 +761,92 @@ public class KnowledgeBaseProperties {
     public void setVectorization(Vectorization vectorization) {
         this.vectorization = vectorization;
     }
-} 
\ No newline at end of file
+
+    public ConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    public Resilience getResilience() {
+        return resilience;
+    }
+
+    public void setResilience(Resilience resilience) {
+        this.resilience = resilience;
+    }
+
+    public Accounting getAccounting() {
+        return accounting;
+    }
+
+    public void setAccounting(Accounting accounting) {
+        this.accounting = accounting;
+    }
+
+    public LoadTest getLoadTest() {
+        return loadTest;
+    }
+
+    public void setLoadTest(LoadTest loadTest) {
+        this.loadTest = loadTest;
+    }
+
+    public Quantization getQuantization() {
+        return quantization;
+    }
+
+    public void setQuantization(Quantization quantization) {
+        this.quantization = quantization;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public void setSearch(Search search) {
+        this.search = search;
+    }
+
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    public void setPartitioning(Partitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    public BulkLoad getBulkLoad() {
+        return bulkLoad;
+    }
+
+    public void setBulkLoad(BulkLoad bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    public ReadReplica getReadReplica() {
+        return readReplica;
+    }
+
+    public void setReadReplica(ReadReplica readReplica) {
+        this.readReplica = readReplica;
+    }
+
+    public SearchCache getSearchCache() {
+        return searchCache;
+    }
+
+    public void setSearchCache(SearchCache searchCache) {
+        this.searchCache = searchCache;
+    }
+
+    public ConversationMemory getConversationMemory() {
+        return conversationMemory;
+    }
+
+    public void setConversationMemory(ConversationMemory conversationMemory) {
+        this.conversationMemory = conversationMemory;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.kb.config;
+
+import com.example.loadtest.FakeChatModel;
+import com.example.loadtest.FakeEmbeddingModel;
+import com.example.loadtest.LatencyDistribution;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 离线压测配置：模拟的 ChatModel / EmbeddingModel 和内存向量库
+ * <p>
+ * 配合 application-loadtest.yml 关闭 OpenAI 与 pgvector 自动配置、使用 H2 内存数据库，无需网络和 PostgreSQL。
+ * 模拟模型同样会被并发限制、观测指标等 BeanPostProcessor 包装，压测覆盖与生产一致的调用路径。
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfiguration {
+
+    private final KnowledgeBaseProperties.LoadTest loadTest;
+
+    public LoadTestConfiguration(KnowledgeBaseProperties kbProperties) {
+        this.loadTest = kbProperties.getLoadTest();
+    }
+
+    @Bean
+    public ChatModel chatModel() {
+        return new FakeChatModel(loadTest.getChatModel(),
+                new LatencyDistribution(loadTest.getChatLatencyMedianMs(), loadTest.getChatLatencyP99Ms()),
+                loadTest.getTokensPerSecond(), loadTest.getAnswerTokens(), loadTest.getFailureRate());
+    }
+
+    @Bean
+    public EmbeddingModel embeddingModel() {
+        return new FakeEmbeddingModel(loadTest.getEmbeddingDimensions(),
+                new LatencyDistribution(loadTest.getEmbeddingLatencyMedianMs(), loadTest.getEmbeddingLatencyP99Ms()));
+    }
+
+    @Bean
+    public VectorStore vectorStore(EmbeddingModel embeddingModel) {
+        return SimpleVectorStore.builder(embeddingModel).build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.kb.config;
+
+import com.example.kb.observation.RagMetrics;
+import com.example.kb.observation.RagObservationPostProcessor;
+import com.example.kb.observation.UsageUserTagFilter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ObservationConfiguration {
+
+    /**
+     * BeanPostProcessor 需要用 static 方法声明，避免提前初始化配置类
+     */
+    @Bean
+    public static RagObservationPostProcessor ragObservationPostProcessor(ObjectProvider<RagMetrics> ragMetrics) {
+        return new RagObservationPostProcessor(ragMetrics);
+    }
+
+    /**
+     * 限制按用户区分的用量指标数量，避免用户数增长导致指标基数失控；超出的用户计入 user=other
+     */
+    @Bean
+    public MeterFilter usageUserTagLimit(KnowledgeBaseProperties kbProperties) {
+        return new UsageUserTagFilter(kbProperties.getAccounting().getMaxUserTags());
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.kb.config;
+
+import com.example.kb.resilience.ConcurrencyLimitPostProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResilienceConfiguration {
+
+    /**
+     * BeanPostProcessor 需要用 static 方法声明，避免提前初始化配置类
+     */
+    @Bean
+    public static ConcurrencyLimitPostProcessor concurrencyLimitPostProcessor(
+            ObjectProvider<KnowledgeBaseProperties> kbProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ConcurrencyLimitPostProcessor(kbProperties, meterRegistry);
+    }
+}
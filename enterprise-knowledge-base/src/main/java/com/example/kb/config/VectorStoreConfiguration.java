@@ -0,0 +1,122 @@
+package com.example.kb.config;
+
+import com.example.kb.vectorstore.QuantizedPgVectorStore;
+import com.example.kb.vectorstore.VectorBulkLoader;
+import com.example.kb.vectorstore.VectorPartitions;
+import com.example.kb.vectorstore.VectorQuantization;
+import com.example.kb.vectorstore.VectorSearchCache;
+import com.example.kb.vectorstore.VectorSearchMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.ai.vectorstore.pgvector.autoconfigure.PgVectorStoreProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 替换 pgvector 自动配置的向量存储，以支持按精度档位设置 ef_search、量化索引、分区表和 COPY 批量导入；
+ * 其余 spring.ai.vectorstore.pgvector.* 配置照常生效
+ */
+@Configuration
+@Profile("!loadtest")
+public class VectorStoreConfiguration {
+
+    @Bean
+    public QuantizedPgVectorStore vectorStore(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel,
+                                              PgVectorStoreProperties properties, BatchingStrategy batchingStrategy,
+                                              ObjectProvider<ObservationRegistry> observationRegistry,
+                                              PlatformTransactionManager transactionManager,
+                                              VectorSearchMetrics vectorSearchMetrics,
+                                              ObjectProvider<VectorPartitions> vectorPartitions,
+                                              VectorBulkLoader vectorBulkLoader,
+                                              ObjectProvider<VectorSearchCache> vectorSearchCache,
+                                              KnowledgeBaseProperties kbProperties) {
+        KnowledgeBaseProperties.Quantization quantization = kbProperties.getQuantization();
+        KnowledgeBaseProperties.Search search = kbProperties.getSearch();
+        boolean quantized = quantization.getMode() != VectorQuantization.NONE;
+        VectorPartitions partitions = vectorPartitions.getIfAvailable();
+        // 恢复了上次未结束的导入窗口时不在启动时串行建索引，结束窗口时统一重建
+        boolean bulkLoadRestored = vectorBulkLoader.isActive();
+        PgVectorStore.PgVectorStoreBuilder builder = PgVectorStore.builder(jdbcTemplate, embeddingModel)
+                .schemaName(properties.getSchemaName())
+                .idType(properties.getIdType())
+                .vectorTableName(properties.getTableName())
+                .vectorTableValidationsEnabled(properties.isSchemaValidation())
+                .dimensions(properties.getDimensions())
+                .distanceType(properties.getDistanceType())
+                // 分区表由 VectorPartitions 删除和重建
+                .removeExistingVectorStoreTable(partitions == null && properties.isRemoveExistingVectorStoreTable())
+                // 开启量化时全精度索引由量化索引代替
+                .indexType(quantized || bulkLoadRestored ? PgVectorStore.PgIndexType.NONE : properties.getIndexType())
+                .initializeSchema(properties.isInitializeSchema())
+                .maxDocumentBatchSize(properties.getMaxDocumentBatchSize())
+                .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+                .batchingStrategy(batchingStrategy);
+
+        return new QuantizedPgVectorStore(builder, jdbcTemplate, new TransactionTemplate(transactionManager),
+                properties.getSchemaName(), properties.getTableName(), properties.getDimensions(),
+                properties.isInitializeSchema(), quantization.getMode(), quantization.getOversample(),
+                search.getEfSearch(), search.getPrecision(), vectorSearchMetrics, partitions, vectorBulkLoader,
+                vectorSearchCache.getIfAvailable());
+    }
+
+    @Bean
+    public VectorBulkLoader vectorBulkLoader(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                             PgVectorStoreProperties properties,
+                                             ObjectProvider<VectorPartitions> vectorPartitions,
+                                             KnowledgeBaseProperties kbProperties) {
+        KnowledgeBaseProperties.BulkLoad bulkLoad = kbProperties.getBulkLoad();
+        VectorBulkLoader loader = new VectorBulkLoader(jdbcTemplate, new TransactionTemplate(transactionManager),
+                properties.getSchemaName(), properties.getTableName(), properties.getIdType(),
+                vectorPartitions.getIfAvailable(), bulkLoad.isDeferIndexes(), bulkLoad.getParallelWorkers(),
+                bulkLoad.getMaintenanceWorkMem());
+        loader.restore();
+        return loader;
+    }
+
+    /**
+     * 单独声明为 bean，供 DocumentService 按用户或分类删除整个分区
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.knowledge-base.partitioning", name = "enabled", havingValue = "true")
+    public VectorPartitions vectorPartitions(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                             PgVectorStoreProperties properties, KnowledgeBaseProperties kbProperties) {
+        // 建分区的 DDL 在独立事务中提交，不随入库事务长时间持有父表的排他锁
+        TransactionTemplate ddlTransaction = new TransactionTemplate(transactionManager);
+        ddlTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return new VectorPartitions(jdbcTemplate, ddlTransaction, properties.getSchemaName(), properties.getTableName(),
+                kbProperties.getPartitioning().getKey(), properties.getIdType(), properties.getDimensions(),
+                properties.isRemoveExistingVectorStoreTable());
+    }
+
+    /**
+     * 单独声明为 bean，供 DocumentService 在入库完成和删除后按分类失效
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.knowledge-base.search-cache", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    public VectorSearchCache vectorSearchCache(MeterRegistry meterRegistry, KnowledgeBaseProperties kbProperties) {
+        KnowledgeBaseProperties.ReadReplica readReplica = kbProperties.getReadReplica();
+        return new VectorSearchCache(meterRegistry, kbProperties.getSearchCache().getMaxEntries(),
+                readReplica.isEnabled() ? readReplica.getMaxStalenessMs() : 0);
+    }
+
+    /**
+     * 单独声明为 bean，容器关闭时通过 close() 停止抽样线程（向量存储本身会被观测包装，拿不到销毁回调）
+     */
+    @Bean
+    public VectorSearchMetrics vectorSearchMetrics(MeterRegistry meterRegistry, KnowledgeBaseProperties kbProperties) {
+        KnowledgeBaseProperties.Search search = kbProperties.getSearch();
+        return new VectorSearchMetrics(meterRegistry, kbProperties.getQuantization().getMode(),
+                search.getRecallSampleRate(), search.getRecallTarget());
+    }
+}
@@ -2,13 +2,18 @@ package com.example.kb.controller;
 
 import com.example.kb.model.DocumentEntity;
 import com.example.kb.model.Records.DocumentUploadResult;
+import com.example.kb.model.Records.IngestionProgress;
 import com.example.kb.service.DocumentService;
+import com.example.kb.service.IngestionProgressService;
+import com.example.kb.vectorstore.VectorBulkLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,9 +27,11 @@ public class DocumentController {
 
     private static final Logger logger = LoggerFactory.getLogger(DocumentController.class);
     private final DocumentService documentService;
+    private final IngestionProgressService progressService;
 
-    public DocumentController(DocumentService documentService) {
+    public DocumentController(DocumentService documentService, IngestionProgressService progressService) {
         this.documentService = documentService;
+        this.progressService = progressService;
     }
 
     /**
@@ -101,6 +108,40 @@ public class DocumentController {
         }
     }
 
+    /**
+     * 订阅文档处理进度（SSE），文档已处理完成时推送一次终态后关闭
+     */
+    @GetMapping(value = "/{id}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamProgress(
+            @PathVariable Long id,
+            @RequestParam(value = "userId", defaultValue = "admin") String userId) {
+
+        logger.debug("订阅文档处理进度: documentId={}, userId={}", id, userId);
+
+        if (documentService.getDocumentById(id, userId).isEmpty()) {
+            logger.warn("文档不存在或无权限访问: documentId={}, userId={}", id, userId);
+            return ResponseEntity.notFound().build();
+        }
+
+        // 先订阅再读取状态：终态在事务提交后发布，两者之间不会漏掉终态事件
+        SseEmitter emitter = progressService.subscribe(id);
+        documentService.getDocumentById(id, userId)
+                .filter(document -> !"PROCESSING".equals(document.getStatus()))
+                .ifPresent(document -> progressService.complete(emitter, new IngestionProgress(
+                        id, document.getStatus(), null, valueOf(document.getChunkCount()),
+                        valueOf(document.getChunkCount()), valueOf(document.getProcessingDurationMs()),
+                        null, document.getErrorMessage())));
+        return ResponseEntity.ok(emitter);
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+
     /**
      * 删除文档
      */
@@ -140,6 +181,93 @@ public class DocumentController {
         }
     }
 
+    /**
+     * 删除一个用户或分类的全部文档（向量表开启分区时），向量随分区整体删除
+     */
+    @DeleteMapping("/partitions/{value}")
+    public ResponseEntity<Map<String, Object>> retirePartition(
+            @PathVariable String value,
+            @RequestParam(value = "userId", defaultValue = "admin") String userId) {
+
+        logger.info("删除分区请求: value={}, userId={}", value, userId);
+
+        try {
+            int documentCount = documentService.retirePartition(value, userId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "分区删除成功");
+            response.put("partition", value);
+            response.put("documentCount", documentCount);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalStateException e) {
+            logger.warn("删除分区失败: value={}, error={}", value, e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+
+        } catch (SecurityException e) {
+            logger.warn("删除分区权限不足: value={}, userId={}", value, userId);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "无权限删除此分区");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
+
+        } catch (Exception e) {
+            logger.error("删除分区异常: value={}, error={}", value, e.getMessage(), e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "分区删除失败：" + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * 开启批量导入窗口：之后上传的文档以二进制 COPY 写入向量库，向量索引推迟到结束时重建；仅限管理员
+     */
+    @PostMapping("/bulk-load/start")
+    public ResponseEntity<VectorBulkLoader.Status> beginBulkLoad(@RequestParam("userId") String userId) {
+        logger.info("开启批量导入请求: userId={}", userId);
+        try {
+            return ResponseEntity.ok(documentService.beginBulkLoad(userId));
+        } catch (IllegalStateException e) {
+            logger.warn("开启批量导入失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (SecurityException e) {
+            logger.warn("开启批量导入权限不足: userId={}", userId);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
+    /**
+     * 结束批量导入窗口，向量索引在后台重建，返回 202；通过状态接口查看重建进度
+     */
+    @PostMapping("/bulk-load/finish")
+    public ResponseEntity<VectorBulkLoader.Status> finishBulkLoad(@RequestParam("userId") String userId) {
+        logger.info("结束批量导入请求: userId={}", userId);
+        try {
+            return ResponseEntity.accepted().body(documentService.finishBulkLoad(userId));
+        } catch (IllegalStateException e) {
+            logger.warn("结束批量导入失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (SecurityException e) {
+            logger.warn("结束批量导入权限不足: userId={}", userId);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
+    /**
+     * 批量导入状态：是否在导入窗口内、是否正在重建索引、已写入行数、待重建的索引和上次重建失败的原因
+     */
+    @GetMapping("/bulk-load")
+    public ResponseEntity<VectorBulkLoader.Status> getBulkLoadStatus(@RequestParam("userId") String userId) {
+        try {
+            return ResponseEntity.ok(documentService.getBulkLoadStatus(userId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
     /**
      * 重新处理失败的文档
      */
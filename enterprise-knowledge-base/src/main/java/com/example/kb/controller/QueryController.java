@@ -4,9 +4,12 @@ import com.example.kb.model.QueryEntity;
 import com.example.kb.model.Records.QueryRequest;
 import com.example.kb.model.Records.QueryResult;
 import com.example.kb.service.QueryService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import reactor.core.publisher.Flux;
+
 import java.util.List;
 
 @RestController
@@ -21,10 +24,24 @@ public class QueryController {
 
     @PostMapping
     public ResponseEntity<QueryResult> query(@RequestBody QueryRequest request) {
-        QueryResult result = queryService.query(request.question(), request.userId(), request.category());
+        QueryResult result = queryService.query(request.question(), request.userId(), request.category(),
+                request.deadlineMs(), request.precision(), request.conversationId());
         return ResponseEntity.ok(result);
     }
 
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<String> queryStream(@RequestBody QueryRequest request) {
+        return queryService.queryStream(request.question(), request.userId(), request.category(),
+                request.precision(), request.conversationId());
+    }
+
+    @DeleteMapping("/conversations/{conversationId}")
+    public ResponseEntity<Void> clearConversation(@PathVariable String conversationId,
+                                                  @RequestParam(value = "userId", defaultValue = "admin") String userId) {
+        queryService.clearConversation(userId, conversationId);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/history")
     public ResponseEntity<List<QueryEntity>> getHistory(
             @RequestParam(defaultValue = "10") int limit, @RequestParam(value = "userId", defaultValue = "admin") String userId) {
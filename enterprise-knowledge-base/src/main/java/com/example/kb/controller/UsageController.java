@@ -0,0 +1,37 @@
+package com.example.kb.controller;
+
+import com.example.kb.model.Records.UsageReport;
+import com.example.kb.service.UsageService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/usage")
+public class UsageController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final UsageService usageService;
+
+    public UsageController(UsageService usageService) {
+        this.usageService = usageService;
+    }
+
+    /**
+     * 用量报表，groupBy 为 user 或 category，默认统计最近 7 天；limit 为 1..1000，超出范围返回 400
+     */
+    @GetMapping("/report")
+    public ResponseEntity<UsageReport> report(
+            @RequestParam(defaultValue = "user") String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocalDateTime from = since != null ? since : LocalDateTime.now().minusDays(7);
+        return ResponseEntity.ok(usageService.report(groupBy, from, limit));
+    }
+}
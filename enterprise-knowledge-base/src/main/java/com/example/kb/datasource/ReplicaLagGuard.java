@@ -0,0 +1,116 @@
+package com.example.kb.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 读写分离下的读己之写保证：用户写入后，在只读库回放到该写入之前，其读取和检索改走主库
+ * <p>
+ * 写入事务提交后记下主库当前的 WAL 位置（pg_current_wal_lsn），之后该用户读取前用只读库的
+ * pg_last_wal_replay_lsn 比较；只读库已追上或超过 maxStalenessMs 后不再检查。只读库不是备库
+ * （只拆分连接池、仍指向主库）时回放位置为 NULL，视为已追上。
+ */
+public class ReplicaLagGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagGuard.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final TransactionTemplate primaryTransactions;
+    private final long maxStalenessMs;
+    private final Map<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+
+    public ReplicaLagGuard(JdbcTemplate primary, JdbcTemplate replica, PlatformTransactionManager transactionManager,
+                           long maxStalenessMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.primaryTransactions = new TransactionTemplate(transactionManager);
+        this.primaryTransactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxStalenessMs = maxStalenessMs;
+    }
+
+    /**
+     * 记录用户的一次写入；在事务内调用时等事务提交后再取主库 WAL 位置
+     */
+    public void recordWrite(String userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(userId);
+                }
+            });
+        } else {
+            record(userId);
+        }
+    }
+
+    /**
+     * 用户最近的写入是否可能尚未同步到只读库
+     */
+    public boolean requiresPrimary(String userId) {
+        PendingWrite write = userId != null ? pendingWrites.get(userId) : null;
+        if (write == null) {
+            return false;
+        }
+        if (write.expiresAt() <= System.currentTimeMillis() || replayed(write.lsn())) {
+            pendingWrites.remove(userId, write);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 在只读事务内执行查询；用户有未同步的写入时改在主库的新事务中执行
+     */
+    public <T> T read(String userId, Supplier<T> query) {
+        if (!requiresPrimary(userId)) {
+            return query.get();
+        }
+        logger.debug("只读库尚未同步用户的写入，改读主库: userId={}", userId);
+        return primaryTransactions.execute(status -> query.get());
+    }
+
+    private void record(String userId) {
+        String lsn = null;
+        try {
+            lsn = primary.queryForObject("SELECT pg_current_wal_lsn()::text", String.class);
+        } catch (DataAccessException e) {
+            // 取不到位置时按 maxStalenessMs 走主库
+            logger.warn("获取主库 WAL 位置失败: {}", e.getMessage());
+        }
+        long now = System.currentTimeMillis();
+        pendingWrites.values().removeIf(write -> write.expiresAt() <= now);
+        pendingWrites.put(userId, new PendingWrite(lsn, now + maxStalenessMs));
+    }
+
+    private boolean replayed(String lsn) {
+        if (lsn == null) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(replica.queryForObject(
+                    "SELECT coalesce(pg_last_wal_replay_lsn() >= ?::pg_lsn, true)", Boolean.class, lsn));
+        } catch (DataAccessException e) {
+            logger.debug("查询只读库回放位置失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private record PendingWrite(String lsn, long expiresAt) {
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.kb.memory;
+
+import com.example.kb.config.KnowledgeBaseProperties;
+import com.example.kb.model.ConversationEntity;
+import com.example.kb.model.ConversationMessageEntity;
+import com.example.kb.repository.ConversationMessageRepository;
+import com.example.kb.repository.ConversationRepository;
+import com.example.kb.security.SensitiveDataScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端会话记忆：数据库中保存滚动摘要和尚未合并的消息，内存中缓存最近访问会话的窗口
+ * <p>
+ * 每轮问答取出的历史（摘要 + 最近的消息）不超过 tokenBudget。会话累计的消息超出预算后，
+ * 后台线程把较早的消息连同旧摘要交给模型合并为新摘要，只保留约一半预算的最近消息，
+ * 已合并的消息从数据库删除，因此无论会话多长，每轮提示词和存储的大小都基本不变。
+ * 摘要尚未完成时，取出的历史按预算从最近的消息往前截断。
+ * <p>
+ * 窗口缓存在本实例内，多实例部署时同一会话的请求应路由到同一实例（会话粘性）。
+ * <p>
+ * 记忆在 SecurityAdvisor 之前执行，且摘要请求直接调用 ChatModel，因此消息在保存前先脱敏，
+ * 数据库中的记录和发给模型的摘要提示词都不含敏感信息。
+ */
+@Component
+public class ConversationMemory implements ChatMemory, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMemory.class);
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationMessageRepository messageRepository;
+    private final ChatModel chatModel;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    private final SensitiveDataScanner scanner = new SensitiveDataScanner();
+    private final int tokenBudget;
+    private final int summaryMaxChars;
+    private final int maxConversations;
+    private final Map<String, Window> windows;
+    private final ThreadPoolExecutor summarizer;
+
+    public ConversationMemory(ConversationRepository conversationRepository,
+                              ConversationMessageRepository messageRepository, ChatModel chatModel,
+                              PlatformTransactionManager transactionManager, KnowledgeBaseProperties kbProperties) {
+        KnowledgeBaseProperties.ConversationMemory properties = kbProperties.getConversationMemory();
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.chatModel = chatModel;
+        // 读写分离时只读事务走只读库，加载会话需要读到刚写入的消息，使用读写事务
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tokenBudget = properties.getTokenBudget();
+        this.summaryMaxChars = properties.getSummaryMaxChars();
+        this.maxConversations = properties.getMaxConversations();
+        this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+                return size() > ConversationMemory.this.maxConversations;
+            }
+        };
+        int threads = Math.max(1, properties.getSummarizerThreads());
+        this.summarizer = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1024), runnable -> {
+                    Thread thread = new Thread(runnable, "kb-conversation-summarizer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 会话记忆的键：会话 ID 只在所属用户内有效，不同用户使用相同的会话 ID 互不可见
+     */
+    public static String key(String userId, String conversationId) {
+        return (userId != null ? userId : "") + ":" + conversationId;
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Window window = window(conversationId);
+        synchronized (window) {
+            List<Message> messages = new ArrayList<>();
+            int budget = tokenBudget;
+            if (window.summary != null) {
+                messages.add(new SystemMessage("之前对话的摘要：\n" + window.summary));
+                budget -= window.summaryTokens;
+            }
+            int start = window.messages.size();
+            Iterator<Entry> newestFirst = window.messages.descendingIterator();
+            while (newestFirst.hasNext()) {
+                Entry entry = newestFirst.next();
+                if (entry.tokens() > budget) {
+                    break;
+                }
+                budget -= entry.tokens();
+                start--;
+            }
+            window.messages.stream().skip(start).map(Entry::message).forEach(messages::add);
+            return messages;
+        }
+    }
+
+    /**
+     * 只保存用户和助手消息，保存前脱敏；会话超出预算时提交后台摘要
+     */
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<ConversationMessageEntity> entities = new ArrayList<>();
+        for (Message message : messages) {
+            if ((message.getMessageType() == MessageType.USER || message.getMessageType() == MessageType.ASSISTANT)
+                    && StringUtils.hasText(message.getText())) {
+                String text = scanner.redact(message.getText());
+                entities.add(new ConversationMessageEntity(conversationId, message.getMessageType().name(),
+                        text, tokenCountEstimator.estimate(text)));
+            }
+        }
+        if (entities.isEmpty()) {
+            return;
+        }
+        // 先取窗口再保存：窗口已被淘汰时 load() 会读到刚保存的消息，下面再追加就重复了
+        Window window = window(conversationId);
+        List<ConversationMessageEntity> saved = messageRepository.saveAll(entities);
+        boolean summarize;
+        synchronized (window) {
+            for (ConversationMessageEntity entity : saved) {
+                // 同一会话并发加载时，窗口可能已从数据库读到本次保存的消息
+                if (entity.getId() > window.loadedThroughId) {
+                    window.append(toEntry(entity));
+                }
+            }
+            summarize = !window.summarizing && window.summaryTokens + window.tokens > tokenBudget;
+            window.summarizing |= summarize;
+        }
+        if (summarize) {
+            submitSummary(conversationId, window);
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        synchronized (windows) {
+            windows.remove(conversationId);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            messageRepository.deleteByConversation(conversationId);
+            conversationRepository.deleteById(conversationId);
+        });
+    }
+
+    @Override
+    public void destroy() {
+        summarizer.shutdownNow();
+    }
+
+    private Window window(String conversationId) {
+        synchronized (windows) {
+            Window window = windows.get(conversationId);
+            if (window != null) {
+                return window;
+            }
+        }
+        Window loaded = load(conversationId);
+        synchronized (windows) {
+            return windows.computeIfAbsent(conversationId, id -> loaded);
+        }
+    }
+
+    private Window load(String conversationId) {
+        return transactionTemplate.execute(status -> {
+            Window window = new Window();
+            conversationRepository.findById(conversationId).ifPresent(conversation -> {
+                window.summary = conversation.getSummary();
+                window.summaryTokens = conversation.getSummaryTokens() != null ? conversation.getSummaryTokens() : 0;
+            });
+            for (ConversationMessageEntity entity : messageRepository.findByConversationIdOrderByIdAsc(conversationId)) {
+                window.append(toEntry(entity));
+                window.loadedThroughId = entity.getId();
+            }
+            return window;
+        });
+    }
+
+    private void submitSummary(String conversationId, Window window) {
+        try {
+            summarizer.execute(() -> summarize(conversationId, window));
+        } catch (RejectedExecutionException e) {
+            logger.warn("会话摘要队列已满，本轮跳过: conversationId={}", conversationId);
+            synchronized (window) {
+                window.summarizing = false;
+            }
+        }
+    }
+
+    /**
+     * 把较早的消息合并进摘要，保留约一半预算的最近消息
+     */
+    private void summarize(String conversationId, Window window) {
+        List<Entry> folded = new ArrayList<>();
+        String previousSummary;
+        synchronized (window) {
+            int remaining = window.tokens;
+            for (Entry entry : window.messages) {
+                if (remaining <= tokenBudget / 2) {
+                    break;
+                }
+                folded.add(entry);
+                remaining -= entry.tokens();
+            }
+            previousSummary = window.summary;
+        }
+        try {
+            if (folded.isEmpty()) {
+                return;
+            }
+            String summary = chatModel.call(new Prompt(summaryPrompt(previousSummary, folded)))
+                    .getResult().getOutput().getText();
+            if (!StringUtils.hasText(summary)) {
+                return;
+            }
+            int summaryTokens = tokenCountEstimator.estimate(summary);
+            long throughId = folded.get(folded.size() - 1).id();
+            transactionTemplate.executeWithoutResult(status -> {
+                ConversationEntity conversation = conversationRepository.findById(conversationId)
+                        .orElseGet(() -> new ConversationEntity(conversationId));
+                conversation.setSummary(summary);
+                conversation.setSummaryTokens(summaryTokens);
+                conversation.setSummarizedThroughId(throughId);
+                conversation.setUpdatedAt(LocalDateTime.now());
+                conversationRepository.save(conversation);
+                messageRepository.deleteThrough(conversationId, throughId);
+            });
+            synchronized (window) {
+                for (int i = 0; i < folded.size(); i++) {
+                    window.tokens -= window.messages.removeFirst().tokens();
+                }
+                window.summary = summary;
+                window.summaryTokens = summaryTokens;
+            }
+            logger.debug("会话摘要已更新: conversationId={}, folded={}, summaryTokens={}",
+                    conversationId, folded.size(), summaryTokens);
+        } catch (Exception e) {
+            logger.warn("会话摘要失败: conversationId={}, error={}", conversationId, e.getMessage());
+        } finally {
+            synchronized (window) {
+                window.summarizing = false;
+            }
+        }
+    }
+
+    private String summaryPrompt(String previousSummary, List<Entry> folded) {
+        StringBuilder prompt = new StringBuilder("请把以下对话整理成一段不超过 ").append(summaryMaxChars)
+                .append(" 字的摘要，保留用户的目标、已确认的事实和结论、尚未解决的问题，只输出摘要。\n\n");
+        if (previousSummary != null) {
+            prompt.append("之前的摘要：\n").append(previousSummary).append("\n\n");
+        }
+        prompt.append("对话：\n");
+        for (Entry entry : folded) {
+            prompt.append(entry.message().getMessageType() == MessageType.USER ? "用户：" : "助手：")
+                    .append(entry.message().getText()).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    private Entry toEntry(ConversationMessageEntity entity) {
+        // 新消息保存前已脱敏；加载时再扫描一次，覆盖脱敏之前保存的旧记录
+        String text = scanner.redact(entity.getContent());
+        Message message = MessageType.USER.name().equals(entity.getRole())
+                ? new UserMessage(text)
+                : new AssistantMessage(text);
+        return new Entry(entity.getId(), message, entity.getTokens() != null ? entity.getTokens() : 0);
+    }
+
+    /**
+     * 一个会话在内存中的摘要和尚未合并的消息，按 id 递增排列
+     */
+    private static final class Window {
+        private final Deque<Entry> messages = new ArrayDeque<>();
+        private String summary;
+        private int summaryTokens;
+        private int tokens;
+        private boolean summarizing;
+        /** 加载时从数据库读到的最大消息 id，不大于它的消息已在窗口中 */
+        private long loadedThroughId;
+
+        private void append(Entry entry) {
+            messages.addLast(entry);
+            tokens += entry.tokens();
+        }
+    }
+
+    private record Entry(long id, Message message, int tokens) {
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.kb.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 会话的滚动摘要，summarizedThroughId 及之前的消息已合并进摘要并从 conversation_messages 删除
+ */
+@Entity
+@Table(name = "conversations")
+public class ConversationEntity {
+
+    // 用户 ID 与客户端会话 ID 组合而成，见 ConversationMemory.key
+    @Id
+    private String id;
+
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+    private Integer summaryTokens;
+    private Long summarizedThroughId;
+    private LocalDateTime updatedAt;
+
+    public ConversationEntity() {}
+
+    public ConversationEntity(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+
+    public Integer getSummaryTokens() {
+        return summaryTokens;
+    }
+
+    public void setSummaryTokens(Integer summaryTokens) {
+        this.summaryTokens = summaryTokens;
+    }
+
+    public Long getSummarizedThroughId() {
+        return summarizedThroughId;
+    }
+
+    public void setSummarizedThroughId(Long summarizedThroughId) {
+        this.summarizedThroughId = summarizedThroughId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.kb.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 会话中尚未合并进摘要的一条消息
+ */
+@Entity
+@Table(name = "conversation_messages", indexes = @Index(columnList = "conversationId"))
+public class ConversationMessageEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String conversationId;
+    // USER / ASSISTANT
+    private String role;
+    @Column(columnDefinition = "TEXT")
+    private String content;
+    private Integer tokens;
+    private LocalDateTime createdAt;
+
+    public ConversationMessageEntity() {}
+
+    public ConversationMessageEntity(String conversationId, String role, String content, int tokens) {
+        this.conversationId = conversationId;
+        this.role = role;
+        this.content = content;
+        this.tokens = tokens;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Integer getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(Integer tokens) {
+        this.tokens = tokens;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
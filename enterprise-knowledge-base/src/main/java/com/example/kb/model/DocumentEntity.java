@@ -26,8 +26,12 @@ public class DocumentEntity {
     private LocalDateTime processedTime;
     @Column
     private String status; // PROCESSING, COMPLETED, FAILED
-    @Column
+    @Column(columnDefinition = "TEXT")
     private String errorMessage;
+    @Column
+    private Integer chunkCount;
+    @Column
+    private Long processingDurationMs;
 
     // Constructors
     public DocumentEntity() {
@@ -113,4 +117,20 @@ public class DocumentEntity {
     public void setMd5Hash(String md5Hash) {
         this.md5Hash = md5Hash;
     }
-}
\ No newline at end of file
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public Long getProcessingDurationMs() {
+        return processingDurationMs;
+    }
+
+    public void setProcessingDurationMs(Long processingDurationMs) {
+        this.processingDurationMs = processingDurationMs;
+    }
+}
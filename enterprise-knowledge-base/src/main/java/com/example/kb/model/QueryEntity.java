@@ -11,13 +11,26 @@ public class QueryEntity {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(columnDefinition = "TEXT")
     private String question;
+    @Column(columnDefinition = "TEXT")
     private String answer;
     private String userId;
     private String category;
     private LocalDateTime queryTime;
     private String status;
 
+    // 计费与性能统计
+    private String model;
+    private Integer promptTokens;
+    private Integer cachedPromptTokens;
+    private Integer completionTokens;
+    private Double estimatedCost;
+    private Integer hitCount;
+    private Long latencyMs;
+    // 各阶段耗时的紧凑形式，如 "emb=12;vs=8;pa=1;llm=1830"
+    private String stageLatencies;
+
     // Constructors
     public QueryEntity() {}
 
@@ -85,4 +98,68 @@ public class QueryEntity {
     public void setStatus(String status) {
         this.status = status;
     }
-}
\ No newline at end of file
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public Integer getPromptTokens() {
+        return promptTokens;
+    }
+
+    public void setPromptTokens(Integer promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    public Integer getCachedPromptTokens() {
+        return cachedPromptTokens;
+    }
+
+    public void setCachedPromptTokens(Integer cachedPromptTokens) {
+        this.cachedPromptTokens = cachedPromptTokens;
+    }
+
+    public Integer getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public void setCompletionTokens(Integer completionTokens) {
+        this.completionTokens = completionTokens;
+    }
+
+    public Double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public void setEstimatedCost(Double estimatedCost) {
+        this.estimatedCost = estimatedCost;
+    }
+
+    public Integer getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(Integer hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public Long getLatencyMs() {
+        return latencyMs;
+    }
+
+    public void setLatencyMs(Long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public String getStageLatencies() {
+        return stageLatencies;
+    }
+
+    public void setStageLatencies(String stageLatencies) {
+        this.stageLatencies = stageLatencies;
+    }
+}
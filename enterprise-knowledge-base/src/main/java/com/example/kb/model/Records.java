@@ -1,13 +1,64 @@
 package com.example.kb.model;
 
+import com.example.kb.repository.QueryRepository.UsageSummary;
+import com.example.kb.vectorstore.SearchPrecision;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
 public class Records {
 
     public record DocumentUploadResult(Long documentId, String status, String message) {
     }
 
-    public record QueryResult(String answer, String status, String error) {
+    /**
+     * 文档入库进度，estimatedRemainingMs 按已完成批次的平均耗时估算
+     */
+    public record IngestionProgress(Long documentId, String status, String stage, int processedChunks,
+                                    int totalChunks, long elapsedMs, Long estimatedRemainingMs, String message) {
+
+        public boolean isTerminal() {
+            return !"PROCESSING".equals(status);
+        }
+    }
+
+    public record QueryResult(String answer, String status, String error, TokenUsage usage) {
+
+        public QueryResult(String answer, String status, String error) {
+            this(answer, status, error, null);
+        }
+    }
+
+    /**
+     * @param cachedPromptTokens 命中模型服务端提示词前缀缓存的 token 数
+     */
+    public record TokenUsage(Integer promptTokens, Integer cachedPromptTokens, Integer completionTokens) {
+
+        public Integer uncachedPromptTokens() {
+            if (promptTokens == null) {
+                return null;
+            }
+            return cachedPromptTokens == null ? promptTokens : promptTokens - cachedPromptTokens;
+        }
+    }
+
+    /**
+     * @param deadlineMs     可选，覆盖默认的问答截止时间（毫秒）
+     * @param conversationId 可选，指定后服务端保存该会话的历史，客户端每轮只需发送本轮问题
+     */
+    public record QueryRequest(String question, String category, String userId, Long deadlineMs,
+                               SearchPrecision precision, String conversationId) {
+    }
+
+    /**
+     * 单次查询的用量，stageLatencies 为各阶段耗时的紧凑形式
+     */
+    public record QueryUsage(Long id, String userId, String category, LocalDateTime queryTime, String model,
+                             Integer promptTokens, Integer cachedPromptTokens, Integer completionTokens,
+                             Double estimatedCost, Integer hitCount, Long latencyMs, String stageLatencies) {
     }
 
-    public record QueryRequest(String question, String category, String userId) {
+    public record UsageReport(String groupBy, LocalDateTime since, List<UsageSummary> summaries,
+                              List<QueryUsage> topByCost, List<QueryUsage> topByLatency) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package com.example.kb.observation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文档入库各阶段的耗时与吞吐指标
+ * <p>
+ * 阶段耗时记录在 {@code kb.ingest.stage}（tag: stage、category），每个文档的分块数和字节数分别记录在
+ * {@code kb.ingest.document.chunks} 和 {@code kb.ingest.document.bytes}，累计量记录在
+ * {@code kb.ingest.chunks} 和 {@code kb.ingest.bytes} 计数器。
+ */
+@Component
+public class IngestionMetrics {
+
+    public static final String STAGE_READ = "read";
+    public static final String STAGE_SPLIT = "split";
+    public static final String STAGE_EMBED = "embed";
+    public static final String STAGE_STORE = "store";
+
+    private final MeterRegistry meterRegistry;
+
+    public IngestionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordStage(String stage, String category, long nanos) {
+        Timer.builder("kb.ingest.stage")
+                .description("文档入库各阶段耗时")
+                .tag("stage", stage)
+                .tag("category", tagValue(category))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDocument(String category, long bytes, int chunks) {
+        String tag = tagValue(category);
+        DistributionSummary.builder("kb.ingest.document.bytes")
+                .description("每个文档的字节数")
+                .baseUnit("bytes")
+                .tag("category", tag)
+                .register(meterRegistry)
+                .record(bytes);
+        DistributionSummary.builder("kb.ingest.document.chunks")
+                .description("每个文档的分块数")
+                .tag("category", tag)
+                .register(meterRegistry)
+                .record(chunks);
+        Counter.builder("kb.ingest.bytes")
+                .baseUnit("bytes")
+                .tag("category", tag)
+                .register(meterRegistry)
+                .increment(bytes);
+        Counter.builder("kb.ingest.chunks")
+                .tag("category", tag)
+                .register(meterRegistry)
+                .increment(chunks);
+    }
+
+    private static String tagValue(String value) {
+        return StringUtils.hasText(value) ? value : "none";
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.kb.observation;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.function.Supplier;
+
+/**
+ * 在问答上下文中把向量化耗时记为 {@value RagMetrics#STAGE_EMBEDDING} 阶段
+ * <p>
+ * 没有绑定 {@link RagContext} 的调用不计时；入库上下文只累计耗时，由入库流程自行记录指标。
+ */
+public class ObservedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final RagMetrics ragMetrics;
+
+    public ObservedEmbeddingModel(EmbeddingModel delegate, RagMetrics ragMetrics) {
+        this.delegate = delegate;
+        this.ragMetrics = ragMetrics;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return observe(() -> delegate.call(request));
+    }
+
+    /**
+     * SimpleVectorStore 等实现逐个文档调用该方法，不经过 {@link #call}，需要单独计时
+     */
+    @Override
+    public float[] embed(Document document) {
+        return observe(() -> delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+
+    private <T> T observe(Supplier<T> embedding) {
+        RagContext context = RagContext.current();
+        if (context == null) {
+            return embedding.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return embedding.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            context.addEmbeddingNanos(elapsed);
+            if (!context.isIngestion()) {
+                ragMetrics.recordStage(RagMetrics.STAGE_EMBEDDING, context, ragMetrics.getEmbeddingModel(), elapsed);
+            }
+        }
+    }
+}
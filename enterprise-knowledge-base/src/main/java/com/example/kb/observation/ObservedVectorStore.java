@@ -0,0 +1,76 @@
+package com.example.kb.observation;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 在问答上下文中记录 {@value RagMetrics#STAGE_VECTOR_SEARCH} 阶段耗时
+ * <p>
+ * similaritySearch 内部会先向量化问题，记录时扣除同期累计的向量化耗时，只保留数据库检索本身。
+ */
+public class ObservedVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+    private final RagMetrics ragMetrics;
+
+    public ObservedVectorStore(VectorStore delegate, RagMetrics ragMetrics) {
+        this.delegate = delegate;
+        this.ragMetrics = ragMetrics;
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        RagContext context = RagContext.current();
+        if (context == null) {
+            return delegate.similaritySearch(request);
+        }
+        long embeddingBefore = context.getEmbeddingNanos();
+        long start = System.nanoTime();
+        List<Document> results = null;
+        try {
+            results = delegate.similaritySearch(request);
+            return results;
+        } finally {
+            long elapsed = Math.max(0, System.nanoTime() - start - (context.getEmbeddingNanos() - embeddingBefore));
+            context.addSearchNanos(elapsed);
+            if (results != null) {
+                context.addHits(results.size());
+            }
+            ragMetrics.recordStage(RagMetrics.STAGE_VECTOR_SEARCH, context, ragMetrics.getEmbeddingModel(), elapsed);
+        }
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        delegate.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        delegate.delete(filterExpression);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return delegate.getNativeClient();
+    }
+
+    public VectorStore getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.kb.observation;
+
+import com.example.kb.vectorstore.SearchPrecision;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次问答请求（或文档入库）的 RAG 阶段计时上下文
+ * <p>
+ * 由 QueryService 在发起问答前绑定到当前线程，向量化和向量检索的装饰器据此把耗时归属到本次问答；
+ * 通过 {@link RagContextAccessor} 注册到 context-propagation，可随 Reactor 和异步执行器传播。
+ */
+public final class RagContext {
+
+    private static final ThreadLocal<RagContext> CURRENT = new ThreadLocal<>();
+
+    private final String category;
+    private final boolean ingestion;
+    private final SearchPrecision searchPrecision;
+    private final String partitionScope;
+    private final boolean readFromPrimary;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong embeddingNanos = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+
+    public RagContext(String category) {
+        this(category, null, null, false, false);
+    }
+
+    /**
+     * @param searchPrecision 本次问答向量检索的精度档位，为 null 时使用默认档位
+     * @param partitionScope  向量表分区时本次问答只检索的分区键值，为 null 时检索全部分区
+     * @param readFromPrimary 读写分离时本次问答的向量检索走主库（提问用户的写入尚未同步到只读库）
+     */
+    public RagContext(String category, SearchPrecision searchPrecision, String partitionScope,
+                      boolean readFromPrimary) {
+        this(category, searchPrecision, partitionScope, readFromPrimary, false);
+    }
+
+    private RagContext(String category, SearchPrecision searchPrecision, String partitionScope,
+                       boolean readFromPrimary, boolean ingestion) {
+        this.category = category;
+        this.searchPrecision = searchPrecision;
+        this.partitionScope = partitionScope;
+        this.readFromPrimary = readFromPrimary;
+        this.ingestion = ingestion;
+    }
+
+    /**
+     * 文档入库使用的上下文：只累计向量化耗时，不计入问答阶段指标
+     */
+    public static RagContext forIngestion(String category) {
+        return new RagContext(category, null, null, false, true);
+    }
+
+    public static RagContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 绑定到当前线程，关闭返回的 Scope 时恢复之前的上下文
+     */
+    public Scope open() {
+        RagContext previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> set(previous);
+    }
+
+    static void set(RagContext context) {
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public SearchPrecision getSearchPrecision() {
+        return searchPrecision;
+    }
+
+    public String getPartitionScope() {
+        return partitionScope;
+    }
+
+    public boolean isReadFromPrimary() {
+        return readFromPrimary;
+    }
+
+    public boolean isIngestion() {
+        return ingestion;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEmbeddingNanos() {
+        return embeddingNanos.get();
+    }
+
+    public long getSearchNanos() {
+        return searchNanos.get();
+    }
+
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 各阶段累计耗时（毫秒），按首次记录的顺序
+     */
+    public synchronized Map<String, Long> getStageMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        stageNanos.forEach((stage, nanos) -> millis.put(stage, nanos / 1_000_000));
+        return millis;
+    }
+
+    synchronized void recordStage(String stage, long nanos) {
+        stageNanos.merge(stage, nanos, Long::sum);
+    }
+
+    void addHits(int hits) {
+        hitCount.addAndGet(hits);
+    }
+
+    void addEmbeddingNanos(long nanos) {
+        embeddingNanos.addAndGet(nanos);
+    }
+
+    void addSearchNanos(long nanos) {
+        searchNanos.addAndGet(nanos);
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.kb.observation;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * 让 {@link RagContext} 参与 context-propagation，经 META-INF/services 注册
+ */
+public class RagContextAccessor implements ThreadLocalAccessor<RagContext> {
+
+    public static final String KEY = "kb.rag.context";
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public RagContext getValue() {
+        return RagContext.current();
+    }
+
+    @Override
+    public void setValue(RagContext value) {
+        RagContext.set(value);
+    }
+
+    @Override
+    public void setValue() {
+        RagContext.set(null);
+    }
+}
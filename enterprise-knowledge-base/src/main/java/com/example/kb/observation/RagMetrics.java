@@ -0,0 +1,138 @@
+package com.example.kb.observation;
+
+import com.example.kb.model.Records.TokenUsage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * RAG 问答各阶段的耗时直方图与 token 用量
+ * <p>
+ * 阶段耗时记录在 {@code kb.rag.stage}（tag: stage、category、model），token 用量记录在 {@code kb.rag.tokens}
+ * （tag: type、category、model）。均发布直方图桶，启用追踪时 Prometheus 会为桶附带 trace exemplar。
+ */
+@Component
+public class RagMetrics {
+
+    public static final String STAGE_EMBEDDING = "embedding";
+    public static final String STAGE_VECTOR_SEARCH = "vector_search";
+    public static final String STAGE_PROMPT_ASSEMBLY = "prompt_assembly";
+    public static final String STAGE_FIRST_TOKEN = "first_token";
+    public static final String STAGE_LLM = "llm";
+    public static final String STAGE_PERSISTENCE = "persistence";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final String chatModel;
+    private final String embeddingModel;
+
+    public RagMetrics(MeterRegistry meterRegistry,
+                      @Value("${spring.ai.openai.chat.options.model:unknown}") String chatModel,
+                      @Value("${spring.ai.openai.embedding.options.model:unknown}") String embeddingModel) {
+        this.meterRegistry = meterRegistry;
+        this.chatModel = chatModel;
+        this.embeddingModel = embeddingModel;
+    }
+
+    public String getChatModel() {
+        return chatModel;
+    }
+
+    public String getEmbeddingModel() {
+        return embeddingModel;
+    }
+
+    public void recordStage(String stage, String category, String model, long nanos) {
+        Timer.builder("kb.rag.stage")
+                .description("RAG 问答各阶段耗时")
+                .tag("stage", stage)
+                .tag("category", tagValue(category))
+                .tag("model", tagValue(model))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录阶段耗时，同时累计到本次问答的上下文中以便随查询记录保存
+     */
+    public void recordStage(String stage, RagContext context, String model, long nanos) {
+        String category = null;
+        if (context != null) {
+            context.recordStage(stage, nanos);
+            category = context.getCategory();
+        }
+        recordStage(stage, category, model, nanos);
+    }
+
+    public <T> T timeStage(String stage, String category, String model, Supplier<T> supplier) {
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            recordStage(stage, category, model, System.nanoTime() - start);
+        }
+    }
+
+    public void recordTokens(String category, String model, TokenUsage usage) {
+        if (usage == null) {
+            return;
+        }
+        recordTokens("prompt", category, model, usage.promptTokens());
+        recordTokens("cached", category, model, usage.cachedPromptTokens());
+        recordTokens("completion", category, model, usage.completionTokens());
+    }
+
+    private void recordTokens(String type, String category, String model, Integer tokens) {
+        if (tokens == null) {
+            return;
+        }
+        DistributionSummary.builder("kb.rag.tokens")
+                .description("每次问答的 token 用量")
+                .baseUnit("tokens")
+                .tag("type", type)
+                .tag("category", tagValue(category))
+                .tag("model", tagValue(model))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(tokens);
+    }
+
+    /**
+     * 从模型响应中提取 token 用量，OpenAI 的 prompt_tokens_details.cached_tokens 作为缓存命中数
+     */
+    public static TokenUsage tokenUsage(ChatResponse chatResponse) {
+        if (chatResponse == null || chatResponse.getMetadata() == null) {
+            return null;
+        }
+        Usage usage = chatResponse.getMetadata().getUsage();
+        // 流式响应中不携带用量的分片为 EmptyUsage，各项均为 0
+        if (usage == null || (isZero(usage.getPromptTokens()) && isZero(usage.getCompletionTokens()))) {
+            return null;
+        }
+        Integer cachedTokens = null;
+        if (usage.getNativeUsage() instanceof OpenAiApi.Usage openAiUsage
+                && openAiUsage.promptTokensDetails() != null) {
+            cachedTokens = openAiUsage.promptTokensDetails().cachedTokens();
+        }
+        return new TokenUsage(usage.getPromptTokens(), cachedTokens, usage.getCompletionTokens());
+    }
+
+    private static boolean isZero(Integer tokens) {
+        return tokens == null || tokens == 0;
+    }
+
+    private static String tagValue(String value) {
+        return StringUtils.hasText(value) ? value : NONE;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.kb.observation;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * 把容器中的 EmbeddingModel / VectorStore 包装为记录 RAG 阶段耗时的实现
+ */
+public class RagObservationPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<RagMetrics> ragMetrics;
+
+    public RagObservationPostProcessor(ObjectProvider<RagMetrics> ragMetrics) {
+        this.ragMetrics = ragMetrics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof ObservedEmbeddingModel || bean instanceof ObservedVectorStore) {
+            return bean;
+        }
+        if (bean instanceof EmbeddingModel embeddingModel) {
+            return new ObservedEmbeddingModel(embeddingModel, ragMetrics.getObject());
+        }
+        if (bean instanceof VectorStore vectorStore) {
+            return new ObservedVectorStore(vectorStore, ragMetrics.getObject());
+        }
+        return bean;
+    }
+}
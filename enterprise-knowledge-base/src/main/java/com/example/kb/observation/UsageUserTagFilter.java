@@ -0,0 +1,53 @@
+package com.example.kb.observation;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 限制 {@code kb.usage.*} 指标的 user tag 取值数量
+ * <p>
+ * 最先出现的 maxUsers 个用户保留自己的 tag，之后的新用户合并计入 {@code user=other}，
+ * 总量仍然完整，只是不再按这些用户区分；按用户的明细以查询记录和用量报表为准。
+ */
+public class UsageUserTagFilter implements MeterFilter {
+
+    public static final String OTHER = "other";
+
+    private static final String METER_PREFIX = "kb.usage";
+    private static final String USER_TAG = "user";
+
+    private final int maxUsers;
+    private final Set<String> users = ConcurrentHashMap.newKeySet();
+
+    public UsageUserTagFilter(int maxUsers) {
+        this.maxUsers = maxUsers;
+    }
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        if (!id.getName().startsWith(METER_PREFIX)) {
+            return id;
+        }
+        String user = id.getTag(USER_TAG);
+        if (user == null || admit(user)) {
+            return id;
+        }
+        return id.withTag(Tag.of(USER_TAG, OTHER));
+    }
+
+    private boolean admit(String user) {
+        if (users.contains(user)) {
+            return true;
+        }
+        // 并发时可能略微超出上限，不影响基数控制的目的
+        if (users.size() >= maxUsers) {
+            return false;
+        }
+        users.add(user);
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.kb.prompt;
+
+import com.example.kb.repository.DocumentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 组装问答提示词，保证静态指令构成稳定的前缀以命中模型服务端的提示词前缀缓存
+ * <p>
+ * 最终提示词的顺序为：静态指令（所有请求相同）→ 分类指令（同一分类相同）→ 检索到的文档 → 用户问题。
+ * 各分类的系统提示词在启动时预先生成，运行期只做一次 Map 查找。
+ */
+@Component
+public class PromptAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptAssembler.class);
+
+    /**
+     * 预编译缓存的分类数上限，超出后按需拼接但不再缓存，避免任意分类名撑大缓存
+     */
+    private static final int MAX_CACHED_CATEGORIES = 1024;
+
+    static final String STATIC_INSTRUCTIONS = """
+            你是一个企业知识库助手。请基于提供的文档内容回答用户问题。
+            回答要求：
+            1. 准确性：确保答案基于文档内容
+            2. 完整性：提供全面的信息
+            3. 可读性：使用清晰的语言和结构
+            4. 引用：在适当时候引用相关文档
+            用户消息中"参考资料"部分是检索到的文档内容，"问题"部分是用户的问题。
+            只根据参考资料回答，不要使用先验知识；如果文档中没有相关信息，请明确说明。
+            """;
+
+    /**
+     * 检索增强的用户消息模板：检索到的文档在前，问题在后
+     */
+    private static final PromptTemplate RETRIEVAL_TEMPLATE = new PromptTemplate("""
+            参考资料：
+            ---------------------
+            {question_answer_context}
+            ---------------------
+
+            问题：{query}
+            """);
+
+    private final DocumentRepository documentRepository;
+    private final Map<String, String> systemPrompts = new ConcurrentHashMap<>();
+
+    public PromptAssembler(DocumentRepository documentRepository) {
+        this.documentRepository = documentRepository;
+    }
+
+    /**
+     * 启动后为已有分类预先生成系统提示词
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precompile() {
+        try {
+            List<String> categories = documentRepository.findAllCategories();
+            categories.forEach(this::systemPrompt);
+            logger.info("已预编译分类系统提示词: count={}", systemPrompts.size());
+        } catch (Exception e) {
+            logger.warn("预编译分类系统提示词失败，将在首次使用时生成: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 返回指定分类的系统提示词，分类为空时只包含静态指令
+     */
+    public String systemPrompt(String category) {
+        if (!StringUtils.hasText(category)) {
+            return STATIC_INSTRUCTIONS;
+        }
+        String cached = systemPrompts.get(category);
+        if (cached != null) {
+            return cached;
+        }
+        String prompt = compile(category);
+        if (systemPrompts.size() < MAX_CACHED_CATEGORIES) {
+            systemPrompts.putIfAbsent(category, prompt);
+        }
+        return prompt;
+    }
+
+    /**
+     * QuestionAnswerAdvisor 使用的用户消息模板
+     */
+    public PromptTemplate retrievalTemplate() {
+        return RETRIEVAL_TEMPLATE;
+    }
+
+    private static String compile(String category) {
+        // 分类指令追加在静态指令之后，不打断可缓存的公共前缀
+        return STATIC_INSTRUCTIONS + "5. 专业性：重点关注" + category + "领域的专业知识\n";
+    }
+}
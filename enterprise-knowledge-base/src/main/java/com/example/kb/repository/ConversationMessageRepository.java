@@ -0,0 +1,24 @@
+package com.example.kb.repository;
+
+import com.example.kb.model.ConversationMessageEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ConversationMessageRepository extends JpaRepository<ConversationMessageEntity, Long> {
+
+    List<ConversationMessageEntity> findByConversationIdOrderByIdAsc(String conversationId);
+
+    @Modifying
+    @Query("DELETE FROM ConversationMessageEntity m WHERE m.conversationId = :conversationId AND m.id <= :throughId")
+    int deleteThrough(@Param("conversationId") String conversationId, @Param("throughId") Long throughId);
+
+    @Modifying
+    @Query("DELETE FROM ConversationMessageEntity m WHERE m.conversationId = :conversationId")
+    int deleteByConversation(@Param("conversationId") String conversationId);
+}
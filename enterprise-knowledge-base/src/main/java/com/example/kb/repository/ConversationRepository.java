@@ -0,0 +1,9 @@
+package com.example.kb.repository;
+
+import com.example.kb.model.ConversationEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<ConversationEntity, String> {
+}
@@ -13,11 +13,16 @@ public interface DocumentRepository extends JpaRepository<DocumentEntity, Long>
 
     List<DocumentEntity> findByUploadedBy(String uploadedBy);
 
+    List<DocumentEntity> findByCategory(String category);
+
     List<DocumentEntity> findByUploadedByAndCategory(String uploadedBy, String category);
 
     @Query("SELECT DISTINCT d.category FROM DocumentEntity d WHERE d.uploadedBy = :userId")
     List<String> findUserCategories(@Param("userId") String userId);
 
+    @Query("SELECT DISTINCT d.category FROM DocumentEntity d WHERE d.category IS NOT NULL")
+    List<String> findAllCategories();
+
     List<DocumentEntity> findByUploadedByAndStatus(String uploadedBy, String status);
 
     // 根据MD5查询（跨用户）
@@ -3,12 +3,66 @@ package com.example.kb.repository;
 import com.example.kb.model.QueryEntity;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface QueryRepository extends JpaRepository<QueryEntity, Long> {
 
     List<QueryEntity> findByUserIdOrderByQueryTimeDesc(String userId, PageRequest pageRequest);
-}
\ No newline at end of file
+
+    List<QueryEntity> findByQueryTimeAfterAndEstimatedCostNotNullOrderByEstimatedCostDesc(LocalDateTime since,
+                                                                                         PageRequest pageRequest);
+
+    List<QueryEntity> findByQueryTimeAfterAndLatencyMsNotNullOrderByLatencyMsDesc(LocalDateTime since,
+                                                                                 PageRequest pageRequest);
+
+    @Query("""
+            SELECT q.userId AS groupKey, COUNT(q) AS queries,
+                   COALESCE(SUM(q.promptTokens), 0) AS promptTokens,
+                   COALESCE(SUM(q.cachedPromptTokens), 0) AS cachedPromptTokens,
+                   COALESCE(SUM(q.completionTokens), 0) AS completionTokens,
+                   COALESCE(SUM(q.estimatedCost), 0) AS estimatedCost,
+                   AVG(q.latencyMs) AS avgLatencyMs, MAX(q.latencyMs) AS maxLatencyMs
+            FROM QueryEntity q WHERE q.queryTime >= :since
+            GROUP BY q.userId ORDER BY COALESCE(SUM(q.estimatedCost), 0) DESC
+            """)
+    List<UsageSummary> summarizeByUser(@Param("since") LocalDateTime since);
+
+    @Query("""
+            SELECT COALESCE(q.category, 'none') AS groupKey, COUNT(q) AS queries,
+                   COALESCE(SUM(q.promptTokens), 0) AS promptTokens,
+                   COALESCE(SUM(q.cachedPromptTokens), 0) AS cachedPromptTokens,
+                   COALESCE(SUM(q.completionTokens), 0) AS completionTokens,
+                   COALESCE(SUM(q.estimatedCost), 0) AS estimatedCost,
+                   AVG(q.latencyMs) AS avgLatencyMs, MAX(q.latencyMs) AS maxLatencyMs
+            FROM QueryEntity q WHERE q.queryTime >= :since
+            GROUP BY COALESCE(q.category, 'none') ORDER BY COALESCE(SUM(q.estimatedCost), 0) DESC
+            """)
+    List<UsageSummary> summarizeByCategory(@Param("since") LocalDateTime since);
+
+    /**
+     * 按用户或分类汇总的用量
+     */
+    interface UsageSummary {
+        String getGroupKey();
+
+        Long getQueries();
+
+        Long getPromptTokens();
+
+        Long getCachedPromptTokens();
+
+        Long getCompletionTokens();
+
+        Double getEstimatedCost();
+
+        Double getAvgLatencyMs();
+
+        Long getMaxLatencyMs();
+    }
+}
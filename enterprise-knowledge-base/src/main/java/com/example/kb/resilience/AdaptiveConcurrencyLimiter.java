@@ -0,0 +1,239 @@
+package com.example.kb.resilience;
+
+import com.example.kb.config.KnowledgeBaseProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 基于延迟梯度的 AIMD 并发限制器
+ * <p>
+ * 延迟保持在基线附近时每次成功调用把限制加 1/limit（约每轮加 1），
+ * 短期延迟超过基线的 latencyTolerance 倍或上游返回 429 时按 backoffRatio 乘性减小。
+ * <p>
+ * 与 Netflix gradient2 相同，基线取最近 baselineWindow 个样本的指数平均而不是最小值：大模型延迟本身波动很大，
+ * 以最小值为基线时短期延迟几乎总是超过容忍倍数，限制会一直收缩到下限。
+ * 调用方应提供与输出长度无关的样本，如流式调用的首 token 延迟或按输出 token 数归一化的延迟。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final double SHORT_RTT_ALPHA = 0.2;
+    // 短期延迟低于基线的一半时基线每次下调 5%，负载下降后基线不必等满整个窗口
+    private static final double BASELINE_RECOVERY_RATIO = 2.0;
+    private static final double BASELINE_RECOVERY = 0.95;
+
+    private final String name;
+    private final KnowledgeBaseProperties.ConcurrencyLimit config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Counter rejectedCounter;
+    private final Counter throttledCounter;
+
+    private double limit;
+    private int inFlight;
+    private double baselineRttNanos;
+    private double shortRttNanos;
+    // 已完成的调用数（成功样本和限流），用于控制两次下调的最小间隔
+    private long samples;
+    private long lastDecreaseSample;
+
+    public AdaptiveConcurrencyLimiter(String name, KnowledgeBaseProperties.ConcurrencyLimit config,
+                                      MeterRegistry meterRegistry) {
+        this.name = name;
+        this.config = config;
+        this.limit = config.getInitialLimit();
+
+        Gauge.builder("kb.llm.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("model", name)
+                .description("当前自适应并发限制")
+                .register(meterRegistry);
+        Gauge.builder("kb.llm.concurrency.inflight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("model", name)
+                .description("正在进行的大模型调用数")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("kb.llm.concurrency.rejected")
+                .tag("model", name)
+                .description("等待并发许可超时而被拒绝的调用数")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("kb.llm.concurrency.throttled")
+                .tag("model", name)
+                .description("上游返回 429 的调用数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在并发许可内执行调用，并根据结果调整限制
+     */
+    public <T> T execute(Supplier<T> call) {
+        return execute(call, result -> 1);
+    }
+
+    /**
+     * 在并发许可内执行调用，延迟样本按 units 返回的工作量（如输出 token 数）归一化
+     */
+    public <T> T execute(Supplier<T> call, ToLongFunction<T> units) {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            onSuccess(System.nanoTime() - start, units.applyAsLong(result));
+            return result;
+        } catch (RuntimeException e) {
+            onFailure(e);
+            throw e;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * 获取一个并发许可，超过 acquireTimeoutMs 仍无可用许可时拒绝
+     */
+    public void acquire() {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMs());
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    rejectedCounter.increment();
+                    throw new ConcurrencyLimitExceededException(
+                            String.format("%s 调用并发已达上限 %d，等待 %dms 后放弃", name, (int) limit,
+                                    config.getAcquireTimeoutMs()));
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitExceededException(name + " 等待并发许可时被中断");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次成功调用的延迟样本
+     */
+    public void onSuccess(long rttNanos) {
+        onSuccess(rttNanos, 1);
+    }
+
+    /**
+     * 记录一次成功调用的延迟样本，按工作量归一化后参与基线和短期延迟的比较
+     */
+    public void onSuccess(long rttNanos, long units) {
+        double sample = (double) rttNanos / Math.max(1, units);
+        lock.lock();
+        try {
+            samples++;
+            shortRttNanos = shortRttNanos == 0 ? sample : shortRttNanos + (sample - shortRttNanos) * SHORT_RTT_ALPHA;
+            // 样本不足一个窗口时按实际样本数平均，避免前几个样本对基线影响过大或过小
+            double alpha = 2.0 / (Math.min(samples, config.getBaselineWindow()) + 1);
+            baselineRttNanos = baselineRttNanos == 0 ? sample : baselineRttNanos + (sample - baselineRttNanos) * alpha;
+            if (baselineRttNanos > shortRttNanos * BASELINE_RECOVERY_RATIO) {
+                baselineRttNanos *= BASELINE_RECOVERY;
+            }
+
+            if (samples >= config.getMinSamples()
+                    && shortRttNanos > baselineRttNanos * config.getLatencyTolerance()) {
+                decrease("延迟上升");
+            } else if (inFlight >= limit / 2) {
+                // 只有限制被实际用到一半以上时才增长，避免空闲时无限膨胀
+                limit = Math.min(config.getMaxLimit(), limit + 1.0 / limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 上游限流(429)时乘性减小，其他异常不作为拥塞信号
+     */
+    public void onFailure(Throwable error) {
+        if (!isThrottled(error)) {
+            return;
+        }
+        throttledCounter.increment();
+        lock.lock();
+        try {
+            samples++;
+            decrease("上游限流");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    private void decrease(String reason) {
+        // 满负载时一个 RTT 内约完成 limit 个调用，每完成 limit 个调用最多减小一次，避免同一波拥塞被重复惩罚
+        if (lastDecreaseSample > 0 && samples - lastDecreaseSample < limit) {
+            return;
+        }
+        double next = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+        if (next == limit) {
+            // 已在下限，不再记录
+            return;
+        }
+        lastDecreaseSample = samples;
+        double previous = limit;
+        limit = next;
+        logger.info("{} 并发限制下调: {} -> {}, 原因={}, 短期延迟={}us, 基线延迟={}us",
+                name, (int) previous, (int) limit, reason,
+                (long) (shortRttNanos / 1_000), (long) (baselineRttNanos / 1_000));
+    }
+
+    /**
+     * 沿异常链按 HTTP 状态判断是否为 429：RestClient/WebClient 的响应异常直接取状态码；
+     * Spring AI 的 RetryUtils 把 4xx 响应包装为 NonTransientAiException，状态码只在消息开头（"429 - 响应体"）
+     */
+    static boolean isThrottled(Throwable error) {
+        int status = HttpStatus.TOO_MANY_REQUESTS.value();
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof RestClientResponseException e && e.getStatusCode().value() == status) {
+                return true;
+            }
+            if (t instanceof WebClientResponseException e && e.getStatusCode().value() == status) {
+                return true;
+            }
+            if (t instanceof NonTransientAiException && t.getMessage() != null
+                    && t.getMessage().startsWith(status + " - ")) {
+                return true;
+            }
+            if (t == t.getCause()) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.kb.resilience;
+
+/**
+ * 在等待时间内未能获得大模型调用的并发许可
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.kb.resilience;
+
+import com.example.kb.config.KnowledgeBaseProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * 把容器中的 ChatModel / EmbeddingModel 包装为受自适应并发限制的实现
+ * <p>
+ * ChatClient 和 VectorStore 都从容器注入模型，因此通过它们发出的调用都会经过限制器。
+ */
+public class ConcurrencyLimitPostProcessor implements BeanPostProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitPostProcessor.class);
+
+    private final ObjectProvider<KnowledgeBaseProperties> kbProperties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public ConcurrencyLimitPostProcessor(ObjectProvider<KnowledgeBaseProperties> kbProperties,
+                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        this.kbProperties = kbProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof ConcurrencyLimitedChatModel || bean instanceof ConcurrencyLimitedEmbeddingModel) {
+            return bean;
+        }
+        if (bean instanceof ChatModel chatModel && isEnabled()) {
+            logger.info("为 ChatModel 启用自适应并发限制: bean={}", beanName);
+            return new ConcurrencyLimitedChatModel(chatModel, createLimiter("chat"));
+        }
+        if (bean instanceof EmbeddingModel embeddingModel && isEnabled()) {
+            logger.info("为 EmbeddingModel 启用自适应并发限制: bean={}", beanName);
+            return new ConcurrencyLimitedEmbeddingModel(embeddingModel, createLimiter("embedding"));
+        }
+        return bean;
+    }
+
+    private boolean isEnabled() {
+        return kbProperties.getObject().getConcurrencyLimit().isEnabled();
+    }
+
+    private AdaptiveConcurrencyLimiter createLimiter(String name) {
+        return new AdaptiveConcurrencyLimiter(name, kbProperties.getObject().getConcurrencyLimit(),
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+}
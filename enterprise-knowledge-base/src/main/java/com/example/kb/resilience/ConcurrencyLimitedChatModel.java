@@ -0,0 +1,103 @@
+package com.example.kb.resilience;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在 {@link AdaptiveConcurrencyLimiter} 许可内调用的 ChatModel
+ */
+public class ConcurrencyLimitedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedChatModel(ChatModel delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        // 非流式调用的耗时随输出长度线性增长，按输出 token 数归一化后再作为延迟样本
+        return limiter.execute(() -> delegate.call(prompt), ConcurrencyLimitedChatModel::completionTokens);
+    }
+
+    /**
+     * 许可的获取和释放在同一个 usingWhen 中，完成、出错和取消都会释放；
+     * 正在获取许可时被取消，许可在获取完成后立即释放
+     */
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            Permit permit = new Permit();
+            // 获取许可可能阻塞，放到 boundedElastic 上避免占用事件循环线程
+            Mono<Permit> acquire = Mono.fromCallable(permit::acquire)
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnCancel(permit::release);
+            return Flux.usingWhen(acquire,
+                    acquired -> {
+                        long start = System.nanoTime();
+                        AtomicBoolean sampled = new AtomicBoolean();
+                        return delegate.stream(prompt)
+                                .doOnNext(response -> {
+                                    // 流式调用以首个响应的到达时间作为延迟样本
+                                    if (sampled.compareAndSet(false, true)) {
+                                        limiter.onSuccess(System.nanoTime() - start);
+                                    }
+                                })
+                                .doOnError(limiter::onFailure);
+                    },
+                    acquired -> Mono.fromRunnable(acquired::release),
+                    (acquired, error) -> Mono.fromRunnable(acquired::release),
+                    acquired -> Mono.fromRunnable(acquired::release));
+        });
+    }
+
+    private static long completionTokens(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || response.getMetadata().getUsage() == null) {
+            return 1;
+        }
+        Integer tokens = response.getMetadata().getUsage().getCompletionTokens();
+        return tokens != null ? tokens : 1;
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    public ChatModel getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 一次流式调用的许可：0 尚未获取，1 已获取，2 已释放或已取消；重复释放无效
+     */
+    private final class Permit {
+
+        private final AtomicInteger state = new AtomicInteger();
+
+        Permit acquire() {
+            limiter.acquire();
+            if (!state.compareAndSet(0, 1)) {
+                // 等待许可期间已被取消
+                limiter.release();
+            }
+            return this;
+        }
+
+        void release() {
+            if (state.getAndSet(2) == 1) {
+                limiter.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.kb.resilience;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * 在 {@link AdaptiveConcurrencyLimiter} 许可内调用的 EmbeddingModel
+ * <p>
+ * 批量向量化时每个子批次单独获取许可，由默认的 embed(List, EmbeddingOptions, BatchingStrategy) 回调到 {@link #call}。
+ */
+public class ConcurrencyLimitedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedEmbeddingModel(EmbeddingModel delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return limiter.execute(() -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return limiter.execute(() -> delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        // 委托给原模型，复用其已知维度缓存，避免额外的探测请求
+        return delegate.dimensions();
+    }
+
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+}
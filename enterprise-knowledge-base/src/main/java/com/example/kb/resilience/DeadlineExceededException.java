@@ -0,0 +1,11 @@
+package com.example.kb.resilience;
+
+/**
+ * 问答调用在截止时间内没有任何一路请求返回
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
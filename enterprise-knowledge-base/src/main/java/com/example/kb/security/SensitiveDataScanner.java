@@ -0,0 +1,93 @@
+package com.example.kb.security;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 敏感信息扫描与脱敏
+ * <p>
+ * 所有敏感模式在类加载时合并编译为一个带命名分组的正则，一次 {@link Matcher#find()} 遍历即可同时识别全部类型，
+ * 不再为每种模式分别扫描全文。实例无状态，可在多线程间共享。
+ */
+public class SensitiveDataScanner {
+
+    /**
+     * 敏感信息类型，分组名与合并正则中的命名分组一致
+     */
+    public enum Type {
+        CREDIT_CARD("card", "\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}\\b"),
+        SSN("ssn", "\\d{3}-\\d{2}-\\d{4}\\b"),
+        EMAIL("email", "[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}\\b");
+
+        private final String group;
+        private final String regex;
+
+        Type(String group, String regex) {
+            this.group = group;
+            this.regex = regex;
+        }
+
+        public String placeholder() {
+            return "[REDACTED_" + name() + "]";
+        }
+    }
+
+    private static final Type[] TYPES = Type.values();
+    private static final Pattern COMBINED = compile();
+
+    private static Pattern compile() {
+        // 各模式都以单词边界开头，提到分支外只检查一次
+        StringBuilder regex = new StringBuilder("\\b(?:");
+        for (int i = 0; i < TYPES.length; i++) {
+            if (i > 0) {
+                regex.append('|');
+            }
+            regex.append("(?<").append(TYPES[i].group).append('>').append(TYPES[i].regex).append(')');
+        }
+        return Pattern.compile(regex.append(')').toString());
+    }
+
+    public boolean containsSensitiveInfo(CharSequence text) {
+        return text != null && !text.isEmpty() && COMBINED.matcher(text).find();
+    }
+
+    /**
+     * 将文本中的敏感信息替换为占位符，无命中时原样返回同一个字符串实例
+     */
+    public String redact(String text) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        Matcher matcher = COMBINED.matcher(text);
+        if (!matcher.find()) {
+            return text;
+        }
+        StringBuilder redacted = new StringBuilder(text.length());
+        int last = 0;
+        do {
+            redacted.append(text, last, matcher.start()).append(typeOf(matcher).placeholder());
+            last = matcher.end();
+        } while (matcher.find());
+        return redacted.append(text, last, text.length()).toString();
+    }
+
+    /**
+     * 为一路流式输出创建增量脱敏器，每路流使用独立实例
+     */
+    public StreamingRedactor streamingRedactor() {
+        return new StreamingRedactor(this, StreamingRedactor.DEFAULT_HOLDBACK);
+    }
+
+    Matcher matcher(CharSequence text) {
+        return COMBINED.matcher(text);
+    }
+
+    static Type typeOf(Matcher matcher) {
+        for (Type type : TYPES) {
+            if (matcher.start(type.group) >= 0) {
+                return type;
+            }
+        }
+        throw new IllegalStateException("未知的敏感信息分组");
+    }
+}
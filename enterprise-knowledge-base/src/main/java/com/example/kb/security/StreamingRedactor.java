@@ -0,0 +1,84 @@
+package com.example.kb.security;
+
+import java.util.regex.Matcher;
+
+/**
+ * 流式输出的增量脱敏
+ * <p>
+ * 每个分片到达后只输出确定不会再与后续分片拼成敏感信息的部分：末尾由可能构成敏感信息的字符（字母、数字、
+ * 邮箱符号及数字间的空白）组成的连续片段暂存到下一个分片，跨越分片边界的敏感信息因此也能被完整识别，
+ * 普通中文文本则几乎不产生暂存。暂存片段最长 holdback 个字符，超过该长度的单个匹配（如超长邮箱）可能无法识别。
+ * 非线程安全，一路流对应一个实例。
+ */
+public class StreamingRedactor {
+
+    static final int DEFAULT_HOLDBACK = 256;
+
+    private final SensitiveDataScanner scanner;
+    private final int holdback;
+    private final StringBuilder pending = new StringBuilder();
+
+    StreamingRedactor(SensitiveDataScanner scanner, int holdback) {
+        this.scanner = scanner;
+        this.holdback = holdback;
+    }
+
+    /**
+     * 追加一个分片，返回可以安全输出的已脱敏文本（可能为空字符串）
+     */
+    public String next(String chunk) {
+        if (chunk != null) {
+            pending.append(chunk);
+        }
+        int cut = Math.max(trailingRunStart(), pending.length() - holdback);
+        if (cut <= 0) {
+            return "";
+        }
+
+        StringBuilder out = new StringBuilder(cut);
+        int last = 0;
+        Matcher matcher = scanner.matcher(pending);
+        while (matcher.find() && matcher.start() < cut) {
+            if (matcher.end() > cut) {
+                // 匹配伸入暂存区，可能随后续分片继续延长，从匹配起点处截断
+                cut = matcher.start();
+                break;
+            }
+            out.append(pending, last, matcher.start())
+                    .append(SensitiveDataScanner.typeOf(matcher).placeholder());
+            last = matcher.end();
+        }
+        out.append(pending, last, cut);
+        pending.delete(0, cut);
+        return out.toString();
+    }
+
+    /**
+     * 末尾连续的、可能属于一个尚未结束的敏感信息的字符片段的起点
+     */
+    private int trailingRunStart() {
+        int start = pending.length();
+        while (start > 0 && continuesToken(start - 1)) {
+            start--;
+        }
+        return start;
+    }
+
+    private boolean continuesToken(int index) {
+        char c = pending.charAt(index);
+        if (c < 128 && (Character.isLetterOrDigit(c) || ".-_%+@".indexOf(c) >= 0)) {
+            return true;
+        }
+        // 信用卡号的分组之间允许空白
+        return Character.isWhitespace(c) && index > 0 && Character.isDigit(pending.charAt(index - 1));
+    }
+
+    /**
+     * 流结束时输出暂存区剩余的已脱敏文本
+     */
+    public String flush() {
+        String rest = scanner.redact(pending.toString());
+        pending.setLength(0);
+        return rest;
+    }
+}
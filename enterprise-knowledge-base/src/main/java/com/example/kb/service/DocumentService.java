@@ -1,9 +1,17 @@
 package com.example.kb.service;
 
 import com.example.kb.config.KnowledgeBaseProperties;
+import com.example.kb.datasource.ReplicaLagGuard;
 import com.example.kb.model.DocumentEntity;
 import com.example.kb.model.Records.DocumentUploadResult;
+import com.example.kb.model.Records.IngestionProgress;
+import com.example.kb.observation.IngestionMetrics;
+import com.example.kb.observation.RagContext;
 import com.example.kb.repository.DocumentRepository;
+import com.example.kb.vectorstore.VectorBulkLoader;
+import com.example.kb.vectorstore.VectorPartitionKey;
+import com.example.kb.vectorstore.VectorPartitions;
+import com.example.kb.vectorstore.VectorSearchCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
@@ -12,12 +20,14 @@ import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
 import org.springframework.ai.reader.pdf.config.PdfDocumentReaderConfig;
 import org.springframework.ai.transformer.splitter.TextSplitter;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -26,10 +36,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -41,17 +55,34 @@ public class DocumentService {
     private final DocumentRepository documentRepository;
     private final TextSplitter textSplitter;
     private final KnowledgeBaseProperties kbProperties;
+    private final IngestionMetrics ingestionMetrics;
+    private final IngestionProgressService progressService;
+    private final VectorPartitions vectorPartitions;
+    private final VectorBulkLoader vectorBulkLoader;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final VectorSearchCache searchCache;
 
     @Autowired
     @Lazy
     private DocumentService self;
 
     public DocumentService(VectorStore vectorStore, DocumentRepository documentRepository,
-                           TextSplitter textSplitter, KnowledgeBaseProperties kbProperties) {
+                           TextSplitter textSplitter, KnowledgeBaseProperties kbProperties,
+                           IngestionMetrics ingestionMetrics, IngestionProgressService progressService,
+                           ObjectProvider<VectorPartitions> vectorPartitions,
+                           ObjectProvider<VectorBulkLoader> vectorBulkLoader,
+                           ObjectProvider<ReplicaLagGuard> replicaLagGuard,
+                           ObjectProvider<VectorSearchCache> searchCache) {
         this.vectorStore = vectorStore;
         this.documentRepository = documentRepository;
         this.textSplitter = textSplitter;
         this.kbProperties = kbProperties;
+        this.ingestionMetrics = ingestionMetrics;
+        this.progressService = progressService;
+        this.vectorPartitions = vectorPartitions.getIfAvailable();
+        this.vectorBulkLoader = vectorBulkLoader.getIfAvailable();
+        this.replicaLagGuard = replicaLagGuard.getIfAvailable();
+        this.searchCache = searchCache.getIfAvailable();
     }
 
     /**
@@ -78,6 +109,7 @@ public class DocumentService {
             }
 
             logger.info("文档实体已保存: documentId={}", savedDoc.getId());
+            recordWrite(userId);
 
             // 异步处理文档 - 使用 self 引用来避免内部调用问题
             self.processDocumentAsync(file, savedDoc);
@@ -102,17 +134,31 @@ public class DocumentService {
         logger.info("开始异步处理文档: documentId={}, filename={}",
                 document.getId(), document.getFilename());
 
-        try {
+        String category = document.getCategory();
+        long startNanos = System.nanoTime();
+        RagContext context = RagContext.forIngestion(category);
+        try (RagContext.Scope ignored = context.open()) {
             // 读取文档内容
+            long stageStart = System.nanoTime();
             List<Document> docs = readDocumentContent(file);
+            ingestionMetrics.recordStage(IngestionMetrics.STAGE_READ, category, System.nanoTime() - stageStart);
             logger.debug("文档读取完成: documentId={}, chunks={}", document.getId(), docs.size());
+            publishProgress(document, IngestionMetrics.STAGE_READ, 0, 0, startNanos, null);
 
+            stageStart = System.nanoTime();
             List<Document> splitDocs = textSplitter.apply(docs);
+            // 添加元数据
+            enrichDocumentMetadata(splitDocs, document);
+            ingestionMetrics.recordStage(IngestionMetrics.STAGE_SPLIT, category, System.nanoTime() - stageStart);
             logger.info("文档分割完成: documentId={}, originalChunks={}, splitChunks={}, splitter={}",
                     document.getId(), docs.size(), splitDocs.size(), textSplitter.getClass().getSimpleName());
+            publishProgress(document, IngestionMetrics.STAGE_SPLIT, 0, splitDocs.size(), startNanos, null);
 
-            // 添加元数据
-            enrichDocumentMetadata(splitDocs, document);
+            if (vectorPartitions != null) {
+                // 在本事务写入向量表之前建好分区：建分区的独立事务需要父表排他锁，本事务写入后再建会互相等待
+                vectorPartitions.ensurePartitions(splitDocs.stream().map(vectorPartitions::valueOf)
+                        .collect(Collectors.toSet()));
+            }
 
             // 使用优化的批处理大小存储到向量数据库
             int batchSize = Math.max(kbProperties.getVectorization().getBatchSize(), 50);
@@ -122,6 +168,7 @@ public class DocumentService {
                     document.getId(), splitDocs.size(), batchSize, totalBatches);
 
             long startTime = System.currentTimeMillis();
+            long addNanos = 0;
 
             // 分批处理，使用更大的批处理大小提高性能
             for (int i = 0; i < splitDocs.size(); i += batchSize) {
@@ -129,7 +176,9 @@ public class DocumentService {
                 List<Document> batch = splitDocs.subList(i, endIndex);
 
                 try {
+                    long addStart = System.nanoTime();
                     vectorStore.add(batch);
+                    addNanos += System.nanoTime() - addStart;
                     int currentBatch = (i / batchSize) + 1;
                     long elapsedTime = System.currentTimeMillis() - startTime;
                     double avgTimePerBatch = elapsedTime / (double) currentBatch;
@@ -138,6 +187,8 @@ public class DocumentService {
                     logger.info("已处理文档批次: documentId={}, batch={}/{}, size={}, 耗时={}ms, 预计剩余={}ms",
                             document.getId(), currentBatch, totalBatches, batch.size(),
                             elapsedTime, (long) estimatedRemainingTime);
+                    publishProgress(document, IngestionMetrics.STAGE_STORE, endIndex, splitDocs.size(),
+                            startNanos, (long) estimatedRemainingTime);
 
                 } catch (Exception e) {
                     logger.error("批次处理失败: documentId={}, batch={}/{}, error={}",
@@ -146,17 +197,33 @@ public class DocumentService {
                 }
             }
 
+            // vectorStore.add 内部先向量化再写库，向量化耗时由 ObservedEmbeddingModel 累计到上下文
+            long embedNanos = Math.min(context.getEmbeddingNanos(), addNanos);
+            ingestionMetrics.recordStage(IngestionMetrics.STAGE_EMBED, category, embedNanos);
+            ingestionMetrics.recordStage(IngestionMetrics.STAGE_STORE, category, addNanos - embedNanos);
+            ingestionMetrics.recordDocument(category, file.getSize(), splitDocs.size());
+
             long totalTime = System.currentTimeMillis() - startTime;
             logger.info("文档向量化完成: documentId={}, vectors={}, batches={}, 总耗时={}ms, 平均每批次={}ms",
                     document.getId(), splitDocs.size(), totalBatches, totalTime,
                     totalTime / totalBatches);
 
             // 更新文档状态
+            document.setChunkCount(splitDocs.size());
+            document.setProcessingDurationMs(elapsedMillis(startNanos));
             updateDocumentStatus(document, "COMPLETED", null);
+            recordWrite(document.getUploadedBy());
+            invalidateSearchCache(category);
+            publishProgress(document, null, splitDocs.size(), splitDocs.size(), startNanos, 0L);
 
         } catch (Exception e) {
             logger.error("文档处理失败: documentId={}, error={}", document.getId(), e.getMessage(), e);
+            document.setProcessingDurationMs(elapsedMillis(startNanos));
             updateDocumentStatus(document, "FAILED", e.getMessage());
+            recordWrite(document.getUploadedBy());
+            // 失败前已写入的批次仍在向量表中
+            invalidateSearchCache(category);
+            publishProgress(document, null, 0, 0, startNanos, null);
         }
     }
 
@@ -171,14 +238,9 @@ public class DocumentService {
             throw new IllegalArgumentException("用户ID不能为空");
         }
 
-        List<DocumentEntity> documents;
-        if (StringUtils.hasText(category)) {
-            documents = documentRepository.findByUploadedByAndCategory(userId, category);
-        } else {
-            documents = documentRepository.findByUploadedBy(userId);
-        }
-
-        return documents;
+        return readOwnWrites(userId, () -> StringUtils.hasText(category)
+                ? documentRepository.findByUploadedByAndCategory(userId, category)
+                : documentRepository.findByUploadedBy(userId));
     }
 
     /**
@@ -188,7 +250,7 @@ public class DocumentService {
     public Optional<DocumentEntity> getDocumentById(Long documentId, String userId) {
         logger.debug("查询文档详情: documentId={}, userId={}", documentId, userId);
 
-        Optional<DocumentEntity> document = documentRepository.findById(documentId);
+        Optional<DocumentEntity> document = readOwnWrites(userId, () -> documentRepository.findById(documentId));
 
         if (document.isPresent() && !document.get().getUploadedBy().equals(userId)) {
             logger.warn("用户无权限访问文档: documentId={}, userId={}", documentId, userId);
@@ -219,6 +281,8 @@ public class DocumentService {
 
             // 从数据库删除
             documentRepository.delete(document);
+            recordWrite(userId);
+            invalidateSearchCache(document.getCategory());
             logger.info("文档删除成功: documentId={}", documentId);
 
         } catch (Exception e) {
@@ -227,6 +291,97 @@ public class DocumentService {
         }
     }
 
+    /**
+     * 删除一个用户或分类（取决于分区方式）的全部文档，向量随分区整体删除
+     *
+     * @return 删除的文档数
+     */
+    public int retirePartition(String value, String userId) {
+        if (vectorPartitions == null) {
+            throw new IllegalStateException("向量表未开启分区");
+        }
+        logger.info("开始删除向量分区: {}={}, userId={}", vectorPartitions.getKey().metadataField(), value, userId);
+
+        List<DocumentEntity> documents = vectorPartitions.getKey() == VectorPartitionKey.OWNER
+                ? documentRepository.findByUploadedBy(value)
+                : documentRepository.findByCategory(value);
+        boolean owned = vectorPartitions.getKey() != VectorPartitionKey.OWNER || value.equals(userId);
+        if (!owned || documents.stream().anyMatch(document -> !userId.equals(document.getUploadedBy()))) {
+            throw new SecurityException("无权限删除此分区");
+        }
+
+        if (!vectorPartitions.drop(value)) {
+            logger.info("向量分区不存在，只删除文档记录: {}={}", vectorPartitions.getKey().metadataField(), value);
+        }
+        documentRepository.deleteAll(documents);
+        recordWrite(userId);
+        documents.stream().map(DocumentEntity::getCategory).distinct().forEach(this::invalidateSearchCache);
+        logger.info("向量分区删除成功: {}={}, documents={}", vectorPartitions.getKey().metadataField(), value,
+                documents.size());
+        return documents.size();
+    }
+
+    /**
+     * 开启批量导入窗口，之后入库的向量以二进制 COPY 写入，向量索引推迟到结束时重建；仅限管理员
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public VectorBulkLoader.Status beginBulkLoad(String userId) {
+        checkBulkLoadAdmin(userId);
+        logger.info("开启批量导入窗口: userId={}", userId);
+        return bulkLoader().begin();
+    }
+
+    /**
+     * 结束批量导入窗口，向量索引在后台重建，进度见 {@link #getBulkLoadStatus}；仅限管理员
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public VectorBulkLoader.Status finishBulkLoad(String userId) {
+        checkBulkLoadAdmin(userId);
+        logger.info("结束批量导入窗口: userId={}", userId);
+        return bulkLoader().finish();
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public VectorBulkLoader.Status getBulkLoadStatus(String userId) {
+        checkBulkLoadAdmin(userId);
+        return bulkLoader().status();
+    }
+
+    private void checkBulkLoadAdmin(String userId) {
+        if (!kbProperties.getBulkLoad().getAdminUsers().contains(userId)) {
+            throw new SecurityException("无权限管理批量导入");
+        }
+    }
+
+    /**
+     * 读写分离时记下用户的写入，该用户随后的读取和检索在只读库追上之前走主库
+     */
+    private void recordWrite(String userId) {
+        if (replicaLagGuard != null) {
+            replicaLagGuard.recordWrite(userId);
+        }
+    }
+
+    /**
+     * 分类的向量有增删，事务提交后使该分类的检索结果缓存失效
+     */
+    private void invalidateSearchCache(String category) {
+        if (searchCache != null) {
+            searchCache.invalidate(category);
+        }
+    }
+
+    private <T> T readOwnWrites(String userId, Supplier<T> query) {
+        return replicaLagGuard != null ? replicaLagGuard.read(userId, query) : query.get();
+    }
+
+    private VectorBulkLoader bulkLoader() {
+        if (vectorBulkLoader == null) {
+            throw new IllegalStateException("当前向量存储不支持批量导入");
+        }
+        return vectorBulkLoader;
+    }
+
     /**
      * 重新处理失败的文档
      */
@@ -249,6 +404,7 @@ public class DocumentService {
         document.setStatus("PROCESSING");
         document.setErrorMessage(null);
         documentRepository.save(document);
+        recordWrite(userId);
 
         // 这里需要重新获取文件内容，实际实现中可能需要存储文件或从其他地方获取
         // 暂时返回成功状态
@@ -261,7 +417,7 @@ public class DocumentService {
     @Transactional(readOnly = true)
     public List<String> getUserCategories(String userId) {
         logger.debug("查询用户文档分类: userId={}", userId);
-        return documentRepository.findUserCategories(userId);
+        return readOwnWrites(userId, () -> documentRepository.findUserCategories(userId));
     }
 
     /**
@@ -270,7 +426,7 @@ public class DocumentService {
     @Transactional(readOnly = true)
     public List<DocumentEntity> getFailedDocuments(String userId) {
         logger.debug("查询失败文档: userId={}", userId);
-        return documentRepository.findByUploadedByAndStatus(userId, "FAILED");
+        return readOwnWrites(userId, () -> documentRepository.findByUploadedByAndStatus(userId, "FAILED"));
     }
 
     // 私有辅助方法
@@ -330,19 +486,26 @@ public class DocumentService {
      */
     private String calculateFileMd5(MultipartFile file) {
         try {
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(file.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return md5Hex(file.getBytes());
         } catch (Exception e) {
             logger.error("计算文件MD5失败: filename={}, error={}", file.getOriginalFilename(), e.getMessage());
             throw new IllegalArgumentException("无法计算文件MD5: " + e.getMessage());
         }
     }
 
+    /**
+     * 计算内容的 MD5 十六进制摘要，供基准测试直接调用
+     */
+    public static String md5Hex(byte[] content) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        byte[] digest = md.digest(content);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
     /**
      * 检查文件是否已存在（基于MD5和文件名）
      */
@@ -452,7 +615,10 @@ public class DocumentService {
         return pdfReader.read();
     }
 
-    private void enrichDocumentMetadata(List<Document> documents, DocumentEntity document) {
+    /**
+     * 为分块写入文档元数据，供基准测试直接调用
+     */
+    public static void enrichDocumentMetadata(List<Document> documents, DocumentEntity document) {
         documents.forEach(doc -> {
             doc.getMetadata().put("document_id", document.getId().toString());
             doc.getMetadata().put("filename", document.getFilename());
@@ -463,6 +629,17 @@ public class DocumentService {
         });
     }
 
+    private void publishProgress(DocumentEntity document, String stage, int processedChunks, int totalChunks,
+                                 long startNanos, Long estimatedRemainingMs) {
+        progressService.publish(new IngestionProgress(document.getId(), document.getStatus(), stage,
+                processedChunks, totalChunks, elapsedMillis(startNanos), estimatedRemainingMs,
+                document.getErrorMessage()));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
     private void updateDocumentStatus(DocumentEntity document, String status, String errorMessage) {
         document.setStatus(status);
         document.setErrorMessage(errorMessage);
@@ -0,0 +1,115 @@
+package com.example.kb.service;
+
+import com.example.kb.model.Records.IngestionProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 通过 SSE 向订阅者推送文档入库进度
+ * <p>
+ * 只在内存中保留处理中文档的最新进度，进入终态（COMPLETED / FAILED）后推送最后一条事件并关闭连接。
+ * 终态事件在事务提交后发出，保证订阅者收到终态时数据库中的文档状态已经更新。
+ */
+@Service
+public class IngestionProgressService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionProgressService.class);
+
+    private static final long EMITTER_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+
+    private final Map<Long, IngestionProgress> latest = new ConcurrentHashMap<>();
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅文档进度，如已有进度则立即推送一次
+     */
+    public SseEmitter subscribe(Long documentId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        emitters.computeIfAbsent(documentId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> remove(documentId, emitter));
+        emitter.onTimeout(() -> remove(documentId, emitter));
+        emitter.onError(e -> remove(documentId, emitter));
+
+        IngestionProgress progress = latest.get(documentId);
+        if (progress != null) {
+            send(emitter, progress);
+        }
+        return emitter;
+    }
+
+    /**
+     * 向已订阅的连接单独推送一次终态并关闭，用于订阅时文档已处理完成的情况
+     */
+    public void complete(SseEmitter emitter, IngestionProgress progress) {
+        if (send(emitter, progress)) {
+            emitter.complete();
+        }
+    }
+
+    /**
+     * 发布进度；终态在当前事务提交后发布
+     */
+    public void publish(IngestionProgress progress) {
+        if (progress.isTerminal() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    doPublish(progress);
+                }
+            });
+        } else {
+            doPublish(progress);
+        }
+    }
+
+    private void doPublish(IngestionProgress progress) {
+        Long documentId = progress.documentId();
+        if (progress.isTerminal()) {
+            latest.remove(documentId);
+        } else {
+            latest.put(documentId, progress);
+        }
+
+        List<SseEmitter> subscribers = progress.isTerminal()
+                ? emitters.remove(documentId)
+                : emitters.get(documentId);
+        if (subscribers == null) {
+            return;
+        }
+        for (SseEmitter emitter : subscribers) {
+            if (send(emitter, progress) && progress.isTerminal()) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, IngestionProgress progress) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(progress));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("进度推送失败，移除订阅: documentId={}, error={}", progress.documentId(), e.getMessage());
+            remove(progress.documentId(), emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void remove(Long documentId, SseEmitter emitter) {
+        emitters.computeIfPresent(documentId, (id, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -1,51 +1,137 @@
 package com.example.kb.service;
 
+import com.example.kb.advisor.ResilienceAdvisor;
+import com.example.kb.advisor.ResilienceAdvisor.AnswerPath;
+import com.example.kb.config.KnowledgeBaseProperties;
+import com.example.kb.datasource.ReplicaLagGuard;
+import com.example.kb.memory.ConversationMemory;
 import com.example.kb.model.QueryEntity;
 import com.example.kb.model.Records.QueryResult;
+import com.example.kb.model.Records.TokenUsage;
+import com.example.kb.observation.RagContext;
+import com.example.kb.observation.RagContextAccessor;
+import com.example.kb.observation.RagMetrics;
+import com.example.kb.prompt.PromptAssembler;
 import com.example.kb.repository.QueryRepository;
+import com.example.kb.vectorstore.SearchPrecision;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class QueryService {
 
     private static final Logger logger = LoggerFactory.getLogger(QueryService.class);
+    private static final String ENDPOINT_QUERY = "query";
+    private static final String ENDPOINT_STREAM = "stream";
 
     private final ChatClient chatClient;
     private final QueryRepository queryRepository;
+    private final PromptAssembler promptAssembler;
+    private final RagMetrics ragMetrics;
+    private final ObservationRegistry observationRegistry;
+    private final UsageService usageService;
+    private final KnowledgeBaseProperties.Search searchProperties;
+    private final KnowledgeBaseProperties.Partitioning partitioning;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final ConversationMemory conversationMemory;
 
-    public QueryService(ChatClient chatClient, QueryRepository queryRepository) {
+    public QueryService(ChatClient chatClient, QueryRepository queryRepository, PromptAssembler promptAssembler,
+                        RagMetrics ragMetrics, ObservationRegistry observationRegistry, UsageService usageService,
+                        KnowledgeBaseProperties kbProperties, ObjectProvider<ReplicaLagGuard> replicaLagGuard,
+                        ConversationMemory conversationMemory) {
         this.chatClient = chatClient;
         this.queryRepository = queryRepository;
+        this.promptAssembler = promptAssembler;
+        this.ragMetrics = ragMetrics;
+        this.observationRegistry = observationRegistry;
+        this.usageService = usageService;
+        this.searchProperties = kbProperties.getSearch();
+        this.partitioning = kbProperties.getPartitioning();
+        this.replicaLagGuard = replicaLagGuard.getIfAvailable();
+        this.conversationMemory = conversationMemory;
     }
 
     public QueryResult query(String question, String userId, String category) {
+        return query(question, userId, category, null, null);
+    }
+
+    public QueryResult query(String question, String userId, String category, Long deadlineMs,
+                             SearchPrecision precision) {
+        return query(question, userId, category, deadlineMs, precision, null);
+    }
+
+    /**
+     * @param conversationId 不为空时带上该会话的历史，并把本轮问答记入会话
+     */
+    public QueryResult query(String question, String userId, String category, Long deadlineMs,
+                             SearchPrecision precision, String conversationId) {
+        RagContext context = new RagContext(category, searchPrecision(ENDPOINT_QUERY, category, precision),
+            partitionScope(userId, category), readFromPrimary(userId));
+        return queryObservation(category).observe(() -> {
+            try (RagContext.Scope scope = context.open()) {
+                return doQuery(question, userId, category, deadlineMs, conversationId);
+            }
+        });
+    }
+
+    private QueryResult doQuery(String question, String userId, String category, Long deadlineMs,
+                                String conversationId) {
         try {
             // 记录查询
             QueryEntity query = new QueryEntity(question, userId, category);
 
-            // 构建查询上下文
-            String systemPrompt = buildSystemPrompt(category);
+            // 取预编译的系统提示词，静态指令在前以命中提示词前缀缓存
+            String systemPrompt = promptAssembler.systemPrompt(category);
 
             // 执行查询
-            String answer = chatClient.prompt()
+            ChatClientResponse response = chatClient.prompt()
                 .system(systemPrompt)
                 .user(question)
+                .advisors(advisor -> {
+                    if (deadlineMs != null) {
+                        advisor.param(ResilienceAdvisor.DEADLINE_MS, deadlineMs);
+                    }
+                    if (StringUtils.hasText(conversationId)) {
+                        advisor.param(ChatMemory.CONVERSATION_ID, ConversationMemory.key(userId, conversationId));
+                    }
+                })
                 .call()
-                .content();
+                .chatClientResponse();
+            ChatResponse chatResponse = response.chatResponse();
+            String answer = chatResponse != null && chatResponse.getResult() != null
+                ? chatResponse.getResult().getOutput().getText() : null;
+            TokenUsage usage = RagMetrics.tokenUsage(chatResponse);
+            if (usage != null) {
+                logger.info("查询token用量: userId={}, category={}, prompt={}, cached={}, uncached={}, completion={}",
+                    userId, category, usage.promptTokens(), usage.cachedPromptTokens(),
+                    usage.uncachedPromptTokens(), usage.completionTokens());
+            }
 
-            // 保存结果
+            // 保存结果，状态中记录实际应答的路径
             query.setAnswer(answer);
-            query.setStatus("SUCCESS");
-            queryRepository.save(query);
+            query.setStatus(successStatus(response));
+            usageService.record(query, modelName(chatResponse), usage, RagContext.current());
+            save(query, category);
 
-            return new QueryResult(answer, "SUCCESS", null);
+            return new QueryResult(answer, "SUCCESS", null, usage);
 
         } catch (Exception e) {
             logger.error("查询失败", e);
@@ -53,25 +139,129 @@ public class QueryService {
         }
     }
 
+    /**
+     * 流式问答，按分片返回回答文本，结束后保存查询记录
+     */
+    public Flux<String> queryStream(String question, String userId, String category) {
+        return queryStream(question, userId, category, null);
+    }
+
+    public Flux<String> queryStream(String question, String userId, String category, SearchPrecision precision) {
+        return queryStream(question, userId, category, precision, null);
+    }
+
+    public Flux<String> queryStream(String question, String userId, String category, SearchPrecision precision,
+                                    String conversationId) {
+        return Flux.defer(() -> {
+            RagContext context = new RagContext(category, searchPrecision(ENDPOINT_STREAM, category, precision),
+                partitionScope(userId, category), readFromPrimary(userId));
+            Observation observation = queryObservation(category).start();
+            QueryEntity query = new QueryEntity(question, userId, category);
+            StringBuilder answer = new StringBuilder();
+            AtomicReference<ChatResponse> lastWithUsage = new AtomicReference<>();
+
+            Flux<String> chunks = chatClient.prompt()
+                .system(promptAssembler.systemPrompt(category))
+                .user(question)
+                // 流式响应默认不返回 token 用量
+                .options(OpenAiChatOptions.builder().streamUsage(true).build())
+                .advisors(advisor -> {
+                    if (StringUtils.hasText(conversationId)) {
+                        advisor.param(ChatMemory.CONVERSATION_ID, ConversationMemory.key(userId, conversationId));
+                    }
+                })
+                .stream()
+                .chatClientResponse()
+                .doOnNext(response -> {
+                    // 用量只在最后一个分片中返回
+                    if (RagMetrics.tokenUsage(response.chatResponse()) != null) {
+                        lastWithUsage.set(response.chatResponse());
+                    }
+                })
+                .mapNotNull(response -> response.chatResponse() != null && response.chatResponse().getResult() != null
+                    ? response.chatResponse().getResult().getOutput().getText() : null)
+                .doOnNext(answer::append);
+
+            // 保存放到 boundedElastic，避免在 HTTP 客户端的事件循环线程上执行阻塞的 JPA 调用
+            Mono<String> persist = Mono.<String>fromRunnable(() -> {
+                query.setAnswer(answer.toString());
+                query.setStatus("SUCCESS");
+                ChatResponse chatResponse = lastWithUsage.get();
+                usageService.record(query, modelName(chatResponse), RagMetrics.tokenUsage(chatResponse), context);
+                save(query, category);
+            }).subscribeOn(Schedulers.boundedElastic());
+
+            return chunks.concatWith(persist)
+                .doOnError(e -> {
+                    logger.error("流式查询失败", e);
+                    observation.error(e);
+                })
+                .doFinally(signal -> observation.stop())
+                .contextWrite(ctx -> ctx.put(RagContextAccessor.KEY, context)
+                    .put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    /**
+     * 检索精度档位：请求指定 > 分类配置 > 接口配置 > 默认档位
+     */
+    private SearchPrecision searchPrecision(String endpoint, String category, SearchPrecision requested) {
+        if (requested != null) {
+            return requested;
+        }
+        SearchPrecision byCategory = category != null ? searchProperties.getCategories().get(category) : null;
+        if (byCategory != null) {
+            return byCategory;
+        }
+        return searchProperties.getEndpoints().getOrDefault(endpoint, searchProperties.getPrecision());
+    }
+
+    /**
+     * 向量表分区时本次问答只检索的分区：按用户分区时为提问用户，按分类分区时为指定的分类
+     */
+    private String partitionScope(String userId, String category) {
+        return partitioning.isEnabled() ? partitioning.getKey().scopeOf(userId, category) : null;
+    }
+
+    /**
+     * 读写分离时，提问用户刚入库的文档可能尚未同步到只读库，此时本次检索走主库
+     */
+    private boolean readFromPrimary(String userId) {
+        return replicaLagGuard != null && replicaLagGuard.requiresPrimary(userId);
+    }
+
+    public void clearConversation(String userId, String conversationId) {
+        conversationMemory.clear(ConversationMemory.key(userId, conversationId));
+    }
+
     public List<QueryEntity> getQueryHistory(String userId, int limit) {
         return queryRepository.findByUserIdOrderByQueryTimeDesc(userId, PageRequest.of(0, limit));
     }
 
-    private String buildSystemPrompt(String category) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("你是一个企业知识库助手。请基于提供的文档内容回答用户问题。\n");
-        prompt.append("回答要求：\n");
-        prompt.append("1. 准确性：确保答案基于文档内容\n");
-        prompt.append("2. 完整性：提供全面的信息\n");
-        prompt.append("3. 可读性：使用清晰的语言和结构\n");
-        prompt.append("4. 引用：在适当时候引用相关文档\n");
+    private String successStatus(ChatClientResponse response) {
+        Object path = response.context().get(ResilienceAdvisor.ANSWER_PATH);
+        if (path == null || path == AnswerPath.PRIMARY) {
+            return "SUCCESS";
+        }
+        return "SUCCESS_" + path; // SUCCESS_HEDGED, SUCCESS_FALLBACK
+    }
 
-        if (category != null) {
-            prompt.append("5. 专业性：重点关注").append(category).append("领域的专业知识\n");
+    private String modelName(ChatResponse chatResponse) {
+        if (chatResponse != null && chatResponse.getMetadata() != null
+            && StringUtils.hasText(chatResponse.getMetadata().getModel())) {
+            return chatResponse.getMetadata().getModel();
         }
+        return ragMetrics.getChatModel();
+    }
 
-        prompt.append("\n如果文档中没有相关信息，请明确说明。");
+    private void save(QueryEntity query, String category) {
+        ragMetrics.timeStage(RagMetrics.STAGE_PERSISTENCE, category, ragMetrics.getChatModel(),
+            () -> queryRepository.save(query));
+    }
 
-        return prompt.toString();
+    private Observation queryObservation(String category) {
+        return Observation.createNotStarted("kb.rag.query", observationRegistry)
+            .contextualName("rag query")
+            .lowCardinalityKeyValue("category", category != null ? category : "none");
     }
-}
\ No newline at end of file
+}
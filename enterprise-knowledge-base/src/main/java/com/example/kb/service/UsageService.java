@@ -0,0 +1,175 @@
+package com.example.kb.service;
+
+import com.example.kb.config.KnowledgeBaseProperties;
+import com.example.kb.model.QueryEntity;
+import com.example.kb.model.Records.QueryUsage;
+import com.example.kb.model.Records.TokenUsage;
+import com.example.kb.model.Records.UsageReport;
+import com.example.kb.observation.RagContext;
+import com.example.kb.observation.RagMetrics;
+import com.example.kb.repository.QueryRepository;
+import com.example.kb.repository.QueryRepository.UsageSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 问答的 token 计费与用量统计
+ * <p>
+ * 每次问答的 token 数、模型、检索命中数和各阶段耗时写入查询记录，并累加到按用户、分类区分的计数器
+ * （{@code kb.usage.queries}、{@code kb.usage.tokens}、{@code kb.usage.cost}）。
+ */
+@Service
+public class UsageService {
+
+    private static final Map<String, String> STAGE_CODES = Map.of(
+            RagMetrics.STAGE_EMBEDDING, "emb",
+            RagMetrics.STAGE_VECTOR_SEARCH, "vs",
+            RagMetrics.STAGE_PROMPT_ASSEMBLY, "pa",
+            RagMetrics.STAGE_FIRST_TOKEN, "ttft",
+            RagMetrics.STAGE_LLM, "llm"
+    );
+
+    private final QueryRepository queryRepository;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, KnowledgeBaseProperties.ModelPrice> prices;
+
+    public UsageService(QueryRepository queryRepository, MeterRegistry meterRegistry,
+                        KnowledgeBaseProperties kbProperties) {
+        this.queryRepository = queryRepository;
+        this.meterRegistry = meterRegistry;
+        this.prices = kbProperties.getAccounting().getPrices();
+    }
+
+    /**
+     * 把本次问答的用量写入查询记录并累加计数器，需在保存查询记录之前调用
+     */
+    public void record(QueryEntity query, String model, TokenUsage usage, RagContext context) {
+        query.setModel(model);
+        if (usage != null) {
+            query.setPromptTokens(usage.promptTokens());
+            query.setCachedPromptTokens(usage.cachedPromptTokens());
+            query.setCompletionTokens(usage.completionTokens());
+            query.setEstimatedCost(estimateCost(model, usage));
+        }
+        if (context != null) {
+            query.setHitCount(context.getHitCount());
+            query.setLatencyMs(context.getElapsedMillis());
+            query.setStageLatencies(compactStageLatencies(context.getStageMillis()));
+        }
+
+        String user = query.getUserId() != null ? query.getUserId() : "anonymous";
+        String category = query.getCategory() != null ? query.getCategory() : "none";
+        queryCounter(user, category).increment();
+        if (usage != null) {
+            increment(tokenCounter(user, category, "prompt"), usage.promptTokens());
+            increment(tokenCounter(user, category, "cached"), usage.cachedPromptTokens());
+            increment(tokenCounter(user, category, "completion"), usage.completionTokens());
+        }
+        if (query.getEstimatedCost() != null) {
+            Counter.builder("kb.usage.cost")
+                    .description("按模型单价估算的问答费用")
+                    .baseUnit("usd")
+                    .tag("user", user)
+                    .tag("category", category)
+                    .register(meterRegistry)
+                    .increment(query.getEstimatedCost());
+        }
+    }
+
+    /**
+     * 用量报表：按用户或分类汇总，并列出费用和延迟最高的查询
+     */
+    public UsageReport report(String groupBy, LocalDateTime since, int limit) {
+        List<UsageSummary> summaries = "category".equals(groupBy)
+                ? queryRepository.summarizeByCategory(since)
+                : queryRepository.summarizeByUser(since);
+        PageRequest top = PageRequest.of(0, limit);
+        List<QueryUsage> topByCost = queryRepository
+                .findByQueryTimeAfterAndEstimatedCostNotNullOrderByEstimatedCostDesc(since, top)
+                .stream().map(UsageService::toQueryUsage).toList();
+        List<QueryUsage> topByLatency = queryRepository
+                .findByQueryTimeAfterAndLatencyMsNotNullOrderByLatencyMsDesc(since, top)
+                .stream().map(UsageService::toQueryUsage).toList();
+        return new UsageReport("category".equals(groupBy) ? "category" : "user", since,
+                summaries, topByCost, topByLatency);
+    }
+
+    private Double estimateCost(String model, TokenUsage usage) {
+        KnowledgeBaseProperties.ModelPrice price = findPrice(model);
+        if (price == null) {
+            return null;
+        }
+        long prompt = value(usage.promptTokens());
+        long cached = value(usage.cachedPromptTokens());
+        long completion = value(usage.completionTokens());
+        return ((prompt - cached) * price.getInput()
+                + cached * price.getCachedInput()
+                + completion * price.getOutput()) / 1_000_000;
+    }
+
+    private KnowledgeBaseProperties.ModelPrice findPrice(String model) {
+        if (model == null) {
+            return null;
+        }
+        // 响应中的模型名通常带版本后缀（如 gpt-4o-2024-08-06），按最长前缀匹配
+        String matched = null;
+        for (String key : prices.keySet()) {
+            if (model.startsWith(key) && (matched == null || key.length() > matched.length())) {
+                matched = key;
+            }
+        }
+        return matched != null ? prices.get(matched) : null;
+    }
+
+    private static String compactStageLatencies(Map<String, Long> stageMillis) {
+        if (stageMillis.isEmpty()) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner(";");
+        stageMillis.forEach((stage, millis) ->
+                joiner.add(STAGE_CODES.getOrDefault(stage, stage) + "=" + millis));
+        return joiner.toString();
+    }
+
+    private Counter queryCounter(String user, String category) {
+        return Counter.builder("kb.usage.queries")
+                .description("按用户和分类统计的问答次数")
+                .tag("user", user)
+                .tag("category", category)
+                .register(meterRegistry);
+    }
+
+    private Counter tokenCounter(String user, String category, String type) {
+        return Counter.builder("kb.usage.tokens")
+                .description("按用户和分类统计的 token 用量")
+                .baseUnit("tokens")
+                .tag("user", user)
+                .tag("category", category)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private static void increment(Counter counter, Integer amount) {
+        if (amount != null && amount > 0) {
+            counter.increment(amount);
+        }
+    }
+
+    private static long value(Integer tokens) {
+        return tokens != null ? tokens : 0;
+    }
+
+    private static QueryUsage toQueryUsage(QueryEntity query) {
+        return new QueryUsage(query.getId(), query.getUserId(), query.getCategory(), query.getQueryTime(),
+                query.getModel(), query.getPromptTokens(), query.getCachedPromptTokens(),
+                query.getCompletionTokens(), query.getEstimatedCost(), query.getHitCount(),
+                query.getLatencyMs(), query.getStageLatencies());
+    }
+}
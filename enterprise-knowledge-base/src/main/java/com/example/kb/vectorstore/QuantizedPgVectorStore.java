@@ -0,0 +1,310 @@
+package com.example.kb.vectorstore;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.kb.observation.RagContext;
+import com.pgvector.PGvector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 按精度档位设置 hnsw.ef_search，并支持在量化索引上取候选、再按全精度向量重排序的 PgVectorStore
+ * <p>
+ * 写入与删除沿用 PgVectorStore，embedding 列保存全精度向量。开启量化时索引建在 {@link VectorQuantization#indexExpression}
+ * 上，不再建全精度索引，检索先按量化距离取 topK × oversample 个候选，再在候选集内按全精度距离排序取 topK；
+ * 未开启量化时候选集即为 topK。
+ * <p>
+ * 精度档位取自当前问答的 {@link RagContext}，未指定时使用默认档位。hnsw.ef_search 在检索事务内用 set_config
+ * 临时设置，取档位对应值与候选数中的较大者（HNSW 单次扫描最多返回 ef_search 个结果）。
+ * <p>
+ * 开启分区（{@link VectorPartitions}）时写入改为带 partition_key 的 upsert，问答上下文带有分区键值时检索只扫描该分区。
+ * 批量导入窗口（{@link VectorBulkLoader}）开启期间写入改为二进制 COPY。
+ * <p>
+ * 检索在只读事务内执行，读写分离时走只读连接池；问答上下文标记了 readFromPrimary 时改用读写事务走主库。
+ * 配置了 {@link VectorSearchCache} 时，问题向量化之后先查结果缓存，命中则不访问数据库。
+ */
+public class QuantizedPgVectorStore extends PgVectorStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuantizedPgVectorStore.class);
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final String tableName;
+    private final String qualifiedTableName;
+    private final String schemaName;
+    private final int dimensions;
+    private final boolean initializeSchema;
+    private final VectorQuantization quantization;
+    private final int oversample;
+    private final Map<SearchPrecision, Integer> efSearch;
+    private final SearchPrecision defaultPrecision;
+    private final VectorSearchMetrics metrics;
+    @Nullable
+    private final VectorPartitions partitions;
+    @Nullable
+    private final VectorBulkLoader bulkLoader;
+    @Nullable
+    private final VectorSearchCache searchCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String searchSql;
+    private final String exactSql;
+    private final String insertSql;
+
+    /**
+     * @param builder    已配置好的 PgVectorStore builder，开启量化时索引类型需设为 NONE，全精度索引不再创建
+     * @param partitions 分区表结构，为 null 时使用 PgVectorStore 的普通表
+     * @param bulkLoader 导入窗口开启时改用二进制 COPY 写入
+     * @param searchCache 检索结果缓存，为 null 时不缓存
+     */
+    public QuantizedPgVectorStore(PgVectorStoreBuilder builder, JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate, String schemaName, String tableName,
+                                  int dimensions, boolean initializeSchema, VectorQuantization quantization,
+                                  int oversample, Map<SearchPrecision, Integer> efSearch,
+                                  SearchPrecision defaultPrecision, VectorSearchMetrics metrics,
+                                  @Nullable VectorPartitions partitions, @Nullable VectorBulkLoader bulkLoader,
+                                  @Nullable VectorSearchCache searchCache) {
+        super(builder);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+                transactionTemplate);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.qualifiedTableName = schemaName + "." + tableName;
+        this.dimensions = dimensions;
+        this.initializeSchema = initializeSchema;
+        this.quantization = quantization;
+        this.oversample = quantization == VectorQuantization.NONE ? 1 : Math.max(1, oversample);
+        this.efSearch = efSearch;
+        this.defaultPrecision = defaultPrecision;
+        this.metrics = metrics;
+        this.partitions = partitions;
+        this.bulkLoader = bulkLoader;
+        this.searchCache = searchCache;
+
+        String distance = distanceExpression();
+        this.searchSql = "SELECT id, content, metadata, " + distance + " AS distance FROM ("
+                + "SELECT id, content, metadata, embedding FROM " + qualifiedTableName + " WHERE true %s"
+                + " ORDER BY " + quantization.indexExpression(dimensions) + " " + quantization.operator(getDistanceType())
+                + " " + quantization.queryExpression(dimensions) + " LIMIT ?) AS candidates"
+                + " WHERE " + distance + " < ? ORDER BY distance LIMIT ?";
+        this.exactSql = "SELECT id FROM " + qualifiedTableName + " WHERE " + distance + " < ? %s"
+                + " ORDER BY " + distance + " LIMIT ?";
+        this.insertSql = partitions == null ? null : "INSERT INTO " + qualifiedTableName
+                + " (id, " + VectorPartitions.COLUMN + ", content, metadata, embedding)"
+                + " VALUES (?::" + partitions.idCast() + ", ?, ?, ?::jsonb, ?)"
+                + " ON CONFLICT (" + VectorPartitions.COLUMN + ", id) DO UPDATE"
+                + " SET content = EXCLUDED.content, metadata = EXCLUDED.metadata, embedding = EXCLUDED.embedding";
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // 分区表需要在 PgVectorStore 校验和建表之前建好，其 CREATE TABLE IF NOT EXISTS 随后跳过
+        if (partitions != null) {
+            partitions.initialize(initializeSchema);
+        }
+        super.afterPropertiesSet();
+        if (quantization == VectorQuantization.NONE) {
+            return;
+        }
+        if (initializeSchema && (bulkLoader == null || !bulkLoader.isActive())) {
+            jdbcTemplate.execute(String.format("CREATE INDEX IF NOT EXISTS %s_%s_idx ON %s USING hnsw (%s %s)",
+                    tableName, quantization.name().toLowerCase(), qualifiedTableName,
+                    quantization.indexExpression(dimensions), quantization.operatorClass(getDistanceType())));
+        }
+        List<String> fullPrecisionIndexes = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = ? AND tablename = ? AND indexdef LIKE ?",
+                String.class, schemaName, tableName, "%(embedding vector\\_%");
+        if (!fullPrecisionIndexes.isEmpty()) {
+            logger.warn("向量表 {} 仍有全精度索引 {}，确认量化索引可用后可删除以释放内存", qualifiedTableName,
+                    fullPrecisionIndexes);
+        }
+        logger.info("向量检索使用 {} 量化索引，候选集为 topK × {}", quantization, oversample);
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        boolean bulk = bulkLoader != null && bulkLoader.isActive();
+        if (partitions == null && !bulk) {
+            super.doAdd(documents);
+            return;
+        }
+        List<float[]> embeddings = embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(),
+                batchingStrategy);
+        if (bulk) {
+            bulkLoader.copy(documents, embeddings);
+            return;
+        }
+        partitions.ensurePartitions(documents.stream().map(partitions::valueOf).collect(Collectors.toSet()));
+        List<Object[]> rows = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            rows.add(new Object[]{document.getId(), partitions.valueOf(document), document.getText(),
+                    toJson(document.getMetadata()), new PGvector(embeddings.get(i))});
+        }
+        jdbcTemplate.batchUpdate(insertSql, rows);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        String scope = currentScope();
+        String filter = filterClause(request) + (scope != null ? " AND " + VectorPartitions.COLUMN + " = ? " : "");
+        float[] embedding = embeddingModel.embed(request.getQuery());
+        PGvector query = new PGvector(embedding);
+        SearchPrecision precision = currentPrecision();
+        VectorSearchCache.Lookup cached = searchCache != null ? searchCache.lookup(embedding, request, precision,
+                scope, cacheCategory(request, scope), readFromPrimary()) : null;
+        if (cached != null && cached.documents() != null) {
+            return cached.documents();
+        }
+        int candidates = request.getTopK() * oversample;
+        int ef = Math.max(efSearch.getOrDefault(precision, candidates), candidates);
+        double threshold = 1.0 - request.getSimilarityThreshold();
+        Object[] args = scope != null
+                ? new Object[]{query, scope, query, candidates, query, threshold, request.getTopK()}
+                : new Object[]{query, query, candidates, query, threshold, request.getTopK()};
+
+        long start = System.nanoTime();
+        List<Document> documents = inTransaction("hnsw.ef_search", String.valueOf(ef), () ->
+                jdbcTemplate.query(String.format(searchSql, filter), documentRowMapper(), args));
+        metrics.recordLatency(precision, System.nanoTime() - start);
+
+        if (documents != null) {
+            if (cached != null) {
+                cached.store(documents);
+            }
+            List<String> ids = documents.stream().map(Document::getId).toList();
+            metrics.maybeSample(precision, ids, () -> exactSearch(query, filter, scope, threshold, request.getTopK()));
+        }
+        return documents;
+    }
+
+    /**
+     * 关闭索引扫描后按全精度距离全表排序，作为召回率的基准
+     */
+    private List<String> exactSearch(PGvector query, String filter, @Nullable String scope, double threshold, int topK) {
+        Object[] args = scope != null
+                ? new Object[]{query, threshold, scope, query, topK}
+                : new Object[]{query, threshold, query, topK};
+        return inTransaction("enable_indexscan", "off", () ->
+                jdbcTemplate.queryForList(String.format(exactSql, filter), String.class, args));
+    }
+
+    /**
+     * 在事务内用 set_config(..., true) 设置只对本事务生效的参数后执行查询，连接归还连接池后不残留
+     */
+    private <T> T inTransaction(String setting, String value, Supplier<T> query) {
+        TransactionTemplate template = readFromPrimary() ? transactionTemplate : readOnlyTransactionTemplate;
+        return template.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config(?, ?, true)", String.class, setting, value);
+            return query.get();
+        });
+    }
+
+    private boolean readFromPrimary() {
+        RagContext context = RagContext.current();
+        return context != null && context.isReadFromPrimary();
+    }
+
+    /**
+     * 检索限定的分类：按分类分区时为分区键值，否则取过滤表达式中的 category 条件
+     */
+    @Nullable
+    private String cacheCategory(SearchRequest request, @Nullable String scope) {
+        if (scope != null && partitions.getKey() == VectorPartitionKey.CATEGORY) {
+            return scope;
+        }
+        return VectorSearchCache.categoryOf(request.getFilterExpression());
+    }
+
+    private SearchPrecision currentPrecision() {
+        RagContext context = RagContext.current();
+        SearchPrecision precision = context != null ? context.getSearchPrecision() : null;
+        return precision != null ? precision : defaultPrecision;
+    }
+
+    /**
+     * 问答上下文中的分区键值，未开启分区或未指定时为 null，检索全部分区
+     */
+    @Nullable
+    private String currentScope() {
+        RagContext context = RagContext.current();
+        return partitions != null && context != null ? context.getPartitionScope() : null;
+    }
+
+    public VectorQuantization getQuantization() {
+        return quantization;
+    }
+
+    private String filterClause(SearchRequest request) {
+        if (request.getFilterExpression() == null) {
+            return "";
+        }
+        String nativeFilter = filterExpressionConverter.convertExpression(request.getFilterExpression());
+        return StringUtils.hasText(nativeFilter) ? " AND metadata::jsonb @@ '" + nativeFilter + "'::jsonpath " : "";
+    }
+
+    /**
+     * 与 PgVectorStore 一致：内积距离取 1 + (a <#> b)，使相似度阈值的换算方式相同
+     */
+    private String distanceExpression() {
+        return getDistanceType() == PgDistanceType.NEGATIVE_INNER_PRODUCT
+                ? "(1 + (embedding <#> ?))"
+                : "(embedding " + getDistanceType().operator + " ?)";
+    }
+
+    private RowMapper<Document> documentRowMapper() {
+        return (rs, rowNum) -> {
+            Map<String, Object> metadata = toMap(rs.getString("metadata"));
+            float distance = rs.getFloat("distance");
+            metadata.put(DocumentMetadata.DISTANCE.value(), distance);
+            return Document.builder()
+                    .id(rs.getString("id"))
+                    .text(rs.getString("content"))
+                    .metadata(metadata)
+                    .score(1.0 - distance)
+                    .build();
+        };
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("无法序列化向量元数据", e);
+        }
+    }
+
+    private Map<String, Object> toMap(@Nullable String metadata) {
+        if (metadata == null) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(metadata, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("无法解析向量元数据", e);
+        }
+    }
+}
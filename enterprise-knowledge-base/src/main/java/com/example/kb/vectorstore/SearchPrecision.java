@@ -0,0 +1,32 @@
+package com.example.kb.vectorstore;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Locale;
+
+/**
+ * 向量检索的精度档位，对应不同的 hnsw.ef_search
+ * <p>
+ * ef_search 越大召回率越高、检索越慢，各档位的取值见 {@code app.knowledge-base.search.ef-search}。
+ */
+public enum SearchPrecision {
+
+    FAST,
+    BALANCED,
+    EXHAUSTIVE;
+
+    /**
+     * 忽略大小写解析，空值返回 null 表示未指定
+     */
+    @JsonCreator
+    public static SearchPrecision of(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public String tagValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
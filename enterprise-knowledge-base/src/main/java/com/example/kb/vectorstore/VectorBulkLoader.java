@@ -0,0 +1,319 @@
+package com.example.kb.vectorstore;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore.PgIdType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 用二进制 COPY 批量写入向量，供大批量初始导入使用
+ * <p>
+ * {@link #begin()} 开启导入窗口后，向量存储的写入改走本类：分块行（id、content、metadata、embedding）按 PostgreSQL
+ * 二进制 COPY 格式流式发送，不再逐批执行 INSERT。开启 deferIndexes 时同时删除表上的 HNSW / IVFFlat 索引，
+ * 导入期间不维护索引（此时检索为全表扫描），{@link #finish()} 再在后台以并行维护进程重建。
+ * <p>
+ * 删除的索引定义与 DROP INDEX 在同一事务中写入 {@code <表名>_bulk_load} 表，应用在窗口内或重建途中重启时
+ * 由 {@link #restore()} 恢复为导入窗口，再次结束窗口即重建剩余的索引。
+ * COPY 不处理主键冲突，导入窗口内写入已存在的 id 会使整批失败。
+ */
+public class VectorBulkLoader implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorBulkLoader.class);
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String schemaName;
+    private final String tableName;
+    private final PgIdType idType;
+    @Nullable
+    private final VectorPartitions partitions;
+    private final boolean deferIndexes;
+    private final int parallelWorkers;
+    private final String maintenanceWorkMem;
+    private final String copySql;
+    private final String deferredTable;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong copiedRows = new AtomicLong();
+    private final List<String> deferredIndexes = new CopyOnWriteArrayList<>();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kb-bulk-load-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean active;
+    private volatile boolean rebuilding;
+    private volatile long rebuildMs;
+    @Nullable
+    private volatile String rebuildError;
+
+    public VectorBulkLoader(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, String schemaName,
+                            String tableName, PgIdType idType, @Nullable VectorPartitions partitions,
+                            boolean deferIndexes, int parallelWorkers, String maintenanceWorkMem) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.idType = idType;
+        this.partitions = partitions;
+        this.deferIndexes = deferIndexes;
+        this.parallelWorkers = parallelWorkers;
+        this.maintenanceWorkMem = maintenanceWorkMem;
+        this.copySql = "COPY " + schemaName + "." + tableName + " (id, "
+                + (partitions != null ? VectorPartitions.COLUMN + ", " : "")
+                + "content, metadata, embedding) FROM STDIN (FORMAT binary)";
+        this.deferredTable = schemaName + "." + tableName + "_bulk_load";
+    }
+
+    /**
+     * 启动时调用：上次运行中删除且尚未重建的索引仍记在表中时恢复导入窗口
+     *
+     * @return 是否恢复了导入窗口；此时不应在启动时建向量索引
+     */
+    public synchronized boolean restore() {
+        String exists = jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, deferredTable);
+        if (exists == null) {
+            return false;
+        }
+        List<String> definitions = jdbcTemplate.queryForList(
+                "SELECT definition FROM " + deferredTable + " ORDER BY dropped_at", String.class);
+        if (definitions.isEmpty()) {
+            return false;
+        }
+        deferredIndexes.addAll(definitions);
+        active = true;
+        logger.warn("恢复上次未结束的向量批量导入窗口: 待重建索引 {} 个，导入完成后调用 finish 重建", definitions.size());
+        return true;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * 开启导入窗口，按配置删除向量索引并记下其定义
+     */
+    public synchronized Status begin() {
+        if (active) {
+            return status();
+        }
+        if (rebuilding) {
+            throw new IllegalStateException("上次导入的向量索引仍在重建，重建完成后再开启导入窗口");
+        }
+        copiedRows.set(0);
+        rebuildMs = 0;
+        rebuildError = null;
+        if (deferIndexes) {
+            List<String> dropped = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + deferredTable
+                        + " (definition text PRIMARY KEY, dropped_at timestamptz NOT NULL DEFAULT now())");
+                List<Map<String, Object>> indexes = jdbcTemplate.queryForList("SELECT indexname, indexdef FROM pg_indexes "
+                        + "WHERE schemaname = ? AND tablename = ? AND (indexdef LIKE '% USING hnsw %' "
+                        + "OR indexdef LIKE '% USING ivfflat %')", schemaName, tableName);
+                List<String> definitions = new ArrayList<>();
+                for (Map<String, Object> index : indexes) {
+                    String definition = rebuildStatement((String) index.get("indexdef"));
+                    // 定义与 DROP 在同一事务中提交，重启后仍能找回
+                    jdbcTemplate.update("INSERT INTO " + deferredTable + " (definition) VALUES (?) "
+                            + "ON CONFLICT DO NOTHING", definition);
+                    jdbcTemplate.execute("DROP INDEX " + schemaName + "." + index.get("indexname"));
+                    definitions.add(definition);
+                }
+                return definitions;
+            });
+            dropped.forEach(definition -> logger.info("批量导入期间暂时删除向量索引: {}", definition));
+            deferredIndexes.addAll(dropped);
+        }
+        active = true;
+        logger.info("已开启向量批量导入: table={}.{}, deferredIndexes={}", schemaName, tableName,
+                deferredIndexes.size());
+        return status();
+    }
+
+    /**
+     * 以二进制 COPY 写入一批向量，embeddings 与 documents 一一对应
+     */
+    public void copy(List<Document> documents, List<float[]> embeddings) {
+        if (partitions != null) {
+            partitions.ensurePartitions(documents.stream().map(partitions::valueOf).collect(Collectors.toSet()));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // 导入失败可整批重试，不必等待 WAL 刷盘
+            jdbcTemplate.queryForObject("SELECT set_config('synchronous_commit', 'off', true)", String.class);
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), copySql,
+                        BUFFER_SIZE);
+                try {
+                    DataOutputStream out = new DataOutputStream(copy);
+                    out.write(SIGNATURE);
+                    out.writeInt(0);
+                    out.writeInt(0);
+                    for (int i = 0; i < documents.size(); i++) {
+                        writeRow(out, documents.get(i), embeddings.get(i));
+                    }
+                    out.writeShort(-1);
+                    out.flush();
+                    copy.endCopy();
+                } catch (IOException | RuntimeException e) {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                    throw new SQLException("向量批量导入失败: " + e.getMessage(), e);
+                }
+                return null;
+            });
+        });
+        copiedRows.addAndGet(documents.size());
+    }
+
+    /**
+     * 结束导入窗口并在后台重建导入前删除的向量索引，立即返回；重建进度见 {@link #status()}
+     */
+    public synchronized Status finish() {
+        if (!active) {
+            return status();
+        }
+        // 之后的写入恢复为 INSERT，建索引期间会等待索引建完
+        active = false;
+        rebuilding = true;
+        rebuildError = null;
+        rebuildExecutor.execute(this::rebuild);
+        return status();
+    }
+
+    public Status status() {
+        return new Status(active, rebuilding, copiedRows.get(), List.copyOf(deferredIndexes), rebuildMs, rebuildError);
+    }
+
+    @Override
+    public void close() {
+        // 中断的重建事务回滚，索引定义仍在表中，重启后恢复
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            for (String definition : new ArrayList<>(deferredIndexes)) {
+                long indexStart = System.nanoTime();
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.queryForObject("SELECT set_config('maintenance_work_mem', ?, true)", String.class,
+                            maintenanceWorkMem);
+                    jdbcTemplate.queryForObject("SELECT set_config('max_parallel_maintenance_workers', ?, true)",
+                            String.class, String.valueOf(parallelWorkers));
+                    jdbcTemplate.execute(definition);
+                    jdbcTemplate.update("DELETE FROM " + deferredTable + " WHERE definition = ?", definition);
+                });
+                deferredIndexes.remove(definition);
+                logger.info("向量索引已重建: {}, 耗时={}ms", definition, (System.nanoTime() - indexStart) / 1_000_000);
+            }
+            rebuildMs = (System.nanoTime() - start) / 1_000_000;
+            logger.info("向量批量导入结束: rows={}, 索引重建耗时={}ms", copiedRows.get(), rebuildMs);
+        } catch (RuntimeException e) {
+            // 未建成的索引定义保留在表中，重启后恢复为导入窗口，可再次结束窗口重试
+            rebuildError = e.getMessage();
+            logger.error("向量索引重建失败，剩余 {} 个: {}", deferredIndexes.size(), e.getMessage(), e);
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    /**
+     * 由 pg_indexes 中的索引定义得到重建语句
+     */
+    static String rebuildStatement(String indexdef) {
+        // 分区表父表上的索引定义带 ON ONLY，重建时需要去掉才会同时建各分区的索引；
+        // 重启时 PgVectorStore 可能已按默认配置建回同名索引，重建时跳过
+        return indexdef.replace(" ON ONLY ", " ON ")
+                .replaceFirst("^CREATE (UNIQUE )?INDEX ", "CREATE $1INDEX IF NOT EXISTS ");
+    }
+
+    private void writeRow(DataOutputStream out, Document document, float[] embedding) throws IOException {
+        out.writeShort(partitions != null ? 5 : 4);
+        writeId(out, document.getId());
+        if (partitions != null) {
+            writeText(out, partitions.valueOf(document));
+        }
+        writeText(out, document.getText());
+        writeText(out, toJson(document.getMetadata()));
+        // pgvector 的二进制格式：int16 维数、int16 保留位、float4 数组
+        out.writeInt(4 + 4 * embedding.length);
+        out.writeShort(embedding.length);
+        out.writeShort(0);
+        for (float value : embedding) {
+            out.writeFloat(value);
+        }
+    }
+
+    private void writeId(DataOutputStream out, String id) throws IOException {
+        switch (idType) {
+            case UUID -> {
+                UUID uuid = UUID.fromString(id);
+                out.writeInt(16);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            }
+            case TEXT -> writeText(out, id);
+            case INTEGER, SERIAL -> {
+                out.writeInt(4);
+                out.writeInt(Integer.parseInt(id));
+            }
+            case BIGSERIAL -> {
+                out.writeInt(8);
+                out.writeLong(Long.parseLong(id));
+            }
+        }
+    }
+
+    private static void writeText(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("无法序列化向量元数据", e);
+        }
+    }
+
+    /**
+     * @param rebuilding      是否正在后台重建索引
+     * @param deferredIndexes 导入前删除、尚未重建的索引定义
+     * @param rebuildMs       上次成功结束导入时重建索引的耗时
+     * @param rebuildError    上次重建失败的原因
+     */
+    public record Status(boolean active, boolean rebuilding, long copiedRows, List<String> deferredIndexes,
+                         long rebuildMs, @Nullable String rebuildError) {
+    }
+}
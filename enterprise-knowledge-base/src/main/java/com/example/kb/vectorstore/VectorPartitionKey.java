@@ -0,0 +1,34 @@
+package com.example.kb.vectorstore;
+
+/**
+ * 向量表的分区依据，取值来自入库时写入的元数据（见 DocumentService#enrichDocumentMetadata）
+ */
+public enum VectorPartitionKey {
+
+    /**
+     * 按上传用户分区，问答只检索提问用户自己的分区
+     */
+    OWNER("uploaded_by"),
+
+    /**
+     * 按分类分区，指定分类的问答只检索该分类的分区
+     */
+    CATEGORY("category");
+
+    private final String metadataField;
+
+    VectorPartitionKey(String metadataField) {
+        this.metadataField = metadataField;
+    }
+
+    public String metadataField() {
+        return metadataField;
+    }
+
+    /**
+     * 一次问答所属分区的键值，为 null 时检索全部分区
+     */
+    public String scopeOf(String userId, String category) {
+        return this == OWNER ? userId : category;
+    }
+}
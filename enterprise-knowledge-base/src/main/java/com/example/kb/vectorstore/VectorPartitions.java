@@ -0,0 +1,221 @@
+package com.example.kb.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore.PgIdType;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按 {@link VectorPartitionKey} 列表分区的向量表结构
+ * <p>
+ * 分区键保存在 partition_key 列中（写入时由向量存储从元数据取值，缺失时为空串，落入默认分区），主键为
+ * (partition_key, id)。每个键值一个分区，首次写入时创建，表注释记录对应的键值；向量索引建在父表上，
+ * 由 PostgreSQL 在每个分区上各建一份。删除一个键值的全部向量即删除其分区，不会在共享索引中留下空洞。
+ * <p>
+ * 建分区需要父表上的 ACCESS EXCLUSIVE 锁，因此在独立的短事务（REQUIRES_NEW）中执行并设置 lock_timeout，
+ * 提交后立即释放锁，不随调用方的入库事务持有到整篇文档写完。调用方的事务若已写过父表，新事务会等待它而超时，
+ * 所以应在写入向量之前调用 {@link #ensurePartitions}。
+ */
+public class VectorPartitions {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorPartitions.class);
+
+    public static final String COLUMN = "partition_key";
+
+    private static final String LOCK_TIMEOUT = "3s";
+    private static final int LOCK_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String schemaName;
+    private final String tableName;
+    private final String qualifiedTableName;
+    private final VectorPartitionKey key;
+    private final PgIdType idType;
+    private final int dimensions;
+    private final boolean removeExistingTable;
+    private final Set<String> partitionNames = ConcurrentHashMap.newKeySet();
+    // 默认分区中已有这些键值的行，无法建分区，其向量继续写入默认分区
+    private final Set<String> defaultPartitionValues = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param transactionTemplate 传播行为须为 REQUIRES_NEW，建分区的 DDL 不加入调用方的事务
+     */
+    public VectorPartitions(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, String schemaName,
+                            String tableName, VectorPartitionKey key, PgIdType idType, int dimensions,
+                            boolean removeExistingTable) {
+        Assert.isTrue(transactionTemplate.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW,
+                "transactionTemplate must use PROPAGATION_REQUIRES_NEW");
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.qualifiedTableName = schemaName + "." + tableName;
+        this.key = key;
+        this.idType = idType;
+        this.dimensions = dimensions;
+        this.removeExistingTable = removeExistingTable;
+    }
+
+    /**
+     * 在 PgVectorStore 建表之前调用：表不存在时建分区表和默认分区，已存在的普通表需要先迁移
+     */
+    public void initialize(boolean initializeSchema) {
+        if (initializeSchema) {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            if (idType == PgIdType.UUID) {
+                jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS \"uuid-ossp\"");
+            }
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + schemaName);
+            if (removeExistingTable) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + qualifiedTableName);
+            }
+        }
+
+        List<String> kind = jdbcTemplate.queryForList("SELECT c.relkind::text FROM pg_class c "
+                + "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = ? AND c.relname = ?",
+                String.class, schemaName, tableName);
+        if (kind.isEmpty() && initializeSchema) {
+            jdbcTemplate.execute(String.format("CREATE TABLE %s (id %s, %s text NOT NULL DEFAULT '', content text, "
+                            + "metadata json, embedding vector(%d), PRIMARY KEY (%s, id)) PARTITION BY LIST (%s)",
+                    qualifiedTableName, idColumnType(), COLUMN, dimensions, COLUMN, COLUMN));
+            jdbcTemplate.execute(String.format("CREATE TABLE %s_default PARTITION OF %s DEFAULT",
+                    qualifiedTableName, qualifiedTableName));
+            logger.info("已创建分区向量表 {}，按 {} 分区", qualifiedTableName, key.metadataField());
+        } else if (!kind.isEmpty() && !"p".equals(kind.get(0))) {
+            throw new IllegalStateException("向量表 " + qualifiedTableName + " 不是分区表，开启分区前需要先迁移数据");
+        }
+
+        partitionNames.addAll(jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = ?::regclass",
+                String.class, qualifiedTableName));
+        logger.info("向量表 {} 共有 {} 个分区", qualifiedTableName, partitionNames.size());
+    }
+
+    public VectorPartitionKey getKey() {
+        return key;
+    }
+
+    /**
+     * 文档所属分区的键值，元数据中没有时为空串
+     */
+    public String valueOf(Document document) {
+        Object value = document.getMetadata().get(key.metadataField());
+        return value != null ? value.toString() : "";
+    }
+
+    /**
+     * 写入前为尚无分区的键值建分区，每个分区在独立事务中创建并提交
+     * <p>
+     * 默认分区中已有该键值的行时无法建分区，这些向量继续写入默认分区；其他失败（包括多次等锁超时）直接抛出，
+     * 不把未建成的分区记为已存在。
+     */
+    public void ensurePartitions(Collection<String> values) {
+        for (String value : values) {
+            String name = partitionName(value);
+            if (value.isEmpty() || partitionNames.contains(name) || defaultPartitionValues.contains(value)) {
+                continue;
+            }
+            synchronized (this) {
+                if (!partitionNames.contains(name) && !defaultPartitionValues.contains(value)) {
+                    createPartition(name, value);
+                }
+            }
+        }
+    }
+
+    private void createPartition(String name, String value) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // 等锁期间后续的检索会排在 DDL 之后，等待时间必须很短
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = '" + LOCK_TIMEOUT + "'");
+                    jdbcTemplate.execute(String.format("CREATE TABLE IF NOT EXISTS %s.%s PARTITION OF %s FOR VALUES IN (%s)",
+                            schemaName, name, qualifiedTableName, literal(value)));
+                    jdbcTemplate.execute(String.format("COMMENT ON TABLE %s.%s IS %s", schemaName, name, literal(value)));
+                });
+                partitionNames.add(name);
+                logger.info("已创建向量分区 {}: {}={}", name, key.metadataField(), value);
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt == LOCK_ATTEMPTS) {
+                    throw e;
+                }
+                logger.warn("创建向量分区 {} 等锁超时，第 {} 次重试: {}", name, attempt, e.getMessage());
+            } catch (DataIntegrityViolationException e) {
+                // 默认分区中已有该键值的行，新分区的约束与默认分区冲突
+                defaultPartitionValues.add(value);
+                logger.warn("默认分区中已有 {}={} 的向量，不再为其建分区: {}", key.metadataField(), value, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除一个键值的分区及其全部向量
+     *
+     * @return 分区不存在时返回 false
+     */
+    public synchronized boolean drop(String value) {
+        String name = partitionName(value);
+        List<String> comment = jdbcTemplate.queryForList("SELECT obj_description(c.oid, 'pg_class') FROM pg_class c "
+                + "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = ? AND c.relname = ?",
+                String.class, schemaName, name);
+        if (comment.isEmpty()) {
+            return false;
+        }
+        if (!value.equals(comment.get(0))) {
+            throw new IllegalStateException("分区 " + name + " 对应的键值为 " + comment.get(0) + "，不是 " + value);
+        }
+        jdbcTemplate.execute("DROP TABLE " + schemaName + "." + name);
+        partitionNames.remove(name);
+        logger.info("已删除向量分区 {}: {}={}", name, key.metadataField(), value);
+        return true;
+    }
+
+    /**
+     * 分区表名：键值可能包含任意字符，取其 MD5 的前 12 位
+     */
+    String partitionName(String value) {
+        return tableName + "_p_" + DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8)).substring(0, 12);
+    }
+
+    /**
+     * 写入语句中 id 参数的类型转换，与 PgVectorStore 的 id 列类型一致
+     */
+    String idCast() {
+        return switch (idType) {
+            case UUID -> "uuid";
+            case TEXT -> "text";
+            case INTEGER, SERIAL -> "integer";
+            case BIGSERIAL -> "bigint";
+        };
+    }
+
+    private String idColumnType() {
+        return switch (idType) {
+            case UUID -> "uuid DEFAULT uuid_generate_v4()";
+            case TEXT -> "text";
+            case INTEGER -> "integer";
+            case SERIAL -> "serial";
+            case BIGSERIAL -> "bigserial";
+        };
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.kb.vectorstore;
+
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore.PgDistanceType;
+
+/**
+ * 向量索引的量化方式（需要 pgvector 0.7+）
+ * <p>
+ * 量化只作用于索引表达式，embedding 列始终保存全精度向量，用于候选集的重排序。
+ */
+public enum VectorQuantization {
+
+    /**
+     * 不量化，索引直接建在 vector 列上，每维 4 字节
+     */
+    NONE,
+
+    /**
+     * 半精度索引，每维 2 字节，索引内存约为全精度的 1/2
+     */
+    HALFVEC,
+
+    /**
+     * 二值量化索引（每维取符号位，汉明距离），每维 1 位，索引内存约为全精度的 1/32
+     */
+    BINARY;
+
+    /**
+     * 建索引和排序使用的表达式，两处必须完全一致才能命中表达式索引
+     */
+    public String indexExpression(int dimensions) {
+        return switch (this) {
+            case NONE -> "embedding";
+            case HALFVEC -> "(embedding::halfvec(" + dimensions + "))";
+            case BINARY -> "(binary_quantize(embedding)::bit(" + dimensions + "))";
+        };
+    }
+
+    /**
+     * 与 {@link #indexExpression} 比较的查询向量表达式，参数为全精度的查询向量
+     */
+    public String queryExpression(int dimensions) {
+        return switch (this) {
+            case NONE -> "?";
+            case HALFVEC -> "?::halfvec(" + dimensions + ")";
+            case BINARY -> "binary_quantize(?)::bit(" + dimensions + ")";
+        };
+    }
+
+    public String operator(PgDistanceType distanceType) {
+        return this == BINARY ? "<~>" : distanceType.operator;
+    }
+
+    public String operatorClass(PgDistanceType distanceType) {
+        return switch (this) {
+            case NONE -> distanceType.index;
+            case HALFVEC -> distanceType.index.replace("vector_", "halfvec_");
+            case BINARY -> "bit_hamming_ops";
+        };
+    }
+
+    /**
+     * 单个向量在索引元组中占用的字节数（不含元组头和邻居列表）
+     */
+    public int bytesPerVector(int dimensions) {
+        return switch (this) {
+            case NONE -> 4 * dimensions + 8;
+            case HALFVEC -> 2 * dimensions + 8;
+            case BINARY -> (dimensions + 7) / 8 + 8;
+        };
+    }
+}
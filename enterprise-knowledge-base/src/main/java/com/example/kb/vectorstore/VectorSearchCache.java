@@ -0,0 +1,230 @@
+package com.example.kb.vectorstore;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 向量检索结果缓存，按分类的入库版本号（epoch）失效
+ * <p>
+ * 键为量化后的问题向量、topK、相似度阈值、过滤表达式、精度档位和分区键值；值记下检索开始时所属分类的版本号。
+ * DocumentService 在文档入库完成或删除后（事务提交后）调用 {@link #invalidate}，该分类的版本号前进，旧结果不再命中。
+ * 检索限定在一个分类内（过滤表达式为 category == 'x'，或按分类分区）时只看该分类的版本号，否则任何分类的入库都会使其失效。
+ * <p>
+ * 读写分离时只读库可能尚未回放最近的入库，版本号前进后的 settleMs 内只读库上的检索结果不写入缓存。
+ */
+public class VectorSearchCache {
+
+    public static final String CATEGORY_FIELD = "category";
+
+    // 问题向量各分量按 1/1024 取整，吸收同一问题多次向量化的微小差异
+    private static final float KEY_RESOLUTION = 1024f;
+
+    private final int maxEntries;
+    private final long settleMs;
+    private final Map<Key, Entry> entries;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Long> categoryEpochs = new ConcurrentHashMap<>();
+    private final Map<String, Long> categoryBumpedAt = new ConcurrentHashMap<>();
+    private volatile long bumpedAt;
+    private final Counter hits;
+    private final Counter misses;
+
+    public VectorSearchCache(MeterRegistry meterRegistry, int maxEntries, long settleMs) {
+        this.maxEntries = maxEntries;
+        this.settleMs = settleMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > VectorSearchCache.this.maxEntries;
+            }
+        };
+        this.hits = Counter.builder("kb.vectorstore.cache").description("向量检索结果缓存的命中次数")
+                .tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("kb.vectorstore.cache").description("向量检索结果缓存的未命中次数")
+                .tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * 查找缓存；未命中时在检索完成后调用 {@link Lookup#store}
+     *
+     * @param category        检索限定的分类，为 null 时检索涉及全部分类
+     * @param readFromPrimary 本次检索走主库，结果不受只读库延迟影响
+     */
+    public Lookup lookup(float[] embedding, SearchRequest request, SearchPrecision precision,
+                         @Nullable String partitionScope, @Nullable String category, boolean readFromPrimary) {
+        Key key = new Key(quantize(embedding), request.getTopK(), request.getSimilarityThreshold(),
+                Objects.toString(request.getFilterExpression(), ""), precision, partitionScope);
+        long epoch = epoch(category);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.epoch() == epoch(entry.category())) {
+            hits.increment();
+            return new Lookup(key, category, epoch, false, entry.documents());
+        }
+        misses.increment();
+        boolean settled = readFromPrimary || System.currentTimeMillis() - bumpedAt(category) >= settleMs;
+        return new Lookup(key, category, epoch, settled, null);
+    }
+
+    /**
+     * 分类的内容有变化，在事务内调用时等事务提交后再失效
+     *
+     * @param category 为 null 时只使不限分类的检索失效
+     */
+    public void invalidate(@Nullable String category) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(category);
+                }
+            });
+        } else {
+            bump(category);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 过滤表达式中顶层（或 AND 连接的）category == 'x' 条件的取值，没有时为 null
+     */
+    @Nullable
+    public static String categoryOf(@Nullable Filter.Expression expression) {
+        if (expression == null) {
+            return null;
+        }
+        if (expression.type() == Filter.ExpressionType.EQ && expression.left() instanceof Filter.Key key
+                && CATEGORY_FIELD.equals(key.key().replace("\"", "").replace("'", ""))
+                && expression.right() instanceof Filter.Value value && value.value() != null) {
+            return value.value().toString();
+        }
+        if (expression.type() == Filter.ExpressionType.AND) {
+            String left = expression.left() instanceof Filter.Expression e ? categoryOf(e) : null;
+            return left != null ? left : expression.right() instanceof Filter.Expression e ? categoryOf(e) : null;
+        }
+        return null;
+    }
+
+    private void bump(@Nullable String category) {
+        long epoch = sequence.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (category != null) {
+            categoryEpochs.put(category, epoch);
+            categoryBumpedAt.put(category, now);
+        }
+        bumpedAt = now;
+    }
+
+    private long epoch(@Nullable String category) {
+        return category != null ? categoryEpochs.getOrDefault(category, 0L) : sequence.get();
+    }
+
+    private long bumpedAt(@Nullable String category) {
+        return category != null ? categoryBumpedAt.getOrDefault(category, 0L) : bumpedAt;
+    }
+
+    private static short[] quantize(float[] embedding) {
+        short[] quantized = new short[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            quantized[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE,
+                    Math.round(embedding[i] * KEY_RESOLUTION)));
+        }
+        return quantized;
+    }
+
+    /**
+     * 一次检索的缓存查找结果，版本号取自查找时，检索期间有入库时写入的结果随即失效
+     */
+    public final class Lookup {
+
+        private final Key key;
+        private final String category;
+        private final long epoch;
+        private final boolean cacheable;
+        private final List<Document> documents;
+
+        private Lookup(Key key, String category, long epoch, boolean cacheable, List<Document> documents) {
+            this.key = key;
+            this.category = category;
+            this.epoch = epoch;
+            this.cacheable = cacheable;
+            this.documents = documents;
+        }
+
+        /**
+         * 命中时的检索结果，未命中时为 null
+         */
+        @Nullable
+        public List<Document> documents() {
+            return documents;
+        }
+
+        public void store(List<Document> result) {
+            if (!cacheable) {
+                return;
+            }
+            synchronized (entries) {
+                entries.put(key, new Entry(category, epoch, List.copyOf(result)));
+            }
+        }
+    }
+
+    private record Entry(String category, long epoch, List<Document> documents) {
+    }
+
+    private static final class Key {
+
+        private final short[] embedding;
+        private final int topK;
+        private final double threshold;
+        private final String filter;
+        private final SearchPrecision precision;
+        private final String partitionScope;
+        private final int hash;
+
+        Key(short[] embedding, int topK, double threshold, String filter, SearchPrecision precision,
+            String partitionScope) {
+            this.embedding = embedding;
+            this.topK = topK;
+            this.threshold = threshold;
+            this.filter = filter;
+            this.precision = precision;
+            this.partitionScope = partitionScope;
+            this.hash = Objects.hash(Arrays.hashCode(embedding), topK, threshold, filter, precision, partitionScope);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && hash == other.hash && topK == other.topK
+                    && threshold == other.threshold && precision == other.precision
+                    && filter.equals(other.filter) && Objects.equals(partitionScope, other.partitionScope)
+                    && Arrays.equals(embedding, other.embedding);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
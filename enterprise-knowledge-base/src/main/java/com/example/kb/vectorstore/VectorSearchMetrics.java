@@ -0,0 +1,115 @@
+package com.example.kb.vectorstore;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 按精度档位记录向量检索的耗时与抽样召回率
+ * <p>
+ * 耗时记录在 {@code kb.vectorstore.search}，召回率记录在 {@code kb.vectorstore.recall}（tag: precision、quantization）。
+ * 召回率由抽样的精确检索（全表扫描）作为基准，在单个后台线程中执行，队列满时直接丢弃样本，不影响在线查询。
+ * 各档位召回率的指数移动平均低于目标值时告警一次，恢复后再次低于时重新告警。
+ */
+public class VectorSearchMetrics implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorSearchMetrics.class);
+    private static final double SMOOTHING = 0.1;
+
+    private final double sampleRate;
+    private final double target;
+    private final Timer[] latency = new Timer[SearchPrecision.values().length];
+    private final DistributionSummary[] recall = new DistributionSummary[SearchPrecision.values().length];
+    private final double[] average = new double[SearchPrecision.values().length];
+    private final boolean[] belowTarget = new boolean[SearchPrecision.values().length];
+    private final ThreadPoolExecutor executor;
+
+    public VectorSearchMetrics(MeterRegistry meterRegistry, VectorQuantization quantization, double sampleRate,
+                               double target) {
+        this.sampleRate = sampleRate;
+        this.target = target;
+        for (SearchPrecision precision : SearchPrecision.values()) {
+            latency[precision.ordinal()] = Timer.builder("kb.vectorstore.search")
+                    .description("向量检索的数据库耗时（不含问题向量化）")
+                    .tag("precision", precision.tagValue())
+                    .tag("quantization", quantization.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            recall[precision.ordinal()] = DistributionSummary.builder("kb.vectorstore.recall")
+                    .description("向量检索相对精确检索的召回率（抽样）")
+                    .tag("precision", precision.tagValue())
+                    .tag("quantization", quantization.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        Arrays.fill(average, 1.0);
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kb-recall-monitor");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public void recordLatency(SearchPrecision precision, long nanos) {
+        latency[precision.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 按抽样率决定是否在后台执行精确检索并比较
+     *
+     * @param returned 检索返回的文档 id
+     * @param exact    执行精确检索，返回同样 topK 与阈值下的文档 id
+     */
+    public void maybeSample(SearchPrecision precision, List<String> returned, Supplier<List<String>> exact) {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                record(precision, returned, exact.get());
+            } catch (Exception e) {
+                logger.debug("召回率抽样失败", e);
+            }
+        });
+    }
+
+    private void record(SearchPrecision precision, List<String> returned, List<String> expected) {
+        if (expected.isEmpty()) {
+            return;
+        }
+        Set<String> expectedIds = new HashSet<>(expected);
+        long hits = returned.stream().filter(expectedIds::contains).count();
+        double value = (double) hits / expected.size();
+        int i = precision.ordinal();
+        recall[i].record(value);
+
+        synchronized (this) {
+            average[i] = average[i] * (1 - SMOOTHING) + value * SMOOTHING;
+            if (average[i] < target && !belowTarget[i]) {
+                belowTarget[i] = true;
+                logger.warn("{} 档位的向量检索召回率 {} 低于目标 {}，可调大 ef-search 或 quantization.oversample",
+                        precision.tagValue(), String.format("%.3f", average[i]), target);
+            } else if (average[i] >= target && belowTarget[i]) {
+                belowTarget[i] = false;
+                logger.info("{} 档位的向量检索召回率恢复到 {}", precision.tagValue(), String.format("%.3f", average[i]));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.kb.advisor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SecurityAdvisor 测试：提示词脱敏，以及多个候选回答的流式输出各自独立脱敏
+ */
+class SecurityAdvisorTests {
+
+    private final SecurityAdvisor advisor = new SecurityAdvisor();
+
+    @Test
+    void redactsPromptAndEachGenerationOfStream() {
+        AtomicReference<ChatClientRequest> sent = new AtomicReference<>();
+        // 两个候选回答交错到达，敏感信息都跨越分片边界
+        StreamAdvisorChain chain = chain(sent, Flux.just(
+                response("联系 zhang@exa", "卡号 4111 1111 "),
+                response("mple.com 即可", "1111 1111 已冻结"),
+                response("。", "")));
+        ChatClientRequest request = ChatClientRequest.builder()
+                .prompt(new Prompt(new UserMessage("我的社保号是 123-45-6789")))
+                .context(Map.of())
+                .build();
+
+        List<StringBuilder> answers = List.of(new StringBuilder(), new StringBuilder());
+        for (ChatClientResponse response : advisor.adviseStream(request, chain).collectList().block()) {
+            List<Generation> results = response.chatResponse().getResults();
+            for (int i = 0; i < results.size(); i++) {
+                answers.get(i).append(results.get(i).getOutput().getText());
+            }
+        }
+
+        assertThat(sent.get().prompt().getUserMessage().getText()).isEqualTo("我的社保号是 [REDACTED_SSN]");
+        assertThat(answers.get(0).toString()).isEqualTo("联系 [REDACTED_EMAIL] 即可。");
+        assertThat(answers.get(1).toString()).isEqualTo("卡号 [REDACTED_CREDIT_CARD] 已冻结");
+    }
+
+    private static ChatClientResponse response(String... texts) {
+        List<Generation> generations = new ArrayList<>();
+        for (String text : texts) {
+            generations.add(new Generation(new AssistantMessage(text)));
+        }
+        return ChatClientResponse.builder().chatResponse(new ChatResponse(generations)).context(Map.of()).build();
+    }
+
+    private static StreamAdvisorChain chain(AtomicReference<ChatClientRequest> sent, Flux<ChatClientResponse> responses) {
+        return new StreamAdvisorChain() {
+            @Override
+            public Flux<ChatClientResponse> nextStream(ChatClientRequest request) {
+                sent.set(request);
+                return responses;
+            }
+
+            @Override
+            public List<StreamAdvisor> getStreamAdvisors() {
+                return List.of();
+            }
+        };
+    }
+}
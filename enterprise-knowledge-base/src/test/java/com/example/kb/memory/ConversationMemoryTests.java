@@ -0,0 +1,93 @@
+package com.example.kb.memory;
+
+import com.example.kb.config.KnowledgeBaseProperties;
+import com.example.kb.model.ConversationMessageEntity;
+import com.example.kb.repository.ConversationMessageRepository;
+import com.example.kb.repository.ConversationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ConversationMemory 测试：保存前脱敏，窗口与数据库中的消息保持一致
+ */
+class ConversationMemoryTests {
+
+    private final List<ConversationMessageEntity> rows = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private ConversationMemory memory;
+
+    @BeforeEach
+    void setUp() {
+        ConversationRepository conversationRepository = mock(ConversationRepository.class);
+        when(conversationRepository.findById(anyString())).thenReturn(Optional.empty());
+        // 用内存中的列表模拟消息表：saveAll 分配自增 ID，按会话查询返回已保存的行
+        ConversationMessageRepository messageRepository = mock(ConversationMessageRepository.class);
+        when(messageRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ConversationMessageEntity> entities = invocation.getArgument(0);
+            for (ConversationMessageEntity entity : entities) {
+                entity.setId(ids.incrementAndGet());
+                rows.add(entity);
+            }
+            return entities;
+        });
+        when(messageRepository.findByConversationIdOrderByIdAsc(anyString())).thenAnswer(invocation ->
+                rows.stream().filter(row -> row.getConversationId().equals(invocation.getArgument(0))).toList());
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(null);
+
+        KnowledgeBaseProperties properties = new KnowledgeBaseProperties();
+        properties.getConversationMemory().setMaxConversations(1);
+        memory = new ConversationMemory(conversationRepository, messageRepository, mock(ChatModel.class),
+                transactionManager, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        memory.destroy();
+    }
+
+    @Test
+    void redactsBeforeSaving() {
+        memory.add("a", List.of(new UserMessage("我的邮箱是 zhang.san@example.com"),
+                new AssistantMessage("已记录社保号 123-45-6789")));
+
+        assertThat(rows).extracting(ConversationMessageEntity::getContent)
+                .containsExactly("我的邮箱是 [REDACTED_EMAIL]", "已记录社保号 [REDACTED_SSN]");
+    }
+
+    @Test
+    void addAfterEvictionDoesNotDuplicate() {
+        memory.add("a", List.of(new UserMessage("问题一"), new AssistantMessage("回答一")));
+        // 最多缓存一个会话，读取 b 会淘汰 a 的窗口
+        memory.get("b");
+        memory.add("a", List.of(new UserMessage("问题二"), new AssistantMessage("回答二")));
+
+        assertThat(memory.get("a")).extracting(Message::getText)
+                .containsExactly("问题一", "回答一", "问题二", "回答二");
+    }
+
+    @Test
+    void firstAddForUncachedConversationDoesNotDuplicate() {
+        memory.add("a", List.of(new UserMessage("我的邮箱是 zhang.san@example.com")));
+
+        assertThat(memory.get("a")).extracting(Message::getText).containsExactly("我的邮箱是 [REDACTED_EMAIL]");
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.kb.observation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 超出用户上限后用量计入 user=other，不丢失
+ */
+class UsageUserTagFilterTests {
+
+    @Test
+    void mapsUsersPastTheLimitToOther() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new UsageUserTagFilter(2));
+
+        for (String user : new String[]{"alice", "bob", "carol", "dave", "alice"}) {
+            Counter.builder("kb.usage.queries").tag("user", user).tag("category", "none")
+                    .register(registry).increment();
+        }
+        Counter.builder("kb.rag.other").tag("user", "erin").register(registry).increment();
+
+        assertThat(registry.get("kb.usage.queries").tag("user", "alice").counter().count()).isEqualTo(2);
+        assertThat(registry.get("kb.usage.queries").tag("user", "bob").counter().count()).isEqualTo(1);
+        assertThat(registry.get("kb.usage.queries").tag("user", UsageUserTagFilter.OTHER).counter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("kb.usage.queries").counters()).hasSize(3);
+        assertThat(registry.get("kb.rag.other").tag("user", "erin").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.kb.resilience;
+
+import com.example.kb.config.KnowledgeBaseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AdaptiveConcurrencyLimiter 测试：对数正态分布的正常延迟波动不应使限制收缩，持续的延迟上升或上游 429 应使限制回退
+ */
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final long MEDIAN_NANOS = 20_000_000;
+
+    private final Random random = new Random(3);
+    private final KnowledgeBaseProperties.ConcurrencyLimit config = new KnowledgeBaseProperties.ConcurrencyLimit();
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AdaptiveConcurrencyLimiter("chat", config, new SimpleMeterRegistry());
+        // 占用一部分许可，使限制满足增长条件
+        for (int i = 0; i < 8; i++) {
+            limiter.acquire();
+        }
+    }
+
+    @Test
+    void normalLatencyVarianceDoesNotCollapseLimit() {
+        for (int i = 0; i < 5000; i++) {
+            limiter.onSuccess(lognormal(1.0));
+        }
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(config.getInitialLimit());
+    }
+
+    @Test
+    void sustainedLatencyIncreaseBacksOff() {
+        for (int i = 0; i < 2000; i++) {
+            limiter.onSuccess(lognormal(1.0));
+        }
+        double before = limiter.getLimit();
+        for (int i = 0; i < 200; i++) {
+            limiter.onSuccess(lognormal(4.0));
+        }
+        assertThat(limiter.getLimit()).isLessThan(before * config.getBackoffRatio());
+    }
+
+    @Test
+    void samplesAreNormalizedByUnits() {
+        // 输出越长耗时越长，按 token 数归一化后每个样本相同，不应被当作拥塞
+        for (int i = 0; i < 2000; i++) {
+            long tokens = 1 + random.nextInt(2000);
+            limiter.onSuccess(MEDIAN_NANOS * tokens, tokens);
+        }
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(config.getInitialLimit());
+    }
+
+    @Test
+    void detectsThrottlingByHttpStatus() {
+        assertThat(AdaptiveConcurrencyLimiter.isThrottled(
+                HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null)))
+                .isTrue();
+        assertThat(AdaptiveConcurrencyLimiter.isThrottled(new RuntimeException(WebClientResponseException.create(
+                429, "Too Many Requests", null, null, null)))).isTrue();
+        assertThat(AdaptiveConcurrencyLimiter.isThrottled(
+                new NonTransientAiException("429 - {\"error\":\"rate_limit_exceeded\"}"))).isTrue();
+
+        assertThat(AdaptiveConcurrencyLimiter.isThrottled(
+                new NonTransientAiException("400 - {\"error\":\"max 429 tokens\"}"))).isFalse();
+        assertThat(AdaptiveConcurrencyLimiter.isThrottled(new IllegalStateException("429 Too Many Requests")))
+                .isFalse();
+    }
+
+    @Test
+    void throttlingBacksOffToMinimum() {
+        for (int i = 0; i < 1000; i++) {
+            limiter.onFailure(new NonTransientAiException("429 - rate limited"));
+        }
+        assertThat(limiter.getLimit()).isEqualTo(config.getMinLimit());
+    }
+
+    /**
+     * p99 约为中位数 3 倍的对数正态延迟，与模拟模型的默认分布相近
+     */
+    private long lognormal(double scale) {
+        return Math.max(1, (long) (MEDIAN_NANOS * scale * Math.exp(random.nextGaussian() * 0.47)));
+    }
+}
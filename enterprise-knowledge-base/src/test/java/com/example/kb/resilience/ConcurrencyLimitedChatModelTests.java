@@ -0,0 +1,110 @@
+package com.example.kb.resilience;
+
+import com.example.kb.config.KnowledgeBaseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ConcurrencyLimitedChatModel 测试：流式调用在完成、出错和取消时都归还许可
+ */
+class ConcurrencyLimitedChatModelTests {
+
+    private final ChatModel delegate = mock(ChatModel.class);
+    private final CountDownLatch acquired = new CountDownLatch(1);
+    private AdaptiveConcurrencyLimiter limiter;
+    private ConcurrencyLimitedChatModel model;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AdaptiveConcurrencyLimiter("chat", new KnowledgeBaseProperties.ConcurrencyLimit(),
+                new SimpleMeterRegistry()) {
+            @Override
+            public void acquire() {
+                super.acquire();
+                acquired.countDown();
+                // 模拟许可已获取、尚未交给下游的窗口，期间到达的取消不能让许可泄漏
+                sleepUninterruptibly(200);
+            }
+        };
+        model = new ConcurrencyLimitedChatModel(delegate, limiter);
+    }
+
+    @Test
+    void releasesOnCompleteAndError() {
+        ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("答"))));
+        when(delegate.stream(any(Prompt.class))).thenReturn(Flux.just(response, response));
+        assertThat(model.stream(new Prompt("问")).collectList().block()).hasSize(2);
+        assertThat(limiter.getInFlight()).isZero();
+
+        when(delegate.stream(any(Prompt.class))).thenReturn(Flux.error(new IllegalStateException("上游错误")));
+        assertThatThrownBy(() -> model.stream(new Prompt("问")).blockLast()).isInstanceOf(IllegalStateException.class);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void releasesWhenCancelledMidStream() throws InterruptedException {
+        CountDownLatch subscribed = new CountDownLatch(1);
+        when(delegate.stream(any(Prompt.class)))
+                .thenReturn(Flux.<ChatResponse>never().doOnSubscribe(s -> subscribed.countDown()));
+        Disposable subscription = model.stream(new Prompt("问")).subscribe();
+        assertThat(subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.getInFlight()).isOne();
+
+        subscription.dispose();
+
+        awaitInFlight(0);
+    }
+
+    @Test
+    void releasesWhenCancelledRightAfterAcquire() throws InterruptedException {
+        when(delegate.stream(any(Prompt.class))).thenReturn(Flux.never());
+        Disposable subscription = model.stream(new Prompt("问")).subscribe();
+        assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+
+        subscription.dispose();
+
+        awaitInFlight(0);
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (limiter.getInFlight() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(limiter.getInFlight()).isEqualTo(expected);
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        boolean interrupted = false;
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
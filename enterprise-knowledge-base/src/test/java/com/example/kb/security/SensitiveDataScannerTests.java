@@ -0,0 +1,39 @@
+package com.example.kb.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SensitiveDataScanner 测试：各类敏感信息的识别与替换
+ */
+class SensitiveDataScannerTests {
+
+    private final SensitiveDataScanner scanner = new SensitiveDataScanner();
+
+    @Test
+    void redactsEveryType() {
+        String text = "卡号 4111 1111-1111 1111，社保号 123-45-6789，邮箱 zhang.san+kb@example.com 。";
+
+        assertThat(scanner.redact(text)).isEqualTo(
+                "卡号 [REDACTED_CREDIT_CARD]，社保号 [REDACTED_SSN]，邮箱 [REDACTED_EMAIL] 。");
+        assertThat(scanner.containsSensitiveInfo(text)).isTrue();
+    }
+
+    @Test
+    void returnsSameInstanceWithoutMatches() {
+        String text = "员工手册第 3 章：年假 15 天，编号 2024-01。";
+
+        assertThat(scanner.redact(text)).isSameAs(text);
+        assertThat(scanner.containsSensitiveInfo(text)).isFalse();
+        assertThat(scanner.redact(null)).isNull();
+        assertThat(scanner.redact("")).isEmpty();
+    }
+
+    @Test
+    void doesNotMatchInsideLongerNumbers() {
+        // 缺少单词边界的长数字不是卡号或社保号
+        assertThat(scanner.containsSensitiveInfo("订单号 41111111111111112222")).isFalse();
+        assertThat(scanner.containsSensitiveInfo("版本 9123-45-67890")).isFalse();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.kb.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * StreamingRedactor 测试：以整段文本一次脱敏的结果为基准，检查任意切分方式下的增量输出
+ */
+class StreamingRedactorTests {
+
+    private static final String TEXT = "请联系 li.si@corp.example.com 或拨打客服。卡号 4111 1111 1111 1111 已冻结，"
+            + "社保号 123-45-6789 仅用于核验。普通编号 2024 和 abc 不受影响。结尾邮箱 ops@example.org";
+
+    private final SensitiveDataScanner scanner = new SensitiveDataScanner();
+
+    @Test
+    void matchesSplitAtEveryBoundary() {
+        String expected = scanner.redact(TEXT);
+        for (int split = 0; split <= TEXT.length(); split++) {
+            assertThat(stream(List.of(TEXT.substring(0, split), TEXT.substring(split))))
+                    .as("split at %d", split)
+                    .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void matchesAcrossManySmallChunks() {
+        String expected = scanner.redact(TEXT);
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            List<String> chunks = new ArrayList<>();
+            int position = 0;
+            while (position < TEXT.length()) {
+                int end = Math.min(TEXT.length(), position + 1 + random.nextInt(4));
+                chunks.add(TEXT.substring(position, end));
+                position = end;
+            }
+            assertThat(stream(chunks)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void neverEmitsPartOfSensitiveValue() {
+        StreamingRedactor redactor = scanner.streamingRedactor();
+        StringBuilder emitted = new StringBuilder();
+        for (String chunk : List.of("卡号 4111 ", "1111 ", "1111 ", "1111", "。")) {
+            emitted.append(redactor.next(chunk));
+            assertThat(emitted.toString()).doesNotContain("4111");
+        }
+        assertThat(emitted.append(redactor.flush()).toString()).isEqualTo("卡号 [REDACTED_CREDIT_CARD]。");
+    }
+
+    @Test
+    void flushRedactsPendingTail() {
+        StreamingRedactor redactor = scanner.streamingRedactor();
+
+        assertThat(redactor.next("发送到 admin@exam")).isEqualTo("发送到 ");
+        assertThat(redactor.next("ple.com")).isEmpty();
+        assertThat(redactor.flush()).isEqualTo("[REDACTED_EMAIL]");
+        assertThat(redactor.flush()).isEmpty();
+    }
+
+    @Test
+    void holdbackBoundsPendingText() {
+        StreamingRedactor redactor = new StreamingRedactor(scanner, 16);
+        String run = "a".repeat(100);
+
+        // 超过暂存上限的连续片段被输出，暂存区只保留最后 holdback 个字符
+        assertThat(redactor.next(run)).hasSize(100 - 16);
+        assertThat(redactor.flush()).hasSize(16);
+    }
+
+    private String stream(List<String> chunks) {
+        StreamingRedactor redactor = scanner.streamingRedactor();
+        StringBuilder out = new StringBuilder();
+        for (String chunk : chunks) {
+            out.append(redactor.next(chunk));
+        }
+        return out.append(redactor.flush()).toString();
+    }
+}
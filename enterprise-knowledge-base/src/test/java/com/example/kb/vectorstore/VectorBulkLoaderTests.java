@@ -0,0 +1,21 @@
+package com.example.kb.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * VectorBulkLoader 测试：由 pg_indexes 的索引定义得到可重复执行的重建语句
+ */
+class VectorBulkLoaderTests {
+
+    @Test
+    void rebuildStatementIsIdempotentAndCoversPartitions() {
+        assertThat(VectorBulkLoader.rebuildStatement("CREATE INDEX kb_vectors_embedding_idx ON ONLY public.kb_vectors "
+                + "USING hnsw (embedding vector_cosine_ops)"))
+                .isEqualTo("CREATE INDEX IF NOT EXISTS kb_vectors_embedding_idx ON public.kb_vectors "
+                        + "USING hnsw (embedding vector_cosine_ops)");
+        assertThat(VectorBulkLoader.rebuildStatement("CREATE UNIQUE INDEX u ON public.t USING hnsw (e)"))
+                .isEqualTo("CREATE UNIQUE INDEX IF NOT EXISTS u ON public.t USING hnsw (e)");
+    }
+}
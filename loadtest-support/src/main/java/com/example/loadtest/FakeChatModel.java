@@ -0,0 +1,112 @@
+package com.example.loadtest;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压测用的 ChatModel：不访问网络，按配置的首 token 延迟分布和 token 速率返回固定内容的回答
+ * <p>
+ * 同步调用的耗时为首 token 延迟加上全部 token 的生成时间；流式调用按 token 速率逐个推送。
+ * 响应中的模型名取请求选项中的模型，降级模型和按模型计费等逻辑都能按真实路径工作。
+ */
+public class FakeChatModel implements ChatModel {
+
+    private static final String[] ANSWER_TOKENS = {
+            "根据", "参考资料", "，", "该", "问题", "的", "处理", "步骤", "如下", "：",
+            "首先", "检查", "监控", "指标", "，", "然后", "确认", "最近", "变更", "。"
+    };
+
+    private final String model;
+    private final LatencyDistribution firstTokenLatency;
+    private final double tokensPerSecond;
+    private final int answerTokens;
+    private final double failureRate;
+
+    public FakeChatModel(String model, LatencyDistribution firstTokenLatency, double tokensPerSecond,
+                         int answerTokens, double failureRate) {
+        this.model = model;
+        this.firstTokenLatency = firstTokenLatency;
+        this.tokensPerSecond = tokensPerSecond;
+        this.answerTokens = answerTokens;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        maybeFail();
+        LatencyDistribution.sleep(firstTokenLatency.sampleMillis() + generationMillis(answerTokens));
+        StringBuilder answer = new StringBuilder();
+        for (int i = 0; i < answerTokens; i++) {
+            answer.append(ANSWER_TOKENS[i % ANSWER_TOKENS.length]);
+        }
+        return response(answer.toString(), modelOf(prompt), promptTokens(prompt), answerTokens, true);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            maybeFail();
+            String responseModel = modelOf(prompt);
+            int promptTokens = promptTokens(prompt);
+            long interval = Math.max(1, generationMillis(1));
+            return Flux.range(0, answerTokens)
+                    .delayElements(Duration.ofMillis(interval))
+                    .delaySubscription(Duration.ofMillis(firstTokenLatency.sampleMillis()))
+                    .map(i -> response(ANSWER_TOKENS[i % ANSWER_TOKENS.length], responseModel, promptTokens,
+                            i + 1, i == answerTokens - 1));
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return OpenAiChatOptions.builder().model(model).build();
+    }
+
+    private ChatResponse response(String text, String responseModel, int promptTokens, int completionTokens,
+                                  boolean last) {
+        ChatGenerationMetadata generationMetadata = last
+                ? ChatGenerationMetadata.builder().finishReason("STOP").build()
+                : ChatGenerationMetadata.NULL;
+        ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder().model(responseModel);
+        if (last) {
+            metadata.usage(new DefaultUsage(promptTokens, completionTokens));
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text), generationMetadata)),
+                metadata.build());
+    }
+
+    private String modelOf(Prompt prompt) {
+        ChatOptions options = prompt.getOptions();
+        return options != null && options.getModel() != null ? options.getModel() : model;
+    }
+
+    private static int promptTokens(Prompt prompt) {
+        // 中英混排文本粗略按每 2 个字符 1 个 token 估算
+        return Math.max(1, prompt.getContents().length() / 2);
+    }
+
+    private long generationMillis(int tokens) {
+        return tokensPerSecond > 0 ? Math.round(tokens * 1000 / tokensPerSecond) : 0;
+    }
+
+    private void maybeFail() {
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE, "模拟的模型服务故障");
+        }
+    }
+}
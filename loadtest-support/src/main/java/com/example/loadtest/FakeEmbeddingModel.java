@@ -0,0 +1,75 @@
+package com.example.loadtest;
+
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压测用的 EmbeddingModel：不访问网络，每次请求按配置的延迟分布休眠一次
+ * <p>
+ * 向量由字符二元组的特征哈希生成并归一化，相同文本得到相同向量，字面相近的文本余弦相似度也较高，
+ * 检索结果因此是确定且有意义的。
+ */
+public class FakeEmbeddingModel implements EmbeddingModel {
+
+    private static final String MODEL = "fake-embedding";
+
+    private final int dimensions;
+    private final LatencyDistribution latency;
+
+    public FakeEmbeddingModel(int dimensions, LatencyDistribution latency) {
+        this.dimensions = dimensions;
+        this.latency = latency;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        LatencyDistribution.sleep(latency.sampleMillis());
+        List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+        int tokens = 0;
+        for (String text : request.getInstructions()) {
+            embeddings.add(new Embedding(vector(text), embeddings.size()));
+            tokens += text.length() / 2;
+        }
+        return new EmbeddingResponse(embeddings, new EmbeddingResponseMetadata(MODEL, new DefaultUsage(tokens, 0)));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private float[] vector(String text) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i + 1 < text.length(); i++) {
+            int hash = text.charAt(i) * 31 + text.charAt(i + 1);
+            hash ^= hash >>> 16;
+            vector[Math.floorMod(hash * 0x9E3779B9, dimensions)] += 1;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+        } else {
+            vector[0] = 1;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 由中位数和 p99 确定的对数正态延迟分布，用来模拟远程模型调用的长尾延迟
+ */
+public final class LatencyDistribution {
+
+    private static final double Z_99 = 2.3263;
+
+    private final long medianMs;
+    private final double mu;
+    private final double sigma;
+
+    public LatencyDistribution(long medianMs, long p99Ms) {
+        this.medianMs = medianMs;
+        this.mu = Math.log(Math.max(medianMs, 1));
+        this.sigma = medianMs > 0 && p99Ms > medianMs ? Math.log((double) p99Ms / medianMs) / Z_99 : 0;
+    }
+
+    public long sampleMillis() {
+        if (medianMs <= 0) {
+            return 0;
+        }
+        return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("模拟延迟被中断", e);
+        }
+    }
+}
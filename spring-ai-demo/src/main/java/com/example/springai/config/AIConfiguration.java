@@ -1,14 +1,37 @@
 package com.example.springai.config;
 
+import com.example.springai.datasource.ReplicaLagGuard;
+import com.example.springai.vectorstore.HnswVectorStore;
+import com.example.springai.vectorstore.PgVectorDump;
+import com.example.springai.vectorstore.PrecomputedEmbeddingModel;
+import com.example.springai.vectorstore.ShortlistPgVectorStore;
+import com.example.springai.vectorstore.ShortlistSchema;
+import com.example.springai.vectorstore.TunedPgVectorStore;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.embedding.BatchingStrategy;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
 
 /**
  * Spring AI 配置类
@@ -16,8 +39,13 @@ import org.springframework.jdbc.core.JdbcTemplate;
  * 配置 ChatClient 和 VectorStore
  */
 @Configuration
+@EnableConfigurationProperties({EmbeddedVectorStoreProperties.class, ShortlistProperties.class,
+        VectorSearchProperties.class, BulkIngestProperties.class, SummaryProperties.class,
+        ChatStreamProperties.class, VectorStatsProperties.class})
 public class AIConfiguration {
 
+    private static final Logger logger = LoggerFactory.getLogger(AIConfiguration.class);
+
     /**
      * 配置 ChatClient
      */
@@ -31,30 +59,108 @@ public class AIConfiguration {
     /**
      * 配置 PgVectorStore (生产环境)
      * <p>
-     * 如果不使用自动配置，可以手动配置 VectorStore
+     * 维度与表名取自 PGVECTOR_* 环境变量；启用 pgvector-shortlist 后索引只建在短向量列上，完整向量用于重排序。
+     * 向量存储的 EmbeddingModel 包装为 PrecomputedEmbeddingModel，批量检索时复用预先算好的问题向量；
+     * 写入时按 bulk-ingest.embedding-batch-tokens 合并向量化请求；检索和写入的耗时记录在 db.vector.client.operation
      */
     @Bean
-    @Profile("!test")
-    public VectorStore vectorStore(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel) {
-        return PgVectorStore.builder(jdbcTemplate, embeddingModel)
-                .dimensions(1536)  // OpenAI embedding dimensions
+    @Profile("!test & !loadtest & !embedded")
+    public VectorStore vectorStore(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel,
+                                   ShortlistProperties shortlist, VectorSearchProperties search,
+                                   BulkIngestProperties bulk, PlatformTransactionManager transactionManager,
+                                   ObjectProvider<ReplicaLagGuard> replicaLagGuard,
+                                   ObjectProvider<ObservationRegistry> observationRegistry,
+                                   @Value("${spring.ai.vectorstore.pgvector.initialize-schema:true}") boolean initializeSchema,
+                                   @Value("${spring.ai.vectorstore.pgvector.dimensions:1536}") int dimensions,
+                                   @Value("${spring.ai.vectorstore.pgvector.schema-name:public}") String schemaName,
+                                   @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}") String tableName) {
+        PgVectorStore.PgVectorStoreBuilder builder = PgVectorStore.builder(jdbcTemplate,
+                        new PrecomputedEmbeddingModel(embeddingModel))
+                .dimensions(dimensions)  // OpenAI embedding dimensions
                 .distanceType(PgVectorStore.PgDistanceType.COSINE_DISTANCE)
-                .indexType(PgVectorStore.PgIndexType.HNSW)
-                .initializeSchema(true)
-                .schemaName("public")
-                .vectorTableName("vector_store")
+                .indexType(shortlist.isEnabled() ? PgVectorStore.PgIndexType.NONE : PgVectorStore.PgIndexType.HNSW)
+                .initializeSchema(initializeSchema)
+                .schemaName(schemaName)
+                .vectorTableName(tableName)
                 .maxDocumentBatchSize(10000)
-                .build();
+                .batchingStrategy(batchingStrategy(bulk))
+                .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ReplicaLagGuard guard = replicaLagGuard.getIfAvailable();
+        if (!shortlist.isEnabled()) {
+            return new TunedPgVectorStore(builder, jdbcTemplate, transactionTemplate, search.getEfSearch(), guard);
+        }
+        return new ShortlistPgVectorStore(builder, jdbcTemplate, transactionTemplate, search.getEfSearch(),
+                schemaName, tableName, initializeSchema, shortlist.getDimensions(), shortlist.getRerankFactor(), guard);
+    }
+
+    /**
+     * 向量表的导出与导入；开启 spring.ai.vectorstore.pgvector.initialize-schema 时，
+     * 启动时为向量表补齐增量导出用的 updated_at 列、索引和触发器（已存在的不再变更）
+     */
+    @Bean
+    @Profile("!test & !loadtest & !embedded")
+    @DependsOn("vectorStore")
+    public PgVectorDump pgVectorDump(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                     ObjectProvider<ReplicaLagGuard> replicaLagGuard,
+                                     @Value("${spring.ai.vectorstore.pgvector.initialize-schema:true}") boolean initializeSchema,
+                                     @Value("${spring.ai.vectorstore.pgvector.schema-name:public}") String schemaName,
+                                     @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}") String tableName) {
+        PgVectorDump dump = new PgVectorDump(jdbcTemplate, new TransactionTemplate(transactionManager), schemaName,
+                tableName, replicaLagGuard.getIfAvailable());
+        if (initializeSchema) {
+            dump.createUpdatedAtColumn();
+        }
+        return dump;
+    }
+
+    /**
+     * 回填存量数据的短向量并在线建索引，只截取已有的完整向量，不调用向量化接口
+     */
+    @Bean
+    @Profile("!test & !loadtest & !embedded")
+    @ConditionalOnProperty(name = "pgvector-shortlist.backfill", havingValue = "true")
+    public ApplicationRunner shortlistBackfill(JdbcTemplate jdbcTemplate, ShortlistProperties shortlist,
+                                               @Value("${spring.ai.vectorstore.pgvector.schema-name:public}") String schemaName,
+                                               @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}") String tableName) {
+        return args -> {
+            ShortlistSchema schema = new ShortlistSchema(jdbcTemplate, schemaName, tableName, shortlist.getDimensions());
+            schema.createColumnAndTrigger();
+            long rows = schema.backfill(shortlist.getBackfillBatchSize());
+            schema.createIndex(PgVectorStore.PgDistanceType.COSINE_DISTANCE, true);
+            logger.info("短向量回填完成: {} 行，索引 {}_embedding_short_idx 已就绪", rows, tableName);
+        };
     }
 
     /**
-     * 配置 SimpleVectorStore (测试环境)
+     * 配置进程内 HNSW 向量存储 (测试、压测与边缘部署)
      * <p>
-     * 使用内存向量存储，避免数据库依赖
+     * 向量存放在堆外内存，无需 PostgreSQL
      */
     @Bean
-    @Profile("test")
-    public VectorStore testVectorStore(EmbeddingModel embeddingModel) {
-        return SimpleVectorStore.builder(embeddingModel).build();
+    @Profile({"test", "loadtest", "embedded"})
+    public VectorStore embeddedVectorStore(EmbeddingModel embeddingModel, EmbeddedVectorStoreProperties properties,
+                                           VectorSearchProperties search, BulkIngestProperties bulk,
+                                           ObjectProvider<ObservationRegistry> observationRegistry) {
+        return HnswVectorStore.builder(new PrecomputedEmbeddingModel(embeddingModel))
+                .batchingStrategy(batchingStrategy(bulk))
+                .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+                .m(properties.getM())
+                .efConstruction(properties.getEfConstruction())
+                .efSearch(properties.getEfSearch())
+                .efSearchPresets(search.getEfSearch())
+                .storageDirectory(StringUtils.hasText(properties.getStorageDirectory())
+                        ? Path.of(properties.getStorageDirectory()) : null)
+                .snapshotFile(StringUtils.hasText(properties.getSnapshotFile())
+                        ? Path.of(properties.getSnapshotFile()) : null)
+                .snapshotIntervalMs(properties.getSnapshotIntervalMs())
+                .build();
+    }
+
+    /**
+     * 一次向量化请求的 token 上限，留 10% 余量给分词差异
+     */
+    private static BatchingStrategy batchingStrategy(BulkIngestProperties bulk) {
+        return new TokenCountBatchingStrategy(EncodingType.CL100K_BASE, bulk.getEmbeddingBatchTokens(), 0.1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * NDJSON 批量入库的分块与写入批次参数
+ */
+@ConfigurationProperties(prefix = "bulk-ingest")
+public class BulkIngestProperties {
+
+    // 每块的 token 数（TokenTextSplitter）
+    private int chunkSize = 800;
+    private int minChunkSizeChars = 350;
+    // 累计多少块后向量化并写入一次，决定内存中缓冲的文档数；不超过 OpenAI 单次向量化 2048 条的限制
+    private int batchSize = 500;
+    // 单次向量化请求的 token 上限，OpenAI 为 300000，预留余量
+    private int embeddingBatchTokens = 100000;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getMinChunkSizeChars() {
+        return minChunkSizeChars;
+    }
+
+    public void setMinChunkSizeChars(int minChunkSizeChars) {
+        this.minChunkSizeChars = minChunkSizeChars;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getEmbeddingBatchTokens() {
+        return embeddingBatchTokens;
+    }
+
+    public void setEmbeddingBatchTokens(int embeddingBatchTokens) {
+        this.embeddingBatchTokens = embeddingBatchTokens;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.springai.config;
+
+import com.example.springai.memory.SummarizingChatMemory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+/**
+ * 服务端会话记忆：有数据源时消息存放在 SPRING_AI_CHAT_MEMORY 表，测试、压测与边缘部署存放在内存中
+ */
+@Configuration
+@EnableConfigurationProperties(ConversationMemoryProperties.class)
+public class ChatMemoryConfiguration {
+
+    @Bean
+    @Profile("!test & !loadtest & !embedded")
+    public ChatMemoryRepository chatMemoryRepository(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        new ResourceDatabasePopulator(new ClassPathResource(
+                "org/springframework/ai/chat/memory/repository/jdbc/schema-postgresql.sql")).execute(dataSource);
+        return JdbcChatMemoryRepository.builder().jdbcTemplate(jdbcTemplate).build();
+    }
+
+    @Bean
+    @Profile({"test", "loadtest", "embedded"})
+    public ChatMemoryRepository inMemoryChatMemoryRepository() {
+        return new InMemoryChatMemoryRepository();
+    }
+
+    @Bean
+    public ChatMemory chatMemory(ChatMemoryRepository chatMemoryRepository, ChatModel chatModel,
+                                 ConversationMemoryProperties properties) {
+        return new SummarizingChatMemory(chatMemoryRepository, chatModel, properties.getTokenBudget(),
+                properties.getSummaryMaxChars(), properties.getMaxConversations());
+    }
+}
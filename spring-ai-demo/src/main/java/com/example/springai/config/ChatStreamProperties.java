@@ -0,0 +1,41 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * SSE 流式聊天的分帧与心跳参数
+ */
+@ConfigurationProperties(prefix = "chat-stream")
+public class ChatStreamProperties {
+
+    // 模型输出的片段最多攒这么久合成一帧发送
+    private long flushMs = 30;
+    // 攒够这么多片段时立即发送，不等 flushMs
+    private int maxFragments = 64;
+    // 超过这么久没有输出时发送一次心跳注释，保持代理连接并及时发现客户端断开
+    private long heartbeatMs = 15000;
+
+    public long getFlushMs() {
+        return flushMs;
+    }
+
+    public void setFlushMs(long flushMs) {
+        this.flushMs = flushMs;
+    }
+
+    public int getMaxFragments() {
+        return maxFragments;
+    }
+
+    public void setMaxFragments(int maxFragments) {
+        this.maxFragments = maxFragments;
+    }
+
+    public long getHeartbeatMs() {
+        return heartbeatMs;
+    }
+
+    public void setHeartbeatMs(long heartbeatMs) {
+        this.heartbeatMs = heartbeatMs;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 服务端会话记忆的 token 预算与滚动摘要参数
+ */
+@ConfigurationProperties(prefix = "conversation-memory")
+public class ConversationMemoryProperties {
+
+    // 每轮提示词中历史消息（含摘要）的 token 上限
+    private int tokenBudget = 2000;
+    // 摘要的长度上限（字）
+    private int summaryMaxChars = 400;
+    // 内存中缓存的会话数，超出后按最近最少使用淘汰，下次访问时从仓库加载
+    private int maxConversations = 10000;
+
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+
+    public void setTokenBudget(int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+    }
+
+    public int getSummaryMaxChars() {
+        return summaryMaxChars;
+    }
+
+    public void setSummaryMaxChars(int summaryMaxChars) {
+        this.summaryMaxChars = summaryMaxChars;
+    }
+
+    public int getMaxConversations() {
+        return maxConversations;
+    }
+
+    public void setMaxConversations(int maxConversations) {
+        this.maxConversations = maxConversations;
+    }
+}
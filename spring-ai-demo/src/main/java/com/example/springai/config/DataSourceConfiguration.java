@@ -0,0 +1,73 @@
+package com.example.springai.config;
+
+import com.example.springai.datasource.ReplicaLagGuard;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * 读写分离配置
+ * <p>
+ * 主库连接池沿用 spring.datasource.hikari.*，只读连接池取 read-replica.*；对外的 DataSource 按事务的只读标记选择连接池，
+ * TunedPgVectorStore 的检索在只读事务内执行
+ */
+@Configuration
+@Profile("!test & !loadtest & !embedded")
+@ConditionalOnProperty(name = "read-replica.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class DataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("demo-primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(DataSourceProperties properties, ReadReplicaProperties replica) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(replica.getUrl())) {
+            dataSource.setJdbcUrl(replica.getUrl());
+        }
+        if (StringUtils.hasText(replica.getUsername())) {
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+        }
+        dataSource.setPoolName("demo-read");
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setMinimumIdle(replica.getMinimumIdle());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("readDataSource") DataSource readDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(readDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagGuard replicaLagGuard(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                           @Qualifier("readDataSource") DataSource readDataSource,
+                                           ReadReplicaProperties replica) {
+        return new ReplicaLagGuard(new JdbcTemplate(primaryDataSource), new JdbcTemplate(readDataSource),
+                replica.getMaxStalenessMs(), replica.getReplayCheckIntervalMs());
+    }
+}
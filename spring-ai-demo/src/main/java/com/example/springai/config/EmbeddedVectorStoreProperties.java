@@ -0,0 +1,70 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 进程内 HNSW 向量存储（test、loadtest、embedded profile）的索引参数
+ */
+@ConfigurationProperties(prefix = "embedded-vector-store")
+public class EmbeddedVectorStoreProperties {
+
+    // 每个节点的最大邻居数，第 0 层为 2m
+    private int m = 16;
+    // 建图和搜索时的候选集宽度
+    private int efConstruction = 200;
+    private int efSearch = 64;
+    // 向量段文件目录，为空时存放在 direct buffer 中
+    private String storageDirectory;
+    // 快照文件，为空时不写快照，重启后需要重新导入
+    private String snapshotFile;
+    // 有变化时写快照的间隔，不大于 0 时只在关闭时写入
+    private long snapshotIntervalMs = 60000;
+
+    public int getM() {
+        return m;
+    }
+
+    public void setM(int m) {
+        this.m = m;
+    }
+
+    public int getEfConstruction() {
+        return efConstruction;
+    }
+
+    public void setEfConstruction(int efConstruction) {
+        this.efConstruction = efConstruction;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public String getStorageDirectory() {
+        return storageDirectory;
+    }
+
+    public void setStorageDirectory(String storageDirectory) {
+        this.storageDirectory = storageDirectory;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public long getSnapshotIntervalMs() {
+        return snapshotIntervalMs;
+    }
+
+    public void setSnapshotIntervalMs(long snapshotIntervalMs) {
+        this.snapshotIntervalMs = snapshotIntervalMs;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.springai.config;
+
+import com.example.loadtest.FakeChatModel;
+import com.example.loadtest.FakeEmbeddingModel;
+import com.example.loadtest.LatencyDistribution;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 离线压测配置：模拟的 ChatModel / EmbeddingModel
+ * <p>
+ * 配合 application-loadtest.yml 关闭 OpenAI 与数据源自动配置，向量库使用 {@link AIConfiguration} 中的 HnswVectorStore，
+ * 无需网络和 PostgreSQL。
+ */
+@Configuration
+@Profile("loadtest")
+@EnableConfigurationProperties(LoadTestProperties.class)
+public class LoadTestConfiguration {
+
+    @Bean
+    public ChatModel chatModel(LoadTestProperties properties,
+                               @Value("${spring.ai.openai.chat.options.model:gpt-4o}") String model) {
+        return new FakeChatModel(model,
+                new LatencyDistribution(properties.getChatLatencyMedianMs(), properties.getChatLatencyP99Ms()),
+                properties.getTokensPerSecond(), properties.getAnswerTokens(), properties.getFailureRate());
+    }
+
+    @Bean
+    public EmbeddingModel embeddingModel(LoadTestProperties properties) {
+        return new FakeEmbeddingModel(properties.getEmbeddingDimensions(),
+                new LatencyDistribution(properties.getEmbeddingLatencyMedianMs(),
+                        properties.getEmbeddingLatencyP99Ms()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * loadtest profile 下模拟模型的延迟与速率
+ */
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestProperties {
+
+    // 首 token 延迟的中位数和 p99
+    private long chatLatencyMedianMs = 800;
+    private long chatLatencyP99Ms = 3000;
+    // 回答的 token 生成速率
+    private double tokensPerSecond = 50;
+    private int answerTokens = 200;
+    // 模型调用失败（503）的概率
+    private double failureRate = 0;
+    private int embeddingDimensions = 384;
+    // 每次向量化请求的延迟中位数和 p99
+    private long embeddingLatencyMedianMs = 60;
+    private long embeddingLatencyP99Ms = 250;
+
+    public long getChatLatencyMedianMs() {
+        return chatLatencyMedianMs;
+    }
+
+    public void setChatLatencyMedianMs(long chatLatencyMedianMs) {
+        this.chatLatencyMedianMs = chatLatencyMedianMs;
+    }
+
+    public long getChatLatencyP99Ms() {
+        return chatLatencyP99Ms;
+    }
+
+    public void setChatLatencyP99Ms(long chatLatencyP99Ms) {
+        this.chatLatencyP99Ms = chatLatencyP99Ms;
+    }
+
+    public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public void setTokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    public int getAnswerTokens() {
+        return answerTokens;
+    }
+
+    public void setAnswerTokens(int answerTokens) {
+        this.answerTokens = answerTokens;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public int getEmbeddingDimensions() {
+        return embeddingDimensions;
+    }
+
+    public void setEmbeddingDimensions(int embeddingDimensions) {
+        this.embeddingDimensions = embeddingDimensions;
+    }
+
+    public long getEmbeddingLatencyMedianMs() {
+        return embeddingLatencyMedianMs;
+    }
+
+    public void setEmbeddingLatencyMedianMs(long embeddingLatencyMedianMs) {
+        this.embeddingLatencyMedianMs = embeddingLatencyMedianMs;
+    }
+
+    public long getEmbeddingLatencyP99Ms() {
+        return embeddingLatencyP99Ms;
+    }
+
+    public void setEmbeddingLatencyP99Ms(long embeddingLatencyP99Ms) {
+        this.embeddingLatencyP99Ms = embeddingLatencyP99Ms;
+    }
+}
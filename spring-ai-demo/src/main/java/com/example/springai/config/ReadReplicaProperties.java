@@ -0,0 +1,87 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 读写分离：向量检索走只读连接池，写入走 spring.datasource 的主库连接池
+ */
+@ConfigurationProperties(prefix = "read-replica")
+public class ReadReplicaProperties {
+
+    private boolean enabled = false;
+    // 只读库地址，为空时指向主库，仅把检索与写入的连接池分开
+    private String url;
+    // 为空时沿用 spring.datasource 的用户名和密码
+    private String username;
+    private String password;
+    private int maximumPoolSize = 20;
+    private int minimumIdle = 5;
+    // 写入后，在只读库追上该写入或超过该时长之前，检索走主库
+    private long maxStalenessMs = 30000;
+    // 只读库回放位置的缓存时长，有未同步的写入时检索最多每个间隔查询一次只读库
+    private long replayCheckIntervalMs = 200;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    public void setMinimumIdle(int minimumIdle) {
+        this.minimumIdle = minimumIdle;
+    }
+
+    public long getMaxStalenessMs() {
+        return maxStalenessMs;
+    }
+
+    public void setMaxStalenessMs(long maxStalenessMs) {
+        this.maxStalenessMs = maxStalenessMs;
+    }
+
+    public long getReplayCheckIntervalMs() {
+        return replayCheckIntervalMs;
+    }
+
+    public void setReplayCheckIntervalMs(long replayCheckIntervalMs) {
+        this.replayCheckIntervalMs = replayCheckIntervalMs;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * pgvector 短向量初筛 + 全量向量重排序的参数
+ */
+@ConfigurationProperties(prefix = "pgvector-shortlist")
+public class ShortlistProperties {
+
+    private boolean enabled = false;
+    // 短向量取完整向量的前多少维，text-embedding-3 系列的前缀维度本身就是可用的低维向量
+    private int dimensions = 256;
+    // 初筛取 topK × rerankFactor 个候选，再按完整向量重排序
+    private int rerankFactor = 10;
+    // 启动时回填已有数据的短向量并建索引，完成后不再需要
+    private boolean backfill = false;
+    private int backfillBatchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public void setDimensions(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    public int getRerankFactor() {
+        return rerankFactor;
+    }
+
+    public void setRerankFactor(int rerankFactor) {
+        this.rerankFactor = rerankFactor;
+    }
+
+    public boolean isBackfill() {
+        return backfill;
+    }
+
+    public void setBackfill(boolean backfill) {
+        this.backfill = backfill;
+    }
+
+    public int getBackfillBatchSize() {
+        return backfillBatchSize;
+    }
+
+    public void setBackfillBatchSize(int backfillBatchSize) {
+        this.backfillBatchSize = backfillBatchSize;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 文档摘要的 map-reduce 参数
+ */
+@ConfigurationProperties(prefix = "rag-summary")
+public class SummaryProperties {
+
+    // 参与摘要的候选文档数
+    private int candidates = 40;
+    // 每次模型调用携带的原文或摘要的字符数上限，超过时分组分别摘要，应远小于模型的上下文窗口
+    private int partitionChars = 8000;
+    // 同时进行的分组摘要调用数
+    private int concurrency = 4;
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(int candidates) {
+        this.candidates = candidates;
+    }
+
+    public int getPartitionChars() {
+        return partitionChars;
+    }
+
+    public void setPartitionChars(int partitionChars) {
+        this.partitionChars = partitionChars;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+}
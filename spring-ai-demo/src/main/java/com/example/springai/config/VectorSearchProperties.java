@@ -0,0 +1,87 @@
+package com.example.springai.config;
+
+import com.example.springai.vectorstore.SearchPrecision;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 向量检索的精度档位（pgvector 与进程内 HNSW 共用的 ef_search）及召回率抽样
+ */
+@ConfigurationProperties(prefix = "vector-search")
+public class VectorSearchProperties {
+
+    // 未指定档位时的默认值
+    private SearchPrecision precision = SearchPrecision.BALANCED;
+    // 各档位的 ef_search，pgvector 默认为 40
+    private Map<SearchPrecision, Integer> efSearch = new EnumMap<>(Map.of(
+            SearchPrecision.FAST, 20, SearchPrecision.BALANCED, 40, SearchPrecision.EXHAUSTIVE, 200));
+    // 按接口（vector-search、rag-search、rag-ask、rag-summarize）指定的档位
+    private Map<String, SearchPrecision> endpoints = new HashMap<>();
+    // 按分类指定的档位，优先于接口
+    private Map<String, SearchPrecision> categories = new HashMap<>();
+    // 与精确检索比较的查询比例，0 表示不抽样；每个样本需要再向量化一次问题
+    private double recallSampleRate = 0;
+    // 批量检索单次请求的问题数上限，全部问题在一次向量化请求中发送
+    private int batchMaxQueries = 1000;
+    // 批量检索同时执行的检索数，受数据库连接池大小限制
+    private int batchConcurrency = 4;
+
+    public SearchPrecision getPrecision() {
+        return precision;
+    }
+
+    public void setPrecision(SearchPrecision precision) {
+        this.precision = precision;
+    }
+
+    public Map<SearchPrecision, Integer> getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(Map<SearchPrecision, Integer> efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public Map<String, SearchPrecision> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, SearchPrecision> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public Map<String, SearchPrecision> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Map<String, SearchPrecision> categories) {
+        this.categories = categories;
+    }
+
+    public double getRecallSampleRate() {
+        return recallSampleRate;
+    }
+
+    public void setRecallSampleRate(double recallSampleRate) {
+        this.recallSampleRate = recallSampleRate;
+    }
+
+    public int getBatchMaxQueries() {
+        return batchMaxQueries;
+    }
+
+    public void setBatchMaxQueries(int batchMaxQueries) {
+        this.batchMaxQueries = batchMaxQueries;
+    }
+
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = batchConcurrency;
+    }
+}
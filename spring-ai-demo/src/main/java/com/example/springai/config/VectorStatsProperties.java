@@ -0,0 +1,31 @@
+package com.example.springai.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 向量存储统计（GET /api/vector/stats 与 vector.store.* 指标）的采集参数
+ */
+@ConfigurationProperties(prefix = "vector-stats")
+public class VectorStatsProperties {
+
+    // 表大小、分类行数等统计的刷新间隔；按分类计数需要扫描整表，不宜过于频繁
+    private long refreshMs = 300000;
+    // 按分类计数时单独列出的分类数，其余合并为 other，避免指标的 tag 数量失控
+    private int maxCategories = 50;
+
+    public long getRefreshMs() {
+        return refreshMs;
+    }
+
+    public void setRefreshMs(long refreshMs) {
+        this.refreshMs = refreshMs;
+    }
+
+    public int getMaxCategories() {
+        return maxCategories;
+    }
+
+    public void setMaxCategories(int maxCategories) {
+        this.maxCategories = maxCategories;
+    }
+}
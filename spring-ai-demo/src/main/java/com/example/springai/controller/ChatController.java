@@ -1,23 +1,43 @@
 package com.example.springai.controller;
 
+import com.example.springai.config.ChatStreamProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
+import java.time.Duration;
+
 /**
  * 聊天控制器
  * 
- * 提供同步和流式聊天接口
+ * 提供同步和流式聊天接口；请求带 conversationId 时服务端保存会话历史，客户端每轮只需发送本轮消息
  */
 @RestController
 @RequestMapping("/api/chat")
 @CrossOrigin(origins = "*")
 public class ChatController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
+    private static final ServerSentEvent<String> HEARTBEAT = ServerSentEvent.<String>builder()
+        .comment("heartbeat")
+        .build();
+
     private final ChatClient chatClient;
+    private final ChatStreamProperties streamProperties;
+    private final ChatMemory chatMemory;
 
-    public ChatController(ChatClient chatClient) {
+    public ChatController(ChatClient chatClient, ChatStreamProperties streamProperties, ChatMemory chatMemory) {
         this.chatClient = chatClient;
+        this.streamProperties = streamProperties;
+        this.chatMemory = chatMemory;
     }
 
     /**
@@ -25,8 +45,7 @@ public class ChatController {
      */
     @PostMapping("/sync")
     public ChatResponse chat(@RequestBody ChatRequest request) {
-        String response = chatClient.prompt()
-            .user(request.getMessage())
+        String response = prompt(request)
             .call()
             .content();
         
@@ -38,12 +57,52 @@ public class ChatController {
      */
     @PostMapping(value = "/stream", produces = "text/plain")
     public Flux<String> chatStream(@RequestBody ChatRequest request) {
-        return chatClient.prompt()
-            .user(request.getMessage())
+        return prompt(request)
             .stream()
             .content();
     }
 
+    /**
+     * SSE 流式聊天接口
+     * <p>
+     * 模型输出的片段每 flushMs 或攒够 maxFragments 个合成一帧，减少逐片段的写入和刷新；
+     * 按客户端的读取速度请求（客户端读得慢时片段在缓冲中合并），长时间没有输出时发送心跳注释。
+     * 客户端断开后下一次写入失败即取消订阅，上游的模型请求随之取消。
+     */
+    @PostMapping(value = "/stream/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> chatStreamSse(@RequestBody ChatRequest request) {
+        Duration heartbeat = Duration.ofMillis(streamProperties.getHeartbeatMs());
+        return prompt(request)
+            .stream()
+            .content()
+            .bufferTimeout(streamProperties.getMaxFragments(), Duration.ofMillis(streamProperties.getFlushMs()), true)
+            .map(fragments -> ServerSentEvent.builder(String.join("", fragments)).build())
+            .doOnCancel(() -> logger.debug("客户端已断开，取消模型生成"))
+            .publish(frames -> Flux.merge(frames, frames.map(frame -> 0L)
+                .startWith(0L)
+                .switchMap(frame -> Flux.interval(heartbeat, heartbeat).map(i -> HEARTBEAT))
+                .takeUntilOther(frames.then())));
+    }
+
+    /**
+     * 删除会话历史
+     */
+    @DeleteMapping("/conversations/{conversationId}")
+    public ResponseEntity<Void> clearConversation(@PathVariable String conversationId) {
+        chatMemory.clear(conversationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    private ChatClient.ChatClientRequestSpec prompt(ChatRequest request) {
+        ChatClient.ChatClientRequestSpec spec = chatClient.prompt().user(request.getMessage());
+        if (StringUtils.hasText(request.getConversationId())) {
+            spec.advisors(MessageChatMemoryAdvisor.builder(chatMemory)
+                .conversationId(request.getConversationId())
+                .build());
+        }
+        return spec;
+    }
+
     /**
      * 健康检查接口
      */
@@ -55,6 +114,8 @@ public class ChatController {
     // 请求和响应 DTO
     public static class ChatRequest {
         private String message;
+        // 可选，不超过 36 个字符（如 UUID）
+        private String conversationId;
 
         public ChatRequest() {}
 
@@ -69,6 +130,14 @@ public class ChatController {
         public void setMessage(String message) {
             this.message = message;
         }
+
+        public String getConversationId() {
+            return conversationId;
+        }
+
+        public void setConversationId(String conversationId) {
+            this.conversationId = conversationId;
+        }
     }
 
     public static class ChatResponse {
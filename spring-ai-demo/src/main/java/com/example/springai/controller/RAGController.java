@@ -1,9 +1,17 @@
 package com.example.springai.controller;
 
+import com.example.springai.service.BulkIngestionService;
 import com.example.springai.service.RAGService;
+import com.example.springai.vectorstore.SearchPrecision;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.ai.document.Document;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -17,9 +25,14 @@ import java.util.List;
 public class RAGController {
 
     private final RAGService ragService;
+    private final BulkIngestionService bulkIngestionService;
+    private final ObjectMapper objectMapper;
 
-    public RAGController(RAGService ragService) {
+    public RAGController(RAGService ragService, BulkIngestionService bulkIngestionService,
+                         ObjectMapper objectMapper) {
         this.ragService = ragService;
+        this.bulkIngestionService = bulkIngestionService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -31,12 +44,24 @@ public class RAGController {
         return "Document added to knowledge base successfully";
     }
 
+    /**
+     * 批量添加文档：请求体每行一个 {"content", "title", "category"}，按行以 NDJSON 返回确认，最后一行为汇总
+     */
+    @PostMapping("/documents/bulk")
+    public void addDocuments(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        bulkIngestionService.ingest(body, response.getOutputStream(), line -> {
+            AddDocumentRequest request = objectMapper.readValue(line, AddDocumentRequest.class);
+            return ragService.toDocument(request.getContent(), request.getTitle(), request.getCategory());
+        });
+    }
+
     /**
      * 基于知识库的问答
      */
     @PostMapping("/ask")
     public QuestionResponse askQuestion(@RequestBody QuestionRequest request) {
-        String answer = ragService.askQuestion(request.getQuestion());
+        String answer = ragService.askQuestion(request.getQuestion(), SearchPrecision.of(request.getPrecision()));
         return new QuestionResponse(answer);
     }
 
@@ -46,8 +71,9 @@ public class RAGController {
     @GetMapping("/search")
     public List<Document> searchDocuments(
             @RequestParam String query,
-            @RequestParam(defaultValue = "5") int topK) {
-        return ragService.searchDocuments(query, topK);
+            @RequestParam(defaultValue = "5") int topK,
+            @RequestParam(required = false) String precision) {
+        return ragService.searchDocuments(query, topK, SearchPrecision.of(precision));
     }
 
     /**
@@ -59,6 +85,14 @@ public class RAGController {
         return new SummaryResponse(summary);
     }
 
+    /**
+     * 流式获取文档摘要
+     */
+    @PostMapping(value = "/summarize/stream", produces = "text/plain")
+    public Flux<String> summarizeDocumentsStream(@RequestBody SummaryRequest request) {
+        return ragService.summarizeDocumentsStream(request.getQuery());
+    }
+
     // DTO 类
     public static class AddDocumentRequest {
         private String content;
@@ -94,6 +128,8 @@ public class RAGController {
 
     public static class QuestionRequest {
         private String question;
+        // 检索精度档位：fast / balanced / exhaustive / exact，为空时按配置选择
+        private String precision;
 
         public QuestionRequest() {}
 
@@ -104,6 +140,14 @@ public class RAGController {
         public void setQuestion(String question) {
             this.question = question;
         }
+
+        public String getPrecision() {
+            return precision;
+        }
+
+        public void setPrecision(String precision) {
+            this.precision = precision;
+        }
     }
 
     public static class QuestionResponse {
@@ -1,10 +1,29 @@
 package com.example.springai.controller;
 
+import com.example.springai.service.BulkIngestionService;
+import com.example.springai.service.VectorDumpService;
+import com.example.springai.service.VectorSearchService;
+import com.example.springai.service.VectorStoreStatsService;
+import com.example.springai.vectorstore.SearchPrecision;
+import com.example.springai.vectorstore.VectorDumpFormatException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,10 +37,26 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class VectorController {
 
-    private final VectorStore vectorStore;
+    private static final String ENDPOINT = "vector-search";
+    private static final String BATCH_ENDPOINT = "vector-batch-search";
 
-    public VectorController(VectorStore vectorStore) {
+    private final VectorStore vectorStore;
+    private final VectorSearchService vectorSearchService;
+    private final BulkIngestionService bulkIngestionService;
+    private final VectorStoreStatsService vectorStoreStatsService;
+    private final VectorDumpService vectorDumpService;
+    private final ObjectMapper objectMapper;
+
+    public VectorController(VectorStore vectorStore, VectorSearchService vectorSearchService,
+                            BulkIngestionService bulkIngestionService,
+                            VectorStoreStatsService vectorStoreStatsService, VectorDumpService vectorDumpService,
+                            ObjectMapper objectMapper) {
         this.vectorStore = vectorStore;
+        this.vectorSearchService = vectorSearchService;
+        this.bulkIngestionService = bulkIngestionService;
+        this.vectorStoreStatsService = vectorStoreStatsService;
+        this.vectorDumpService = vectorDumpService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -34,12 +69,40 @@ public class VectorController {
         return "Document added successfully";
     }
 
+    /**
+     * 批量添加文档：请求体每行一个 {"content", "metadata"}，长文本自动分块，按行以 NDJSON 返回确认，最后一行为汇总
+     */
+    @PostMapping("/add/bulk")
+    public void addDocuments(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        bulkIngestionService.ingest(body, response.getOutputStream(), line -> {
+            DocumentRequest request = objectMapper.readValue(line, DocumentRequest.class);
+            return new Document(request.getContent(),
+                    request.getMetadata() != null ? request.getMetadata() : new HashMap<>());
+        });
+    }
+
     /**
      * 搜索相似文档
      */
     @PostMapping("/search")
-    public List<Document> searchDocuments(@RequestBody SearchRequest request) {
-        return vectorStore.similaritySearch(request);
+    public List<Document> searchDocuments(@RequestBody SearchRequest request,
+                                          @RequestParam(required = false) String precision) {
+        return vectorSearchService.search(ENDPOINT, null, SearchPrecision.of(precision), request);
+    }
+
+    /**
+     * 批量搜索：请求体为 SearchRequest 数组，按请求顺序以 NDJSON 逐行返回每条问题的结果；
+     * 问题数超过上限或精度档位无效时返回 400
+     */
+    @PostMapping(value = "/search/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<VectorSearchService.BatchResult> searchBatch(@RequestBody List<SearchRequest> requests,
+                                                             @RequestParam(required = false) String precision) {
+        try {
+            return vectorSearchService.searchBatch(BATCH_ENDPOINT, SearchPrecision.of(precision), requests);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
     /**
@@ -49,24 +112,52 @@ public class VectorController {
     public List<Document> searchDocuments(
             @RequestParam String query,
             @RequestParam(defaultValue = "5") int topK,
-            @RequestParam(defaultValue = "0.7") double threshold) {
+            @RequestParam(defaultValue = "0.7") double threshold,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String precision) {
         
-        SearchRequest request = SearchRequest.builder()
+        SearchRequest.Builder request = SearchRequest.builder()
             .query(query)
             .topK(topK)
-            .similarityThreshold(threshold)
-            .build();
+            .similarityThreshold(threshold);
+        if (StringUtils.hasText(category)) {
+            request.filterExpression(new FilterExpressionBuilder().eq("category", category).build());
+        }
         
-        return vectorStore.similaritySearch(request);
+        return vectorSearchService.search(ENDPOINT, category, SearchPrecision.of(precision), request.build());
+    }
+
+    /**
+     * 导出向量存储（id、文本、元数据、向量）为分块压缩、带校验的二进制文件；指定 since 时只导出此后新增或修改的文档
+     */
+    @GetMapping("/export")
+    public void exportDocuments(@RequestParam(required = false) Instant since, HttpServletResponse response)
+            throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"vectors.vdump\"");
+        vectorDumpService.export(since, response.getOutputStream());
+    }
+
+    /**
+     * 导入 /export 导出的文件，已有的 id 被覆盖，不调用向量化接口
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public VectorDumpService.ImportResult importDocuments(InputStream body) throws IOException {
+        try {
+            return vectorDumpService.importFrom(body);
+        } catch (VectorDumpFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
     /**
-     * 获取向量存储统计信息
+     * 获取向量存储统计信息：分类行数、表和索引大小、HNSW 索引是否放得进 shared_buffers、死元组比例，以及检索和写入延迟
+     * <p>
+     * 存储统计默认返回后台最近一次采集的结果，refresh=true 时立即重新采集
      */
     @GetMapping("/stats")
-    public String getStats() {
-        // 这里可以添加统计信息的逻辑
-        return "Vector store is operational";
+    public VectorStoreStatsService.VectorStoreStats getStats(@RequestParam(defaultValue = "false") boolean refresh) {
+        return vectorStoreStatsService.stats(refresh);
     }
 
     // 请求 DTO
@@ -0,0 +1,100 @@
+package com.example.springai.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 读写分离下的写后可见保证：写入向量后，在只读库回放到该写入之前检索改走主库
+ * <p>
+ * 写入后记下主库当前的 WAL 位置（pg_current_wal_lsn），检索前与只读库的 pg_last_wal_replay_lsn 比较；
+ * 只读库已追上或超过 maxStalenessMs 后不再检查。回放位置缓存 replayCheckIntervalMs，
+ * 持续写入时检索也最多每个间隔查询一次只读库。只读库不是备库（只拆分连接池、仍指向主库）时回放位置为 NULL，
+ * 视为已追上。本示例没有用户概念，写入对所有检索生效。
+ */
+public class ReplicaLagGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagGuard.class);
+
+    // 主库位置未知，只能等 maxStalenessMs 过期
+    private static final long UNKNOWN = -1;
+    // 只读库不是备库，视为始终追上
+    private static final long NOT_STANDBY = Long.MAX_VALUE;
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxStalenessMs;
+    private final long replayCheckIntervalMs;
+    private final AtomicReference<PendingWrite> pendingWrite = new AtomicReference<>();
+    private volatile ReplayPosition replayPosition;
+
+    public ReplicaLagGuard(JdbcTemplate primary, JdbcTemplate replica, long maxStalenessMs,
+                           long replayCheckIntervalMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxStalenessMs = maxStalenessMs;
+        this.replayCheckIntervalMs = replayCheckIntervalMs;
+    }
+
+    public void recordWrite() {
+        long lsn = UNKNOWN;
+        try {
+            lsn = parseLsn(primary.queryForObject("SELECT pg_current_wal_lsn()::text", String.class));
+        } catch (DataAccessException e) {
+            // 取不到位置时按 maxStalenessMs 走主库
+            logger.warn("获取主库 WAL 位置失败: {}", e.getMessage());
+        }
+        pendingWrite.set(new PendingWrite(lsn, System.currentTimeMillis() + maxStalenessMs));
+    }
+
+    /**
+     * 最近的写入是否可能尚未同步到只读库
+     */
+    public boolean requiresPrimary() {
+        PendingWrite write = pendingWrite.get();
+        if (write == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (write.expiresAt() <= now || (write.lsn() != UNKNOWN && replayLsn(now) >= write.lsn())) {
+            // 期间有新的写入时保留新的记录
+            pendingWrite.compareAndSet(write, null);
+            return false;
+        }
+        return true;
+    }
+
+    private long replayLsn(long now) {
+        ReplayPosition position = replayPosition;
+        if (position != null && now - position.checkedAt() < replayCheckIntervalMs) {
+            return position.lsn();
+        }
+        long lsn;
+        try {
+            String replayed = replica.queryForObject("SELECT pg_last_wal_replay_lsn()::text", String.class);
+            lsn = replayed != null ? parseLsn(replayed) : NOT_STANDBY;
+        } catch (DataAccessException e) {
+            logger.debug("查询只读库回放位置失败: {}", e.getMessage());
+            lsn = UNKNOWN;
+        }
+        replayPosition = new ReplayPosition(lsn, now);
+        return lsn;
+    }
+
+    /**
+     * pg_lsn 的文本形式为两段十六进制，如 16/B374D848
+     */
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    private record PendingWrite(long lsn, long expiresAt) {
+    }
+
+    private record ReplayPosition(long lsn, long checkedAt) {
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.springai.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带 token 预算和滚动摘要的会话记忆
+ * <p>
+ * 消息存放在 ChatMemoryRepository 中（有数据源时为 JDBC），最近访问的会话同时缓存在内存中。
+ * 每轮取出的历史（摘要 + 最近的消息）不超过 tokenBudget；会话超出预算后，后台线程把较早的消息
+ * 连同旧摘要交给模型合并为一条摘要（会话的第一条系统消息），只保留约一半预算的最近消息，
+ * 因此每轮提示词和仓库中每个会话的行数都基本不变。摘要尚未完成时，历史按预算从最近的消息往前截断。
+ */
+public class SummarizingChatMemory implements ChatMemory, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SummarizingChatMemory.class);
+    private static final String SUMMARY_PREFIX = "之前对话的摘要：\n";
+
+    private final ChatMemoryRepository repository;
+    private final ChatModel chatModel;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    private final int tokenBudget;
+    private final int summaryMaxChars;
+    private final int maxConversations;
+    private final Map<String, Window> windows;
+    private final ThreadPoolExecutor summarizer;
+
+    public SummarizingChatMemory(ChatMemoryRepository repository, ChatModel chatModel, int tokenBudget,
+                                 int summaryMaxChars, int maxConversations) {
+        this.repository = repository;
+        this.chatModel = chatModel;
+        this.tokenBudget = tokenBudget;
+        this.summaryMaxChars = summaryMaxChars;
+        this.maxConversations = maxConversations;
+        this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+                return size() > SummarizingChatMemory.this.maxConversations;
+            }
+        };
+        this.summarizer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1024),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "conversation-summarizer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Window window = window(conversationId);
+        synchronized (window) {
+            int budget = tokenBudget;
+            int first = window.hasSummary() ? 1 : 0;
+            if (first == 1) {
+                budget -= window.tokens.get(0);
+            }
+            int start = window.messages.size();
+            while (start > first && window.tokens.get(start - 1) <= budget) {
+                budget -= window.tokens.get(start - 1);
+                start--;
+            }
+            List<Message> messages = new ArrayList<>(window.messages.subList(0, first));
+            messages.addAll(window.messages.subList(start, window.messages.size()));
+            return messages;
+        }
+    }
+
+    /**
+     * 只保存用户和助手消息；会话超出预算时提交后台摘要
+     */
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Window window = window(conversationId);
+        boolean summarize;
+        synchronized (window) {
+            for (Message message : messages) {
+                if ((message.getMessageType() == MessageType.USER
+                        || message.getMessageType() == MessageType.ASSISTANT) && StringUtils.hasText(message.getText())) {
+                    window.append(message, tokenCountEstimator.estimate(message.getText()));
+                }
+            }
+            repository.saveAll(conversationId, window.messages);
+            summarize = !window.summarizing && window.totalTokens() > tokenBudget;
+            window.summarizing |= summarize;
+        }
+        if (summarize) {
+            try {
+                summarizer.execute(() -> summarize(conversationId, window));
+            } catch (RejectedExecutionException e) {
+                logger.warn("会话摘要队列已满，本轮跳过: conversationId={}", conversationId);
+                synchronized (window) {
+                    window.summarizing = false;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        synchronized (windows) {
+            windows.remove(conversationId);
+        }
+        repository.deleteByConversationId(conversationId);
+    }
+
+    @Override
+    public void destroy() {
+        summarizer.shutdownNow();
+    }
+
+    private Window window(String conversationId) {
+        synchronized (windows) {
+            Window window = windows.get(conversationId);
+            if (window != null) {
+                return window;
+            }
+        }
+        Window loaded = new Window();
+        for (Message message : repository.findByConversationId(conversationId)) {
+            loaded.append(message, tokenCountEstimator.estimate(message.getText()));
+        }
+        synchronized (windows) {
+            return windows.computeIfAbsent(conversationId, id -> loaded);
+        }
+    }
+
+    /**
+     * 把较早的消息合并进摘要，保留约一半预算的最近消息
+     */
+    private void summarize(String conversationId, Window window) {
+        String previousSummary;
+        int first;
+        int end;
+        List<Message> folded;
+        synchronized (window) {
+            first = window.hasSummary() ? 1 : 0;
+            previousSummary = first == 1 ? stripPrefix(window.messages.get(0).getText()) : null;
+            int remaining = window.totalTokens() - (first == 1 ? window.tokens.get(0) : 0);
+            end = first;
+            while (end < window.messages.size() && remaining > tokenBudget / 2) {
+                remaining -= window.tokens.get(end);
+                end++;
+            }
+            folded = new ArrayList<>(window.messages.subList(first, end));
+        }
+        try {
+            if (folded.isEmpty()) {
+                return;
+            }
+            String summary = chatModel.call(new Prompt(summaryPrompt(previousSummary, folded)))
+                    .getResult().getOutput().getText();
+            if (!StringUtils.hasText(summary)) {
+                return;
+            }
+            synchronized (window) {
+                // 摘要期间只会在末尾追加消息，被合并的消息仍在 [first, end)
+                window.messages.subList(0, end).clear();
+                window.tokens.subList(0, end).clear();
+                String text = SUMMARY_PREFIX + summary;
+                window.messages.add(0, new SystemMessage(text));
+                window.tokens.add(0, tokenCountEstimator.estimate(text));
+                repository.saveAll(conversationId, window.messages);
+            }
+            logger.debug("会话摘要已更新: conversationId={}, folded={}", conversationId, folded.size());
+        } catch (Exception e) {
+            logger.warn("会话摘要失败: conversationId={}, error={}", conversationId, e.getMessage());
+        } finally {
+            synchronized (window) {
+                window.summarizing = false;
+            }
+        }
+    }
+
+    private static String stripPrefix(String summary) {
+        return summary.startsWith(SUMMARY_PREFIX) ? summary.substring(SUMMARY_PREFIX.length()) : summary;
+    }
+
+    private String summaryPrompt(String previousSummary, List<Message> folded) {
+        StringBuilder prompt = new StringBuilder("请把以下对话整理成一段不超过 ").append(summaryMaxChars)
+                .append(" 字的摘要，保留用户的目标、已确认的事实和结论、尚未解决的问题，只输出摘要。\n\n");
+        if (previousSummary != null) {
+            prompt.append("之前的摘要：\n").append(previousSummary).append("\n\n");
+        }
+        prompt.append("对话：\n");
+        for (Message message : folded) {
+            prompt.append(message.getMessageType() == MessageType.USER ? "用户：" : "助手：")
+                    .append(message.getText()).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * 一个会话在内存中的消息及各自的 token 数，第一条为系统消息时是摘要
+     */
+    private static final class Window {
+        private final List<Message> messages = new ArrayList<>();
+        private final List<Integer> tokens = new ArrayList<>();
+        private boolean summarizing;
+
+        private void append(Message message, int messageTokens) {
+            messages.add(message);
+            tokens.add(messageTokens);
+        }
+
+        private boolean hasSummary() {
+            return !messages.isEmpty() && messages.get(0).getMessageType() == MessageType.SYSTEM;
+        }
+
+        private int totalTokens() {
+            return tokens.stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.springai.service;
+
+import com.example.springai.config.BulkIngestProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * NDJSON 流式批量入库
+ * <p>
+ * 逐行读取请求体，每行解析为一个文档并按 token 分块，累计到 batch-size 块后一次 {@code vectorStore.add}
+ * （向量化按 embedding-batch-tokens 分批），写入成功后为这批涉及的每行输出一行确认。
+ * 内存中只保留当前一批的分块，整个导入可以在一个请求中完成；最后输出一行汇总。
+ * <p>
+ * 分块 id 由该行原文和分块序号生成，向量存储按 id 覆盖写入：一批写到一半失败后重新提交失败的行，
+ * 已写入的分块会被覆盖而不会重复。
+ */
+@Service
+public class BulkIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIngestionService.class);
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final VectorStore vectorStore;
+    private final ObjectMapper objectMapper;
+    private final TextSplitter splitter;
+    private final int batchSize;
+
+    public BulkIngestionService(VectorStore vectorStore, ObjectMapper objectMapper, BulkIngestProperties properties) {
+        this.vectorStore = vectorStore;
+        this.objectMapper = objectMapper;
+        this.splitter = TokenTextSplitter.builder()
+                .withChunkSize(properties.getChunkSize())
+                .withMinChunkSizeChars(properties.getMinChunkSizeChars())
+                .build();
+        this.batchSize = Math.max(1, properties.getBatchSize());
+    }
+
+    /**
+     * @param parser 把一行 JSON 转为待入库的文档，抛出异常时该行记为失败
+     */
+    public Summary ingest(InputStream body, OutputStream out, RecordParser parser) throws IOException {
+        long start = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Batch batch = new Batch();
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!StringUtils.hasText(line)) {
+                continue;
+            }
+            batch.records++;
+            try {
+                Document document = parser.parse(line);
+                if (!StringUtils.hasText(document.getText())) {
+                    throw new IllegalArgumentException("content 不能为空");
+                }
+                // 过短的文本分块后会被丢弃，按原文整条写入
+                List<Document> chunks = splitter.apply(List.of(document));
+                if (chunks.isEmpty()) {
+                    chunks = List.of(document);
+                }
+                chunks = withStableIds(line.strip(), chunks);
+                batch.acks.add(new Ack(lineNumber, "ok", chunks.stream().map(Document::getId).toList(), null));
+                batch.chunks.addAll(chunks);
+            } catch (Exception e) {
+                batch.acks.add(new Ack(lineNumber, "error", null, e.getMessage()));
+            }
+            if (batch.chunks.size() >= batchSize) {
+                flush(batch, out);
+            }
+        }
+        flush(batch, out);
+        Summary summary = new Summary(batch.records, batch.written, batch.failed,
+                System.currentTimeMillis() - start);
+        write(out, summary);
+        out.flush();
+        logger.info("批量入库完成: records={}, chunks={}, failed={}, 耗时={}ms",
+                summary.records(), summary.chunks(), summary.failed(), summary.elapsedMs());
+        return summary;
+    }
+
+    private void flush(Batch batch, OutputStream out) throws IOException {
+        String error = null;
+        if (!batch.chunks.isEmpty()) {
+            try {
+                vectorStore.add(batch.chunks);
+                batch.written += batch.chunks.size();
+            } catch (Exception e) {
+                logger.warn("批量入库写入失败: chunks={}, error={}", batch.chunks.size(), e.getMessage());
+                error = e.getMessage();
+            }
+        }
+        for (Ack ack : batch.acks) {
+            Ack result = error != null && ack.error() == null ? new Ack(ack.line(), "error", null, error) : ack;
+            if (result.error() != null) {
+                batch.failed++;
+            }
+            write(out, result);
+        }
+        out.flush();
+        batch.chunks.clear();
+        batch.acks.clear();
+    }
+
+    /**
+     * 同一行原文的第 i 块总是得到相同的 id（名称型 UUID，满足 PgVectorStore 的 uuid 主键）
+     */
+    static List<Document> withStableIds(String record, List<Document> chunks) {
+        List<Document> result = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            String id = UUID.nameUUIDFromBytes((record + '#' + i).getBytes(StandardCharsets.UTF_8)).toString();
+            result.add(chunks.get(i).mutate().id(id).build());
+        }
+        return result;
+    }
+
+    private void write(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write(NEWLINE);
+    }
+
+    @FunctionalInterface
+    public interface RecordParser {
+        Document parse(String line) throws IOException;
+    }
+
+    /**
+     * 一行的确认：成功时带各分块的 id，失败时带错误信息
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Ack(long line, String status, List<String> ids, String error) {
+    }
+
+    /**
+     * 最后一行的汇总，chunks 为成功写入的分块数
+     */
+    public record Summary(long records, long chunks, long failed, long elapsedMs) {
+    }
+
+    /**
+     * 当前一批待写入的分块与确认，以及整个导入的累计数
+     */
+    private static class Batch {
+        private final List<Document> chunks = new ArrayList<>();
+        private final List<Ack> acks = new ArrayList<>();
+        private long records;
+        private long written;
+        private long failed;
+    }
+}
@@ -1,13 +1,22 @@
 package com.example.springai.service;
 
+import com.example.springai.config.SummaryProperties;
+import com.example.springai.vectorstore.SearchPrecision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.vectorstore.QuestionAnswerAdvisor;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * RAG (Retrieval Augmented Generation) 服务
@@ -17,11 +26,25 @@ import java.util.List;
 @Service
 public class RAGService {
 
+    private static final Logger logger = LoggerFactory.getLogger(RAGService.class);
+    private static final String SEPARATOR = "\n\n";
+    // 模型不遵守摘要长度要求时，逐层合并的层数上限
+    private static final int MAX_REDUCE_ROUNDS = 8;
+
     private final VectorStore vectorStore;
+    private final VectorSearchService vectorSearchService;
     private final ChatClient ragChatClient;
+    // 摘要不需要 QuestionAnswerAdvisor 再检索一次
+    private final ChatClient chatClient;
+    private final SummaryProperties summaryProperties;
 
-    public RAGService(VectorStore vectorStore, ChatClient.Builder chatClientBuilder) {
+    public RAGService(VectorStore vectorStore, VectorSearchService vectorSearchService,
+                      ChatClient.Builder chatClientBuilder, ChatClient chatClient,
+                      SummaryProperties summaryProperties) {
         this.vectorStore = vectorStore;
+        this.vectorSearchService = vectorSearchService;
+        this.chatClient = chatClient;
+        this.summaryProperties = summaryProperties;
 
         // 配置带有RAG功能的ChatClient，使用QuestionAnswerAdvisor
         this.ragChatClient = chatClientBuilder
@@ -33,55 +56,177 @@ public class RAGService {
      * 添加文档到知识库
      */
     public void addDocument(String content, String title, String category) {
+        vectorStore.add(List.of(toDocument(content, title, category)));
+    }
+
+    /**
+     * 知识库文档：标题、分类和入库时间记在元数据中，未提供的标题和分类不写入（分块时元数据不允许 null 值）
+     */
+    public Document toDocument(String content, String title, String category) {
         Document document = new Document(content);
-        document.getMetadata().put("title", title);
-        document.getMetadata().put("category", category);
+        if (title != null) {
+            document.getMetadata().put("title", title);
+        }
+        if (category != null) {
+            document.getMetadata().put("category", category);
+        }
         document.getMetadata().put("timestamp", System.currentTimeMillis());
-        
-        vectorStore.add(List.of(document));
+        return document;
     }
 
     /**
      * 基于知识库的问答
      */
     public String askQuestion(String question) {
-        return ragChatClient.prompt()
+        return askQuestion(question, null);
+    }
+
+    public String askQuestion(String question, SearchPrecision precision) {
+        return vectorSearchService.withPrecision("rag-ask", null, precision, () -> ragChatClient.prompt()
             .user(question)
             .call()
-            .content();
+            .content());
     }
 
     /**
      * 搜索相关文档
      */
     public List<Document> searchDocuments(String query, int topK) {
+        return searchDocuments(query, topK, null);
+    }
+
+    public List<Document> searchDocuments(String query, int topK, SearchPrecision precision) {
         SearchRequest request = SearchRequest.builder()
             .query(query)
             .topK(topK)
             .similarityThreshold(0.7)
             .build();
         
-        return vectorStore.similaritySearch(request);
+        return vectorSearchService.search("rag-search", null, precision, request);
     }
 
     /**
      * 获取文档摘要
      */
     public String summarizeDocuments(String query) {
-        List<Document> documents = searchDocuments(query, 3);
-        
-        if (documents.isEmpty()) {
-            return "没有找到相关文档。";
-        }
+        return summarizeDocumentsStream(query).collect(Collectors.joining()).block();
+    }
+
+    /**
+     * 流式返回文档摘要（map-reduce）
+     * <p>
+     * 检索 candidates 篇候选文档，超过 partitionChars 的单篇先切开，再按 partitionChars 分组后并发摘要
+     * （最多 concurrency 个调用同时进行），分组摘要合起来仍超过 partitionChars 时再分组合并，直到一次调用放得下，
+     * 最后一次合并流式返回。候选文档一次放得下时只调用一次模型。每次模型调用携带的内容都不超过 partitionChars。
+     */
+    public Flux<String> summarizeDocumentsStream(String query) {
+        SearchRequest request = SearchRequest.builder()
+            .query(query)
+            .topK(summaryProperties.getCandidates())
+            .similarityThreshold(0.7)
+            .build();
+        return Mono.fromCallable(() -> vectorSearchService.search("rag-summarize", null, null, request))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(documents -> {
+                if (documents.isEmpty()) {
+                    return Flux.just("没有找到相关文档。");
+                }
+                int maxChars = summaryProperties.getPartitionChars();
+                List<String> texts = documents.stream().map(Document::getText).toList();
+                List<String> partitions = partition(split(texts, maxChars), maxChars);
+                if (partitions.size() == 1) {
+                    return stream("请基于以下内容生成摘要：\n" + partitions.get(0));
+                }
+                return summarize(partitions, "请概括以下内容中与“" + query + "”相关的要点，不超过 "
+                        + maxChars / 4 + " 字：\n")
+                    .flatMap(summaries -> reduce(summaries, 1))
+                    .flatMapMany(summaries -> stream(
+                        "请把以下几段摘要合并为一份完整的摘要：\n" + String.join(SEPARATOR, summaries)));
+            });
+    }
 
-        StringBuilder context = new StringBuilder();
-        for (Document doc : documents) {
-            context.append(doc.getText()).append("\n\n");
+    /**
+     * 分组摘要合起来超过 partitionChars 时逐层合并，直到一次调用放得下
+     * <p>
+     * 每段先切到不超过上限的一半，任意两段都能放进一次调用，每层至少两两合并；合并时要求输出不超过上限的四分之一，
+     * 下一层每次调用能合并更多段。模型不遵守长度要求、合并 {@value #MAX_REDUCE_ROUNDS} 层后仍放不下时截断到上限。
+     */
+    private Mono<List<String>> reduce(List<String> summaries, int round) {
+        int maxChars = summaryProperties.getPartitionChars();
+        String joined = String.join(SEPARATOR, summaries);
+        if (joined.length() <= maxChars) {
+            return Mono.just(summaries);
+        }
+        if (round > MAX_REDUCE_ROUNDS) {
+            logger.warn("分组摘要合并 {} 层后仍有 {} 字符，截断到 {}", MAX_REDUCE_ROUNDS, joined.length(), maxChars);
+            return Mono.just(List.of(joined.substring(0, maxChars)));
         }
+        List<String> partitions = partition(split(summaries, Math.max(1, (maxChars - SEPARATOR.length()) / 2)), maxChars);
+        return summarize(partitions, "请把以下几段摘要合并为一份不超过 " + maxChars / 4 + " 字的摘要，保留关键信息：\n")
+            .flatMap(merged -> reduce(merged, round + 1));
+    }
 
-        return ragChatClient.prompt()
-            .user("请基于以下内容生成摘要：\n" + context.toString())
-            .call()
+    private Mono<List<String>> summarize(List<String> partitions, String instruction) {
+        return Flux.fromIterable(partitions)
+            .flatMapSequential(partition -> Mono.fromCallable(() -> chatClient.prompt()
+                    .user(instruction + partition)
+                    .call()
+                    .content())
+                .subscribeOn(Schedulers.boundedElastic()), Math.max(1, summaryProperties.getConcurrency()))
+            .collectList();
+    }
+
+    private Flux<String> stream(String prompt) {
+        return chatClient.prompt()
+            .user(prompt)
+            .stream()
             .content();
     }
-}
\ No newline at end of file
+
+    /**
+     * 把超过 maxChars 的文本切成不超过 maxChars 的片段，尽量在后半段的换行或句末处切开
+     */
+    static List<String> split(List<String> texts, int maxChars) {
+        List<String> pieces = new ArrayList<>();
+        for (String text : texts) {
+            int start = 0;
+            while (text.length() - start > maxChars) {
+                int end = start + maxChars;
+                int cut = end;
+                for (int i = end - 1; i > start + maxChars / 2; i--) {
+                    char c = text.charAt(i);
+                    if (c == '\n' || c == '。' || c == '！' || c == '？' || c == '.') {
+                        cut = i + 1;
+                        break;
+                    }
+                }
+                pieces.add(text.substring(start, cut));
+                start = cut;
+            }
+            pieces.add(text.substring(start));
+        }
+        return pieces;
+    }
+
+    /**
+     * 按顺序把不超过 maxChars 的片段拼成不超过 maxChars 的分组
+     */
+    static List<String> partition(List<String> texts, int maxChars) {
+        List<String> partitions = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String text : texts) {
+            if (current.length() > 0 && current.length() + SEPARATOR.length() + text.length() > maxChars) {
+                partitions.add(current.toString());
+                current.setLength(0);
+            }
+            if (current.length() > 0) {
+                current.append(SEPARATOR);
+            }
+            current.append(text);
+        }
+        if (current.length() > 0) {
+            partitions.add(current.toString());
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.springai.service;
+
+import com.example.springai.vectorstore.HnswVectorStore;
+import com.example.springai.vectorstore.PgVectorDump;
+import com.example.springai.vectorstore.VectorDumpFormatException;
+import com.example.springai.vectorstore.VectorDumpReader;
+import com.example.springai.vectorstore.VectorDumpRecord;
+import com.example.springai.vectorstore.VectorDumpWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 向量存储的导出与导入，用于新环境或边缘节点直接载入已有的向量，不再重新调用向量化接口
+ * <p>
+ * 导出文件格式见 {@link VectorDumpWriter}，包含 id、文本、元数据和向量；指定 since 时只导出此后新增或修改的文档，
+ * 删除不会体现在增量中。导入时已有的 id 被覆盖：pgvector 经 COPY 在一个事务内写入（{@link PgVectorDump}），
+ * 进程内 HNSW 存储按批写入并建图，向量放在 embedded-vector-store.storage-directory 的内存映射文件中。
+ */
+@Service
+public class VectorDumpService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorDumpService.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final VectorStore vectorStore;
+    private final ObjectProvider<PgVectorDump> pgVectorDump;
+    private final ObjectMapper objectMapper;
+
+    public VectorDumpService(VectorStore vectorStore, ObjectProvider<PgVectorDump> pgVectorDump,
+                             ObjectMapper objectMapper) {
+        this.vectorStore = vectorStore;
+        this.pgVectorDump = pgVectorDump;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 导出到输出流，返回导出的记录数
+     *
+     * @param since 为 null 时导出全部
+     */
+    public long export(@Nullable Instant since, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        try (VectorDumpWriter writer = new VectorDumpWriter(out)) {
+            try {
+                if (vectorStore instanceof HnswVectorStore hnsw) {
+                    hnsw.export(since != null ? since.toEpochMilli() : Long.MIN_VALUE, BATCH_SIZE,
+                            batch -> batch.forEach(document -> write(writer, document)));
+                } else {
+                    pgVectorDump().export(since != null ? Timestamp.from(since) : null, writer);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+            logger.info("向量导出完成: {} 条，since={}，耗时 {} ms", writer.records(), since,
+                    System.currentTimeMillis() - start);
+            return writer.records();
+        }
+    }
+
+    /**
+     * 从输入流导入；文件损坏时抛出 {@link VectorDumpFormatException}，HNSW 存储中已写入的批次保留，pgvector 整体回滚
+     */
+    public ImportResult importFrom(InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        try (VectorDumpReader reader = new VectorDumpReader(in)) {
+            long records;
+            try {
+                records = vectorStore instanceof HnswVectorStore hnsw
+                        ? importInto(hnsw, reader)
+                        : pgVectorDump().importFrom(reader);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            logger.info("向量导入完成: {} 条，耗时 {} ms", records, elapsed);
+            return new ImportResult(records, reader.dimensions(), elapsed);
+        }
+    }
+
+    private long importInto(HnswVectorStore hnsw, VectorDumpReader reader) throws IOException {
+        long records = 0;
+        List<Document> documents = new ArrayList<>(BATCH_SIZE);
+        List<float[]> embeddings = new ArrayList<>(BATCH_SIZE);
+        VectorDumpRecord record;
+        while ((record = reader.next()) != null) {
+            documents.add(Document.builder().id(record.id()).text(record.text())
+                    .metadata(record.metadata() != null
+                            ? objectMapper.readValue(record.metadata(), METADATA_TYPE) : new HashMap<>())
+                    .build());
+            embeddings.add(record.embedding());
+            if (documents.size() == BATCH_SIZE) {
+                hnsw.addWithEmbeddings(documents, embeddings);
+                records += documents.size();
+                documents.clear();
+                embeddings.clear();
+            }
+        }
+        hnsw.addWithEmbeddings(documents, embeddings);
+        return records + documents.size();
+    }
+
+    private void write(VectorDumpWriter writer, HnswVectorStore.ExportedDocument document) {
+        try {
+            writer.write(new VectorDumpRecord(document.id(), document.text(),
+                    objectMapper.writeValueAsString(document.metadata()), document.embedding(), document.updatedAt()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("元数据序列化失败: " + document.id(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PgVectorDump pgVectorDump() {
+        PgVectorDump dump = pgVectorDump.getIfAvailable();
+        if (dump == null) {
+            throw new IllegalStateException("当前向量存储不支持导出导入: " + vectorStore.getName());
+        }
+        return dump;
+    }
+
+    /**
+     * @param dimensions 导入文件中向量的维度
+     */
+    public record ImportResult(long records, int dimensions, long elapsedMs) {
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.springai.service;
+
+import com.example.springai.config.VectorSearchProperties;
+import com.example.springai.vectorstore.PrecomputedEmbeddingModel;
+import com.example.springai.vectorstore.SearchPrecision;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 按接口和分类选择检索精度档位，并记录各档位的耗时与召回率
+ * <p>
+ * 耗时记录在 {@code vector.search}（tag: endpoint、precision，含问题向量化）。按抽样率在后台以 EXACT 档位重跑同一检索，
+ * 重跑时通过 {@link PrecomputedEmbeddingModel} 复用原检索的问题向量，不再调用向量化接口；
+ * 召回率记录在 {@code vector.search.recall}（tag: precision）。
+ * <p>
+ * 批量检索把全部问题在一次请求中向量化，再以有限并发逐条检索，结果按请求顺序返回。
+ */
+@Service
+public class VectorSearchService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorSearchService.class);
+
+    private final VectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final VectorSearchProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor recallExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), runnable -> {
+                Thread thread = new Thread(runnable, "vector-recall-sampler");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    public VectorSearchService(VectorStore vectorStore, EmbeddingModel embeddingModel,
+                               VectorSearchProperties properties, MeterRegistry meterRegistry) {
+        this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 以选定的档位执行检索
+     *
+     * @param requested 请求指定的档位，为 null 时依次取分类、接口配置和默认档位
+     */
+    public List<Document> search(String endpoint, String category, SearchPrecision requested, SearchRequest request) {
+        SearchPrecision precision = resolve(endpoint, category, requested);
+        // 抽样时绑定问题向量映射（批量检索已绑定时沿用），记下本次检索的问题向量供重跑复用
+        Map<String, float[]> embeddings = null;
+        if (shouldSampleRecall(precision)) {
+            embeddings = PrecomputedEmbeddingModel.current();
+            if (embeddings == null) {
+                embeddings = new ConcurrentHashMap<>();
+            }
+        }
+        List<Document> documents;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (SearchPrecision.Scope scope = precision.open();
+             PrecomputedEmbeddingModel.Scope bound = embeddings != null
+                     ? PrecomputedEmbeddingModel.use(embeddings) : null) {
+            documents = vectorStore.similaritySearch(request);
+        } finally {
+            sample.stop(Timer.builder("vector.search")
+                    .description("向量检索耗时")
+                    .tag("endpoint", endpoint)
+                    .tag("precision", precision.tagValue())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        if (embeddings != null) {
+            sampleRecall(precision, request, documents, embeddings);
+        }
+        return documents;
+    }
+
+    /**
+     * 批量检索：问题一次向量化，同时执行的检索数不超过 batch-concurrency，结果按请求顺序逐条发出；
+     * 单条检索失败时该条结果带错误信息，不影响其他检索
+     *
+     * @throws IllegalArgumentException 超过 batch-max-queries 条时在开始检索前抛出
+     */
+    public Flux<BatchResult> searchBatch(String endpoint, SearchPrecision requested, List<SearchRequest> requests) {
+        if (requests.size() > properties.getBatchMaxQueries()) {
+            throw new IllegalArgumentException(
+                    "批量检索最多 " + properties.getBatchMaxQueries() + " 条，实际 " + requests.size());
+        }
+        return Mono.fromCallable(() -> embedQueries(requests))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(embeddings -> Flux.range(0, requests.size()).flatMapSequential(
+                        index -> searchOne(endpoint, requested, index, requests.get(index), embeddings),
+                        Math.max(1, properties.getBatchConcurrency())));
+    }
+
+    private Mono<BatchResult> searchOne(String endpoint, SearchPrecision requested, int index, SearchRequest request,
+                                        Map<String, float[]> embeddings) {
+        return Mono.fromCallable(() -> {
+                    try (PrecomputedEmbeddingModel.Scope scope = PrecomputedEmbeddingModel.use(embeddings)) {
+                        return BatchResult.of(index, request.getQuery(), search(endpoint, null, requested, request));
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.warn("批量检索第 {} 条失败: {}", index, e.getMessage());
+                    return Mono.just(BatchResult.failed(index, request.getQuery(), e.getMessage()));
+                });
+    }
+
+    private Map<String, float[]> embedQueries(List<SearchRequest> requests) {
+        List<String> queries = requests.stream().map(SearchRequest::getQuery).distinct().toList();
+        List<float[]> embeddings = embeddingModel.embed(queries);
+        // 检索线程会把未命中的问题向量写回，需线程安全
+        Map<String, float[]> byQuery = new ConcurrentHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            byQuery.put(queries.get(i), embeddings.get(i));
+        }
+        return byQuery;
+    }
+
+    /**
+     * 在选定的档位下执行会触发检索的其他操作（如带 QuestionAnswerAdvisor 的问答），不单独计时
+     */
+    public <T> T withPrecision(String endpoint, String category, SearchPrecision requested, Supplier<T> action) {
+        try (SearchPrecision.Scope scope = resolve(endpoint, category, requested).open()) {
+            return action.get();
+        }
+    }
+
+    private SearchPrecision resolve(String endpoint, String category, SearchPrecision requested) {
+        if (requested != null) {
+            return requested;
+        }
+        SearchPrecision byCategory = category != null ? properties.getCategories().get(category) : null;
+        if (byCategory != null) {
+            return byCategory;
+        }
+        return properties.getEndpoints().getOrDefault(endpoint, properties.getPrecision());
+    }
+
+    private boolean shouldSampleRecall(SearchPrecision precision) {
+        return precision != SearchPrecision.EXACT && properties.getRecallSampleRate() > 0
+                && ThreadLocalRandom.current().nextDouble() < properties.getRecallSampleRate();
+    }
+
+    private void sampleRecall(SearchPrecision precision, SearchRequest request, List<Document> documents,
+                              Map<String, float[]> embeddings) {
+        List<String> returned = documents.stream().map(Document::getId).toList();
+        recallExecutor.execute(() -> {
+            try (SearchPrecision.Scope scope = SearchPrecision.EXACT.open();
+                 PrecomputedEmbeddingModel.Scope bound = PrecomputedEmbeddingModel.use(embeddings)) {
+                List<Document> exact = vectorStore.similaritySearch(request);
+                if (exact.isEmpty()) {
+                    return;
+                }
+                Set<String> expected = new HashSet<>(exact.stream().map(Document::getId).toList());
+                long hits = returned.stream().filter(expected::contains).count();
+                DistributionSummary.builder("vector.search.recall")
+                        .description("各精度档位相对精确检索的召回率（抽样）")
+                        .tag("precision", precision.tagValue())
+                        .register(meterRegistry)
+                        .record((double) hits / expected.size());
+            } catch (Exception e) {
+                logger.debug("召回率抽样失败", e);
+            }
+        });
+    }
+
+    /**
+     * 批量检索的单条结果，NDJSON 中的一行
+     *
+     * @param error 检索失败时的错误信息，成功时为 null
+     */
+    public record BatchResult(int index, String query, List<Document> documents, String error) {
+
+        static BatchResult of(int index, String query, List<Document> documents) {
+            return new BatchResult(index, query, documents, null);
+        }
+
+        static BatchResult failed(int index, String query, String error) {
+            return new BatchResult(index, query, List.of(), error);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        recallExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.springai.service;
+
+import com.example.springai.config.VectorStatsProperties;
+import com.example.springai.vectorstore.HnswVectorStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.observation.DefaultVectorStoreObservationConvention;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 向量存储的容量与健康统计
+ * <p>
+ * 分类行数、表和索引大小、HNSW 索引与 shared_buffers 的比值、死元组比例由后台线程按 refresh-ms 定期采集，
+ * 同时发布为 {@code vector.store.*} 指标；索引超出 shared_buffers 或死元组比例升高时检索延迟会明显变差，应提前扩容或 VACUUM。
+ * 进程内 HNSW 存储的索引大小为堆外向量的字节数，已删除仍留在图中的节点计为死元组。
+ * <p>
+ * 检索与写入延迟取自向量存储的观测指标 {@code db.vector.client.operation}（operation 为 query / add），
+ * 分位数为 Micrometer 滑动窗口内的值，需在 management.metrics.distribution.percentiles 中开启。
+ */
+@Service
+public class VectorStoreStatsService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorStoreStatsService.class);
+    private static final String CATEGORY = "category";
+    private static final String UNCATEGORIZED = "none";
+    private static final String OTHER = "other";
+
+    private final VectorStore vectorStore;
+    @Nullable
+    private final JdbcTemplate jdbcTemplate;
+    private final String qualifiedTableName;
+    private final VectorStatsProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final MultiGauge documentsByCategory;
+    private final ScheduledThreadPoolExecutor refresher = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "vector-stats-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile StorageStats storage;
+
+    public VectorStoreStatsService(VectorStore vectorStore, ObjectProvider<JdbcTemplate> jdbcTemplate,
+                                   VectorStatsProperties properties, MeterRegistry meterRegistry,
+                                   @Value("${spring.ai.vectorstore.pgvector.schema-name:public}") String schemaName,
+                                   @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}") String tableName) {
+        this.vectorStore = vectorStore;
+        this.jdbcTemplate = jdbcTemplate.getIfAvailable();
+        this.qualifiedTableName = schemaName + "." + tableName;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.documentsByCategory = MultiGauge.builder("vector.store.documents")
+                .description("向量存储按分类的文档数")
+                .register(meterRegistry);
+        gauge("vector.store.table.bytes", "向量表（含 TOAST）占用的字节数", StorageStats::tableBytes);
+        gauge("vector.store.index.bytes", "向量表全部索引占用的字节数", StorageStats::indexBytes);
+        gauge("vector.store.hnsw.index.bytes", "HNSW 索引占用的字节数", StorageStats::hnswIndexBytes);
+        gauge("vector.store.hnsw.shared.buffers.ratio", "HNSW 索引大小与 shared_buffers 的比值，大于 1 时索引无法常驻缓存",
+                StorageStats::hnswSharedBuffersRatio);
+        gauge("vector.store.dead.tuple.ratio", "死元组占全部元组的比例", StorageStats::deadTupleRatio);
+        refresher.scheduleWithFixedDelay(this::refresh, 0, Math.max(1000, properties.getRefreshMs()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 最近一次采集的存储统计加上当前的检索与写入延迟
+     *
+     * @param refresh 为 true 或尚未采集过时同步重新采集
+     */
+    public VectorStoreStats stats(boolean refresh) {
+        StorageStats current = storage;
+        if (refresh || current == null) {
+            current = refresh();
+        }
+        return new VectorStoreStats(current, latency("query"), latency("add"));
+    }
+
+    private synchronized StorageStats refresh() {
+        try {
+            StorageStats collected = collect();
+            storage = collected;
+            List<MultiGauge.Row<?>> rows = new ArrayList<>();
+            collected.documentsByCategory().forEach((category, count) ->
+                    rows.add(MultiGauge.Row.of(Tags.of(CATEGORY, category), count)));
+            documentsByCategory.register(rows, true);
+            return collected;
+        } catch (Exception e) {
+            logger.warn("向量存储统计采集失败: {}", e.getMessage());
+            StorageStats previous = storage;
+            return previous != null ? previous : StorageStats.unavailable(e.getMessage());
+        }
+    }
+
+    private StorageStats collect() {
+        if (vectorStore instanceof HnswVectorStore hnsw) {
+            HnswVectorStore.Statistics statistics = hnsw.statistics(CATEGORY, UNCATEGORIZED);
+            int nodes = statistics.documents() + statistics.deleted();
+            return new StorageStats("hnsw", statistics.documents(), topCategories(statistics.counts()),
+                    null, statistics.vectorBytes(), statistics.vectorBytes(), null, null,
+                    statistics.deleted(), nodes > 0 ? (double) statistics.deleted() / nodes : 0, Instant.now(), null);
+        }
+        if (vectorStore instanceof PgVectorStore && jdbcTemplate != null) {
+            return collectPgVector(jdbcTemplate);
+        }
+        return StorageStats.unavailable("不支持的向量存储: " + vectorStore.getName());
+    }
+
+    private StorageStats collectPgVector(JdbcTemplate jdbc) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        jdbc.query("SELECT coalesce(metadata->>'category', ?) AS category, count(*) AS documents FROM "
+                        + qualifiedTableName + " GROUP BY 1",
+                rs -> {
+                    counts.put(rs.getString("category"), rs.getLong("documents"));
+                }, UNCATEGORIZED);
+        long documents = counts.values().stream().mapToLong(Long::longValue).sum();
+
+        Map<String, Object> sizes = jdbc.queryForMap("""
+                SELECT pg_total_relation_size(t.oid) AS table_bytes,
+                       pg_indexes_size(t.oid) AS index_bytes,
+                       (SELECT coalesce(sum(pg_relation_size(i.indexrelid)), 0) FROM pg_index i
+                          JOIN pg_class c ON c.oid = i.indexrelid JOIN pg_am am ON am.oid = c.relam
+                         WHERE i.indrelid = t.oid AND am.amname = 'hnsw') AS hnsw_index_bytes,
+                       pg_size_bytes(current_setting('shared_buffers')) AS shared_buffers_bytes,
+                       coalesce(s.n_live_tup, 0) AS live_tuples,
+                       coalesce(s.n_dead_tup, 0) AS dead_tuples
+                  FROM (SELECT ?::regclass AS oid) t
+                  LEFT JOIN pg_stat_user_tables s ON s.relid = t.oid
+                """, qualifiedTableName);
+        long hnswIndexBytes = ((Number) sizes.get("hnsw_index_bytes")).longValue();
+        long sharedBuffersBytes = ((Number) sizes.get("shared_buffers_bytes")).longValue();
+        long liveTuples = ((Number) sizes.get("live_tuples")).longValue();
+        long deadTuples = ((Number) sizes.get("dead_tuples")).longValue();
+        return new StorageStats("pgvector", documents, topCategories(counts),
+                ((Number) sizes.get("table_bytes")).longValue(), ((Number) sizes.get("index_bytes")).longValue(),
+                hnswIndexBytes, sharedBuffersBytes, hnswIndexBytes <= sharedBuffersBytes, deadTuples,
+                liveTuples + deadTuples > 0 ? (double) deadTuples / (liveTuples + deadTuples) : 0,
+                Instant.now(), null);
+    }
+
+    /**
+     * 按文档数取前 max-categories 个分类，其余合并为 other
+     */
+    private Map<String, Long> topCategories(Map<String, Long> counts) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> {
+                    String category = top.size() < properties.getMaxCategories() || top.containsKey(entry.getKey())
+                            ? entry.getKey() : OTHER;
+                    top.merge(category, entry.getValue(), Long::sum);
+                });
+        return top;
+    }
+
+    @Nullable
+    private Latency latency(String operation) {
+        Timer timer = meterRegistry.find(DefaultVectorStoreObservationConvention.DEFAULT_NAME)
+                .tag("db.operation.name", operation)
+                .tag("error", "none")
+                .timer();
+        if (timer == null) {
+            return null;
+        }
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            percentiles.put("p" + Math.round(value.percentile() * 100), value.value(TimeUnit.MILLISECONDS));
+        }
+        return new Latency(snapshot.count(), snapshot.mean(TimeUnit.MILLISECONDS),
+                snapshot.max(TimeUnit.MILLISECONDS), percentiles);
+    }
+
+    private void gauge(String name, String description, Function<StorageStats, Number> value) {
+        Gauge.builder(name, this, service -> {
+                    StorageStats current = service.storage;
+                    Number number = current != null ? value.apply(current) : null;
+                    return number != null ? number.doubleValue() : Double.NaN;
+                })
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    public record VectorStoreStats(StorageStats storage, @Nullable Latency search, @Nullable Latency insert) {
+    }
+
+    /**
+     * 一次采集的存储统计；不适用于当前存储的项为 null
+     *
+     * @param store                      pgvector 或 hnsw
+     * @param hnswIndexFitsSharedBuffers HNSW 索引能否完整放进 shared_buffers
+     * @param deadTupleRatio             死元组（或已删除节点）占全部元组的比例
+     * @param error                      采集失败时的原因
+     */
+    public record StorageStats(String store, long documents, Map<String, Long> documentsByCategory,
+                               @Nullable Long tableBytes, @Nullable Long indexBytes, @Nullable Long hnswIndexBytes,
+                               @Nullable Long sharedBuffersBytes, @Nullable Boolean hnswIndexFitsSharedBuffers,
+                               long deadTuples, double deadTupleRatio, @Nullable Instant collectedAt,
+                               @Nullable String error) {
+
+        static StorageStats unavailable(String error) {
+            return new StorageStats("unknown", 0, Map.of(), null, null, null, null, null, 0, 0, null, error);
+        }
+
+        double hnswSharedBuffersRatio() {
+            return hnswIndexBytes != null && sharedBuffersBytes != null && sharedBuffersBytes > 0
+                    ? (double) hnswIndexBytes / sharedBuffersBytes : Double.NaN;
+        }
+    }
+
+    /**
+     * 延迟统计，单位毫秒；count 为累计次数，percentiles 为最近窗口内的分位数
+     */
+    public record Latency(long count, double meanMs, double maxMs, Map<String, Double> percentiles) {
+    }
+}
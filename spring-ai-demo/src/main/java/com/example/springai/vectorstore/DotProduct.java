@@ -0,0 +1,95 @@
+package com.example.springai.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 向量点积内核
+ * <p>
+ * Java 17 的 Vector API 仍是孵化模块，只有以 {@code --add-modules jdk.incubator.vector} 启动时才能使用 SIMD 实现，
+ * 否则退回展开的标量循环。两种实现的结果只在浮点累加顺序上有差异。
+ * <p>
+ * 堆外向量直接从 ByteBuffer（本机字节序）读取参与计算，不先拷贝到堆内数组。
+ */
+abstract class DotProduct {
+
+    private static final Logger logger = LoggerFactory.getLogger(DotProduct.class);
+
+    static final DotProduct INSTANCE = select();
+
+    abstract float dot(float[] a, float[] b);
+
+    /**
+     * a 与 b 中从字节偏移 offset 开始的 a.length 个 float 求点积，b 为本机字节序
+     */
+    abstract float dot(float[] a, ByteBuffer b, int offset);
+
+    private static DotProduct select() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                DotProduct simd = new SimdDotProduct();
+                logger.info("向量距离计算使用 Vector API: {}", simd);
+                return simd;
+            } catch (LinkageError e) {
+                logger.warn("Vector API 不可用，向量距离计算退回标量实现", e);
+            }
+        } else {
+            logger.info("未启用 jdk.incubator.vector 模块，向量距离计算使用标量实现");
+        }
+        return new ScalarDotProduct();
+    }
+
+    /**
+     * 四路累加展开，减少循环依赖，便于 JIT 流水执行
+     */
+    static final class ScalarDotProduct extends DotProduct {
+
+        @Override
+        float dot(float[] a, float[] b) {
+            float s0 = 0;
+            float s1 = 0;
+            float s2 = 0;
+            float s3 = 0;
+            int i = 0;
+            int bound = a.length & ~3;
+            for (; i < bound; i += 4) {
+                s0 += a[i] * b[i];
+                s1 += a[i + 1] * b[i + 1];
+                s2 += a[i + 2] * b[i + 2];
+                s3 += a[i + 3] * b[i + 3];
+            }
+            for (; i < a.length; i++) {
+                s0 += a[i] * b[i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        float dot(float[] a, ByteBuffer b, int offset) {
+            float s0 = 0;
+            float s1 = 0;
+            float s2 = 0;
+            float s3 = 0;
+            int i = 0;
+            int bound = a.length & ~3;
+            for (; i < bound; i += 4) {
+                int at = offset + i * Float.BYTES;
+                s0 += a[i] * b.getFloat(at);
+                s1 += a[i + 1] * b.getFloat(at + Float.BYTES);
+                s2 += a[i + 2] * b.getFloat(at + 2 * Float.BYTES);
+                s3 += a[i + 3] * b.getFloat(at + 3 * Float.BYTES);
+            }
+            for (; i < a.length; i++) {
+                s0 += a[i] * b.getFloat(offset + i * Float.BYTES);
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.springai.vectorstore;
+
+import org.springframework.lang.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * HNSW（Hierarchical Navigable Small World）图索引
+ * <p>
+ * 向量写入前已归一化，距离取 1 - 点积（余弦距离）。节点编号从 0 连续递增，删除由调用方通过
+ * 搜索时的过滤条件跳过，已删除节点仍保留在图中参与导航。写入需外部串行化，搜索可以并发执行。
+ */
+final class HnswIndex implements AutoCloseable {
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final OffHeapVectors vectors;
+    private final SplittableRandom random;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * links[node][level] 的第 0 位是邻居数量，之后是邻居节点
+     */
+    private int[][][] links;
+    private int size;
+    private int entryPoint;
+    private int maxLevel;
+
+    HnswIndex(int dimensions, int m, int efConstruction, @Nullable Path storageDirectory) {
+        this(dimensions, m, efConstruction, storageDirectory, new int[1024][][], 0, -1, -1);
+    }
+
+    /**
+     * 从快照恢复：links 的前 size 项为各节点的邻接表，向量由调用方通过 {@link #setVector} 写入
+     */
+    HnswIndex(int dimensions, int m, int efConstruction, @Nullable Path storageDirectory, int[][][] links,
+              int size, int entryPoint, int maxLevel) {
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.vectors = new OffHeapVectors(dimensions, storageDirectory);
+        this.random = new SplittableRandom(42 + size);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(dimensions));
+        this.links = links.length > 0 ? links : new int[1024][][];
+        this.size = size;
+        this.entryPoint = entryPoint;
+        this.maxLevel = maxLevel;
+    }
+
+    int dimensions() {
+        return vectors.dimensions();
+    }
+
+    int size() {
+        return size;
+    }
+
+    int m() {
+        return m;
+    }
+
+    int entryPoint() {
+        return entryPoint;
+    }
+
+    int maxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * 节点各层的邻接表，第 0 位是邻居数量；供快照读取，不可修改
+     */
+    int[][] links(int node) {
+        return links[node];
+    }
+
+    /**
+     * 把节点的向量（已归一化）复制到 target
+     */
+    void vector(int node, float[] target) {
+        vectors.get(node, target);
+    }
+
+    /**
+     * 从快照恢复时写入节点的向量
+     */
+    void setVector(int node, float[] vector) {
+        vectors.set(node, vector);
+    }
+
+    /**
+     * 插入一个已归一化的向量，返回节点编号
+     */
+    int add(float[] vector) {
+        int node = size;
+        if (node == links.length) {
+            links = Arrays.copyOf(links, node * 2);
+        }
+        vectors.set(node, vector);
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[1 + (l == 0 ? maxM0 : m)];
+        }
+        links[node] = nodeLinks;
+        size++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        Scratch s = scratch.get();
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedy(vector, current, l, s);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] nearest = searchLayer(vector, current, efConstruction, l, n -> true, s);
+            int[] selected = selectNeighbors(nearest, m, s);
+            int[] list = nodeLinks[l];
+            list[0] = selected.length;
+            System.arraycopy(selected, 0, list, 1, selected.length);
+            for (int neighbor : selected) {
+                connect(neighbor, node, l, s);
+            }
+            current = node(nearest[0]);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * 搜索与 query 最相似的 k 个被 accept 接受的节点，按相似度降序返回
+     * <p>
+     * 不被接受的节点仍用于导航，过滤条件越严格遍历的节点越多，极端情况下退化为全量扫描，但结果不会遗漏。
+     */
+    List<Neighbor> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        Scratch s = scratch.get();
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedy(query, current, l, s);
+        }
+        long[] nearest = searchLayer(query, current, Math.max(ef, k), 0, accept, s);
+        List<Neighbor> result = new ArrayList<>(Math.min(k, nearest.length));
+        for (int i = 0; i < nearest.length && result.size() < k; i++) {
+            result.add(new Neighbor(node(nearest[i]), 1 - distance(nearest[i])));
+        }
+        return result;
+    }
+
+    /**
+     * 逐个比较所有被 accept 接受的节点，返回精确的 k 个最相似节点，用作召回率基准
+     */
+    List<Neighbor> exactSearch(float[] query, int k, IntPredicate accept) {
+        Scratch s = scratch.get();
+        LongHeap results = s.results;
+        results.clear();
+        for (int node = 0; node < size; node++) {
+            if (!accept.test(node)) {
+                continue;
+            }
+            float d = distance(query, node, s);
+            if (results.size() < k) {
+                results.push(-encode(d, node));
+            } else if (d < distance(-results.peek())) {
+                results.pop();
+                results.push(-encode(d, node));
+            }
+        }
+        Neighbor[] ordered = new Neighbor[results.size()];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            long encoded = -results.pop();
+            ordered[i] = new Neighbor(node(encoded), 1 - distance(encoded));
+        }
+        return List.of(ordered);
+    }
+
+    private int greedy(float[] query, int entry, int level, Scratch s) {
+        int current = entry;
+        float currentDistance = distance(query, current, s);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float d = distance(query, list[i], s);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = list[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在单层上做 ef 宽度的最佳优先搜索，返回按距离升序排列的编码结果
+     */
+    private long[] searchLayer(float[] query, int entry, int ef, int level, IntPredicate accept, Scratch s) {
+        s.visit(size);
+        LongHeap candidates = s.candidates;
+        LongHeap results = s.results;
+        candidates.clear();
+        results.clear();
+
+        float entryDistance = distance(query, entry, s);
+        s.markVisited(entry);
+        candidates.push(encode(entryDistance, entry));
+        if (accept.test(entry)) {
+            results.push(-encode(entryDistance, entry));
+        }
+        while (!candidates.isEmpty()) {
+            long candidate = candidates.pop();
+            if (results.size() >= ef && distance(candidate) > distance(-results.peek())) {
+                break;
+            }
+            int[] list = links[node(candidate)][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbor = list[i];
+                if (!s.markVisited(neighbor)) {
+                    continue;
+                }
+                float d = distance(query, neighbor, s);
+                if (results.size() < ef || d < distance(-results.peek())) {
+                    candidates.push(encode(d, neighbor));
+                    if (accept.test(neighbor)) {
+                        results.push(-encode(d, neighbor));
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+
+        long[] ordered = new long[results.size()];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            ordered[i] = -results.pop();
+        }
+        return ordered;
+    }
+
+    /**
+     * 启发式选邻居：候选比已选中的任一邻居更靠近自己时才保留，使邻居分布在不同方向上
+     */
+    private int[] selectNeighbors(long[] ascending, int max, Scratch s) {
+        int[] selected = new int[Math.min(max, ascending.length)];
+        int count = 0;
+        for (int i = 0; i < ascending.length && count < selected.length; i++) {
+            int candidate = node(ascending[i]);
+            float candidateDistance = distance(ascending[i]);
+            vectors.get(candidate, s.vector);
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (1 - vectors.dot(selected[j], s.vector) < candidateDistance) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private void connect(int node, int neighbor, int level, Scratch s) {
+        int[] list = links[node][level];
+        int capacity = list.length - 1;
+        if (list[0] < capacity) {
+            list[++list[0]] = neighbor;
+            return;
+        }
+        // 邻居已满：连同新邻居一起重新按启发式挑选
+        float[] base = s.base;
+        vectors.get(node, base);
+        long[] candidates = new long[capacity + 1];
+        for (int i = 0; i < capacity; i++) {
+            candidates[i] = encode(distance(base, list[i + 1], s), list[i + 1]);
+        }
+        candidates[capacity] = encode(distance(base, neighbor, s), neighbor);
+        Arrays.sort(candidates);
+        int[] selected = selectNeighbors(candidates, capacity, s);
+        list[0] = selected.length;
+        System.arraycopy(selected, 0, list, 1, selected.length);
+    }
+
+    private float distance(float[] query, int node, Scratch s) {
+        return Math.max(0, 1 - vectors.dot(node, query));
+    }
+
+    /**
+     * 距离非负，其 IEEE 754 位模式与数值大小顺序一致，放在高 32 位即可按 long 比较排序
+     */
+    private static long encode(float distance, int node) {
+        return ((long) Float.floatToRawIntBits(distance) << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    private static float distance(long encoded) {
+        return Float.intBitsToFloat((int) (encoded >>> 32));
+    }
+
+    private static int node(long encoded) {
+        return (int) encoded;
+    }
+
+    @Override
+    public void close() {
+        vectors.close();
+    }
+
+    record Neighbor(int node, float similarity) {
+    }
+
+    /**
+     * 每个线程复用的搜索缓冲区；visited 用递增的轮次标记，无需每次清零
+     */
+    private static final class Scratch {
+
+        private final float[] vector;
+        private final float[] base;
+        private final LongHeap candidates = new LongHeap(256);
+        private final LongHeap results = new LongHeap(256);
+        private int[] visited = new int[1024];
+        private int epoch;
+
+        Scratch(int dimensions) {
+            this.vector = new float[dimensions];
+            this.base = new float[dimensions];
+        }
+
+        void visit(int size) {
+            if (visited.length < size) {
+                visited = Arrays.copyOf(visited, Math.max(size, visited.length * 2));
+            }
+            if (++epoch == 0) {
+                Arrays.fill(visited, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * 标记节点已访问，首次访问返回 true
+         */
+        boolean markVisited(int node) {
+            if (visited[node] == epoch) {
+                return false;
+            }
+            visited[node] = epoch;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.springai.vectorstore;
+
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link HnswVectorStore} 的二进制快照：向量、图结构和文档一起保存，恢复时不重新建图，也不解析 JSON
+ * <p>
+ * 文件格式（小端序）：
+ * <pre>
+ * 文件头   magic "HNSW" | version | dimensions | m | size | entryPoint | maxLevel | live（均为 int）
+ * 每个节点 向量（dimensions 个 float）| 层数 int，每层邻居数 int + 邻居 int[] |
+ *          存活标记 byte，存活时再跟 updatedAt long | id | text | metadata
+ * 文件尾   整个文件之前部分的 CRC32C int | magic "HNSW"
+ * </pre>
+ * 字符串为 UTF-8，长度 int 前缀；元数据按类型标记逐个编码（见 {@link #writeValue}），
+ * 字符串、数值、布尔、List 和 Map 之外的值保存为 toString()。
+ * <p>
+ * 读取时按窗口内存映射文件，先整体校验 CRC，再顺序解析，向量直接从映射区拷贝到堆外存储。
+ */
+final class HnswSnapshot {
+
+    private static final int MAGIC = 0x57534E48;
+    private static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 4 * 1024 * 1024;
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte MAP = 7;
+    private static final byte LIST = 8;
+
+    private HnswSnapshot() {
+    }
+
+    /**
+     * 写入快照；调用方持有读锁，保证写入期间索引和文档不变
+     */
+    static void write(Path file, @Nullable HnswIndex index, List<HnswVectorStore.StoredDocument> documents, int live)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            int size = index != null ? index.size() : 0;
+            int dimensions = index != null ? index.dimensions() : 0;
+            out.ensure(8 * Integer.BYTES);
+            out.buffer.putInt(MAGIC).putInt(VERSION).putInt(dimensions)
+                    .putInt(index != null ? index.m() : 0).putInt(size)
+                    .putInt(index != null ? index.entryPoint() : -1).putInt(index != null ? index.maxLevel() : -1)
+                    .putInt(live);
+            float[] vector = new float[dimensions];
+            for (int node = 0; node < size; node++) {
+                index.vector(node, vector);
+                out.ensure(dimensions * Float.BYTES);
+                out.buffer.asFloatBuffer().put(vector);
+                out.buffer.position(out.buffer.position() + dimensions * Float.BYTES);
+
+                int[][] links = index.links(node);
+                out.ensure(Integer.BYTES);
+                out.buffer.putInt(links.length);
+                for (int[] level : links) {
+                    int count = level[0];
+                    out.ensure((count + 1) * Integer.BYTES);
+                    out.buffer.asIntBuffer().put(level, 0, count + 1);
+                    out.buffer.position(out.buffer.position() + (count + 1) * Integer.BYTES);
+                }
+
+                HnswVectorStore.StoredDocument document = documents.get(node);
+                out.ensure(1 + Long.BYTES);
+                if (document == null) {
+                    out.buffer.put((byte) 0);
+                    continue;
+                }
+                out.buffer.put((byte) 1).putLong(document.updatedAt());
+                out.putString(document.id());
+                out.putString(document.text());
+                writeValue(out, document.metadata());
+            }
+            out.flush();
+            ByteBuffer trailer = ByteBuffer.allocate(2 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt((int) out.crc.getValue()).putInt(MAGIC).flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * 读取快照
+     *
+     * @param efConstruction   恢复后继续写入时使用的建图参数；m 取快照中的值
+     * @param storageDirectory 向量段文件目录，为空时向量放在 direct buffer 中
+     */
+    static Restored read(Path file, int efConstruction, @Nullable Path storageDirectory) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < 10 * Integer.BYTES) {
+                throw new IOException("快照文件不完整: " + file);
+            }
+            verify(channel, length, file);
+            Input in = new Input(channel, length - 2 * Integer.BYTES);
+            in.ensure(8 * Integer.BYTES);
+            if (in.buffer.getInt() != MAGIC || in.buffer.getInt() != VERSION) {
+                throw new IOException("不是 HNSW 快照文件或版本不支持: " + file);
+            }
+            int dimensions = in.buffer.getInt();
+            int m = in.buffer.getInt();
+            int size = in.buffer.getInt();
+            int entryPoint = in.buffer.getInt();
+            int maxLevel = in.buffer.getInt();
+            int live = in.buffer.getInt();
+
+            List<HnswVectorStore.StoredDocument> documents = new ArrayList<>(size);
+            if (size == 0) {
+                return new Restored(null, documents, live);
+            }
+            int[][][] links = new int[Math.max(1024, size)][][];
+            HnswIndex index = new HnswIndex(dimensions, m, efConstruction, storageDirectory, links, size,
+                    entryPoint, maxLevel);
+            float[] vector = new float[dimensions];
+            for (int node = 0; node < size; node++) {
+                in.ensure(dimensions * Float.BYTES);
+                in.buffer.asFloatBuffer().get(vector);
+                in.buffer.position(in.buffer.position() + dimensions * Float.BYTES);
+                index.setVector(node, vector);
+
+                in.ensure(Integer.BYTES);
+                int[][] nodeLinks = new int[in.buffer.getInt()][];
+                for (int level = 0; level < nodeLinks.length; level++) {
+                    in.ensure(Integer.BYTES);
+                    int count = in.buffer.getInt();
+                    int[] list = new int[1 + (level == 0 ? 2 * m : m)];
+                    list[0] = count;
+                    in.ensure(count * Integer.BYTES);
+                    in.buffer.asIntBuffer().get(list, 1, count);
+                    in.buffer.position(in.buffer.position() + count * Integer.BYTES);
+                    nodeLinks[level] = list;
+                }
+                links[node] = nodeLinks;
+
+                in.ensure(1);
+                if (in.buffer.get() == 0) {
+                    documents.add(null);
+                    continue;
+                }
+                in.ensure(Long.BYTES);
+                long updatedAt = in.buffer.getLong();
+                String id = in.getString();
+                String text = in.getString();
+                @SuppressWarnings("unchecked")
+                Map<String, Object> metadata = (Map<String, Object>) readValue(in);
+                documents.add(new HnswVectorStore.StoredDocument(id, text, metadata, updatedAt));
+            }
+            return new Restored(index, documents, live);
+        }
+    }
+
+    /**
+     * 按窗口映射整个文件计算 CRC32C，与文件尾比较
+     */
+    private static void verify(FileChannel channel, long length, Path file) throws IOException {
+        long body = length - 2 * Integer.BYTES;
+        CRC32C crc = new CRC32C();
+        for (long position = 0; position < body; position += WINDOW_BYTES) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, body - position)));
+        }
+        ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, body, 2 * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        if (trailer.getInt() != (int) crc.getValue() || trailer.getInt() != MAGIC) {
+            throw new IOException("快照文件校验失败: " + file);
+        }
+    }
+
+    private static void writeValue(Output out, @Nullable Object value) throws IOException {
+        out.ensure(1 + Long.BYTES);
+        if (value == null) {
+            out.buffer.put(NULL);
+        } else if (value instanceof String string) {
+            out.buffer.put(STRING);
+            out.putString(string);
+        } else if (value instanceof Integer number) {
+            out.buffer.put(INT).putInt(number);
+        } else if (value instanceof Long number) {
+            out.buffer.put(LONG).putLong(number);
+        } else if (value instanceof Double number) {
+            out.buffer.put(DOUBLE).putDouble(number);
+        } else if (value instanceof Float number) {
+            out.buffer.put(FLOAT).putFloat(number);
+        } else if (value instanceof Boolean bool) {
+            out.buffer.put(BOOLEAN).put((byte) (bool ? 1 : 0));
+        } else if (value instanceof Map<?, ?> map) {
+            out.buffer.put(MAP).putInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.putString(String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Collection<?> collection) {
+            out.buffer.put(LIST).putInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, element);
+            }
+        } else {
+            out.buffer.put(STRING);
+            out.putString(value.toString());
+        }
+    }
+
+    @Nullable
+    private static Object readValue(Input in) throws IOException {
+        in.ensure(1);
+        byte type = in.buffer.get();
+        return switch (type) {
+            case NULL -> null;
+            case STRING -> in.getString();
+            case INT -> in.ensure(Integer.BYTES).getInt();
+            case LONG -> in.ensure(Long.BYTES).getLong();
+            case DOUBLE -> in.ensure(Double.BYTES).getDouble();
+            case FLOAT -> in.ensure(Float.BYTES).getFloat();
+            case BOOLEAN -> in.ensure(1).get() != 0;
+            case MAP -> {
+                int size = in.ensure(Integer.BYTES).getInt();
+                Map<String, Object> map = new HashMap<>(Math.max(4, size * 2));
+                for (int i = 0; i < size; i++) {
+                    String key = in.getString();
+                    map.put(key, readValue(in));
+                }
+                yield map;
+            }
+            case LIST -> {
+                int size = in.ensure(Integer.BYTES).getInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                yield list;
+            }
+            default -> throw new IOException("快照文件中的元数据类型无效: " + type);
+        };
+    }
+
+    /**
+     * @param index 快照为空时为 null
+     * @param live  存活的文档数
+     */
+    record Restored(@Nullable HnswIndex index, List<HnswVectorStore.StoredDocument> documents, int live) {
+    }
+
+    /**
+     * 经固定大小的 direct buffer 顺序写入文件，写出时累计 CRC
+     */
+    private static final class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(Integer.BYTES);
+            buffer.putInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 按窗口映射文件顺序读取；剩余字节不足时从当前位置重新映射下一个窗口
+     */
+    private static final class Input {
+
+        private final FileChannel channel;
+        private final long end;
+        private long windowStart;
+        private MappedByteBuffer buffer;
+
+        Input(FileChannel channel, long end) throws IOException {
+            this.channel = channel;
+            this.end = end;
+            map(0);
+        }
+
+        /**
+         * 保证当前窗口至少还有 bytes 个字节，返回当前窗口
+         */
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                long position = windowStart + buffer.position();
+                if (end - position < bytes) {
+                    throw new IOException("快照文件不完整");
+                }
+                map(position);
+            }
+            return buffer;
+        }
+
+        String getString() throws IOException {
+            ensure(Integer.BYTES);
+            int length = buffer.getInt();
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, end - position));
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
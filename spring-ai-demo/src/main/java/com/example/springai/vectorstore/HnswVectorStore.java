@@ -0,0 +1,532 @@
+package com.example.springai.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionConverter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * 进程内的 HNSW 向量存储，用于无 PostgreSQL 的边缘部署和测试
+ * <p>
+ * 向量归一化后存放在堆外（或内存映射文件），只有图结构和文档内容留在堆上；相似度为余弦相似度。
+ * 过滤表达式与 {@code SimpleVectorStore} 一样转换为 SpEL 在元数据上求值。
+ * 删除只做标记，被删除的节点继续参与图导航，占用的空间不回收；同一 id 重复写入视为先删除再插入。
+ * 写入在写锁内串行构建索引，搜索在读锁内并发执行。搜索宽度按当前线程的 {@link SearchPrecision} 选择，
+ * EXACT 档位逐个比较全部向量。
+ * <p>
+ * 配置快照文件后，启动时从快照恢复向量、图和文档（见 {@link HnswSnapshot}），不重新向量化也不重新建图；
+ * 有变化时定期写入快照，关闭时再写入一次。
+ */
+public class HnswVectorStore extends AbstractObservationVectorStore implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HnswVectorStore.class);
+
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final Map<SearchPrecision, Integer> efSearchPresets;
+    @Nullable
+    private final Path storageDirectory;
+    @Nullable
+    private final Path snapshotFile;
+    @Nullable
+    private final ScheduledExecutorService snapshotScheduler;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 串行化快照写入：读锁允许多个快照同时写同一个临时文件；先取本锁再取读锁
+    private final Object snapshotLock = new Object();
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private final List<StoredDocument> documents = new ArrayList<>();
+    private final FilterExpressionConverter filterExpressionConverter = new SimpleVectorStoreFilterExpressionConverter();
+    private final SpelExpressionParser expressionParser = new SpelExpressionParser();
+
+    @Nullable
+    private HnswIndex index;
+    // 每次写入或删除递增，与上次快照时的值不同才写快照；version 在写锁内修改，snapshotVersion 在快照锁内读写
+    private long version;
+    private long snapshotVersion;
+
+    protected HnswVectorStore(Builder builder) {
+        super(builder);
+        this.m = builder.m;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.efSearchPresets = builder.efSearchPresets;
+        this.storageDirectory = builder.storageDirectory;
+        this.snapshotFile = builder.snapshotFile;
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            restore(snapshotFile);
+        }
+        if (snapshotFile != null && builder.snapshotIntervalMs > 0) {
+            this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hnsw-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::scheduledSnapshot, builder.snapshotIntervalMs,
+                    builder.snapshotIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.snapshotScheduler = null;
+        }
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    @Override
+    public void doAdd(List<Document> documentList) {
+        Assert.notEmpty(documentList, "Documents list cannot be empty");
+        insert(documentList, embeddingModel.embed(documentList, EmbeddingOptionsBuilder.builder().build(),
+                batchingStrategy));
+    }
+
+    /**
+     * 写入已有向量的文档（如从导出文件恢复），不调用向量化接口，也不记录观测指标
+     */
+    public void addWithEmbeddings(List<Document> documentList, List<float[]> embeddings) {
+        Assert.isTrue(documentList.size() == embeddings.size(), "documents and embeddings must have the same size");
+        if (!documentList.isEmpty()) {
+            insert(documentList, embeddings);
+        }
+    }
+
+    /**
+     * 按写入顺序分批导出 updatedAt 不早于 since 的存活文档；每批在读锁内复制，回调在锁外执行，导出期间不阻塞写入
+     *
+     * @param since 毫秒时间戳
+     */
+    public void export(long since, int batchSize, Consumer<List<ExportedDocument>> consumer) {
+        int node = 0;
+        while (true) {
+            List<ExportedDocument> batch = new ArrayList<>(batchSize);
+            lock.readLock().lock();
+            try {
+                int end = index != null ? index.size() : 0;
+                if (node >= end) {
+                    return;
+                }
+                for (; node < end && batch.size() < batchSize; node++) {
+                    StoredDocument document = documents.get(node);
+                    if (document != null && document.updatedAt() >= since) {
+                        float[] embedding = new float[index.dimensions()];
+                        index.vector(node, embedding);
+                        batch.add(new ExportedDocument(document.id(), document.text(), document.metadata(),
+                                embedding, document.updatedAt()));
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        }
+    }
+
+    private void insert(List<Document> documentList, List<float[]> rawEmbeddings) {
+        List<float[]> embeddings = rawEmbeddings.stream().map(HnswVectorStore::normalize).toList();
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            if (index == null) {
+                index = new HnswIndex(embeddings.get(0).length, m, efConstruction, storageDirectory);
+            }
+            for (int i = 0; i < documentList.size(); i++) {
+                Document document = documentList.get(i);
+                float[] embedding = embeddings.get(i);
+                if (embedding.length != index.dimensions()) {
+                    throw new IllegalArgumentException("向量维度不一致: 期望 " + index.dimensions()
+                            + "，实际 " + embedding.length + "，文档 " + document.getId());
+                }
+                remove(document.getId());
+                int node = index.add(embedding);
+                version++;
+                documents.add(new StoredDocument(document.getId(), document.getText(),
+                        new HashMap<>(document.getMetadata()), now));
+                nodesById.put(document.getId(), node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            idList.forEach(this::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = filter(filterExpression);
+        lock.writeLock().lock();
+        try {
+            for (StoredDocument document : documents) {
+                if (document != null && filter.test(document.metadata())) {
+                    remove(document.id());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+        Predicate<Map<String, Object>> filter = request.hasFilterExpression()
+                ? filter(request.getFilterExpression())
+                : metadata -> true;
+
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return List.of();
+            }
+            IntPredicate accept = node -> {
+                StoredDocument document = documents.get(node);
+                return document != null && filter.test(document.metadata());
+            };
+            SearchPrecision precision = SearchPrecision.current();
+            List<HnswIndex.Neighbor> neighbors = precision == SearchPrecision.EXACT
+                    ? index.exactSearch(query, request.getTopK(), accept)
+                    : index.search(query, request.getTopK(),
+                            precision != null ? efSearchPresets.getOrDefault(precision, efSearch) : efSearch, accept);
+            List<Document> result = new ArrayList<>(request.getTopK());
+            for (HnswIndex.Neighbor neighbor : neighbors) {
+                if (neighbor.similarity() < request.getSimilarityThreshold()) {
+                    break;
+                }
+                result.add(documents.get(neighbor.node()).toDocument(neighbor.similarity()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前存活的文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按元数据字段统计存活文档数，以及已删除但仍留在图中的节点数和堆外向量占用的字节数
+     *
+     * @param missing 文档没有该字段时计入的值
+     */
+    public Statistics statistics(String metadataKey, String missing) {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new HashMap<>();
+            for (StoredDocument document : documents) {
+                if (document != null) {
+                    Object value = document.metadata().get(metadataKey);
+                    counts.merge(value != null ? value.toString() : missing, 1L, Long::sum);
+                }
+            }
+            int nodes = index != null ? index.size() : 0;
+            long vectorBytes = index != null ? (long) nodes * index.dimensions() * Float.BYTES : 0;
+            return new Statistics(nodesById.size(), nodes - nodesById.size(), vectorBytes, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        return VectorStoreObservationContext.builder("hnsw", operationName)
+                .dimensions(index != null ? index.dimensions() : null)
+                .collectionName("in-process-hnsw")
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+    }
+
+    /**
+     * 把当前的向量、图结构和文档写入快照文件，自上次快照后没有变化时跳过
+     * <p>
+     * 先写临时文件再原子替换，写入中途退出不会损坏已有的快照。写入期间持有读锁，检索照常进行，写入等待快照完成；
+     * 同时只有一个快照在写。
+     *
+     * @return 是否写入了快照
+     */
+    public boolean snapshot() throws IOException {
+        Assert.state(snapshotFile != null, "snapshotFile is not configured");
+        synchronized (snapshotLock) {
+            lock.readLock().lock();
+            try {
+                return writeSnapshot();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private boolean writeSnapshot() throws IOException {
+        if (version == snapshotVersion) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        if (snapshotFile.getParent() != null) {
+            Files.createDirectories(snapshotFile.getParent());
+        }
+        HnswSnapshot.write(temporary, index, documents, nodesById.size());
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotVersion = version;
+        logger.info("HNSW 快照已写入: {} 个文档，{} ms，{}", nodesById.size(),
+                System.currentTimeMillis() - start, snapshotFile);
+        return true;
+    }
+
+    /**
+     * 停止定期快照并写入最后一次快照，再释放索引
+     * <p>
+     * 正在写的定期快照不中断（中断会关闭文件通道），等它完成后再写最后一次。
+     */
+    @Override
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                if (!snapshotScheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                    logger.warn("等待定期快照完成超时");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (snapshotFile != null) {
+            scheduledSnapshot();
+        }
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                index.close();
+                index = null;
+            }
+            documents.clear();
+            nodesById.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            logger.warn("HNSW 快照写入失败: {}", e.getMessage());
+        }
+    }
+
+    private void restore(Path file) {
+        long start = System.currentTimeMillis();
+        HnswSnapshot.Restored restored;
+        try {
+            restored = HnswSnapshot.read(file, efConstruction, storageDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("HNSW 快照加载失败，修复或删除该文件后重启: " + file, e);
+        }
+        index = restored.index();
+        documents.addAll(restored.documents());
+        for (int node = 0; node < documents.size(); node++) {
+            StoredDocument document = documents.get(node);
+            if (document != null) {
+                nodesById.put(document.id(), node);
+            }
+        }
+        logger.info("HNSW 快照已加载: {} 个文档，{} ms，{}", nodesById.size(), System.currentTimeMillis() - start, file);
+    }
+
+    private void remove(String id) {
+        Integer node = nodesById.remove(id);
+        if (node != null) {
+            documents.set(node, null);
+            version++;
+        }
+    }
+
+    /**
+     * 过滤表达式在一次请求内只解析一次，求值上下文也复用（同一请求的过滤在单个线程内顺序执行）
+     */
+    private Predicate<Map<String, Object>> filter(Filter.Expression filterExpression) {
+        Expression expression = expressionParser.parseExpression(
+                filterExpressionConverter.convertExpression(filterExpression));
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        return metadata -> {
+            context.setVariable("metadata", metadata);
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+
+    /**
+     * 返回归一化后的副本，不修改模型返回的数组
+     */
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            throw new IllegalArgumentException("Vectors cannot have zero norm");
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    record StoredDocument(String id, String text, Map<String, Object> metadata, long updatedAt) {
+
+        Document toDocument(double score) {
+            Map<String, Object> copy = new HashMap<>(metadata);
+            copy.put(DocumentMetadata.DISTANCE.value(), 1.0 - score);
+            return Document.builder().id(id).text(text).metadata(copy).score(score).build();
+        }
+    }
+
+    /**
+     * @param documents 存活的文档数
+     * @param deleted   已删除但仍占用索引空间的节点数
+     * @param counts    按元数据字段取值统计的存活文档数
+     */
+    public record Statistics(int documents, int deleted, long vectorBytes, Map<String, Long> counts) {
+    }
+
+    /**
+     * 导出的文档，向量为写入时归一化后的值
+     *
+     * @param updatedAt 写入时间（毫秒时间戳）
+     */
+    public record ExportedDocument(String id, String text, Map<String, Object> metadata, float[] embedding,
+                                   long updatedAt) {
+    }
+
+    public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 64;
+        private Map<SearchPrecision, Integer> efSearchPresets = Map.of();
+        @Nullable
+        private Path storageDirectory;
+        @Nullable
+        private Path snapshotFile;
+        private long snapshotIntervalMs = 60000;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            super(embeddingModel);
+        }
+
+        /**
+         * 每个节点在上层图中的最大邻居数，第 0 层为 2m
+         */
+        public Builder m(int m) {
+            Assert.isTrue(m >= 2, "m must be at least 2");
+            this.m = m;
+            return this;
+        }
+
+        /**
+         * 建图时的候选集宽度，越大召回越高、写入越慢
+         */
+        public Builder efConstruction(int efConstruction) {
+            Assert.isTrue(efConstruction > 0, "efConstruction must be positive");
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        /**
+         * 搜索时的候选集宽度，实际取 max(efSearch, topK)
+         */
+        public Builder efSearch(int efSearch) {
+            Assert.isTrue(efSearch > 0, "efSearch must be positive");
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        /**
+         * 各精度档位的搜索宽度，未绑定档位或档位未配置时使用 {@link #efSearch(int)}
+         */
+        public Builder efSearchPresets(Map<SearchPrecision, Integer> efSearchPresets) {
+            this.efSearchPresets = Map.copyOf(efSearchPresets);
+            return this;
+        }
+
+        /**
+         * 向量段文件所在目录；为空时向量存放在 direct buffer 中
+         */
+        public Builder storageDirectory(@Nullable Path storageDirectory) {
+            this.storageDirectory = storageDirectory;
+            return this;
+        }
+
+        /**
+         * 快照文件；设置后启动时从该文件恢复（存在时），并定期和关闭时写入快照
+         */
+        public Builder snapshotFile(@Nullable Path snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        /**
+         * 定期快照的间隔，不大于 0 时只在关闭时写入
+         */
+        public Builder snapshotIntervalMs(long snapshotIntervalMs) {
+            this.snapshotIntervalMs = snapshotIntervalMs;
+            return this;
+        }
+
+        @Override
+        public HnswVectorStore build() {
+            return new HnswVectorStore(this);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.springai.vectorstore;
+
+import java.util.Arrays;
+
+/**
+ * long 类型的最小堆；HNSW 搜索把（距离, 节点）编码成一个 long 放入堆中，避免装箱
+ */
+final class LongHeap {
+
+    private long[] heap;
+    private int size;
+
+    LongHeap(int initialCapacity) {
+        this.heap = new long[Math.max(initialCapacity, 8)];
+    }
+
+    void push(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    long peek() {
+        return heap[0];
+    }
+
+    long pop() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (size > 0) {
+            heap[i] = last;
+        }
+        return top;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
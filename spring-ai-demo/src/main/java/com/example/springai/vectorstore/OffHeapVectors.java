@@ -0,0 +1,125 @@
+package com.example.springai.vectorstore;
+
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分段存放在堆外的定长向量
+ * <p>
+ * 单个 ByteBuffer 最大 2GB，向量按固定数量分段；默认使用 direct buffer，指定目录时改用内存映射文件，
+ * 超出物理内存的部分由操作系统按需换页。最后一段从 {@value #INITIAL_VECTORS} 个向量起按需倍增，
+ * 小规模的存储不会一次预留整段内存；已有的段文件不截断。非线程安全，由 {@link HnswVectorStore} 的读写锁保护。
+ */
+final class OffHeapVectors implements AutoCloseable {
+
+    private static final long SEGMENT_BYTES = 256L * 1024 * 1024;
+    private static final int INITIAL_VECTORS = 1024;
+
+    private final int dimensions;
+    private final int vectorBytes;
+    private final int vectorsPerSegment;
+    @Nullable
+    private final Path directory;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final List<FileChannel> channels = new ArrayList<>();
+
+    OffHeapVectors(int dimensions, @Nullable Path directory) {
+        this(dimensions, directory, SEGMENT_BYTES);
+    }
+
+    OffHeapVectors(int dimensions, @Nullable Path directory, long segmentBytes) {
+        this.dimensions = dimensions;
+        this.vectorBytes = Math.max(1, dimensions) * Float.BYTES;
+        this.vectorsPerSegment = (int) Math.max(1, segmentBytes / vectorBytes);
+        this.directory = directory;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    void set(int node, float[] vector) {
+        int segment = node / vectorsPerSegment;
+        int slot = node % vectorsPerSegment;
+        while (segments.size() <= segment) {
+            if (!segments.isEmpty()) {
+                grow(segments.size() - 1, vectorsPerSegment);
+            }
+            segments.add(map(segments.size(), null, Math.min(vectorsPerSegment, INITIAL_VECTORS)));
+        }
+        int capacity = segments.get(segment).capacity() / vectorBytes;
+        if (slot >= capacity) {
+            grow(segment, (int) Math.min(vectorsPerSegment, Math.max(slot + 1L, 2L * capacity)));
+        }
+        segments.get(segment).asFloatBuffer().put(slot * dimensions, vector);
+    }
+
+    void get(int node, float[] target) {
+        segments.get(node / vectorsPerSegment).asFloatBuffer().get((node % vectorsPerSegment) * dimensions, target);
+    }
+
+    /**
+     * query 与指定向量的点积，直接在堆外缓冲区上计算
+     */
+    float dot(int node, float[] query) {
+        return DotProduct.INSTANCE.dot(query, segments.get(node / vectorsPerSegment),
+                (node % vectorsPerSegment) * vectorBytes);
+    }
+
+    private void grow(int segment, int vectors) {
+        ByteBuffer current = segments.get(segment);
+        if (current.capacity() < vectors * vectorBytes) {
+            segments.set(segment, map(segment, current, vectors));
+        }
+    }
+
+    /**
+     * 分配容量为 vectors 个向量的段；direct buffer 扩容时拷贝原内容，映射文件直接按新长度重新映射同一文件
+     */
+    private ByteBuffer map(int index, @Nullable ByteBuffer current, int vectors) {
+        int bytes = vectors * vectorBytes;
+        if (directory == null) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+            if (current != null) {
+                buffer.put(current.duplicate().clear()).clear();
+            }
+            return buffer;
+        }
+        try {
+            if (index == channels.size()) {
+                Files.createDirectories(directory);
+                channels.add(FileChannel.open(directory.resolve("vectors-" + index + ".bin"),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            }
+            return channels.get(index).map(FileChannel.MapMode.READ_WRITE, 0, bytes).order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException("映射向量段文件失败: " + directory, e);
+        }
+    }
+
+    /**
+     * 关闭映射文件的通道；direct buffer 与映射区域在缓冲区对象被回收时释放
+     */
+    @Override
+    public void close() {
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 关闭失败不影响已映射的数据
+            }
+        }
+        channels.clear();
+        segments.clear();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.springai.vectorstore;
+
+import com.example.springai.datasource.ReplicaLagGuard;
+import com.pgvector.PGvector;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * pgvector 向量表的导出与导入
+ * <p>
+ * 向量表增加 updated_at 列（插入取默认值，更新由触发器刷新），增量导出按该列过滤。
+ * 导出在只读事务内用游标分批读取，开启读写分离时走只读库；导入在一个事务内用 COPY 写入临时表，
+ * 再按 id 合并进向量表（已有的行被覆盖），失败时整体回滚。
+ */
+public class PgVectorDump {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int COPY_BUFFER_BYTES = 1024 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final String schemaName;
+    private final String tableName;
+    private final String qualifiedTableName;
+    @Nullable
+    private final ReplicaLagGuard replicaLagGuard;
+
+    public PgVectorDump(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, String schemaName,
+                        String tableName, @Nullable ReplicaLagGuard replicaLagGuard) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+                transactionTemplate);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.qualifiedTableName = schemaName + "." + tableName;
+        this.replicaLagGuard = replicaLagGuard;
+    }
+
+    /**
+     * 添加 updated_at 列、索引和维护它的触发器；存量数据的 updated_at 为加列的时间
+     * <p>
+     * 先查系统表，只执行缺失的部分：都已存在时不发出任何 DDL，不会在每次启动时对向量表加锁或重建触发器
+     */
+    public void createUpdatedAtColumn() {
+        if (!exists("SELECT count(*) FROM pg_attribute WHERE attrelid = ?::regclass AND attname = 'updated_at' "
+                + "AND NOT attisdropped", qualifiedTableName)) {
+            jdbcTemplate.execute("ALTER TABLE " + qualifiedTableName
+                    + " ADD COLUMN IF NOT EXISTS updated_at timestamptz NOT NULL DEFAULT now()");
+        }
+        String index = schemaName + "." + tableName + "_updated_at_idx";
+        if (!exists("SELECT count(*) FROM pg_class WHERE oid = to_regclass(?)", index)) {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + tableName + "_updated_at_idx ON "
+                    + qualifiedTableName + " (updated_at)");
+        }
+        if (!exists("SELECT count(*) FROM pg_trigger WHERE tgrelid = ?::regclass AND tgname = ?",
+                qualifiedTableName, tableName + "_updated_at")) {
+            String function = schemaName + "." + tableName + "_updated_at";
+            jdbcTemplate.execute("CREATE OR REPLACE FUNCTION " + function + "() RETURNS trigger AS $$ BEGIN "
+                    + "NEW.updated_at := now(); RETURN NEW; END $$ LANGUAGE plpgsql");
+            jdbcTemplate.execute("CREATE TRIGGER " + tableName + "_updated_at BEFORE UPDATE ON " + qualifiedTableName
+                    + " FOR EACH ROW EXECUTE FUNCTION " + function + "()");
+        }
+    }
+
+    private boolean exists(String sql, Object... args) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return count != null && count > 0;
+    }
+
+    /**
+     * 导出 updated_at 不早于 since 的行，since 为 null 时导出全部
+     */
+    public void export(@Nullable Timestamp since, VectorDumpWriter writer) {
+        String sql = "SELECT id::text AS id, content, metadata::text AS metadata, embedding::text AS embedding, "
+                + "updated_at FROM " + qualifiedTableName + (since != null ? " WHERE updated_at >= ?" : "");
+        readOnlyTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            if (since != null) {
+                statement.setTimestamp(1, since);
+            }
+            return statement;
+        }, rs -> {
+            try {
+                writer.write(new VectorDumpRecord(rs.getString("id"), rs.getString("content"),
+                        rs.getString("metadata"), new PGvector(rs.getString("embedding")).toArray(),
+                        rs.getTimestamp("updated_at").getTime()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    /**
+     * 导入导出文件中的全部记录，返回导入的行数
+     */
+    public long importFrom(VectorDumpReader reader) {
+        Long rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("CREATE TEMP TABLE vector_import (id uuid, content text, metadata json, "
+                    + "embedding vector) ON COMMIT DROP");
+            DataSource dataSource = jdbcTemplate.getDataSource();
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                copy(connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn("COPY vector_import (id, content, metadata, embedding) FROM STDIN"), reader);
+            } catch (SQLException e) {
+                throw new IllegalStateException("COPY 导入失败: " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+            return (long) jdbcTemplate.update("INSERT INTO " + qualifiedTableName
+                    + " (id, content, metadata, embedding) SELECT id, content, metadata, embedding FROM vector_import"
+                    + " ON CONFLICT (id) DO UPDATE SET content = EXCLUDED.content, metadata = EXCLUDED.metadata,"
+                    + " embedding = EXCLUDED.embedding");
+        });
+        if (replicaLagGuard != null) {
+            replicaLagGuard.recordWrite();
+        }
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * 以 COPY 的文本格式逐行发送，每攒够约 1MB 发送一次
+     */
+    private static void copy(CopyIn copyIn, VectorDumpReader reader) throws SQLException, IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_BYTES + 64 * 1024);
+        StringBuilder line = new StringBuilder();
+        try {
+            VectorDumpRecord record;
+            while ((record = reader.next()) != null) {
+                line.setLength(0);
+                escape(line, record.id()).append('\t');
+                escape(line, record.text()).append('\t');
+                escape(line, record.metadata()).append('\t');
+                line.append('[');
+                float[] embedding = record.embedding();
+                for (int i = 0; i < embedding.length; i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    line.append(embedding[i]);
+                }
+                line.append("]\n");
+                buffer.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+                if (buffer.size() >= COPY_BUFFER_BYTES) {
+                    copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                    buffer.reset();
+                }
+            }
+            if (buffer.size() > 0) {
+                copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static StringBuilder escape(StringBuilder line, @Nullable String value) {
+        if (value == null) {
+            return line.append("\\N");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> line.append("\\\\");
+                case '\t' -> line.append("\\t");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                default -> line.append(c);
+            }
+        }
+        return line;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.springai.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 供向量存储使用的 EmbeddingModel，检索问题的向量已预先算好时直接返回，不再调用模型
+ * <p>
+ * 批量检索先把全部问题一次向量化，再在执行检索的线程上通过 {@link #use(Map)} 绑定问题文本到向量的映射；
+ * 向量存储检索时调用 {@link #embed(String)} 会先查这个映射，未绑定时照常调用模型；已绑定但映射中没有时调用模型
+ * 并把结果写回映射，同一映射再绑定到其他线程（如召回率抽样重跑检索）时直接复用，因此绑定的映射须可写且线程安全。
+ */
+public class PrecomputedEmbeddingModel implements EmbeddingModel {
+
+    private static final ThreadLocal<Map<String, float[]>> CURRENT = new ThreadLocal<>();
+
+    private final EmbeddingModel delegate;
+
+    public PrecomputedEmbeddingModel(EmbeddingModel delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 绑定到当前线程，关闭返回的 Scope 时恢复之前的映射
+     */
+    public static Scope use(Map<String, float[]> embeddings) {
+        Map<String, float[]> previous = CURRENT.get();
+        CURRENT.set(embeddings);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 当前线程绑定的映射，未绑定时为 null
+     */
+    @Nullable
+    public static Map<String, float[]> current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public float[] embed(String text) {
+        Map<String, float[]> embeddings = CURRENT.get();
+        if (embeddings == null) {
+            return delegate.embed(text);
+        }
+        float[] embedding = embeddings.get(text);
+        if (embedding == null) {
+            embedding = delegate.embed(text);
+            embeddings.put(text, embedding);
+        }
+        return embedding;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        return delegate.embed(texts);
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        return delegate.embed(documents, options, batchingStrategy);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
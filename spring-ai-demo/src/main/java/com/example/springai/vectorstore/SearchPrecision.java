@@ -0,0 +1,61 @@
+package com.example.springai.vectorstore;
+
+import java.util.Locale;
+
+/**
+ * 向量检索的精度档位
+ * <p>
+ * 由调用方通过 {@link #open()} 绑定到当前线程，向量存储在检索时读取：FAST、BALANCED、EXHAUSTIVE 对应不同的
+ * HNSW ef_search，EXACT 不走索引，做精确检索，作为召回率的基准。
+ */
+public enum SearchPrecision {
+
+    FAST,
+    BALANCED,
+    EXHAUSTIVE,
+    EXACT;
+
+    private static final ThreadLocal<SearchPrecision> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 当前线程绑定的档位，未绑定时为 null，由向量存储使用自身的默认参数
+     */
+    public static SearchPrecision current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 绑定到当前线程，关闭返回的 Scope 时恢复之前的档位
+     */
+    public Scope open() {
+        SearchPrecision previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 忽略大小写解析，空值返回 null 表示未指定
+     */
+    public static SearchPrecision of(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public String tagValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.springai.vectorstore;
+
+import com.example.springai.datasource.ReplicaLagGuard;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用短向量初筛、完整向量重排序的 PgVectorStore
+ * <p>
+ * HNSW 索引只建在短向量列 embedding_short 上（见 {@link ShortlistSchema}），完整向量列不建索引，
+ * 检索先按短向量取 topK × rerankFactor 个候选，再在候选集内按完整向量的距离取 topK，返回的分数与未启用时一致。
+ * 短向量为空的行（未回填的存量数据）不会被检索到。EXACT 档位按完整向量全表扫描。
+ */
+public class ShortlistPgVectorStore extends TunedPgVectorStore {
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final ShortlistSchema schema;
+    private final boolean initializeSchema;
+    private final int shortDimensions;
+    private final int rerankFactor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String searchSql;
+
+    /**
+     * @param builder 已配置好的 PgVectorStore builder，索引类型需设为 NONE，完整向量列不建索引
+     */
+    public ShortlistPgVectorStore(PgVectorStoreBuilder builder, JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate, Map<SearchPrecision, Integer> efSearch,
+                                  String schemaName, String tableName, boolean initializeSchema, int shortDimensions,
+                                  int rerankFactor, @Nullable ReplicaLagGuard replicaLagGuard) {
+        super(builder, jdbcTemplate, transactionTemplate, efSearch, replicaLagGuard);
+        this.schema = new ShortlistSchema(jdbcTemplate, schemaName, tableName, shortDimensions);
+        this.initializeSchema = initializeSchema;
+        this.shortDimensions = shortDimensions;
+        this.rerankFactor = Math.max(1, rerankFactor);
+
+        String distance = distanceExpression("embedding");
+        this.searchSql = "SELECT id, content, metadata, " + distance + " AS distance FROM ("
+                + "SELECT id, content, metadata, embedding FROM " + schemaName + "." + tableName + " WHERE true %s"
+                + " ORDER BY embedding_short " + getDistanceType().operator + " ? LIMIT ?) AS candidates"
+                + " WHERE " + distance + " < ? ORDER BY distance LIMIT ?";
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (initializeSchema) {
+            schema.createColumnAndTrigger();
+            schema.createIndex(getDistanceType(), false);
+        }
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        if (SearchPrecision.current() == SearchPrecision.EXACT) {
+            return exactSearch(request);
+        }
+        float[] embedding = embeddingModel.embed(request.getQuery());
+        PGvector query = new PGvector(embedding);
+        PGvector shortQuery = new PGvector(Arrays.copyOf(embedding, shortDimensions));
+        int candidates = request.getTopK() * rerankFactor;
+        double threshold = 1.0 - request.getSimilarityThreshold();
+        String sql = String.format(searchSql, filterClause(request));
+
+        return inTransaction("hnsw.ef_search", String.valueOf(efSearch(candidates)), () ->
+                jdbcTemplate.query(sql, documentRowMapper(),
+                        query, shortQuery, candidates, query, threshold, request.getTopK()));
+    }
+
+    private String filterClause(SearchRequest request) {
+        if (request.getFilterExpression() == null) {
+            return "";
+        }
+        String nativeFilter = filterExpressionConverter.convertExpression(request.getFilterExpression());
+        return StringUtils.hasText(nativeFilter) ? " AND metadata::jsonb @@ '" + nativeFilter + "'::jsonpath " : "";
+    }
+
+    /**
+     * 与 PgVectorStore 一致：内积距离取 1 + (a <#> b)，使相似度阈值的换算方式相同
+     */
+    private String distanceExpression(String column) {
+        return getDistanceType() == PgDistanceType.NEGATIVE_INNER_PRODUCT
+                ? "(1 + (" + column + " <#> ?))"
+                : "(" + column + " " + getDistanceType().operator + " ?)";
+    }
+
+    private RowMapper<Document> documentRowMapper() {
+        return (rs, rowNum) -> {
+            Map<String, Object> metadata = toMap(rs.getString("metadata"));
+            float distance = rs.getFloat("distance");
+            metadata.put(DocumentMetadata.DISTANCE.value(), distance);
+            return Document.builder()
+                    .id(rs.getString("id"))
+                    .text(rs.getString("content"))
+                    .metadata(metadata)
+                    .score(1.0 - distance)
+                    .build();
+        };
+    }
+
+    private Map<String, Object> toMap(@Nullable String metadata) {
+        if (metadata == null) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(metadata, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("无法解析向量元数据", e);
+        }
+    }
+}
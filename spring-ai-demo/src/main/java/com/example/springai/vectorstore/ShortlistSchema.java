@@ -0,0 +1,90 @@
+package com.example.springai.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore.PgDistanceType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * 短向量列 embedding_short 的表结构维护与存量数据回填
+ * <p>
+ * 短向量由触发器在写入 embedding 时从其前缀截取（pgvector 的 subvector），应用和其他写入方都不需要改动；
+ * 存量数据由 {@link #backfill} 分批从已有的 embedding 截取，不需要重新调用向量化接口。
+ */
+public class ShortlistSchema {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShortlistSchema.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String schemaName;
+    private final String tableName;
+    private final String qualifiedTableName;
+    private final int dimensions;
+
+    public ShortlistSchema(JdbcTemplate jdbcTemplate, String schemaName, String tableName, int dimensions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.qualifiedTableName = schemaName + "." + tableName;
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * 添加短向量列和维护它的触发器；列已存在但维度不同时拒绝启动，需要先手动删除该列
+     */
+    public void createColumnAndTrigger() {
+        List<String> existing = jdbcTemplate.queryForList("""
+                SELECT format_type(a.atttypid, a.atttypmod) FROM pg_attribute a
+                WHERE a.attrelid = ?::regclass AND a.attname = 'embedding_short' AND NOT a.attisdropped
+                """, String.class, qualifiedTableName);
+        String expectedType = "vector(" + dimensions + ")";
+        if (!existing.isEmpty() && !existing.get(0).equals(expectedType)) {
+            throw new IllegalStateException("向量表 " + qualifiedTableName + " 的 embedding_short 类型为 "
+                    + existing.get(0) + "，与配置的 " + expectedType + " 不一致，请先删除该列及其索引");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + qualifiedTableName
+                + " ADD COLUMN IF NOT EXISTS embedding_short " + expectedType);
+
+        String function = schemaName + "." + tableName + "_embedding_short";
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION " + function + "() RETURNS trigger AS $$ BEGIN "
+                + "NEW.embedding_short := " + shortExpression("NEW.embedding") + "; RETURN NEW; "
+                + "END $$ LANGUAGE plpgsql");
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + tableName + "_embedding_short ON " + qualifiedTableName);
+        jdbcTemplate.execute("CREATE TRIGGER " + tableName + "_embedding_short BEFORE INSERT OR UPDATE OF embedding ON "
+                + qualifiedTableName + " FOR EACH ROW EXECUTE FUNCTION " + function + "()");
+    }
+
+    /**
+     * 分批回填短向量为空的行，每批单独提交，返回回填的行数
+     */
+    public long backfill(int batchSize) {
+        String sql = "UPDATE " + qualifiedTableName + " SET embedding_short = " + shortExpression("embedding")
+                + " WHERE id IN (SELECT id FROM " + qualifiedTableName
+                + " WHERE embedding_short IS NULL AND embedding IS NOT NULL LIMIT ?)";
+        long total = 0;
+        int updated;
+        do {
+            updated = jdbcTemplate.update(sql, batchSize);
+            total += updated;
+            if (updated > 0) {
+                logger.info("短向量回填: 本批 {} 行，累计 {} 行", updated, total);
+            }
+        } while (updated == batchSize);
+        return total;
+    }
+
+    /**
+     * 在短向量列上建 HNSW 索引；concurrently 为 true 时不阻塞写入，用于已有数据的表
+     */
+    public void createIndex(PgDistanceType distanceType, boolean concurrently) {
+        jdbcTemplate.execute("CREATE INDEX " + (concurrently ? "CONCURRENTLY " : "") + "IF NOT EXISTS "
+                + tableName + "_embedding_short_idx ON " + qualifiedTableName
+                + " USING hnsw (embedding_short " + distanceType.index + ")");
+    }
+
+    private String shortExpression(String column) {
+        return "subvector(" + column + ", 1, " + dimensions + ")::vector(" + dimensions + ")";
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.springai.vectorstore;
+
+import com.example.springai.datasource.ReplicaLagGuard;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 按当前线程的 {@link SearchPrecision} 调整检索参数的 PgVectorStore
+ * <p>
+ * 参数在检索事务内用 set_config(..., true) 设置，只对本事务生效，连接归还连接池后不残留：
+ * 各档位设置对应的 hnsw.ef_search，EXACT 关闭索引扫描，按全表扫描做精确检索。未绑定档位时使用数据库默认值。
+ * <p>
+ * 检索事务为只读事务，开启读写分离时走只读连接池；最近的写入尚未同步到只读库时（见 {@link ReplicaLagGuard}）改走主库。
+ */
+public class TunedPgVectorStore extends PgVectorStore {
+
+    protected final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Map<SearchPrecision, Integer> efSearch;
+    @Nullable
+    private final ReplicaLagGuard replicaLagGuard;
+
+    /**
+     * @param replicaLagGuard 未开启读写分离时为 null
+     */
+    public TunedPgVectorStore(PgVectorStoreBuilder builder, JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate, Map<SearchPrecision, Integer> efSearch,
+                              @Nullable ReplicaLagGuard replicaLagGuard) {
+        super(builder);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+                transactionTemplate);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.efSearch = efSearch;
+        this.replicaLagGuard = replicaLagGuard;
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        super.doAdd(documents);
+        recordWrite();
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        super.doDelete(idList);
+        recordWrite();
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        super.doDelete(filterExpression);
+        recordWrite();
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        SearchPrecision precision = SearchPrecision.current();
+        if (precision == SearchPrecision.EXACT) {
+            return exactSearch(request);
+        }
+        Integer ef = precision != null ? efSearch.get(precision) : null;
+        if (ef == null) {
+            return searchTransaction().execute(status -> super.doSimilaritySearch(request));
+        }
+        return inTransaction("hnsw.ef_search", String.valueOf(ef), () -> super.doSimilaritySearch(request));
+    }
+
+    /**
+     * 关闭索引扫描，按完整向量的距离全表排序
+     */
+    protected List<Document> exactSearch(SearchRequest request) {
+        return inTransaction("enable_indexscan", "off", () -> super.doSimilaritySearch(request));
+    }
+
+    /**
+     * 当前档位的 ef_search 与 minimum 中的较大者；HNSW 单次扫描最多返回 ef_search 个结果
+     */
+    protected int efSearch(int minimum) {
+        SearchPrecision precision = SearchPrecision.current();
+        Integer ef = precision != null ? efSearch.get(precision) : null;
+        return Math.max(ef != null ? ef : 40, minimum);
+    }
+
+    protected <T> T inTransaction(String setting, String value, Supplier<T> query) {
+        return searchTransaction().execute(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config(?, ?, true)", String.class, setting, value);
+            return query.get();
+        });
+    }
+
+    private TransactionTemplate searchTransaction() {
+        return replicaLagGuard != null && replicaLagGuard.requiresPrimary()
+                ? transactionTemplate : readOnlyTransactionTemplate;
+    }
+
+    private void recordWrite() {
+        if (replicaLagGuard != null) {
+            replicaLagGuard.recordWrite();
+        }
+    }
+}
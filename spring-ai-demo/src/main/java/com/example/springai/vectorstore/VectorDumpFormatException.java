@@ -0,0 +1,17 @@
+package com.example.springai.vectorstore;
+
+import java.io.IOException;
+
+/**
+ * 导出文件损坏、被截断或版本不支持
+ */
+public class VectorDumpFormatException extends IOException {
+
+    public VectorDumpFormatException(String message) {
+        super(message);
+    }
+
+    public VectorDumpFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
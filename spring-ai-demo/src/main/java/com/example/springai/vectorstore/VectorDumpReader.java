@@ -0,0 +1,161 @@
+package com.example.springai.vectorstore;
+
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 逐条读取 {@link VectorDumpWriter} 写出的文件，每块解压后校验 CRC，内存中只保留当前块
+ * <p>
+ * 文件损坏、被截断或版本不支持时抛出 {@link VectorDumpFormatException}；块头声明的长度超过写入端的块上限时直接拒绝，
+ * 不按块头分配内存。底层输入流由调用方关闭。
+ */
+public class VectorDumpReader implements AutoCloseable {
+
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private final int dimensions;
+    private ByteBuffer chunk = ByteBuffer.allocate(0);
+    private byte[] raw = new byte[0];
+    private byte[] compressed = new byte[0];
+    private int chunkRecords;
+    private long chunks;
+    private long records;
+    private boolean finished;
+
+    public VectorDumpReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        try {
+            if (this.in.readInt() != VectorDumpWriter.MAGIC) {
+                throw new VectorDumpFormatException("不是向量导出文件");
+            }
+            int version = this.in.readInt();
+            if (version != VectorDumpWriter.VERSION) {
+                throw new VectorDumpFormatException("不支持的导出文件版本: " + version);
+            }
+            this.dimensions = this.in.readInt();
+            if (dimensions < 0 || dimensions > VectorDumpWriter.MAX_CHUNK_BYTES / Float.BYTES) {
+                throw new VectorDumpFormatException("导出文件头无效: 维度 " + dimensions);
+            }
+        } catch (EOFException e) {
+            throw new VectorDumpFormatException("导出文件不完整: 缺少文件头");
+        }
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 下一条记录，全部读完时返回 null
+     */
+    @Nullable
+    public VectorDumpRecord next() throws IOException {
+        while (chunkRecords == 0) {
+            if (finished || !readChunk()) {
+                return null;
+            }
+        }
+        try {
+            long updatedAt = chunk.getLong();
+            String id = readString();
+            String text = readString();
+            String metadata = readString();
+            float[] embedding = new float[dimensions];
+            chunk.asFloatBuffer().get(embedding);
+            chunk.position(chunk.position() + dimensions * Float.BYTES);
+            chunkRecords--;
+            if (chunkRecords == 0 && chunk.hasRemaining()) {
+                throw recordMismatch();
+            }
+            records++;
+            return new VectorDumpRecord(id, text, metadata, embedding, updatedAt);
+        } catch (BufferUnderflowException e) {
+            throw recordMismatch();
+        }
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    private boolean readChunk() throws IOException {
+        try {
+            int count = in.readInt();
+            if (count == 0) {
+                long total = in.readLong();
+                if (total != records) {
+                    throw new VectorDumpFormatException("导出文件记录数不符: 结束块为 " + total + "，实际读到 " + records);
+                }
+                finished = true;
+                return false;
+            }
+            int rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            int expectedCrc = in.readInt();
+            // deflate 对不可压缩的数据每个存储块只多几个字节，压缩后长度不会明显超过原长度
+            if (count < 0 || rawLength <= 0 || rawLength > VectorDumpWriter.MAX_CHUNK_BYTES
+                    || compressedLength <= 0 || compressedLength > rawLength + (rawLength >> 10) + 64) {
+                throw new VectorDumpFormatException("导出文件第 " + chunks + " 块的块头无效");
+            }
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            in.readFully(compressed, 0, compressedLength);
+            if (raw.length < rawLength) {
+                raw = new byte[rawLength];
+            }
+            inflater.reset();
+            inflater.setInput(compressed, 0, compressedLength);
+            int length = inflater.inflate(raw, 0, rawLength);
+            crc.reset();
+            crc.update(raw, 0, length);
+            if (length != rawLength || !inflater.finished() || (int) crc.getValue() != expectedCrc) {
+                throw new VectorDumpFormatException("导出文件第 " + chunks + " 块校验失败");
+            }
+            chunk = ByteBuffer.wrap(raw, 0, rawLength).order(ByteOrder.LITTLE_ENDIAN);
+            chunkRecords = count;
+            chunks++;
+            return true;
+        } catch (EOFException e) {
+            // 不保留 EOFException 作为 cause，否则 Spring MVC 会把它当作客户端断开而不返回错误
+            throw new VectorDumpFormatException("导出文件不完整: 第 " + chunks + " 块之后被截断");
+        } catch (DataFormatException e) {
+            throw new VectorDumpFormatException("导出文件第 " + chunks + " 块解压失败", e);
+        }
+    }
+
+    /**
+     * CRC 只说明块内容与写入时一致，块头的记录数与内容长度不符同样是无效文件
+     */
+    private VectorDumpFormatException recordMismatch() {
+        return new VectorDumpFormatException("导出文件第 " + (chunks - 1) + " 块的记录数与内容长度不符");
+    }
+
+    @Nullable
+    private String readString() {
+        int length = chunk.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > chunk.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(raw, chunk.position(), length, StandardCharsets.UTF_8);
+        chunk.position(chunk.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.springai.vectorstore;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * 导出文件中的一条记录
+ *
+ * @param metadata  元数据的 JSON 文本
+ * @param updatedAt 文档在源存储中最后写入的时间（毫秒时间戳）
+ */
+public record VectorDumpRecord(String id, String text, @Nullable String metadata, float[] embedding, long updatedAt) {
+}
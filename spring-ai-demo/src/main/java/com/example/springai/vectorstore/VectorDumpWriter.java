@@ -0,0 +1,142 @@
+package com.example.springai.vectorstore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 把向量存储导出为分块压缩、带校验的二进制文件
+ * <p>
+ * 文件格式（整数为大端序）：
+ * <pre>
+ * 文件头   magic "VDMP" | version int | dimensions int
+ * 数据块   records int | rawLength int | compressedLength int | crc32 int | deflate 压缩的记录
+ * 结束块   0 int | 记录总数 long
+ * </pre>
+ * 块内每条记录为 updatedAt long | id、text、metadata（UTF-8，长度 int 前缀，metadata 为空时长度为 -1）|
+ * dimensions 个 float，块内数值为小端序，向量可以整段拷贝。每块约 4MB、不超过 16MB，CRC 按解压后的内容计算，
+ * 读取时逐块校验；缺少结束块或记录总数不符说明文件不完整。
+ * <p>
+ * 写入只在内存中保留当前块，调用方在写完全部记录后调用 {@link #finish()}，底层输出流由调用方关闭。
+ */
+public class VectorDumpWriter implements AutoCloseable {
+
+    static final int MAGIC = 0x56444D50;
+    static final int VERSION = 1;
+    static final int CHUNK_BYTES = 4 * 1024 * 1024;
+    // 超过 CHUNK_BYTES 的单条记录独占一块；块的上限也是读取时按块头分配内存的上限
+    static final int MAX_CHUNK_BYTES = 4 * CHUNK_BYTES;
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private byte[] compressed = new byte[CHUNK_BYTES];
+    private int dimensions = -1;
+    private int chunkRecords;
+    private long records;
+
+    public VectorDumpWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+    }
+
+    public void write(VectorDumpRecord record) throws IOException {
+        float[] embedding = record.embedding();
+        if (dimensions < 0) {
+            dimensions = embedding.length;
+            writeHeader();
+        } else if (embedding.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不一致: 期望 " + dimensions + "，实际 " + embedding.length
+                    + "，文档 " + record.id());
+        }
+        byte[] id = record.id().getBytes(StandardCharsets.UTF_8);
+        byte[] text = record.text() != null ? record.text().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] metadata = record.metadata() != null ? record.metadata().getBytes(StandardCharsets.UTF_8) : null;
+        int size = Long.BYTES + 3 * Integer.BYTES + id.length + text.length
+                + (metadata != null ? metadata.length : 0) + dimensions * Float.BYTES;
+        if (size > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("单条记录过大: " + size + " 字节，上限 " + MAX_CHUNK_BYTES
+                    + "，文档 " + record.id());
+        }
+        if (chunk.remaining() < size) {
+            flushChunk();
+            if (chunk.capacity() < size) {
+                chunk = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        chunk.putLong(record.updatedAt());
+        chunk.putInt(id.length).put(id);
+        chunk.putInt(text.length).put(text);
+        if (metadata != null) {
+            chunk.putInt(metadata.length).put(metadata);
+        } else {
+            chunk.putInt(-1);
+        }
+        chunk.asFloatBuffer().put(embedding);
+        chunk.position(chunk.position() + dimensions * Float.BYTES);
+        chunkRecords++;
+        records++;
+    }
+
+    /**
+     * 写出最后一块和结束块；没有任何记录时也会写出文件头，维度为 0
+     */
+    public void finish() throws IOException {
+        if (dimensions < 0) {
+            dimensions = 0;
+            writeHeader();
+        }
+        flushChunk();
+        out.writeInt(0);
+        out.writeLong(records);
+        out.flush();
+    }
+
+    public long records() {
+        return records;
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    private void writeHeader() throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(dimensions);
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunkRecords == 0) {
+            return;
+        }
+        int rawLength = chunk.position();
+        crc.reset();
+        crc.update(chunk.array(), 0, rawLength);
+        deflater.reset();
+        deflater.setInput(chunk.array(), 0, rawLength);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.writeInt(chunkRecords);
+        out.writeInt(rawLength);
+        out.writeInt(length);
+        out.writeInt((int) crc.getValue());
+        out.write(compressed, 0, length);
+        chunk.clear();
+        chunkRecords = 0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.springai.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ReplicaLagGuard 测试：回放位置在间隔内只查询一次，追上后不再走主库
+ */
+class ReplicaLagGuardTests {
+
+    private final JdbcTemplate primary = mock(JdbcTemplate.class);
+    private final JdbcTemplate replica = mock(JdbcTemplate.class);
+
+    @Test
+    void cachesReplayPositionWithinInterval() throws InterruptedException {
+        ReplicaLagGuard guard = new ReplicaLagGuard(primary, replica, 30000, 100);
+        when(primary.queryForObject(anyString(), eq(String.class))).thenReturn("1/20");
+        when(replica.queryForObject(anyString(), eq(String.class))).thenReturn("1/10", "1/20");
+        guard.recordWrite();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(guard.requiresPrimary()).isTrue();
+        }
+        verify(replica, times(1)).queryForObject(anyString(), eq(String.class));
+
+        Thread.sleep(150);
+        assertThat(guard.requiresPrimary()).isFalse();
+        assertThat(guard.requiresPrimary()).isFalse();
+        verify(replica, times(2)).queryForObject(anyString(), eq(String.class));
+    }
+
+    @Test
+    void treatsNonStandbyReplicaAsCaughtUp() {
+        ReplicaLagGuard guard = new ReplicaLagGuard(primary, replica, 30000, 100);
+        when(primary.queryForObject(anyString(), eq(String.class))).thenReturn("1/20");
+        guard.recordWrite();
+
+        assertThat(guard.requiresPrimary()).isFalse();
+    }
+
+    @Test
+    void comparesLsnNumerically() {
+        assertThat(ReplicaLagGuard.parseLsn("16/B374D848")).isEqualTo(0x16B374D848L);
+        assertThat(ReplicaLagGuard.parseLsn("A/0")).isGreaterThan(ReplicaLagGuard.parseLsn("9/FFFFFFFF"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.springai.service;
+
+import com.example.springai.config.BulkIngestProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 批量入库：重新提交写入失败的行时分块 id 不变，汇总如实反映失败行数
+ */
+class BulkIngestionServiceTests {
+
+    private static final String NDJSON = "第一条记录\n第二条记录\n";
+
+    @Test
+    void resubmittedRecordsKeepTheirChunkIds() throws IOException {
+        VectorStore vectorStore = mock(VectorStore.class);
+        List<String> written = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Document> documents = invocation.getArgument(0);
+            if (documents.get(0).getText().startsWith("第二条")) {
+                throw new IllegalStateException("写入失败");
+            }
+            documents.forEach(document -> written.add(document.getId()));
+            return null;
+        }).when(vectorStore).add(anyList());
+        BulkIngestProperties properties = new BulkIngestProperties();
+        properties.setBatchSize(1);
+        BulkIngestionService service = new BulkIngestionService(vectorStore, new ObjectMapper(), properties);
+
+        BulkIngestionService.Summary first = ingest(service);
+        BulkIngestionService.Summary retry = ingest(service);
+
+        assertThat(first.records()).isEqualTo(2);
+        assertThat(first.chunks()).isEqualTo(1);
+        assertThat(first.failed()).isEqualTo(1);
+        assertThat(retry).usingRecursiveComparison().ignoringFields("elapsedMs").isEqualTo(first);
+        assertThat(written).hasSize(2).containsOnly(written.get(0));
+    }
+
+    @Test
+    void chunkIdsDependOnRecordAndIndex() {
+        List<Document> chunks = List.of(new Document("甲"), new Document("乙"));
+
+        List<Document> once = BulkIngestionService.withStableIds("记录", chunks);
+        List<Document> again = BulkIngestionService.withStableIds("记录", chunks);
+        List<Document> other = BulkIngestionService.withStableIds("另一条记录", chunks);
+
+        assertThat(once).extracting(Document::getId).isEqualTo(again.stream().map(Document::getId).toList());
+        assertThat(once.get(0).getId()).isNotEqualTo(once.get(1).getId()).isNotEqualTo(other.get(0).getId());
+        assertThat(once).extracting(Document::getText).containsExactly("甲", "乙");
+    }
+
+    private static BulkIngestionService.Summary ingest(BulkIngestionService service) throws IOException {
+        return service.ingest(new ByteArrayInputStream(NDJSON.getBytes(StandardCharsets.UTF_8)),
+                new ByteArrayOutputStream(), Document::new);
+    }
+}
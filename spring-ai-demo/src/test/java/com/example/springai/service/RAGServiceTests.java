@@ -0,0 +1,37 @@
+package com.example.springai.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 摘要 map-reduce 的切分与分组：每次模型调用携带的内容不超过上限
+ */
+class RAGServiceTests {
+
+    @Test
+    void splitsOversizedTextsPreferringSentenceEnds() {
+        String text = "第一句很长很长很长。第二句也很长很长。第三句。" + "无标点".repeat(20);
+
+        List<String> pieces = RAGService.split(List.of("短文", text), 16);
+
+        assertThat(pieces).allSatisfy(piece -> assertThat(piece.length()).isLessThanOrEqualTo(16));
+        assertThat(pieces.get(0)).isEqualTo("短文");
+        assertThat(pieces.get(1)).isEqualTo("第一句很长很长很长。");
+        assertThat(String.join("", pieces.subList(1, pieces.size()))).isEqualTo(text);
+    }
+
+    @Test
+    void partitionsStayWithinLimitAndPairHalfSizePieces() {
+        int maxChars = 100;
+        List<String> pieces = RAGService.split(List.of("甲".repeat(1000)), (maxChars - 2) / 2);
+
+        List<String> partitions = RAGService.partition(pieces, maxChars);
+
+        assertThat(partitions).allSatisfy(partition -> assertThat(partition.length()).isLessThanOrEqualTo(maxChars));
+        // 切到上限一半的片段两两成组，每层合并后段数至少减半
+        assertThat(partitions).hasSize((pieces.size() + 1) / 2);
+    }
+}
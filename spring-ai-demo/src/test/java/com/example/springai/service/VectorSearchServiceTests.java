@@ -0,0 +1,58 @@
+package com.example.springai.service;
+
+import com.example.springai.config.VectorSearchProperties;
+import com.example.springai.vectorstore.PrecomputedEmbeddingModel;
+import com.example.springai.vectorstore.SearchPrecision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 召回率抽样在后台重跑检索时复用原检索的问题向量
+ */
+class VectorSearchServiceTests {
+
+    @Test
+    void recallSampleReusesQueryEmbedding() throws InterruptedException {
+        EmbeddingModel delegate = mock(EmbeddingModel.class);
+        when(delegate.embed(anyString())).thenReturn(new float[]{1f, 0f});
+        EmbeddingModel storeEmbeddingModel = new PrecomputedEmbeddingModel(delegate);
+        VectorStore vectorStore = mock(VectorStore.class);
+        CountDownLatch searches = new CountDownLatch(2);
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            // 与 PgVectorStore/HnswVectorStore 一样，检索时经由向量存储的 EmbeddingModel 向量化问题
+            storeEmbeddingModel.embed(invocation.<SearchRequest>getArgument(0).getQuery());
+            searches.countDown();
+            return List.of(new Document("d1", "文档", Map.of()));
+        });
+        VectorSearchProperties properties = new VectorSearchProperties();
+        properties.setRecallSampleRate(1.0);
+        VectorSearchService service = new VectorSearchService(vectorStore, delegate, properties,
+                new SimpleMeterRegistry());
+        try {
+            service.search("vector-search", null, SearchPrecision.FAST,
+                    SearchRequest.builder().query("问题").topK(1).build());
+
+            assertThat(searches.await(5, TimeUnit.SECONDS)).isTrue();
+            verify(delegate, times(1)).embed("问题");
+        } finally {
+            service.destroy();
+        }
+    }
+}
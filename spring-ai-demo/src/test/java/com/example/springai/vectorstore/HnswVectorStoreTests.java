@@ -0,0 +1,259 @@
+package com.example.springai.vectorstore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HnswVectorStore 测试：以暴力检索结果为基准检查召回率、过滤与删除，以及快照恢复
+ */
+class HnswVectorStoreTests {
+
+    private static final int DIMENSIONS = 64;
+    private static final int DOCUMENTS = 5000;
+    private static final int CLUSTERS = 50;
+
+    private final Map<String, float[]> vectors = new HashMap<>();
+    private final Random random = new Random(7);
+    private final float[][] centers = new float[CLUSTERS][];
+    private HnswVectorStore store;
+
+    @BeforeEach
+    void setUp() {
+        for (int c = 0; c < CLUSTERS; c++) {
+            centers[c] = gaussian(1);
+        }
+        store = HnswVectorStore.builder(new LookupEmbeddingModel(vectors)).build();
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            String text = "doc-" + i;
+            vectors.put(text, randomVector());
+            documents.add(Document.builder().id(text).text(text)
+                    .metadata(Map.of("category", i % 100 == 0 ? "rare" : "common", "index", i))
+                    .build());
+        }
+        store.add(documents);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void recallAgainstBruteForce() {
+        int queries = 50;
+        int topK = 10;
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            String query = "query-" + q;
+            vectors.put(query, randomVector());
+            Set<String> expected = new HashSet<>(bruteForce(query, topK, id -> true));
+            for (Document document : store.similaritySearch(SearchRequest.builder().query(query).topK(topK).build())) {
+                if (expected.contains(document.getId())) {
+                    hits++;
+                }
+            }
+        }
+        assertThat(hits / (double) (queries * topK)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void exactPrecisionMatchesBruteForce() {
+        vectors.put("query", randomVector());
+        List<Document> result;
+        try (SearchPrecision.Scope scope = SearchPrecision.EXACT.open()) {
+            result = store.similaritySearch(SearchRequest.builder().query("query").topK(20).build());
+        }
+        assertThat(result).extracting(Document::getId).containsExactlyElementsOf(bruteForce("query", 20, id -> true));
+        assertThat(SearchPrecision.current()).isNull();
+    }
+
+    @Test
+    void selectiveFilterReturnsExactMatches() {
+        vectors.put("query", randomVector());
+        List<Document> result = store.similaritySearch(SearchRequest.builder()
+                .query("query").topK(5).filterExpression("category == 'rare'").build());
+
+        assertThat(result).extracting(Document::getId)
+                .containsExactlyElementsOf(bruteForce("query", 5, id -> Integer.parseInt(id.substring(4)) % 100 == 0));
+        assertThat(result).allSatisfy(document -> assertThat(document.getMetadata()).containsEntry("category", "rare"));
+    }
+
+    @Test
+    void deletedAndReplacedDocumentsAreNotReturned() {
+        vectors.put("query", randomVector());
+        List<String> before = bruteForce("query", 3, id -> true);
+
+        store.delete(List.of(before.get(0)));
+        vectors.put("replacement", vectors.get("query").clone());
+        store.add(List.of(Document.builder().id(before.get(1)).text("replacement").build()));
+
+        List<Document> result = store.similaritySearch(SearchRequest.builder().query("query").topK(3).build());
+        assertThat(result).extracting(Document::getId).doesNotContain(before.get(0));
+        assertThat(result.get(0).getId()).isEqualTo(before.get(1));
+        assertThat(result.get(0).getText()).isEqualTo("replacement");
+        assertThat(result.get(0).getScore()).isGreaterThan(0.999);
+        assertThat(store.size()).isEqualTo(DOCUMENTS - 1);
+    }
+
+    @Test
+    void similarityThresholdAndDeleteByFilter() {
+        vectors.put("query", vectors.get("doc-42").clone());
+        List<Document> result = store.similaritySearch(SearchRequest.builder()
+                .query("query").topK(10).similarityThreshold(0.99).build());
+        assertThat(result).extracting(Document::getId).containsExactly("doc-42");
+
+        store.delete("category == 'rare'");
+        assertThat(store.size()).isEqualTo(DOCUMENTS - DOCUMENTS / 100);
+        assertThat(store.similaritySearch(SearchRequest.builder()
+                .query("query").topK(5).filterExpression("category == 'rare'").build())).isEmpty();
+    }
+
+    @Test
+    void restoresFromSnapshot(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("hnsw.snap");
+        vectors.put("query", randomVector());
+        SearchRequest request = SearchRequest.builder().query("query").topK(10).build();
+        List<Document> expected;
+
+        try (HnswVectorStore writer = HnswVectorStore.builder(new LookupEmbeddingModel(vectors))
+                .snapshotFile(file).snapshotIntervalMs(0).build()) {
+            writer.add(IntStream.range(0, DOCUMENTS)
+                    .mapToObj(i -> Document.builder().id("doc-" + i).text("doc-" + i).metadata("index", i).build())
+                    .toList());
+            writer.delete(List.of("doc-7"));
+            expected = writer.similaritySearch(request);
+            assertThat(writer.snapshot()).isTrue();
+            assertThat(writer.snapshot()).isFalse();
+        }
+        try (HnswVectorStore restored = HnswVectorStore.builder(new LookupEmbeddingModel(vectors))
+                .snapshotFile(file).snapshotIntervalMs(0).build()) {
+            assertThat(restored.size()).isEqualTo(DOCUMENTS - 1);
+            List<Document> actual = restored.similaritySearch(request);
+            assertThat(actual).extracting(Document::getId)
+                    .containsExactlyElementsOf(expected.stream().map(Document::getId).toList());
+            assertThat(actual.get(0).getMetadata()).containsEntry("index", expected.get(0).getMetadata().get("index"));
+        }
+    }
+
+    @Test
+    void concurrentSnapshotsWriteOnce(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("hnsw.snap");
+        try (HnswVectorStore writer = HnswVectorStore.builder(new LookupEmbeddingModel(vectors))
+                .snapshotFile(file).snapshotIntervalMs(0).build()) {
+            writer.add(IntStream.range(0, DOCUMENTS)
+                    .mapToObj(i -> Document.builder().id("doc-" + i).text("doc-" + i).build())
+                    .toList());
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Boolean>> results = executor.invokeAll(
+                        IntStream.range(0, 4).<Callable<Boolean>>mapToObj(i -> writer::snapshot).toList());
+                int written = 0;
+                for (Future<Boolean> result : results) {
+                    written += result.get() ? 1 : 0;
+                }
+                assertThat(written).isEqualTo(1);
+            } finally {
+                executor.shutdown();
+            }
+        }
+        try (HnswVectorStore restored = HnswVectorStore.builder(new LookupEmbeddingModel(vectors))
+                .snapshotFile(file).snapshotIntervalMs(0).build()) {
+            assertThat(restored.size()).isEqualTo(DOCUMENTS);
+        }
+    }
+
+    private List<String> bruteForce(String query, int topK, Predicate<String> accept) {
+        float[] q = vectors.get(query);
+        return IntStream.range(0, DOCUMENTS)
+                .mapToObj(i -> "doc-" + i)
+                .filter(accept)
+                .sorted(Comparator.comparingDouble(id -> -cosine(q, vectors.get(id))))
+                .limit(topK)
+                .toList();
+    }
+
+    /**
+     * 围绕随机簇中心生成向量，比各向同性的随机向量更接近真实文本向量的分布
+     */
+    private float[] randomVector() {
+        float[] center = centers[random.nextInt(CLUSTERS)];
+        float[] vector = gaussian(0.6);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] += center[i];
+        }
+        return vector;
+    }
+
+    private float[] gaussian(double scale) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) (random.nextGaussian() * scale);
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    /**
+     * 按文本查表返回预先生成的向量
+     */
+    private record LookupEmbeddingModel(Map<String, float[]> vectors) implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(vectors.get(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vectors.get(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.springai.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * OffHeapVectors 测试：按需扩容、跨段读写、堆外点积与已有段文件的保留
+ */
+class OffHeapVectorsTests {
+
+    private static final int DIMENSIONS = 37;
+    // 每段 3000 个向量，5000 个向量跨两段，且第一段需要多次扩容
+    private static final long SEGMENT_BYTES = 3000L * DIMENSIONS * Float.BYTES;
+
+    @Test
+    void growsDirectSegmentsOnDemand() {
+        try (OffHeapVectors vectors = new OffHeapVectors(DIMENSIONS, null, SEGMENT_BYTES)) {
+            verifyRoundTrip(vectors, 5000);
+        }
+    }
+
+    @Test
+    void growsMappedSegmentsWithoutTruncatingExistingFiles(@TempDir Path directory) throws IOException {
+        Path existing = directory.resolve("vectors-0.bin");
+        byte[] content = new byte[4 * (int) SEGMENT_BYTES];
+        Files.write(existing, content);
+        try (OffHeapVectors vectors = new OffHeapVectors(DIMENSIONS, directory, SEGMENT_BYTES)) {
+            verifyRoundTrip(vectors, 5000);
+        }
+        assertThat(Files.size(existing)).isEqualTo(content.length);
+        assertThat(Files.exists(directory.resolve("vectors-1.bin"))).isTrue();
+    }
+
+    private static void verifyRoundTrip(OffHeapVectors vectors, int count) {
+        Random random = new Random(3);
+        float[][] expected = new float[count][DIMENSIONS];
+        for (int node = 0; node < count; node++) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                expected[node][d] = (float) random.nextGaussian();
+            }
+            vectors.set(node, expected[node]);
+        }
+        float[] query = expected[count / 2];
+        float[] actual = new float[DIMENSIONS];
+        for (int node = 0; node < count; node++) {
+            vectors.get(node, actual);
+            assertThat(actual).containsExactly(expected[node]);
+            assertThat(vectors.dot(node, query))
+                    .isCloseTo(DotProduct.INSTANCE.dot(query, expected[node]), within(1e-4f));
+        }
+    }
+}
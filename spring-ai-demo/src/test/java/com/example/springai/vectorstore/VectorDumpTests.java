@@ -0,0 +1,135 @@
+package com.example.springai.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 导出文件格式测试：跨多个数据块的往返读写、空文件，以及损坏、截断和块头无效的检测
+ */
+class VectorDumpTests {
+
+    private static final int DIMENSIONS = 256;
+
+    @Test
+    void roundTripsRecordsAcrossChunks() throws IOException {
+        List<VectorDumpRecord> records = records(6000);
+        byte[] dump = write(records);
+
+        try (VectorDumpReader reader = new VectorDumpReader(new ByteArrayInputStream(dump))) {
+            assertThat(reader.dimensions()).isEqualTo(DIMENSIONS);
+            for (VectorDumpRecord expected : records) {
+                VectorDumpRecord actual = reader.next();
+                assertThat(actual).isNotNull();
+                assertThat(actual.id()).isEqualTo(expected.id());
+                assertThat(actual.text()).isEqualTo(expected.text());
+                assertThat(actual.metadata()).isEqualTo(expected.metadata());
+                assertThat(actual.updatedAt()).isEqualTo(expected.updatedAt());
+                assertThat(actual.embedding()).containsExactly(expected.embedding());
+            }
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void writesEmptyDump() throws IOException {
+        try (VectorDumpReader reader = new VectorDumpReader(new ByteArrayInputStream(write(List.of())))) {
+            assertThat(reader.dimensions()).isZero();
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void detectsCorruptedChunk() throws IOException {
+        byte[] dump = write(records(100));
+        dump[dump.length / 2] ^= 0x55;
+
+        assertThatThrownBy(() -> readAll(dump)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void detectsTruncatedDump() throws IOException {
+        byte[] dump = write(records(6000));
+
+        assertThatThrownBy(() -> readAll(Arrays.copyOf(dump, dump.length - 12)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("不完整");
+    }
+
+    @Test
+    void rejectsOversizedChunkHeaderWithoutAllocating() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(VectorDumpWriter.MAGIC);
+        data.writeInt(VectorDumpWriter.VERSION);
+        data.writeInt(DIMENSIONS);
+        data.writeInt(1);
+        data.writeInt(Integer.MAX_VALUE);
+        data.writeInt(Integer.MAX_VALUE);
+        data.writeInt(0);
+
+        assertThatThrownBy(() -> readAll(out.toByteArray()))
+                .isInstanceOf(VectorDumpFormatException.class)
+                .hasMessageContaining("块头无效");
+    }
+
+    @Test
+    void rejectsRecordCountNotMatchingChunk() throws IOException {
+        // 块头的记录数不在 CRC 覆盖范围内，改动后块内容仍能通过校验
+        byte[] dump = write(records(2));
+        int countOffset = 3 * Integer.BYTES;
+        for (int count : new int[] {1, 3}) {
+            byte[] patched = dump.clone();
+            ByteBuffer.wrap(patched).putInt(countOffset, count);
+
+            assertThatThrownBy(() -> readAll(patched))
+                    .isInstanceOf(VectorDumpFormatException.class)
+                    .hasMessageContaining("记录数与内容长度不符");
+        }
+    }
+
+    private static List<VectorDumpRecord> records(int count) {
+        Random random = new Random(11);
+        List<VectorDumpRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            float[] embedding = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                embedding[d] = (float) random.nextGaussian();
+            }
+            records.add(new VectorDumpRecord("doc-" + i, "第 " + i + " 篇文档\t含制表符\n和换行",
+                    i % 10 == 0 ? null : "{\"category\":\"c" + (i % 7) + "\"}", embedding, 1_700_000_000_000L + i));
+        }
+        return records;
+    }
+
+    private static byte[] write(List<VectorDumpRecord> records) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (VectorDumpWriter writer = new VectorDumpWriter(out)) {
+            for (VectorDumpRecord record : records) {
+                writer.write(record);
+            }
+            writer.finish();
+            assertThat(writer.records()).isEqualTo(records.size());
+        }
+        return out.toByteArray();
+    }
+
+    private static void readAll(byte[] dump) throws IOException {
+        try (VectorDumpReader reader = new VectorDumpReader(new ByteArrayInputStream(dump))) {
+            while (reader.next() != null) {
+                // 读到结束块才会校验记录总数
+            }
+        }
+    }
+}